@@ -0,0 +1,83 @@
+package benchmark;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The BenchmarkCompare class compares two JMH result files, as written by gradle jmh, and reports
+ * every benchmark whose score got worse by more than the allowed percentage. It exits with status
+ * 1 when it finds a regression, so it can gate a release.
+ *
+ * Every benchmark here reports time per operation, so a higher score is worse; for a throughput
+ * benchmark a lower score is.
+ *
+ * Run it with: gradle benchmarkMain -Pbenchmark=benchmark.BenchmarkCompare
+ *                  -Pargs="baseline.json candidate.json [maxRegressionPercent]"
+ */
+public class BenchmarkCompare {
+
+	private static final Pattern BENCHMARK = Pattern.compile("\"benchmark\"\\s*:\\s*\"([^\"]+)\"");
+	private static final Pattern MODE = Pattern.compile("\"mode\"\\s*:\\s*\"([^\"]+)\"");
+	private static final Pattern PARAMS = Pattern.compile("\"params\"\\s*:\\s*\\{([^}]*)\\}");
+	private static final Pattern SCORE = Pattern.compile("\"primaryMetric\"\\s*:\\s*\\{\\s*\"score\"\\s*:\\s*([-0-9.eE]+|\"NaN\")");
+
+	// Reads the score of every benchmark in a result file, as a time per operation. The key is the
+	// benchmark method followed by its parameters.
+	static Map<String, Double> readScores(Path file) throws IOException {
+		String json = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+		Map<String, Double> scores = new LinkedHashMap<>();
+		// Each result starts with the JMH version
+		for (String result : json.split("\"jmhVersion\"")) {
+			Matcher benchmark = BENCHMARK.matcher(result);
+			Matcher score = SCORE.matcher(result);
+			if (!benchmark.find() || !score.find() || score.group(1).contains("NaN")) {
+				continue;
+			}
+			String key = benchmark.group(1).replaceFirst("^benchmark\\.", "");
+			Matcher params = PARAMS.matcher(result);
+			if (params.find()) {
+				key += " " + params.group(1).replaceAll("[\\s\"]", "").replace(":", "=");
+			}
+			Matcher mode = MODE.matcher(result);
+			double value = Double.parseDouble(score.group(1));
+			scores.put(key, mode.find() && mode.group(1).equals("thrpt") ? 1 / value : value);
+		}
+		return scores;
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.err.println("Usage: java benchmark.BenchmarkCompare <baseline.json> <candidate.json> [maxRegressionPercent]");
+			System.exit(2);
+		}
+		Map<String, Double> baseline = readScores(Paths.get(args[0]));
+		Map<String, Double> candidate = readScores(Paths.get(args[1]));
+		double allowed = args.length > 2 ? Double.parseDouble(args[2]) : 10.0;
+
+		int regressions = 0;
+		for (Map.Entry<String, Double> entry : candidate.entrySet()) {
+			Double before = baseline.get(entry.getKey());
+			if (before == null) {
+				System.out.println(String.format(Locale.ROOT, "%-70s new", entry.getKey()));
+				continue;
+			}
+			double change = (entry.getValue() - before) / before * 100;
+			boolean regressed = change > allowed;
+			if (regressed) {
+				regressions++;
+			}
+			System.out.println(String.format(Locale.ROOT, "%-70s %+7.1f%%%s", entry.getKey(), change,
+					regressed ? "  REGRESSION" : ""));
+		}
+		System.out.println(regressions + " regression(s) above " + allowed + "%");
+		System.exit(regressions == 0 ? 0 : 1);
+	}
+}
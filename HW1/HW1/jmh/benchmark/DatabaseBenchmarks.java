@@ -0,0 +1,143 @@
+package benchmark;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import application.User;
+import databasePart1.AuthResult;
+import databasePart1.DatabaseHelper;
+
+/**
+ * The DatabaseBenchmarks class measures the DatabaseHelper operations used by the sign-up and login
+ * pages against one H2 database. Each runs once with an in-memory database and once with a file
+ * database, so the cost of the storage layer can be told apart from the cost of the code. The
+ * lookups and logins run against a fixture of users registered before the measurements.
+ *
+ * The logins and registrations hash a password, so they take tens of milliseconds and are timed
+ * in samples rather than averaged over many calls.
+ *
+ * Run it with: gradle jmh -Pjmh="DatabaseBenchmarks"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DatabaseBenchmarks {
+
+	static final int FIXTURE_USERS = 200;
+	static final String FIXTURE_PASSWORD = "Bench!Pass1";
+	static final int CODES_PER_ITERATION = 5_000;
+
+	@Param({ "memory", "file" })
+	public String storage;
+
+	private Path directory;
+	private DatabaseHelper databaseHelper;
+	private final String nonce = Long.toString(System.nanoTime(), 36);
+	private int next;
+	private List<String> codes;
+
+	@Setup
+	public void connect() throws Exception {
+		String url;
+		if (storage.equals("memory")) {
+			url = "jdbc:h2:mem:benchmark" + nonce + ";DB_CLOSE_DELAY=-1";
+		} else {
+			directory = Files.createTempDirectory("cse360-benchmark");
+			url = "jdbc:h2:" + directory.toAbsolutePath() + "/benchmark";
+		}
+		databaseHelper = new DatabaseHelper(url);
+		databaseHelper.connectToDatabase();
+
+		List<User> fixture = new ArrayList<>(FIXTURE_USERS);
+		for (int i = 0; i < FIXTURE_USERS; i++) {
+			fixture.add(new User(fixtureName(i), FIXTURE_PASSWORD, "user"));
+		}
+		databaseHelper.registerAll(fixture);
+	}
+
+	// Each redemption uses up a code, so issue a fresh supply before every iteration; once they run
+	// out the same codes are tried again and fail
+	@Setup(Level.Iteration)
+	public void issueCodes() {
+		codes = new ArrayList<>(CODES_PER_ITERATION);
+		for (int i = 0; i < CODES_PER_ITERATION; i++) {
+			codes.add(databaseHelper.generateInvitationCode());
+		}
+	}
+
+	@TearDown
+	public void close() throws Exception {
+		databaseHelper.closeConnection();
+		if (directory != null) {
+			Fixtures.delete(directory);
+		}
+	}
+
+	static String fixtureName(int i) {
+		return "benchUser" + i;
+	}
+
+	@Benchmark
+	public void register() throws SQLException {
+		databaseHelper.register(new User("reg" + nonce + next++, FIXTURE_PASSWORD, "user"));
+	}
+
+	@Benchmark
+	public boolean login() throws SQLException {
+		return databaseHelper.login(new User(fixtureName(next++ % FIXTURE_USERS), FIXTURE_PASSWORD, "user"));
+	}
+
+	@Benchmark
+	public AuthResult authenticate() throws SQLException {
+		return databaseHelper.authenticate(fixtureName(next++ % FIXTURE_USERS), FIXTURE_PASSWORD);
+	}
+
+	// The login flow UserLoginPage used before authenticate(): a role lookup, then login
+	@Benchmark
+	public boolean getUserRoleThenLogin() throws SQLException {
+		String userName = fixtureName(next++ % FIXTURE_USERS);
+		String role = databaseHelper.getUserRole(userName);
+		return databaseHelper.login(new User(userName, FIXTURE_PASSWORD, role));
+	}
+
+	@Benchmark
+	public boolean doesUserExist() {
+		return databaseHelper.doesUserExist(fixtureName(next++ % FIXTURE_USERS));
+	}
+
+	@Benchmark
+	public String getUserRole() {
+		return databaseHelper.getUserRole(fixtureName(next++ % FIXTURE_USERS));
+	}
+
+	@Benchmark
+	public String generateInvitationCode() {
+		return databaseHelper.generateInvitationCode();
+	}
+
+	@Benchmark
+	public boolean validateInvitationCode() {
+		return databaseHelper.validateInvitationCode(codes.get(next++ % codes.size()));
+	}
+}
@@ -0,0 +1,245 @@
+package benchmark;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import databasePart2.DuplicateDetector;
+
+/**
+ * The DuplicateDetectorBenchmark class measures how long the duplicate detector takes to check a
+ * question with a million questions in it. The questions are drawn from {@link ZipfText}, as the
+ * search index benchmark's posts are, with titles of 8 words and bodies of 20 to 60. A new question
+ * usually has no near duplicate, so checking one that does not is the common case; posts and edits
+ * go into the tail, which is merged into the bands in the background.
+ *
+ * Its main method reports how many near duplicates the detector finds, how long it takes to build,
+ * and its size. The near duplicates are existing questions asked again with some of their words
+ * changed: each word is replaced, dropped or followed by a new one at a rate drawn between 0 and
+ * 40%, so their similarity to the original spreads from 1 down to well below the threshold. The
+ * similarity of each to its original is computed exactly, and the recall is the share of those at
+ * or above the threshold whose original the detector returns, overall and by tenths of similarity.
+ * The detector's estimate is also compared with the exact similarity of every question it returns.
+ *
+ * The detector is built without a database, so only the detector is measured. Run it with a heap
+ * of at least 2 GB.
+ *
+ * Run it with: gradle jmh -Pjmh="DuplicateDetectorBenchmark"
+ *              gradle benchmarkMain -Pbenchmark=benchmark.DuplicateDetectorBenchmark
+ *                  [-Pargs="--questions 1000000 --threshold 0.5 --queries 2000"]
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class DuplicateDetectorBenchmark {
+
+	static final int TITLE_WORDS = 8;
+	static final int MIN_BODY_WORDS = 20;
+	static final int MAX_BODY_WORDS = 60;
+	static final double MAX_EDIT_RATE = 0.4;
+	static final int LIMIT = 10;
+
+	@Param("1000000")
+	public int questions;
+
+	private final ZipfText words = new ZipfText();
+	private final String[][] nearDuplicates = new String[1024][];
+	private final String[][] newQuestions = new String[1024][];
+	private DuplicateDetector detector;
+	private long nextQuestion;
+	private int next;
+
+	@Setup
+	public void build() {
+		detector = build(questions, DuplicateDetector.DEFAULT_THRESHOLD, words);
+		nextQuestion = questions + 1;
+		Random random = new Random(7);
+		for (int i = 0; i < nearDuplicates.length; i++) {
+			String[] original = question(1 + random.nextInt(questions), words);
+			double rate = random.nextDouble() * MAX_EDIT_RATE;
+			nearDuplicates[i] = new String[] { edit(original[0], rate, random, words), edit(original[1], rate, random, words) };
+			newQuestions[i] = question(-1 - i, words);
+		}
+	}
+
+	@TearDown
+	public void close() {
+		detector.close();
+	}
+
+	/**
+	 * Adds a thousand new questions before every iteration, so the checks run while they are in
+	 * the tail or being merged into the bands.
+	 */
+	@State(Scope.Benchmark)
+	public static class Added {
+		@Setup(Level.Iteration)
+		public void addQuestions(DuplicateDetectorBenchmark benchmark) {
+			for (int i = 0; i < 1_000; i++) {
+				benchmark.add();
+			}
+		}
+	}
+
+	@Benchmark
+	public List<DuplicateDetector.Match> findSimilarNearDuplicate() {
+		String[] question = nearDuplicates[next++ & 1023];
+		return detector.findSimilar(question[0], question[1], LIMIT);
+	}
+
+	@Benchmark
+	public List<DuplicateDetector.Match> findSimilarNewQuestion() {
+		String[] question = newQuestions[next++ & 1023];
+		return detector.findSimilar(question[0], question[1], LIMIT);
+	}
+
+	@Benchmark
+	public void add() {
+		String[] question = question(nextQuestion, words);
+		detector.add(nextQuestion++, question[0], question[1]);
+	}
+
+	@Benchmark
+	public List<DuplicateDetector.Match> findSimilarAfterAdds(Added added) {
+		String[] question = newQuestions[next++ & 1023];
+		return detector.findSimilar(question[0], question[1], LIMIT);
+	}
+
+	// The title and body of the question with the given number, the same every time
+	static String[] question(long n, ZipfText words) {
+		Random random = new Random(n);
+		String title = words.text(random, TITLE_WORDS);
+		return new String[] { title, words.text(random, MIN_BODY_WORDS + random.nextInt(MAX_BODY_WORDS - MIN_BODY_WORDS + 1)) };
+	}
+
+	// Rewrites a text with each word replaced, dropped or followed by a new one at the given rate
+	static String edit(String text, double rate, Random random, ZipfText words) {
+		StringBuilder edited = new StringBuilder(text.length() + 16);
+		for (String word : text.trim().split(" ")) {
+			double roll = random.nextDouble();
+			if (roll < rate / 2) {
+				edited.append(words.randomWord(random)).append(' ');
+			} else if (roll < rate * 3 / 4) {
+				continue;
+			} else {
+				edited.append(word).append(' ');
+				if (roll > 1 - rate / 4) {
+					edited.append(words.randomWord(random)).append(' ');
+				}
+			}
+		}
+		return edited.toString();
+	}
+
+	// Builds a detector of the given number of questions
+	static DuplicateDetector build(int questions, double threshold, ZipfText words) {
+		DuplicateDetector detector = new DuplicateDetector(threshold);
+		detector.startRebuild();
+		for (int n = 1; n <= questions; n++) {
+			String[] question = question(n, words);
+			detector.add(n, question[0], question[1]);
+		}
+		detector.finishRebuild();
+		return detector;
+	}
+
+	// Reports the recall, build time and size of the detector
+	public static void main(String[] args) throws Exception {
+		int questions = 1_000_000;
+		double threshold = DuplicateDetector.DEFAULT_THRESHOLD;
+		int queries = 2_000;
+		for (int i = 0; i + 1 < args.length; i += 2) {
+			switch (args[i]) {
+			case "--questions": questions = Integer.parseInt(args[i + 1]); break;
+			case "--threshold": threshold = Double.parseDouble(args[i + 1]); break;
+			case "--queries": queries = Integer.parseInt(args[i + 1]); break;
+			default:
+				System.err.println("Unknown option " + args[i]);
+				System.exit(2);
+			}
+		}
+
+		ZipfText words = new ZipfText();
+		long before = UserNameIndexBenchmark.usedHeap();
+		long start = System.nanoTime();
+		DuplicateDetector detector = build(questions, threshold, words);
+		long buildNanos = System.nanoTime() - start;
+		long heapBytes = UserNameIndexBenchmark.usedHeap() - before;
+		System.out.printf(Locale.ROOT, "Built from %,d questions in %.1f s%n", questions, buildNanos / 1e9);
+		System.out.printf("Heap: %,d bytes (%.1f per question); estimated %,d%n", heapBytes, (double) heapBytes / questions,
+				detector.estimateBytes());
+
+		// Ask existing questions again with words changed, and see whether their originals are found
+		Random random = new Random(7);
+		int[] atThreshold = new int[11];
+		int[] found = new int[11];
+		double estimateError = 0;
+		int returned = 0;
+		int returnedBelow = 0;
+		for (int q = 0; q < queries; q++) {
+			long original = 1 + random.nextInt(questions);
+			String[] asked = question(original, words);
+			double rate = random.nextDouble() * MAX_EDIT_RATE;
+			String title = edit(asked[0], rate, random, words);
+			String body = edit(asked[1], rate, random, words);
+			double exact = DuplicateDetector.similarity(title, body, asked[0], asked[1]);
+
+			boolean hit = false;
+			for (DuplicateDetector.Match match : detector.findSimilar(title, body, LIMIT)) {
+				String[] other = question(match.getQuestionId(), words);
+				double similarity = DuplicateDetector.similarity(title, body, other[0], other[1]);
+				estimateError += Math.abs(match.getSimilarity() - similarity);
+				returned++;
+				if (similarity < threshold) {
+					returnedBelow++;
+				}
+				hit |= match.getQuestionId() == original;
+			}
+			if (exact >= threshold) {
+				int tenth = (int) Math.min(10, exact * 10);
+				atThreshold[tenth]++;
+				if (hit) {
+					found[tenth]++;
+				}
+			}
+		}
+		int total = 0;
+		int totalFound = 0;
+		for (int tenth = 0; tenth <= 10; tenth++) {
+			if (atThreshold[tenth] > 0) {
+				System.out.printf(Locale.ROOT, "  similarity %.1f-%.1f: found %d of %d (%.1f%%)%n", tenth / 10.0,
+						Math.min(1.0, (tenth + 1) / 10.0), found[tenth], atThreshold[tenth], 100.0 * found[tenth] / atThreshold[tenth]);
+				total += atThreshold[tenth];
+				totalFound += found[tenth];
+			}
+		}
+		System.out.printf(Locale.ROOT, "Recall at similarity >= %.2f: %d of %d near duplicates (%.1f%%)%n", threshold, totalFound,
+				total, 100.0 * totalFound / Math.max(1, total));
+		System.out.printf(Locale.ROOT, "Returned %d questions; %d (%.1f%%) below the threshold by exact similarity;"
+				+ " mean estimate error %.3f%n", returned, returnedBelow, 100.0 * returnedBelow / Math.max(1, returned),
+				estimateError / Math.max(1, returned));
+
+		start = System.nanoTime();
+		detector.merge();
+		System.out.printf(Locale.ROOT, "Merged in %.0f ms; %s%n", (System.nanoTime() - start) / 1e6, detector);
+		detector.close();
+	}
+}
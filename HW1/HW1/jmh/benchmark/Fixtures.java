@@ -0,0 +1,80 @@
+package benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * The Fixtures class keeps the large databases and indexes the benchmarks run against in a
+ * directory on disk, so that they are built once rather than in every JMH fork. A fixture counts as
+ * built once its builder has finished and left a marker file; one left half built by an aborted
+ * run is deleted and built again.
+ *
+ * The directory is build/benchmark-fixtures, or the one given by the benchmark.fixtures system
+ * property. Delete it to rebuild every fixture.
+ */
+public class Fixtures {
+
+	static final String COMPLETE = ".complete";
+
+	/**
+	 * Fills a fixture directory.
+	 */
+	@FunctionalInterface
+	public interface Builder {
+		void build(Path directory) throws Exception;
+	}
+
+	/**
+	 * Returns the directory of a fixture, building it first if it is not there yet.
+	 *
+	 * @param name    The name of the fixture, which should include its size
+	 * @param builder Fills an empty directory with the fixture
+	 */
+	public static synchronized Path get(String name, Builder builder) throws Exception {
+		Path directory = Paths.get(System.getProperty("benchmark.fixtures", "build/benchmark-fixtures"), name).toAbsolutePath();
+		if (Files.exists(directory.resolve(COMPLETE))) {
+			return directory;
+		}
+		delete(directory);
+		Files.createDirectories(directory);
+		long start = System.nanoTime();
+		builder.build(directory);
+		Files.createFile(directory.resolve(COMPLETE));
+		System.out.printf("Built the %s fixture in %.1f s%n", name, (System.nanoTime() - start) / 1e9);
+		return directory;
+	}
+
+	/**
+	 * Copies a fixture to a new temporary directory, for a benchmark that changes it.
+	 */
+	public static Path copy(Path fixture) throws IOException {
+		Path copy = Files.createTempDirectory("cse360-" + fixture.getFileName());
+		try (Stream<Path> files = Files.walk(fixture)) {
+			for (Path file : (Iterable<Path>) files::iterator) {
+				Path target = copy.resolve(fixture.relativize(file).toString());
+				if (Files.isDirectory(file)) {
+					Files.createDirectories(target);
+				} else if (!file.getFileName().toString().equals(COMPLETE)) {
+					Files.copy(file, target);
+				}
+			}
+		}
+		return copy;
+	}
+
+	// Deletes a directory and everything in it
+	public static void delete(Path directory) throws IOException {
+		if (!Files.exists(directory)) {
+			return;
+		}
+		try (Stream<Path> files = Files.walk(directory)) {
+			for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+				Files.delete(file);
+			}
+		}
+	}
+}
@@ -0,0 +1,122 @@
+package benchmark;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import application.IncrementalPasswordValidator;
+import application.IncrementalUserNameValidator;
+import application.PasswordValidator;
+import application.SetupAccountPage;
+import application.UserNameValidator;
+
+/**
+ * The KeystrokeBenchmarks class replays typing, pasting and editing in a text field, and compares
+ * validating the whole text after every edit with the incremental validators the setup page uses.
+ * Each invocation applies the next edit of the script, so the incremental validators see the edits
+ * in order, as they would in the field.
+ *
+ * Run it with: gradle jmh -Pjmh="KeystrokeBenchmarks"
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KeystrokeBenchmarks {
+
+	static final String TYPED = "Abcdefg1@xyzQ2!a";
+
+	/**
+	 * typing types a password one character at a time, then clears the field; typing256 does the
+	 * same with a password of 256 characters; pasting pastes a whole password, then another; and
+	 * editing inserts a character in the middle of a password, then deletes it again.
+	 */
+	@Param({ "typing", "typing256", "pasting", "editing" })
+	public String script;
+
+	// The text after each edit and the index where it changed
+	private String[] texts;
+	private int[] changeStarts;
+	private int next;
+	private final IncrementalPasswordValidator password = new IncrementalPasswordValidator();
+	private final IncrementalUserNameValidator userName = new IncrementalUserNameValidator();
+	private PrintStream console;
+
+	@Setup
+	public void setUp() {
+		switch (script) {
+		case "typing": typing(TYPED); break;
+		case "typing256": typing(TYPED.repeat(16)); break;
+		case "pasting":
+			texts = new String[] { "Abcdefg1@xyzQ2!a", "Passw0rd!Secret1" };
+			changeStarts = new int[] { 0, 0 };
+			break;
+		case "editing":
+			texts = new String[] { "Abcdefg1X@xyzQ2!", "Abcdefg1@xyzQ2!" };
+			changeStarts = new int[] { 8, 8 };
+			break;
+		default:
+			throw new IllegalArgumentException("Unknown script " + script);
+		}
+		console = System.out;
+		System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+	}
+
+	@TearDown
+	public void restoreConsole() {
+		System.setOut(console);
+	}
+
+	// Types the text one character at a time, then clears the field
+	private void typing(String text) {
+		texts = new String[text.length() + 1];
+		changeStarts = new int[text.length() + 1];
+		for (int i = 0; i <= text.length(); i++) {
+			texts[i] = text.substring(0, i);
+			changeStarts[i] = Math.max(0, i - 1);
+		}
+	}
+
+	// The original evaluator on every keystroke, for reference
+	@Benchmark
+	public String passwordEvaluator() {
+		return SetupAccountPage.PasswordEvaluator.evaluatePassword(texts[next++ % texts.length]);
+	}
+
+	@Benchmark
+	public PasswordValidator.Result passwordValidator() {
+		return PasswordValidator.evaluate(texts[next++ % texts.length]);
+	}
+
+	@Benchmark
+	public PasswordValidator.Result incrementalPasswordValidator() {
+		int i = next++ % texts.length;
+		return password.update(texts[i], changeStarts[i]);
+	}
+
+	@Benchmark
+	public UserNameValidator.Result userNameValidator() {
+		return UserNameValidator.validate(texts[next++ % texts.length]);
+	}
+
+	@Benchmark
+	public UserNameValidator.Result incrementalUserNameValidator() {
+		int i = next++ % texts.length;
+		return userName.update(texts[i], changeStarts[i]);
+	}
+}
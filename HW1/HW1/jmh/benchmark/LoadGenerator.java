@@ -0,0 +1,270 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import application.PasswordValidator;
+import application.User;
+import application.UserNameValidator;
+import databasePart1.AuthResult;
+import databasePart1.DatabaseHelper;
+import databasePart1.LatencyHistogram;
+import databasePart1.RegistrationResult;
+
+/**
+ * The LoadGenerator class drives the sign-up and login flows of the application directly against
+ * DatabaseHelper, without any JavaFX pages, using many concurrent virtual users. It follows the same
+ * steps as the pages: FirstPage and AdminSetupPage create the administrator, InvitationPage hands
+ * out a code, SetupAccountPage validates the input and redeems the code, and UserLoginPage logs in.
+ *
+ * Each virtual user picks a flow at random according to the mix, runs it, then waits for an
+ * exponentially distributed think time. At the end the throughput, latency percentiles and error
+ * count of every operation are printed.
+ *
+ * Run it with: gradle benchmarkMain -Pbenchmark=benchmark.LoadGenerator [-Pargs="--users 200 --duration 60
+ *                  --think-ms 500 --mix signup=1,login=4 --seed-users 500 --url jdbc:..."]
+ */
+public class LoadGenerator {
+
+	static final String PASSWORD = "Load!Test1";
+
+	/**
+	 * The counters of one operation.
+	 */
+	static final class OperationStats {
+		final LatencyHistogram latency = new LatencyHistogram();
+		final LongAdder errors = new LongAdder();
+	}
+
+	private final DatabaseHelper databaseHelper;
+	private final Map<String, OperationStats> stats = new LinkedHashMap<>();
+	// Users that exist and can log in; sign-ups add to it as the run goes on
+	private final List<String> knownUsers = new CopyOnWriteArrayList<>();
+	private final AtomicInteger nameSequence = new AtomicInteger();
+	private final String runId = Long.toString(System.currentTimeMillis() % 1_000_000, 36);
+
+	private final int signupWeight;
+	private final int loginWeight;
+	private final long thinkMillis;
+
+	public LoadGenerator(DatabaseHelper databaseHelper, int signupWeight, int loginWeight, long thinkMillis) {
+		this.databaseHelper = databaseHelper;
+		this.signupWeight = signupWeight;
+		this.loginWeight = loginWeight;
+		this.thinkMillis = thinkMillis;
+		for (String operation : new String[] { "adminSetup", "generateInvitationCode", "registerWithInvitation",
+				"signupFlow", "authenticate", "loginFlow" }) {
+			stats.put(operation, new OperationStats());
+		}
+	}
+
+	/**
+	 * An operation whose latency is recorded.
+	 */
+	@FunctionalInterface
+	interface TimedCall<T> {
+		T call() throws Exception;
+	}
+
+	// Runs a call, recording its latency, or an error if it throws or returns null
+	private <T> T timed(String operation, TimedCall<T> call) {
+		OperationStats operationStats = stats.get(operation);
+		long start = System.nanoTime();
+		try {
+			T result = call.call();
+			operationStats.latency.record(System.nanoTime() - start);
+			if (result == null) {
+				operationStats.errors.increment();
+			}
+			return result;
+		} catch (Exception e) {
+			operationStats.latency.record(System.nanoTime() - start);
+			operationStats.errors.increment();
+			return null;
+		}
+	}
+
+	// FirstPage -> AdminSetupPage: the first user creates the administrator account
+	void setUpAdministrator() {
+		User admin = new User("admin" + runId, PASSWORD, "admin");
+		timed("adminSetup", () -> {
+			databaseHelper.register(admin);
+			return Boolean.TRUE;
+		});
+	}
+
+	// Registers users that logins can use before any sign-up has finished
+	void seedUsers(int count) throws Exception {
+		List<User> users = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			users.add(new User(nextUserName(), PASSWORD, "user"));
+		}
+		databaseHelper.registerAll(users);
+		for (User user : users) {
+			knownUsers.add(user.getUserName());
+		}
+	}
+
+	// InvitationPage -> SetupAccountPage: an admin hands out a code and a student signs up with it
+	void signupFlow() {
+		long start = System.nanoTime();
+		String code = timed("generateInvitationCode", databaseHelper::generateInvitationCode);
+		if (code == null) {
+			stats.get("signupFlow").errors.increment();
+			return;
+		}
+
+		String userName = nextUserName();
+		// SetupAccountPage checks the input before it reaches the database
+		if (!UserNameValidator.validate(userName).isValid() || !PasswordValidator.evaluate(PASSWORD).isValid()) {
+			stats.get("signupFlow").errors.increment();
+			return;
+		}
+		RegistrationResult result = timed("registerWithInvitation", () ->
+				databaseHelper.registerWithInvitation(new User(userName, PASSWORD, "user"), code));
+		if (result == RegistrationResult.SUCCESS) {
+			knownUsers.add(userName);
+			stats.get("signupFlow").latency.record(System.nanoTime() - start);
+		} else {
+			stats.get("signupFlow").errors.increment();
+		}
+	}
+
+	// UserLoginPage: an existing user logs in
+	void loginFlow() {
+		long start = System.nanoTime();
+		String userName = knownUsers.get(ThreadLocalRandom.current().nextInt(knownUsers.size()));
+		AuthResult result = timed("authenticate", () -> databaseHelper.authenticate(userName, PASSWORD));
+		if (result != null && result.isSuccess()) {
+			stats.get("loginFlow").latency.record(System.nanoTime() - start);
+		} else {
+			stats.get("loginFlow").errors.increment();
+		}
+	}
+
+	// Builds a userName that passes UserNameValidator and has not been used in this run
+	private String nextUserName() {
+		return "u" + runId + "x" + nameSequence.incrementAndGet();
+	}
+
+	/**
+	 * Runs the virtual users until the duration has passed.
+	 *
+	 * @param users           The number of concurrent virtual users
+	 * @param durationSeconds How long to run
+	 */
+	void run(int users, long durationSeconds) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(durationSeconds);
+		CountDownLatch done = new CountDownLatch(users);
+		ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+		try {
+			for (int i = 0; i < users; i++) {
+				executor.submit(() -> {
+					try {
+						virtualUser(deadline);
+					} finally {
+						done.countDown();
+					}
+				});
+			}
+			done.await();
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private void virtualUser(long deadline) {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		while (System.nanoTime() < deadline) {
+			if (random.nextInt(signupWeight + loginWeight) < signupWeight) {
+				signupFlow();
+			} else {
+				loginFlow();
+			}
+			if (thinkMillis > 0) {
+				try {
+					// Exponentially distributed think time with the configured mean
+					long pause = (long) (-Math.log(1 - random.nextDouble()) * thinkMillis);
+					Thread.sleep(Math.min(pause, thinkMillis * 10));
+				} catch (InterruptedException e) {
+					return;
+				}
+			}
+		}
+	}
+
+	void printReport(long durationSeconds) {
+		System.out.println();
+		System.out.println(String.format(Locale.ROOT, "%-24s %9s %9s %10s %10s %10s %10s %8s",
+				"operation", "count", "ops/s", "mean ms", "p50 ms", "p99 ms", "p999 ms", "errors"));
+		for (Map.Entry<String, OperationStats> entry : stats.entrySet()) {
+			LatencyHistogram latency = entry.getValue().latency;
+			System.out.println(String.format(Locale.ROOT, "%-24s %9d %9.1f %10.2f %10.2f %10.2f %10.2f %8d",
+					entry.getKey(), latency.getCount(), (double) latency.getCount() / durationSeconds,
+					latency.getMeanNanos() / 1e6, latency.getPercentileMillis(0.50),
+					latency.getPercentileMillis(0.99), latency.getPercentileMillis(0.999),
+					entry.getValue().errors.sum()));
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		int users = 200;
+		long duration = 60;
+		long think = 500;
+		int seedUsers = 500;
+		int signup = 1;
+		int login = 4;
+		String url = "jdbc:h2:mem:loadtest;DB_CLOSE_DELAY=-1";
+
+		for (int i = 0; i + 1 < args.length; i += 2) {
+			String value = args[i + 1];
+			switch (args[i]) {
+			case "--users": users = Integer.parseInt(value); break;
+			case "--duration": duration = Long.parseLong(value); break;
+			case "--think-ms": think = Long.parseLong(value); break;
+			case "--seed-users": seedUsers = Integer.parseInt(value); break;
+			case "--url": url = value; break;
+			case "--mix":
+				for (String part : value.split(",")) {
+					String[] pair = part.split("=");
+					if (pair[0].equals("signup")) signup = Integer.parseInt(pair[1]);
+					else if (pair[0].equals("login")) login = Integer.parseInt(pair[1]);
+				}
+				break;
+			default:
+				System.err.println("Unknown option " + args[i]);
+				System.exit(2);
+			}
+		}
+		if (signup + login <= 0 || seedUsers < 1) {
+			System.err.println("The mix needs a positive weight and at least one seed user");
+			System.exit(2);
+		}
+
+		DatabaseHelper databaseHelper = new DatabaseHelper(url);
+		databaseHelper.connectToDatabase();
+		try {
+			LoadGenerator generator = new LoadGenerator(databaseHelper, signup, login, think);
+			generator.setUpAdministrator();
+			generator.seedUsers(seedUsers);
+
+			System.out.println("Running " + users + " virtual users for " + duration + " s, mix signup=" + signup
+					+ " login=" + login + ", think time " + think + " ms");
+			generator.run(users, duration);
+			generator.printReport(duration);
+		} finally {
+			databaseHelper.closeConnection();
+		}
+	}
+}
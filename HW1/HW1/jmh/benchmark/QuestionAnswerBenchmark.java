@@ -0,0 +1,250 @@
+package benchmark;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import databasePart1.DatabaseHelper;
+import databasePart1.PooledConnection;
+import databasePart2.Answer;
+import databasePart2.Page;
+import databasePart2.PageKey;
+import databasePart2.Question;
+import databasePart2.QuestionAnswerDAO;
+
+/**
+ * The QuestionAnswerBenchmark class compares keyset pagination with OFFSET pagination on a
+ * realistic question and answer database. The database holds a few million answers, a tenth of
+ * them under one popular question, and the benchmarks read pages 1, 100, 500 and 5000 of the
+ * question feed and of that question's answers, once through {@link QuestionAnswerDAO} and once
+ * with the same query written with OFFSET.
+ *
+ * The rows are inserted with plain JDBC batches and spread over a year of creation times, since
+ * going through the DAO one row at a time would take far longer than the measurements. The
+ * database is built once and kept as a fixture.
+ *
+ * Run it with: gradle jmh -Pjmh="QuestionAnswerBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QuestionAnswerBenchmark {
+
+	static final int INSERT_BATCH_SIZE = 10_000;
+	static final int USERS = 1_000;
+	static final long HOT_QUESTION = 1;
+	// Each benchmark cycles through this many neighbouring pages, since H2 hands back the previous
+	// result when a query is run again with the same parameters and nothing has changed
+	static final int SPREAD = 20;
+
+	// The same queries as QuestionAnswerDAO lists, with OFFSET in place of the seek predicate
+	private static final String OFFSET_QUESTIONS = "SELECT q.id, (SELECT userName FROM cse360users WHERE id = q.authorId), "
+			+ "q.title, q.body, q.createdAt, q.updatedAt, q.answerCount, q.resolved"
+			+ " FROM questions q USE INDEX (idx_questions_feed)"
+			+ " ORDER BY q.createdAt DESC, q.id DESC LIMIT ? OFFSET ?";
+	private static final String OFFSET_ANSWERS = "SELECT a.id, a.questionId, (SELECT userName FROM cse360users WHERE id = a.authorId), "
+			+ "a.body, a.createdAt, a.updatedAt, a.accepted"
+			+ " FROM answers a USE INDEX (idx_answers_question) WHERE a.questionId = ?"
+			+ " ORDER BY a.questionId, a.createdAt, a.id LIMIT ? OFFSET ?";
+
+	@Param({ "1", "100", "500", "5000" })
+	public int page;
+
+	@Param("200000")
+	public int questions;
+
+	@Param("2000000")
+	public int answers;
+
+	@Param("20")
+	public int pageSize;
+
+	private DatabaseHelper databaseHelper;
+	private QuestionAnswerDAO dao;
+	private PooledConnection pooled;
+	private PageKey[] feedKeys;
+	private PageKey[] answerKeys;
+	private int next;
+
+	@Setup
+	public void open() throws Exception {
+		Path directory = Fixtures.get("question-answer-" + questions + "-" + answers, fixture -> {
+			DatabaseHelper builder = new DatabaseHelper(url(fixture));
+			builder.connectToDatabase();
+			try (Connection connection = DriverManager.getConnection(url(fixture), "sa", "")) {
+				fill(connection, questions, answers);
+			} finally {
+				builder.closeConnection();
+			}
+		});
+		databaseHelper = new DatabaseHelper(url(directory));
+		databaseHelper.connectToDatabase();
+		dao = new QuestionAnswerDAO(databaseHelper);
+		feedKeys = findKeys(after -> dao.listQuestions(after, pageSize));
+		answerKeys = findKeys(after -> dao.listAnswers(HOT_QUESTION, after, pageSize));
+		if (feedKeys.length < page + SPREAD || answerKeys.length < page + SPREAD) {
+			throw new IllegalStateException("The fixture has fewer than " + (page + SPREAD) + " pages");
+		}
+		pooled = databaseHelper.getConnectionPool().borrow();
+	}
+
+	@TearDown
+	public void close() throws SQLException {
+		pooled.close();
+		databaseHelper.closeConnection();
+	}
+
+	static String url(Path directory) {
+		return "jdbc:h2:" + directory + "/qa";
+	}
+
+	@Benchmark
+	public Page<Question> feedKeyset() throws SQLException {
+		return dao.listQuestions(feedKeys[page + next++ % SPREAD], pageSize);
+	}
+
+	@Benchmark
+	public int feedOffset() throws SQLException {
+		PreparedStatement pstmt = pooled.prepare(OFFSET_QUESTIONS);
+		pstmt.setInt(1, pageSize);
+		pstmt.setInt(2, (page - 1 + next++ % SPREAD) * pageSize);
+		return drain(pstmt);
+	}
+
+	@Benchmark
+	public Page<Answer> answersKeyset() throws SQLException {
+		return dao.listAnswers(HOT_QUESTION, answerKeys[page + next++ % SPREAD], pageSize);
+	}
+
+	@Benchmark
+	public int answersOffset() throws SQLException {
+		PreparedStatement pstmt = pooled.prepare(OFFSET_ANSWERS);
+		pstmt.setLong(1, HOT_QUESTION);
+		pstmt.setInt(2, pageSize);
+		pstmt.setInt(3, (page - 1 + next++ % SPREAD) * pageSize);
+		return drain(pstmt);
+	}
+
+	@FunctionalInterface
+	private interface PageReader {
+		Page<?> read(PageKey after) throws SQLException;
+	}
+
+	// Walks the list page by page and returns the key that leads to each page, indexed by page
+	// number, as far as the deepest page measured or the end of the list
+	private PageKey[] findKeys(PageReader reader) throws SQLException {
+		List<PageKey> keys = new ArrayList<>();
+		keys.add(null);	// there is no page 0
+		keys.add(null);	// page 1 starts at the top
+		int last = page + SPREAD;
+		PageKey key = reader.read(null).getNextKey();
+		while (key != null && keys.size() < last) {
+			keys.add(key);
+			key = reader.read(key).getNextKey();
+		}
+		return keys.toArray(new PageKey[0]);
+	}
+
+	private static int drain(PreparedStatement pstmt) throws SQLException {
+		int rows = 0;
+		try (ResultSet rs = pstmt.executeQuery()) {
+			while (rs.next()) {
+				rs.getString(3);
+				rows++;
+			}
+		}
+		return rows;
+	}
+
+	// Inserts the users, questions and answers; one answer in ten goes to the popular question
+	static void fill(Connection connection, int questions, int answers) throws SQLException {
+		connection.setAutoCommit(false);
+		try (PreparedStatement pstmt = connection.prepareStatement("INSERT INTO cse360users (userName, role) VALUES (?, 1)")) {
+			for (int i = 0; i < USERS; i++) {
+				pstmt.setString(1, "student" + i);
+				pstmt.addBatch();
+			}
+			pstmt.executeBatch();
+			connection.commit();
+		}
+		int firstUser;
+		try (Statement statement = connection.createStatement();
+				ResultSet rs = statement.executeQuery("SELECT MIN(id) FROM cse360users")) {
+			rs.next();
+			firstUser = rs.getInt(1);
+		}
+
+		// Creation times are a year apart at most, in order of id, as they would be in real use
+		LocalDateTime origin = LocalDateTime.now().minusDays(365);
+		long stepMillis = 365L * 24 * 3600 * 1000 / Math.max(1, questions + answers);
+		try (PreparedStatement pstmt = connection.prepareStatement(
+				"INSERT INTO questions (id, authorId, title, body, createdAt) VALUES (?, ?, ?, ?, ?)")) {
+			for (int i = 1; i <= questions; i++) {
+				pstmt.setLong(1, i);
+				pstmt.setInt(2, firstUser + i % USERS);
+				pstmt.setString(3, "Question " + i + " about homework " + (i % 12));
+				pstmt.setString(4, "How do I solve part " + (i % 7) + " of the assignment? I tried " + i + " things.");
+				pstmt.setTimestamp(5, Timestamp.valueOf(origin.plusNanos(i * stepMillis * 1_000_000)));
+				pstmt.addBatch();
+				if (i % INSERT_BATCH_SIZE == 0) {
+					pstmt.executeBatch();
+					connection.commit();
+				}
+			}
+			pstmt.executeBatch();
+			connection.commit();
+		}
+
+		try (PreparedStatement pstmt = connection.prepareStatement(
+				"INSERT INTO answers (id, questionId, authorId, body, createdAt) VALUES (?, ?, ?, ?, ?)")) {
+			for (int i = 1; i <= answers; i++) {
+				long questionId = i % 10 == 0 ? HOT_QUESTION : 1 + (i * 7_919L) % questions;
+				pstmt.setLong(1, i);
+				pstmt.setLong(2, questionId);
+				pstmt.setInt(3, firstUser + (i * 31) % USERS);
+				pstmt.setString(4, "Try looking at lecture " + (i % 30) + ", it covers this.");
+				pstmt.setTimestamp(5, Timestamp.valueOf(origin.plusNanos((questions + i) * stepMillis * 1_000_000)));
+				pstmt.addBatch();
+				if (i % INSERT_BATCH_SIZE == 0) {
+					pstmt.executeBatch();
+					connection.commit();
+				}
+			}
+			pstmt.executeBatch();
+			connection.commit();
+		}
+
+		try (Statement statement = connection.createStatement()) {
+			statement.execute("UPDATE questions q SET answerCount = (SELECT COUNT(*) FROM answers a WHERE a.questionId = q.id)");
+			statement.execute("ALTER TABLE questions ALTER COLUMN id RESTART WITH " + (questions + 1));
+			statement.execute("ALTER TABLE answers ALTER COLUMN id RESTART WITH " + (answers + 1));
+			connection.commit();
+		}
+		connection.setAutoCommit(true);
+	}
+}
@@ -0,0 +1,278 @@
+package benchmark;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javafx.animation.AnimationTimer;
+import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.scene.Scene;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListView;
+import javafx.scene.control.ScrollPane;
+import javafx.scene.control.skin.VirtualFlow;
+import javafx.scene.layout.VBox;
+import javafx.stage.Stage;
+
+import application.QuestionFeed;
+import application.UserHomePage;
+import databasePart1.DatabaseHelper;
+import databasePart1.DatabaseService;
+import databasePart1.LatencyHistogram;
+import databasePart2.Page;
+import databasePart2.PageKey;
+import databasePart2.Question;
+import databasePart2.QuestionAnswerDAO;
+
+/**
+ * The QuestionFeedBenchmark class measures the question feed of the user home page with 100,000
+ * questions. It runs in one of two modes.
+ *
+ * By default it needs no display. It drives {@link QuestionFeed} the way the list view does, from a
+ * thread standing in for the JavaFX thread: every 16 ms frame it asks for the rows on screen and
+ * moves down by a few rows, then jumps to random places as a scroll bar drag would. It reports
+ * how long each frame spent in the feed, how many frames showed a row still loading, how long a
+ * jump took to fill the screen, and the heap the feed holds, next to the heap of every question
+ * loaded into a list.
+ *
+ * With --ui it opens a window with the list view of the home page and scrolls it by a fixed number
+ * of pixels every frame, reporting the time between frames and the heap. With --ui --eager it shows
+ * the same questions as a VBox of labels in a ScrollPane instead, as a page that builds a node per
+ * question would.
+ *
+ * Run it with: gradle benchmarkMain -Pbenchmark=benchmark.QuestionFeedBenchmark
+ *                  [-Pargs="--questions 100000 --frames 3000 --rowsPerFrame 4 --ui --eager"]
+ */
+public class QuestionFeedBenchmark {
+
+	static final long FRAME_NANOS = 16_666_667;
+	static final int VISIBLE_ROWS = 17;
+	static final int JUMPS = 50;
+	static final double PIXELS_PER_FRAME = 96;
+
+	// Set by main before the window is opened, since JavaFX creates the application itself
+	private static DatabaseHelper databaseHelper;
+	private static int frames = 3000;
+	private static boolean eager;
+
+	private static long usedHeap() throws InterruptedException {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+			Thread.sleep(50);
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	// Runs a task on the thread standing in for the JavaFX thread and waits for its result
+	private static <T> T onFxThread(ExecutorService fxThread, Callable<T> task) throws Exception {
+		return fxThread.submit(task).get();
+	}
+
+	private static void runHeadless(int questions, int rowsPerFrame) throws Exception {
+		ExecutorService fxThread = Executors.newSingleThreadExecutor(r -> new Thread(r, "fx-stand-in"));
+		DatabaseService databaseService = new DatabaseService(databaseHelper, fxThread);
+		QuestionAnswerDAO dao = new QuestionAnswerDAO(databaseHelper);
+		try {
+			QuestionFeed feed = new QuestionFeed(databaseService, dao);
+			long start = System.nanoTime();
+			feed.refresh().get();
+			System.out.printf("Counted %,d questions in %.1f ms%n", feed.size(), (System.nanoTime() - start) / 1e6);
+
+			// Scroll down at a steady speed, one frame every 16 ms
+			LatencyHistogram frameWork = new LatencyHistogram();
+			int loadingFrames = 0;
+			int top = 0;
+			long nextFrame = System.nanoTime();
+			for (int frame = 0; frame < frames && top + VISIBLE_ROWS < feed.size(); frame++, top += rowsPerFrame) {
+				int first = top;
+				long[] work = new long[1];
+				boolean complete = onFxThread(fxThread, () -> {
+					long frameStart = System.nanoTime();
+					boolean all = true;
+					for (int row = first; row < first + VISIBLE_ROWS; row++) {
+						all &= feed.get(row) != null;
+					}
+					work[0] = System.nanoTime() - frameStart;
+					return all;
+				});
+				frameWork.record(work[0]);
+				if (!complete) {
+					loadingFrames++;
+				}
+				nextFrame += FRAME_NANOS;
+				long sleep = nextFrame - System.nanoTime();
+				if (sleep > 0) {
+					Thread.sleep(sleep / 1_000_000, (int) (sleep % 1_000_000));
+				}
+			}
+			System.out.printf(Locale.ROOT, "Scrolled %,d rows at %d rows a frame: feed work per frame p50 %.3f ms, p99 %.3f ms, max %.3f ms;"
+					+ " %d of %d frames showed a loading row%n", top, rowsPerFrame, frameWork.getPercentileMillis(0.50),
+					frameWork.getPercentileMillis(0.99), frameWork.getPercentileNanos(1.0) / 1e6, loadingFrames, frameWork.getCount());
+
+			// Jump to random places and wait for the screen to fill
+			LatencyHistogram jumpLatency = new LatencyHistogram();
+			Random random = new Random(42);
+			for (int jump = 0; jump < JUMPS; jump++) {
+				int first = random.nextInt(feed.size() - VISIBLE_ROWS);
+				long jumpStart = System.nanoTime();
+				while (!onFxThread(fxThread, () -> {
+					boolean all = true;
+					for (int row = first; row < first + VISIBLE_ROWS; row++) {
+						all &= feed.get(row) != null;
+					}
+					return all;
+				})) {
+					Thread.sleep(1);
+				}
+				jumpLatency.record(System.nanoTime() - jumpStart);
+			}
+			System.out.printf(Locale.ROOT, "Jumps: screen filled in p50 %.2f ms, p99 %.2f ms%n",
+					jumpLatency.getPercentileMillis(0.50), jumpLatency.getPercentileMillis(0.99));
+
+			// The feed's heap is its cached rows, which are too few to measure by the heap's growth,
+			// so they are counted at the size of a question measured with every question loaded
+			long before = usedHeap();
+			List<Question> all = new ArrayList<>(questions);
+			PageKey after = null;
+			do {
+				Page<Question> page = dao.listQuestions(after, QuestionAnswerDAO.MAX_PAGE_SIZE);
+				all.addAll(page.getItems());
+				after = page.getNextKey();
+			} while (after != null);
+			long allBytes = usedHeap() - before;
+			double bytesPerRow = (double) allBytes / all.size();
+			int cachedRows = onFxThread(fxThread, feed::getCachedRows);
+			System.out.printf("Every question loaded: %,d bytes holding %,d rows (%.0f per row)%n", allBytes, all.size(), bytesPerRow);
+			System.out.printf("Feed: about %,.0f bytes holding %,d rows; %s%n", cachedRows * bytesPerRow, cachedRows,
+					onFxThread(fxThread, feed::toString));
+		} finally {
+			databaseService.close();
+			fxThread.shutdown();
+		}
+	}
+
+	/**
+	 * The window of the --ui mode. It is a class of its own because the java launcher will not
+	 * start a main class that extends Application without the JavaFX modules.
+	 */
+	public static class Window extends Application {
+
+		@Override
+		public void start(Stage stage) throws Exception {
+			VBox layout = new VBox();
+			ScrollPane scrollPane = null;
+			ListView<Question> list = null;
+			if (eager) {
+				// What a page that builds a node per question would hold
+				VBox rows = new VBox();
+				QuestionAnswerDAO dao = new QuestionAnswerDAO(databaseHelper);
+				PageKey after = null;
+				do {
+					Page<Question> page = dao.listQuestions(after, QuestionAnswerDAO.MAX_PAGE_SIZE);
+					for (Question question : page.getItems()) {
+						rows.getChildren().add(new Label(question.getTitle() + "  (" + question.getAnswerCount() + " answers)"));
+					}
+					after = page.getNextKey();
+				} while (after != null);
+				scrollPane = new ScrollPane(rows);
+				scrollPane.setPrefHeight(VISIBLE_ROWS * UserHomePage.ROW_HEIGHT);
+				layout.getChildren().add(scrollPane);
+			} else {
+				DatabaseService databaseService = new DatabaseService(databaseHelper, Platform::runLater);
+				QuestionFeed feed = new QuestionFeed(databaseService, new QuestionAnswerDAO(databaseHelper));
+				list = UserHomePage.createQuestionList();
+				list.setItems(feed);
+				list.setPrefHeight(VISIBLE_ROWS * UserHomePage.ROW_HEIGHT);
+				feed.refresh();
+				layout.getChildren().add(list);
+			}
+			stage.setScene(new Scene(layout, 800, 500));
+			stage.show();
+
+			ScrollPane pane = scrollPane;
+			ListView<Question> listView = list;
+			LatencyHistogram frameTimes = new LatencyHistogram();
+			new AnimationTimer() {
+				private long last;
+				private int frame;
+
+				@Override
+				public void handle(long now) {
+					if (last != 0) {
+						frameTimes.record(now - last);
+					}
+					last = now;
+					if (pane != null) {
+						double height = pane.getContent().getBoundsInLocal().getHeight();
+						pane.setVvalue(Math.min(1, pane.getVvalue() + PIXELS_PER_FRAME / Math.max(1, height)));
+					} else {
+						VirtualFlow<?> flow = (VirtualFlow<?>) listView.lookup(".virtual-flow");
+						if (flow != null) {
+							flow.scrollPixels(PIXELS_PER_FRAME);
+						}
+					}
+					if (++frame == frames) {
+						stop();
+						try {
+							long heap = usedHeap();
+							System.out.printf(Locale.ROOT, "%s: frame time p50 %.2f ms, p99 %.2f ms, max %.2f ms over %d frames; heap %,d bytes%s%n",
+									eager ? "VBox of labels" : "Virtualized list", frameTimes.getPercentileMillis(0.50),
+									frameTimes.getPercentileMillis(0.99), frameTimes.getPercentileNanos(1.0) / 1e6,
+									frameTimes.getCount(), heap, listView == null ? "" : "; " + listView.getItems());
+						} catch (InterruptedException e) {
+							Thread.currentThread().interrupt();
+						}
+						Platform.exit();
+					}
+				}
+			}.start();
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		int questions = 100_000;
+		int rowsPerFrame = 4;
+		boolean ui = false;
+		for (int i = 0; i < args.length; i++) {
+			switch (args[i]) {
+			case "--questions": questions = Integer.parseInt(args[++i]); break;
+			case "--frames": frames = Integer.parseInt(args[++i]); break;
+			case "--rowsPerFrame": rowsPerFrame = Integer.parseInt(args[++i]); break;
+			case "--ui": ui = true; break;
+			case "--eager": eager = true; break;
+			default:
+				System.err.println("Unknown option " + args[i]);
+				System.exit(2);
+			}
+		}
+
+		Path directory = Files.createTempDirectory("cse360-feed");
+		String url = "jdbc:h2:" + directory.toAbsolutePath() + "/feed";
+		databaseHelper = new DatabaseHelper(url);
+		databaseHelper.connectToDatabase();
+		try {
+			long start = System.nanoTime();
+			try (Connection connection = DriverManager.getConnection(url, "sa", "")) {
+				QuestionAnswerBenchmark.fill(connection, questions, 0);
+			}
+			System.out.printf("Filled %,d questions in %.1f s%n", questions, (System.nanoTime() - start) / 1e9);
+			if (ui) {
+				Application.launch(Window.class);
+			} else {
+				runHeadless(questions, rowsPerFrame);
+			}
+		} finally {
+			databaseHelper.closeConnection();
+		}
+	}
+}
@@ -0,0 +1,143 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import databasePart1.LoginThrottle;
+import databasePart1.RateLimiter;
+
+/**
+ * The RateLimiterBenchmark class measures what the login throttle costs, timing single checks
+ * against known and new keys.
+ *
+ * Its main method runs a paced load of 100,000 checks per second from several threads instead and
+ * reports the CPU time the checks took as a share of one core, then floods the limiter with more
+ * keys than it may hold to show that its size stays bounded.
+ *
+ * Run it with: gradle jmh -Pjmh="RateLimiterBenchmark"
+ *              gradle benchmarkMain -Pbenchmark=benchmark.RateLimiterBenchmark
+ *                  [-Pargs="--rate 100000 --seconds 5 --threads 4"]
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RateLimiterBenchmark {
+
+	static final String[] USERS = new String[10_000];
+
+	static {
+		for (int i = 0; i < USERS.length; i++) {
+			USERS[i] = "student" + i;
+		}
+	}
+
+	private final RateLimiter limiter = new RateLimiter("benchmark", 5, 12_000, 100_000);
+	private final LoginThrottle throttle = new LoginThrottle(true);
+	private final RateLimiter fresh = new RateLimiter("fresh", 5, 12_000, 100_000);
+	private int next;
+
+	@Benchmark
+	public long tryAcquireKnownKey() {
+		return limiter.tryAcquire(USERS[next++ % USERS.length]);
+	}
+
+	@Benchmark
+	public long loginThrottleCheckLogin() {
+		int i = next++;
+		return throttle.checkLogin("client" + (i & 63), USERS[i % USERS.length]);
+	}
+
+	@Benchmark
+	public long tryAcquireNewKey() {
+		return fresh.tryAcquire("new" + next++);
+	}
+
+	// Runs checks at a fixed rate and measures the CPU time the checking threads used
+	static void pacedLoad(int rate, int seconds, int threads) throws Exception {
+		LoginThrottle throttle = new LoginThrottle(true);
+		LongAdder checks = new LongAdder();
+		LongAdder cpuNanos = new LongAdder();
+		long perThreadIntervalNanos = TimeUnit.SECONDS.toNanos(1) * threads / rate;
+		long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<?>> workers = new ArrayList<>();
+			for (int t = 0; t < threads; t++) {
+				int thread = t;
+				workers.add(executor.submit(() -> {
+					long next = System.nanoTime();
+					long cpu = 0;
+					int i = thread;
+					while (next < end) {
+						long now = System.nanoTime();
+						if (now < next) {
+							Thread.onSpinWait();
+							continue;
+						}
+						long start = System.nanoTime();
+						throttle.checkLogin("client" + (i & 63), USERS[i % USERS.length]);
+						cpu += System.nanoTime() - start;
+						i += threads;
+						next += perThreadIntervalNanos;
+						checks.increment();
+					}
+					cpuNanos.add(cpu);
+				}));
+			}
+			for (Future<?> worker : workers) {
+				worker.get();
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		double achievedRate = checks.sum() / (double) seconds;
+		double coreShare = cpuNanos.sum() / (double) TimeUnit.SECONDS.toNanos(seconds);
+		System.out.printf("Paced load: %.0f checks/s on %d threads, %.1f ns per check, %.3f%% of one core%n",
+				achievedRate, threads, cpuNanos.sum() / (double) checks.sum(), coreShare * 100);
+		System.out.println(throttle);
+	}
+
+	public static void main(String[] args) throws Exception {
+		int rate = 100_000;
+		int seconds = 5;
+		int threads = 4;
+		for (int i = 0; i + 1 < args.length; i += 2) {
+			switch (args[i]) {
+			case "--rate": rate = Integer.parseInt(args[i + 1]); break;
+			case "--seconds": seconds = Integer.parseInt(args[i + 1]); break;
+			case "--threads": threads = Integer.parseInt(args[i + 1]); break;
+			default:
+				System.err.println("Unknown option " + args[i]);
+				System.exit(2);
+			}
+		}
+
+		pacedLoad(rate, seconds, threads);
+
+		RateLimiter bounded = new RateLimiter("bounded", 5, 12_000, 10_000);
+		for (int i = 0; i < 1_000_000; i++) {
+			bounded.tryAcquire("flood" + i);
+		}
+		System.out.println("After 1,000,000 distinct keys with a limit of 10,000: " + bounded);
+	}
+}
@@ -0,0 +1,239 @@
+package benchmark;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.SecureRandom;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import databasePart1.DatabaseHelper;
+
+/**
+ * The SchemaBenchmark class compares the original users and invitation code tables with the
+ * compact layout of schema version 2 at a realistic size. It times the login and unused-code
+ * lookups in a version 1 database of about a million users, and in the same database after
+ * DatabaseHelper has migrated it.
+ *
+ * Its main method reports the size of the tables and the query plans before and after, and how
+ * long the migration took.
+ *
+ * The users get random salts and hashes instead of real PBKDF2 hashes, since only their size
+ * matters here. Both databases are built once and kept as fixtures.
+ *
+ * Run it with: gradle jmh -Pjmh="SchemaBenchmark"
+ *              gradle benchmarkMain -Pbenchmark=benchmark.SchemaBenchmark [-Pargs="--users 1000000"]
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SchemaBenchmark {
+
+	static final int INSERT_BATCH_SIZE = 10_000;
+	static final String AUTH_QUERY_V1 = "SELECT id, role, password FROM cse360users WHERE userName = ?";
+	static final String UNUSED_CODE_QUERY_V1 = "SELECT code FROM InvitationCodes WHERE isUsed = FALSE LIMIT 1";
+	static final String AUTH_QUERY_V2 = "SELECT id, role, iterations, salt, passwordHash, legacyPassword FROM cse360users WHERE userName = ?";
+	static final String UNUSED_CODE_QUERY_V2 = "SELECT code FROM InvitationCodes WHERE usedAt IS NULL LIMIT 1";
+
+	@Param({ "1", "2" })
+	public int version;
+
+	@Param("1000000")
+	public int users;
+
+	private Connection connection;
+	private PreparedStatement auth;
+	private PreparedStatement unusedCode;
+	private int next;
+
+	@Setup
+	public void open() throws Exception {
+		Path directory = version == 1 ? version1(users) : version2(users);
+		connection = DriverManager.getConnection(url(directory), "sa", "");
+		auth = connection.prepareStatement(version == 1 ? AUTH_QUERY_V1 : AUTH_QUERY_V2);
+		unusedCode = connection.prepareStatement(version == 1 ? UNUSED_CODE_QUERY_V1 : UNUSED_CODE_QUERY_V2);
+	}
+
+	@TearDown
+	public void close() throws SQLException {
+		connection.close();
+	}
+
+	@Benchmark
+	public boolean authLookup() throws SQLException {
+		// Spread the lookups over the whole table
+		auth.setString(1, userName((int) ((next++ * 7_919L) % users)));
+		try (ResultSet rs = auth.executeQuery()) {
+			return rs.next();
+		}
+	}
+
+	@Benchmark
+	public boolean unusedCodeLookup() throws SQLException {
+		try (ResultSet rs = unusedCode.executeQuery()) {
+			return rs.next();
+		}
+	}
+
+	static String url(Path directory) {
+		return "jdbc:h2:" + directory + "/schema";
+	}
+
+	// The version 1 database with the given number of users
+	static Path version1(int users) throws Exception {
+		return Fixtures.get("schema-v1-" + users, directory -> {
+			try (Connection connection = DriverManager.getConnection(url(directory), "sa", "")) {
+				createVersion1(connection, users);
+			}
+		});
+	}
+
+	// The same database after DatabaseHelper has migrated it to version 2
+	static Path version2(int users) throws Exception {
+		Path version1 = version1(users);
+		return Fixtures.get("schema-v2-" + users, directory -> {
+			Fixtures.delete(directory);
+			Files.move(Fixtures.copy(version1), directory);
+			migrate(directory);
+		});
+	}
+
+	// Lets DatabaseHelper migrate a database to the current version
+	static void migrate(Path directory) throws SQLException {
+		DatabaseHelper databaseHelper = new DatabaseHelper(url(directory));
+		databaseHelper.connectToDatabase();
+		databaseHelper.closeConnection();
+	}
+
+	// Creates the tables as schema version 1 left them and fills them
+	static void createVersion1(Connection connection, int users) throws SQLException {
+		try (Statement statement = connection.createStatement()) {
+			statement.execute("CREATE TABLE schema_version (version INT PRIMARY KEY, description VARCHAR(255), "
+					+ "appliedAt TIMESTAMP DEFAULT CURRENT_TIMESTAMP)");
+			statement.execute("INSERT INTO schema_version (version, description) VALUES (1, 'Create users and invitation codes')");
+			statement.execute("CREATE TABLE cse360users (id INT AUTO_INCREMENT PRIMARY KEY, "
+					+ "userName VARCHAR(255) UNIQUE, password VARCHAR(255), role VARCHAR(20))");
+			statement.execute("CREATE TABLE InvitationCodes (code VARCHAR(10) PRIMARY KEY, isUsed BOOLEAN DEFAULT FALSE)");
+		}
+
+		SecureRandom random = new SecureRandom();
+		Base64.Encoder encoder = Base64.getEncoder().withoutPadding();
+		byte[] salt = new byte[16];
+		byte[] hash = new byte[32];
+		connection.setAutoCommit(false);
+		try (PreparedStatement pstmt = connection.prepareStatement(
+				"INSERT INTO cse360users (userName, password, role) VALUES (?, ?, ?)")) {
+			for (int i = 0; i < users; i++) {
+				random.nextBytes(salt);
+				random.nextBytes(hash);
+				pstmt.setString(1, userName(i));
+				pstmt.setString(2, "pbkdf2$210000$" + encoder.encodeToString(salt) + "$" + encoder.encodeToString(hash));
+				pstmt.setString(3, i == 0 ? "admin" : "user");
+				pstmt.addBatch();
+				if ((i + 1) % INSERT_BATCH_SIZE == 0) {
+					pstmt.executeBatch();
+					connection.commit();
+				}
+			}
+			pstmt.executeBatch();
+			connection.commit();
+		}
+
+		// One code per ten users; the first nine in ten are used
+		try (PreparedStatement pstmt = connection.prepareStatement("INSERT INTO InvitationCodes VALUES (?, ?)")) {
+			int codes = Math.max(1, users / 10);
+			for (int i = 0; i < codes; i++) {
+				pstmt.setString(1, String.format("C%09d", i));
+				pstmt.setBoolean(2, i % 10 != 9);
+				pstmt.addBatch();
+				if ((i + 1) % INSERT_BATCH_SIZE == 0) {
+					pstmt.executeBatch();
+					connection.commit();
+				}
+			}
+			pstmt.executeBatch();
+			connection.commit();
+		}
+		connection.setAutoCommit(true);
+	}
+
+	// Prints the size of the tables and the query plans
+	private static void report(Path directory, String label, int users, String authQuery, String unusedCodeQuery)
+			throws SQLException {
+		try (Connection connection = DriverManager.getConnection(url(directory), "sa", "");
+				Statement statement = connection.createStatement()) {
+			statement.execute("CHECKPOINT SYNC");
+			long usersBytes = scalar(statement, "SELECT DISK_SPACE_USED('CSE360USERS')");
+			long codesBytes = scalar(statement, "SELECT DISK_SPACE_USED('INVITATIONCODES')");
+			System.out.printf("%s: cse360users %,d bytes (%.1f bytes per user), InvitationCodes %,d bytes%n",
+					label, usersBytes, (double) usersBytes / users, codesBytes);
+			System.out.println(plan(statement, authQuery.replace("?", "'" + userName(1) + "'")));
+			System.out.println(plan(statement, unusedCodeQuery));
+		}
+	}
+
+	private static long scalar(Statement statement, String query) throws SQLException {
+		try (ResultSet rs = statement.executeQuery(query)) {
+			rs.next();
+			return rs.getLong(1);
+		}
+	}
+
+	private static String plan(Statement statement, String query) throws SQLException {
+		try (ResultSet rs = statement.executeQuery("EXPLAIN " + query)) {
+			rs.next();
+			return rs.getString(1).replaceAll("\\s+", " ");
+		}
+	}
+
+	static String userName(int i) {
+		return "student" + i;
+	}
+
+	// Reports the size of the tables before and after the migration, and how long it took
+	public static void main(String[] args) throws Exception {
+		int users = 1_000_000;
+		for (int i = 0; i + 1 < args.length; i += 2) {
+			switch (args[i]) {
+			case "--users": users = Integer.parseInt(args[i + 1]); break;
+			default:
+				System.err.println("Unknown option " + args[i]);
+				System.exit(2);
+			}
+		}
+
+		Path version1 = version1(users);
+		report(version1, "schema-v1", users, AUTH_QUERY_V1, UNUSED_CODE_QUERY_V1);
+
+		Path copy = Fixtures.copy(version1);
+		try {
+			long start = System.nanoTime();
+			migrate(copy);
+			System.out.printf("Connected and migrated to version 2 in %.1f s%n", (System.nanoTime() - start) / 1e9);
+			report(copy, "schema-v2", users, AUTH_QUERY_V2, UNUSED_CODE_QUERY_V2);
+		} finally {
+			Fixtures.delete(copy);
+		}
+	}
+}
@@ -0,0 +1,220 @@
+package benchmark;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import databasePart2.SearchHit;
+import databasePart2.SearchIndex;
+
+/**
+ * The SearchIndexBenchmark class measures the search index with a million posts: the latency of
+ * searches and of adding and editing a post. The posts are drawn from {@link ZipfText}, and a
+ * quarter of them are questions and the rest answers to them. Queries are drawn like posts, so
+ * they mix stop words, common words and rare ones.
+ *
+ * The index is built once and saved as a fixture; each run loads a copy of it. Adds go into the
+ * buffer and are found by the next search, while flushes and merges run on the maintenance thread
+ * as they would in the application.
+ *
+ * Its main method reports how long the index takes to build, save and load, and its size. The
+ * index is built without a database, so only the index is measured; QuestionAnswerBenchmark covers
+ * the tables. Run it with a heap of at least 2 GB.
+ *
+ * Run it with: gradle jmh -Pjmh="SearchIndexBenchmark"
+ *              gradle benchmarkMain -Pbenchmark=benchmark.SearchIndexBenchmark [-Pargs="--posts 1000000"]
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class SearchIndexBenchmark {
+
+	static final int WORDS_PER_POST = 60;
+	static final int LIMIT = 10;
+
+	@Param("1000000")
+	public int posts;
+
+	private final ZipfText words = new ZipfText();
+	private final String[] queries = new String[1024];
+	private final String[] rareQueries = new String[1024];
+	private String commonWord;
+	private Path directory;
+	private SearchIndex index;
+	private int nextPost;
+	private int next;
+
+	@Setup
+	public void load() throws Exception {
+		Path fixture = Fixtures.get("search-index-" + posts, built -> {
+			SearchIndex index = build(built, posts, words);
+			index.merge();
+			index.close();
+		});
+		directory = Fixtures.copy(fixture);
+		index = new SearchIndex(directory);
+		if (!index.load()) {
+			throw new IllegalStateException("The search index fixture in " + fixture + " could not be loaded");
+		}
+		index.start();
+		nextPost = posts + 1;
+
+		Random random = new Random(99);
+		for (int i = 0; i < queries.length; i++) {
+			queries[i] = words.randomWord(random) + " " + words.randomWord(random) + " "
+					+ words.wordAt(100 + random.nextInt(ZipfText.VOCABULARY - 100));
+		}
+		for (int i = 0; i < rareQueries.length; i++) {
+			rareQueries[i] = words.wordAt(1000 + random.nextInt(ZipfText.VOCABULARY - 1000));
+		}
+		// The worst case: the most frequent word that is not a stop word, in about a third of the posts
+		commonWord = words.wordAt(ZipfText.STOP_WORDS.length);
+	}
+
+	@TearDown
+	public void close() throws Exception {
+		index.close();
+		Fixtures.delete(directory);
+	}
+
+	/**
+	 * Adds a thousand new posts before every iteration, so the searches run while they are still
+	 * buffered or being merged.
+	 */
+	@State(Scope.Benchmark)
+	public static class Buffered {
+		@Setup(Level.Iteration)
+		public void addPosts(SearchIndexBenchmark benchmark) {
+			for (int i = 0; i < 1_000; i++) {
+				addPost(benchmark.index, benchmark.nextPost++, benchmark.words);
+			}
+		}
+	}
+
+	@Benchmark
+	public List<SearchHit> searchThreeWords() {
+		return index.search(queries[next++ & 1023], LIMIT);
+	}
+
+	@Benchmark
+	public List<SearchHit> searchRareWord() {
+		return index.search(rareQueries[next++ & 1023], LIMIT);
+	}
+
+	@Benchmark
+	public List<SearchHit> searchCommonWord() {
+		return index.search(commonWord, LIMIT);
+	}
+
+	@Benchmark
+	public List<SearchHit> searchQuestionsThreeWords() {
+		return index.searchQuestions(queries[next++ & 1023], LIMIT);
+	}
+
+	@Benchmark
+	public void addPost() {
+		addPost(index, nextPost++, words);
+	}
+
+	@Benchmark
+	public void editPost() {
+		addPost(index, 1 + (int) (next++ * 7919L % posts), words);
+	}
+
+	@Benchmark
+	public List<SearchHit> searchWhileBuffered(Buffered buffered) {
+		return index.search(queries[next++ & 1023], LIMIT);
+	}
+
+	// Adds the post with the given number, the same every time for the same number
+	static void addPost(SearchIndex index, int n, ZipfText words) {
+		Random random = new Random(n);
+		int length = WORDS_PER_POST / 2 + random.nextInt(WORDS_PER_POST);
+		if (n % 4 == 0) {
+			index.addQuestion(n, words.text(random, 8), words.text(random, length));
+		} else {
+			index.addAnswer(n, n - n % 4, words.text(random, length));
+		}
+	}
+
+	// Builds an index of the given number of posts in a directory
+	static SearchIndex build(Path directory, int posts, ZipfText words) throws Exception {
+		SearchIndex index = new SearchIndex(directory);
+		index.startRebuild();
+		for (int n = 1; n <= posts; n++) {
+			addPost(index, n, words);
+		}
+		index.finishRebuild();
+		return index;
+	}
+
+	// Reports how long the index takes to build, merge, save and load, and its size
+	public static void main(String[] args) throws Exception {
+		int posts = 1_000_000;
+		for (int i = 0; i + 1 < args.length; i += 2) {
+			switch (args[i]) {
+			case "--posts": posts = Integer.parseInt(args[i + 1]); break;
+			default:
+				System.err.println("Unknown option " + args[i]);
+				System.exit(2);
+			}
+		}
+
+		Path directory = Files.createTempDirectory("search-index-benchmark");
+		try {
+			long before = UserNameIndexBenchmark.usedHeap();
+			long start = System.nanoTime();
+			SearchIndex index = build(directory, posts, new ZipfText());
+			long indexNanos = System.nanoTime() - start;
+			start = System.nanoTime();
+			index.merge();
+			long mergeNanos = System.nanoTime() - start;
+			long heapBytes = UserNameIndexBenchmark.usedHeap() - before;
+			System.out.printf("Indexed %,d posts in %.1f s (%,.0f posts/s), merged to %d segments in %.1f s%n",
+					posts, indexNanos / 1e9, posts / (indexNanos / 1e9), index.getSegmentCount(), mergeNanos / 1e9);
+			System.out.printf("Postings: %,d bytes (%.1f per post); heap: %,d bytes (%.1f per post)%n",
+					index.getPostingsBytes(), (double) index.getPostingsBytes() / posts, heapBytes, (double) heapBytes / posts);
+
+			start = System.nanoTime();
+			index.close();
+			long closeNanos = System.nanoTime() - start;
+			long bytesOnDisk = 0;
+			try (Stream<Path> files = Files.list(directory)) {
+				for (Path file : (Iterable<Path>) files::iterator) {
+					bytesOnDisk += Files.size(file);
+				}
+			}
+			System.out.println(index);
+
+			SearchIndex reopened = new SearchIndex(directory);
+			start = System.nanoTime();
+			boolean loaded = reopened.load();
+			long loadNanos = System.nanoTime() - start;
+			System.out.printf("Closed in %.0f ms; %,d bytes on disk; %s in %.0f ms%n", closeNanos / 1e6, bytesOnDisk,
+					loaded ? "loaded " + reopened.getLiveDocs() + " posts" : "NOT loaded", loadNanos / 1e6);
+			reopened.close();
+		} finally {
+			Fixtures.delete(directory);
+		}
+	}
+}
@@ -0,0 +1,148 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import databasePart1.UserNameIndex;
+
+/**
+ * The UserNameIndexBenchmark class measures the lookup speed of UserNameIndex with a million
+ * userNames, next to a HashSet of the same names. The adds include the merges of the pending names
+ * into the block.
+ *
+ * Its main method reports the memory of the index and of the set instead. Memory is the growth of
+ * the used heap after a full collection, so it is approximate; run it with a fixed heap such as
+ * -Xmx2g.
+ *
+ * Run it with: gradle jmh -Pjmh="UserNameIndexBenchmark"
+ *              gradle benchmarkMain -Pbenchmark=benchmark.UserNameIndexBenchmark [-Pargs="--users 1000000"]
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class UserNameIndexBenchmark {
+
+	@Param("1000000")
+	public int users;
+
+	private UserNameIndex index;
+	private Set<String> hashSet;
+	private final String[] hits = new String[4096];
+	private final String[] misses = new String[4096];
+	private int next;
+
+	@Setup
+	public void load() {
+		List<String> names = userNames(users);
+		index = new UserNameIndex();
+		index.load(names);
+		hashSet = new HashSet<>(names);
+		Random random = new Random(42);
+		for (int i = 0; i < hits.length; i++) {
+			hits[i] = names.get(random.nextInt(users));
+			misses[i] = hits[i] + "x";
+		}
+	}
+
+	@Benchmark
+	public boolean containsHit() {
+		return index.contains(hits[next++ & 4095]);
+	}
+
+	@Benchmark
+	public boolean containsMiss() {
+		return index.contains(misses[next++ & 4095]);
+	}
+
+	@Benchmark
+	public boolean hashSetContainsHit() {
+		return hashSet.contains(hits[next++ & 4095]);
+	}
+
+	@Benchmark
+	public List<String> suggest() {
+		return index.suggest(hits[next++ & 4095], 3, 16);
+	}
+
+	@Benchmark
+	public void add() {
+		index.add("new" + next++);
+	}
+
+	// Names like the ones people pick: a word, sometimes a separator, and a number
+	static List<String> userNames(int count) {
+		String[] words = { "alice", "bob", "carol", "dave", "erin", "frank", "grace", "heidi", "ivan", "judy",
+				"mallory", "niaj", "olivia", "peggy", "rupert", "sybil", "trent", "victor", "walter", "student" };
+		String[] separators = { "", "_", ".", "-" };
+		Random random = new Random(7);
+		Set<String> names = new HashSet<>(count * 2);
+		while (names.size() < count) {
+			names.add(words[random.nextInt(words.length)] + separators[random.nextInt(separators.length)]
+					+ random.nextInt(1_000_000));
+		}
+		return new ArrayList<>(names);
+	}
+
+	static long usedHeap() throws InterruptedException {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+			Thread.sleep(50);
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	// Reports the memory of the index next to a HashSet of the same names
+	public static void main(String[] args) throws Exception {
+		int users = 1_000_000;
+		for (int i = 0; i + 1 < args.length; i += 2) {
+			switch (args[i]) {
+			case "--users": users = Integer.parseInt(args[i + 1]); break;
+			default:
+				System.err.println("Unknown option " + args[i]);
+				System.exit(2);
+			}
+		}
+
+		List<String> names = userNames(users);
+		long before = usedHeap();
+		long start = System.nanoTime();
+		UserNameIndex index = new UserNameIndex();
+		index.load(names);
+		long loadNanos = System.nanoTime() - start;
+		long indexBytes = usedHeap() - before;
+		System.out.printf("UserNameIndex: loaded %,d names in %.0f ms, %,d bytes measured (%.1f per name), %,d estimated%n",
+				index.size(), loadNanos / 1e6, indexBytes, (double) indexBytes / users, index.estimateBytes());
+
+		before = usedHeap();
+		Set<String> hashSet = new HashSet<>(names);
+		long hashSetBytes = usedHeap() - before;
+		// The set shares its Strings with the list, so count them as well
+		long stringBytes = 0;
+		for (String name : names) {
+			stringBytes += 24 + 16 + name.length();
+		}
+		System.out.printf("HashSet<String>: %,d bytes for the table and %,d for the Strings (%.1f per name)%n",
+				hashSetBytes, stringBytes, (double) (hashSetBytes + stringBytes) / users);
+		System.out.println(index + ", " + hashSet.size() + " names in the set");
+	}
+}
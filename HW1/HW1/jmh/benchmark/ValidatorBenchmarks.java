@@ -0,0 +1,85 @@
+package benchmark;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import application.PasswordValidator;
+import application.SetupAccountPage;
+import application.UserNameValidator;
+
+/**
+ * The ValidatorBenchmarks class compares the original PasswordEvaluator and UserNameRecognizer with
+ * PasswordValidator and UserNameValidator on a fixed corpus of valid and invalid inputs. Each
+ * invocation checks the next input of the corpus.
+ *
+ * The original classes print a trace for every character. Their console output is sent to a
+ * discarding stream while they are measured, so the numbers show the cost of building the trace
+ * rather than the speed of the terminal.
+ *
+ * Run it with: gradle jmh -Pjmh="ValidatorBenchmarks"
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValidatorBenchmarks {
+
+	static final String[] PASSWORDS = {
+		"Passw0rd!", "Abcdefg1@xyz", "short1!A", "nouppercase1!", "NOLOWERCASE1!", "NoDigits!!",
+		"NoSpecial123", "Waytoolongpassword123!", "Bad Char1!", "", "Aa1!Aa1!Aa1!Aa1!", "é-Unicode1!",
+	};
+
+	static final String[] USER_NAMES = {
+		"alice", "Bob_Smith", "carol.jones", "dave-99", "e1234", "x", "9starts", "ab", "way_too_long_username",
+		"double__sep", "trailing_", "has space", "", "Valid.Name.16chr", "ThisIsSeventeen1",
+	};
+
+	private PrintStream console;
+	private int next;
+
+	@Setup
+	public void discardConsole() {
+		console = System.out;
+		System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+	}
+
+	@TearDown
+	public void restoreConsole() {
+		System.setOut(console);
+	}
+
+	@Benchmark
+	public String passwordEvaluator() {
+		return SetupAccountPage.PasswordEvaluator.evaluatePassword(PASSWORDS[next++ % PASSWORDS.length]);
+	}
+
+	@Benchmark
+	public PasswordValidator.Result passwordValidator() {
+		return PasswordValidator.evaluate(PASSWORDS[next++ % PASSWORDS.length]);
+	}
+
+	@Benchmark
+	public String userNameRecognizer() {
+		return SetupAccountPage.UserNameRecognizer.checkForValidUserName(USER_NAMES[next++ % USER_NAMES.length]);
+	}
+
+	@Benchmark
+	public UserNameValidator.Result userNameValidator() {
+		return UserNameValidator.validate(USER_NAMES[next++ % USER_NAMES.length]);
+	}
+}
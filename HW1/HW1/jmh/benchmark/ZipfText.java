@@ -0,0 +1,65 @@
+package benchmark;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * The ZipfText class makes up text whose words follow a Zipf distribution, as the words of real
+ * text do, so a few words are in most texts and most words are rare. The most frequent ranks are
+ * real stop words, which the tokenizer drops as it would in English text; the rest are made up.
+ * The search index and duplicate detector benchmarks draw their posts from it.
+ */
+public class ZipfText {
+
+	static final int VOCABULARY = 50_000;
+	static final double ZIPF_EXPONENT = 1.0;
+	// The most frequent English words, most frequent first; all of them are stop words
+	static final String[] STOP_WORDS = { "the", "of", "and", "to", "a", "in", "is", "it", "you", "that",
+			"was", "for", "on", "are", "with", "as", "i", "be", "at", "have", "this", "from", "or", "by",
+			"but", "not", "what", "had", "we", "can", "an", "your", "do", "if", "will", "my", "there",
+			"which", "when", "how", "so", "about", "into", "no", "then", "these", "they", "their" };
+
+	private final String[] words = new String[VOCABULARY];
+	// The cumulative probability of each word, for drawing words by binary search
+	private final double[] cumulative = new double[VOCABULARY];
+
+	public ZipfText() {
+		double total = 0;
+		for (int i = 0; i < VOCABULARY; i++) {
+			words[i] = i < STOP_WORDS.length ? STOP_WORDS[i] : word(i);
+			total += 1 / Math.pow(i + 1, ZIPF_EXPONENT);
+			cumulative[i] = total;
+		}
+		for (int i = 0; i < VOCABULARY; i++) {
+			cumulative[i] /= total;
+		}
+	}
+
+	// Spells a number in letters, so the tokenizer sees a word rather than digits
+	private static String word(int n) {
+		StringBuilder word = new StringBuilder("w");
+		do {
+			word.append((char) ('a' + n % 26));
+			n /= 26;
+		} while (n > 0);
+		return word.toString();
+	}
+
+	// The word of the given rank, 0 being the most frequent
+	String wordAt(int rank) {
+		return words[rank];
+	}
+
+	String randomWord(Random random) {
+		int i = Arrays.binarySearch(cumulative, random.nextDouble());
+		return words[Math.min(VOCABULARY - 1, i < 0 ? -i - 1 : i)];
+	}
+
+	String text(Random random, int count) {
+		StringBuilder text = new StringBuilder(count * 7);
+		for (int i = 0; i < count; i++) {
+			text.append(randomWord(random)).append(' ');
+		}
+		return text.toString();
+	}
+}
@@ -5,8 +5,6 @@ import javafx.scene.control.*;
 import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
 
-import java.sql.SQLException;
-
 import databasePart1.*;
 
 /**
@@ -16,9 +14,11 @@ import databasePart1.*;
 public class AdminSetupPage {
 	
     private final DatabaseHelper databaseHelper;
+    private final DatabaseService databaseService;
 
-    public AdminSetupPage(DatabaseHelper databaseHelper) {
+    public AdminSetupPage(DatabaseHelper databaseHelper, DatabaseService databaseService) {
         this.databaseHelper = databaseHelper;
+        this.databaseService = databaseService;
     }
 
     public void show(Stage primaryStage) {
@@ -31,27 +31,45 @@ public class AdminSetupPage {
         passwordField.setPromptText("Enter Password");
         passwordField.setMaxWidth(250);
 
+        // Label to display error messages
+        Label errorLabel = new Label();
+        errorLabel.setStyle("-fx-text-fill: red; -fx-font-size: 12px;");
+        
+        // Spinner shown while the account is being created
+        ProgressIndicator progress = new ProgressIndicator();
+        progress.setMaxSize(24, 24);
+        progress.setVisible(false);
+
         Button setupButton = new Button("Setup");
         
         setupButton.setOnAction(a -> {
         	// Retrieve user input
             String userName = userNameField.getText();
             String password = passwordField.getText();
-            try {
-            	// Create a new User object with admin role and register in the database
-            	User user=new User(userName, password, "admin");
-                databaseHelper.register(user);
-                System.out.println("Administrator setup completed.");
-                
-                // Navigate to the Welcome Login Page
-                new WelcomeLoginPage(databaseHelper).show(primaryStage,user);
-            } catch (SQLException e) {
-                System.err.println("Database error: " + e.getMessage());
-                e.printStackTrace();
-            }
+            
+            // Create a new User object with admin role and register it in the background
+            User user=new User(userName, password, "admin");
+            errorLabel.setText("");
+            setupButton.setDisable(true);
+            progress.setVisible(true);
+            
+            databaseService.register(user).whenComplete((ignored, error) -> {
+            	setupButton.setDisable(false);
+            	progress.setVisible(false);
+            	if (error != null) {
+            		System.err.println("Database error: " + error.getMessage());
+            		errorLabel.setText("Could not create the administrator account, please try again");
+            		return;
+            	}
+            	System.out.println("Administrator setup completed.");
+            	
+            	// Navigate to the Welcome Login Page
+            	String token = databaseHelper.getSessionStore().create(user.getUserName(), user.getRole());
+            	new WelcomeLoginPage(databaseHelper, databaseService).show(primaryStage,token);
+            });
         });
 
-        VBox layout = new VBox(10, userNameField, passwordField, setupButton);
+        VBox layout = new VBox(10, userNameField, passwordField, setupButton, progress, errorLabel);
         layout.setStyle("-fx-padding: 20; -fx-alignment: center;");
 
         primaryStage.setScene(new Scene(layout, 800, 400));
@@ -0,0 +1,188 @@
+package application;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+import javafx.animation.PauseTransition;
+import javafx.collections.FXCollections;
+import javafx.scene.Scene;
+import javafx.scene.control.*;
+import javafx.scene.layout.VBox;
+import javafx.stage.Stage;
+import javafx.util.Duration;
+
+import databasePart1.*;
+import databasePart2.QuestionAnswerDAO;
+import databasePart2.SimilarQuestion;
+
+/**
+ * AskQuestionPage class lets a student post a new question. Before it is posted, the questions
+ * already asked in nearly the same words are shown, as the student types and again when they
+ * click Post, so they can read the answers there instead of asking again. If there are any,
+ * posting takes a second click.
+ */
+public class AskQuestionPage {
+
+    // How long typing must pause before similar questions are looked for
+    static final Duration SIMILAR_CHECK_DELAY = Duration.millis(Integer.getInteger("cse360.ask.checkDelayMs", 400));
+    static final int SIMILAR_RESULTS = 5;
+    static final int MAX_TITLE_LENGTH = 200;
+
+    private final DatabaseHelper databaseHelper;
+    private final DatabaseService databaseService;
+    private final QuestionAnswerDAO questionAnswerDAO;
+    // The text the similar questions were last shown for after a click on Post
+    private String warnedFor;
+
+    public AskQuestionPage(DatabaseHelper databaseHelper, DatabaseService databaseService) {
+        this.databaseHelper = databaseHelper;
+        this.databaseService = databaseService;
+        this.questionAnswerDAO = new QuestionAnswerDAO(databaseHelper);
+    }
+
+    /**
+     * Displays the page.
+     * @param primaryStage The primary stage where the scene will be displayed.
+     * @param userName The signed-in user, who asks the question.
+     */
+    public void show(Stage primaryStage, String userName) {
+    	VBox layout = new VBox(10);
+	    layout.setStyle("-fx-alignment: center; -fx-padding: 20;");
+
+	    TextField titleField = new TextField();
+	    titleField.setPromptText("Title");
+	    titleField.setMaxWidth(500);
+	    TextArea bodyArea = new TextArea();
+	    bodyArea.setPromptText("Your question");
+	    bodyArea.setMaxWidth(500);
+	    bodyArea.setPrefRowCount(6);
+	    bodyArea.setWrapText(true);
+
+	    Label similarLabel = new Label();
+	    similarLabel.setStyle("-fx-font-size: 12px;");
+	    ListView<SimilarQuestion> similarList = new ListView<>();
+	    similarList.setMaxWidth(500);
+	    similarList.setPrefHeight(SIMILAR_RESULTS * UserHomePage.ROW_HEIGHT + 2);
+	    similarList.setFixedCellSize(UserHomePage.ROW_HEIGHT);
+	    similarList.setCellFactory(view -> new ListCell<SimilarQuestion>() {
+	        @Override
+	        protected void updateItem(SimilarQuestion similar, boolean empty) {
+	            super.updateItem(similar, empty);
+	            setText(empty || similar == null ? null : Math.round(similar.getSimilarity() * 100) + "% alike: "
+	                    + similar.getQuestion().getTitle() + "  (" + similar.getQuestion().getAnswerCount()
+	                    + (similar.getQuestion().getAnswerCount() == 1 ? " answer)" : " answers)"));
+	        }
+	    });
+	    similarList.setVisible(false);
+	    similarList.setManaged(false);
+
+	    Label errorLabel = new Label();
+	    errorLabel.setStyle("-fx-text-fill: red; -fx-font-size: 12px;");
+	    Button postButton = new Button("Post");
+	    Button backButton = new Button("Back");
+	    backButton.setOnAction(a -> new UserHomePage(databaseHelper, databaseService).show(primaryStage, userName));
+
+	    // Look for similar questions as the student types, once they pause
+	    PauseTransition checkDelay = new PauseTransition(SIMILAR_CHECK_DELAY);
+	    checkDelay.setOnFinished(e -> findSimilar(titleField, bodyArea, similarLabel, similarList, null, null));
+	    titleField.textProperty().addListener((observable, oldText, newText) -> {
+	        postButton.setText("Post");
+	        postButton.setDisable(false);
+	        checkDelay.playFromStart();
+	    });
+	    bodyArea.textProperty().addListener((observable, oldText, newText) -> {
+	        postButton.setText("Post");
+	        postButton.setDisable(false);
+	        checkDelay.playFromStart();
+	    });
+
+	    postButton.setOnAction(a -> {
+	        String title = titleField.getText().trim();
+	        String body = bodyArea.getText().trim();
+	        if (title.isEmpty() || body.isEmpty()) {
+	            errorLabel.setText("Please enter a title and your question");
+	            return;
+	        }
+	        if (title.length() > MAX_TITLE_LENGTH) {
+	            errorLabel.setText("The title can be at most " + MAX_TITLE_LENGTH + " characters");
+	            return;
+	        }
+	        errorLabel.setText("");
+	        String text = title + "\n" + body;
+	        if (text.equals(warnedFor)) {
+	            post(primaryStage, userName, title, body, postButton, errorLabel);
+	            return;
+	        }
+	        // Check once more on the final text, and post straight away if nothing is like it
+	        checkDelay.stop();
+	        postButton.setDisable(true);
+	        findSimilar(titleField, bodyArea, similarLabel, similarList, similar -> {
+	            if (similar.isEmpty()) {
+	                post(primaryStage, userName, title, body, postButton, errorLabel);
+	            } else {
+	                warnedFor = text;
+	                postButton.setDisable(false);
+	                postButton.setText("Post anyway");
+	                similarLabel.setText("These questions look like yours. Please read them first, or post yours anyway.");
+	            }
+	        }, () -> postButton.setDisable(false));
+	    });
+
+	    layout.getChildren().addAll(new Label("Ask a question"), titleField, bodyArea, similarLabel, similarList,
+	            errorLabel, postButton, backButton);
+	    Scene askScene = new Scene(layout, 800, 500);
+
+	    // Set the scene to primary stage
+	    primaryStage.setScene(askScene);
+	    primaryStage.setTitle("Ask a Question");
+    }
+
+    // Looks for similar questions on the database service and shows them. A reply is ignored if
+    // the text has changed since it was asked for; otherwise it is also passed to then, if given.
+    // If the lookup fails, then is not called and onError is run instead, if given.
+    private void findSimilar(TextField titleField, TextArea bodyArea, Label similarLabel,
+            ListView<SimilarQuestion> similarList, Consumer<List<SimilarQuestion>> then, Runnable onError) {
+        String title = titleField.getText().trim();
+        String body = bodyArea.getText().trim();
+        if (title.isEmpty() && body.isEmpty()) {
+            showSimilar(similarLabel, similarList, List.of());
+            return;
+        }
+        databaseService.submit(() -> questionAnswerDAO.findSimilarQuestions(title, body, SIMILAR_RESULTS)).whenComplete((similar, error) -> {
+            if (!title.equals(titleField.getText().trim()) || !body.equals(bodyArea.getText().trim())) {
+                return;
+            }
+            if (error != null) {
+                similarLabel.setText("Could not look for similar questions: " + error.getMessage());
+                if (onError != null) {
+                    onError.run();
+                }
+                return;
+            }
+            showSimilar(similarLabel, similarList, similar);
+            if (then != null) {
+                then.accept(similar);
+            }
+        });
+    }
+
+    private void showSimilar(Label similarLabel, ListView<SimilarQuestion> similarList, List<SimilarQuestion> similar) {
+        similarList.setItems(FXCollections.observableArrayList(similar));
+        similarList.setVisible(!similar.isEmpty());
+        similarList.setManaged(!similar.isEmpty());
+        similarLabel.setText(similar.isEmpty() ? "" : "Similar questions already asked:");
+    }
+
+    // Posts the question and goes back to the home page, whose feed then shows it first
+    private void post(Stage primaryStage, String userName, String title, String body, Button postButton, Label errorLabel) {
+        postButton.setDisable(true);
+        databaseService.submit(() -> questionAnswerDAO.createQuestion(userName, title, body)).whenComplete((question, error) -> {
+            if (error != null) {
+                postButton.setDisable(false);
+                errorLabel.setText("Could not post the question: " + error.getMessage());
+                return;
+            }
+            new UserHomePage(databaseHelper, databaseService).show(primaryStage, userName);
+        });
+    }
+}
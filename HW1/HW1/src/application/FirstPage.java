@@ -15,8 +15,10 @@ public class FirstPage {
 	
 	// Reference to the DatabaseHelper for database interactions
 	private final DatabaseHelper databaseHelper;
-	public FirstPage(DatabaseHelper databaseHelper) {
+	private final DatabaseService databaseService;
+	public FirstPage(DatabaseHelper databaseHelper, DatabaseService databaseService) {
         this.databaseHelper = databaseHelper;
+        this.databaseService = databaseService;
     }
 
 	/**
@@ -35,7 +37,7 @@ public class FirstPage {
 	    // Button to navigate to the SetupAdmin page
 	    
 	    continueButton.setOnAction(a -> {
-	        new AdminSetupPage(databaseHelper).show(primaryStage);
+	        new AdminSetupPage(databaseHelper, databaseService).show(primaryStage);
 	        
 	    });
 
@@ -0,0 +1,64 @@
+package application;
+
+import java.util.Arrays;
+
+/**
+ * The IncrementalPasswordValidator class applies the PasswordValidator rules to a password field
+ * as it is edited. It remembers which character classes occur in every prefix of the password, so
+ * a typed character costs one table lookup, and an edit or deletion at position i resumes from
+ * the prefix before it instead of rescanning the whole password.
+ *
+ * Scanning stops at the first character that is not allowed, like PasswordValidator. One instance
+ * belongs to one field and must only be used from the thread that edits it.
+ */
+public final class IncrementalPasswordValidator {
+
+	// found[i] is the set of classes in the first i characters, for every i up to scanned
+	private int[] found = new int[PasswordValidator.MAX_LENGTH + 1];
+	// The number of characters scanned, which stops at an invalid character
+	private int scanned;
+	// The index of the first invalid character, or -1
+	private int invalidAt = -1;
+	private PasswordValidator.Result result = PasswordValidator.evaluate("");
+
+	/**
+	 * Validates the field after an edit.
+	 *
+	 * @param text        The whole text of the field after the edit
+	 * @param changeStart The index of the first character that may have changed; 0 rescans it all
+	 * @return The same result PasswordValidator.evaluate would return for the text
+	 */
+	public PasswordValidator.Result update(CharSequence text, int changeStart) {
+		int length = text.length();
+
+		// Characters before the change are unchanged; an invalid one at or after it may not be
+		if (changeStart < scanned || (invalidAt >= 0 && changeStart <= invalidAt)) {
+			scanned = Math.max(0, changeStart);
+			invalidAt = -1;
+		}
+		scanned = Math.min(scanned, length);
+
+		while (invalidAt < 0 && scanned < length) {
+			int characterClass = PasswordValidator.classify(text.charAt(scanned));
+			if (characterClass == 0) {
+				invalidAt = scanned;
+				break;
+			}
+			if (scanned + 1 == found.length) {
+				found = Arrays.copyOf(found, found.length * 2);
+			}
+			found[scanned + 1] = found[scanned] | characterClass;
+			scanned++;
+		}
+
+		if (invalidAt >= 0) {
+			return result = PasswordValidator.invalidCharacter(found[invalidAt], invalidAt);
+		}
+		return result = PasswordValidator.result(found[length], length);
+	}
+
+	// The result of the last update
+	public PasswordValidator.Result getResult() {
+		return result;
+	}
+}
@@ -0,0 +1,74 @@
+package application;
+
+/**
+ * The IncrementalUserNameValidator class runs the UserNameValidator state machine over a text
+ * field as it is edited. It remembers the state the machine was in after every character, so a
+ * typed character costs one transition, and an edit or deletion at position i resumes from the
+ * state after character i - 1 instead of rescanning the whole name.
+ *
+ * The machine stops at the first character it cannot accept, and never reads more than 17
+ * characters, so the state it keeps is a fixed-size array. One instance belongs to one field and
+ * must only be used from the thread that edits it.
+ */
+public final class IncrementalUserNameValidator {
+
+	// states[i] is the state after the first i characters, for every i up to index
+	private final byte[] states = new byte[UserNameValidator.MAX_LENGTH + 2];
+	// The number of characters the machine has accepted
+	private int index;
+	// The number of characters counted, which is one more than index if the 17th stopped it
+	private int size;
+	// Whether the machine stopped at the character at index
+	private boolean halted;
+	private UserNameValidator.Result result = UserNameValidator.validate("");
+
+	public IncrementalUserNameValidator() {
+		states[0] = UserNameValidator.START;
+	}
+
+	/**
+	 * Validates the field after an edit.
+	 *
+	 * @param text        The whole text of the field after the edit
+	 * @param changeStart The index of the first character that may have changed; 0 rescans it all
+	 * @return The same result UserNameValidator.validate would return for the text
+	 */
+	public UserNameValidator.Result update(CharSequence text, int changeStart) {
+		int length = text.length();
+		if (length == 0) {
+			index = 0;
+			size = 0;
+			halted = false;
+			return result = UserNameValidator.validate(text);
+		}
+
+		// Characters before the change are unchanged; the one the machine stopped at may not be
+		if (changeStart < index || (halted && changeStart <= index)) {
+			index = Math.max(0, changeStart);
+			size = index;
+			halted = false;
+		}
+
+		int state = states[index];
+		while (!halted && index < length) {
+			int next = UserNameValidator.next(state, text.charAt(index));
+			if (next == UserNameValidator.HALT) {
+				halted = true;
+				break;
+			}
+			size = index + 1;
+			if (size > UserNameValidator.MAX_LENGTH) {
+				halted = true; // The character is counted but the machine does not move on
+				break;
+			}
+			state = next;
+			states[++index] = (byte) state;
+		}
+		return result = UserNameValidator.result(state, size, index, length);
+	}
+
+	// The result of the last update
+	public UserNameValidator.Result getResult() {
+		return result;
+	}
+}
@@ -5,6 +5,7 @@ import databasePart1.*;
 import javafx.scene.Scene;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
+import javafx.scene.control.ProgressIndicator;
 import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
 
@@ -18,10 +19,10 @@ public class InvitationPage {
 	/**
      * Displays the Invite Page in the provided primary stage.
      * 
-     * @param databaseHelper An instance of DatabaseHelper to handle database operations.
-     * @param primaryStage   The primary stage where the scene will be displayed.
+     * @param databaseService An instance of DatabaseService to run database operations in the background.
+     * @param primaryStage    The primary stage where the scene will be displayed.
      */
-    public void show(DatabaseHelper databaseHelper,Stage primaryStage) {
+    public void show(DatabaseService databaseService,Stage primaryStage) {
     	VBox layout = new VBox();
 	    layout.setStyle("-fx-alignment: center; -fx-padding: 20;");
 	    
@@ -36,14 +37,29 @@ public class InvitationPage {
 	    Label inviteCodeLabel = new Label(""); ;
         inviteCodeLabel.setStyle("-fx-font-size: 14px; -fx-font-style: italic;");
         
+        // Spinner shown while a code is being fetched
+        ProgressIndicator progress = new ProgressIndicator();
+        progress.setMaxSize(24, 24);
+        progress.setVisible(false);
+        
         showCodeButton.setOnAction(a -> {
-        	// Generate the invitation code using the databaseHelper and set it to the label
-            String invitationCode = databaseHelper.generateInvitationCode();
-            inviteCodeLabel.setText(invitationCode);
+        	showCodeButton.setDisable(true);
+        	progress.setVisible(true);
+        	
+        	// Generate the invitation code in the background and set it to the label
+            databaseService.generateInvitationCode().whenComplete((invitationCode, error) -> {
+            	showCodeButton.setDisable(false);
+            	progress.setVisible(false);
+            	if (error != null || invitationCode == null) {
+            		inviteCodeLabel.setText("Could not generate an invitation code, please try again");
+            		return;
+            	}
+            	inviteCodeLabel.setText(invitationCode);
+            });
         });
 	    
 
-        layout.getChildren().addAll(userLabel, showCodeButton, inviteCodeLabel);
+        layout.getChildren().addAll(userLabel, showCodeButton, progress, inviteCodeLabel);
 	    Scene inviteScene = new Scene(layout, 800, 400);
 
 	    // Set the scene to primary stage
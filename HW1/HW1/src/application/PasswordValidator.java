@@ -0,0 +1,202 @@
+package application;
+
+import java.util.StringJoiner;
+
+/**
+ * The PasswordValidator class checks a password against the same rules as
+ * SetupAccountPage.PasswordEvaluator: 8 to 16 characters, drawn from letters, digits and the
+ * special characters ~`!@#$%^&*()_-+={}[]|\:;"'<>,.?/, with at least one upper case letter, one
+ * lower case letter, one digit and one special character.
+ *
+ * Unlike PasswordEvaluator it keeps no state between calls, so it can be used from any number of
+ * threads at once. Each character is classified with one table lookup, nothing is printed, and a
+ * valid password is answered with a shared result object, so the success path allocates nothing.
+ */
+public final class PasswordValidator {
+
+	// Character classes, stored as bits so the rules found so far fit in one int
+	static final int UPPER = 1;
+	static final int LOWER = 2;
+	static final int DIGIT = 4;
+	static final int SPECIAL = 8;
+	static final int ALL_CLASSES = UPPER | LOWER | DIGIT | SPECIAL;
+
+	static final int MIN_LENGTH = 8;
+	static final int MAX_LENGTH = 16;
+
+	static final String SPECIAL_CHARACTERS = "~`!@#$%^&*()_-+={}[]|\\:;\"'<>,.?/";
+
+	// The class of every ASCII character; 0 means the character is not allowed
+	private static final byte[] CHARACTER_CLASS = new byte[128];
+
+	static {
+		for (char c = 'A'; c <= 'Z'; c++) CHARACTER_CLASS[c] = UPPER;
+		for (char c = 'a'; c <= 'z'; c++) CHARACTER_CLASS[c] = LOWER;
+		for (char c = '0'; c <= '9'; c++) CHARACTER_CLASS[c] = DIGIT;
+		for (int i = 0; i < SPECIAL_CHARACTERS.length(); i++) CHARACTER_CLASS[SPECIAL_CHARACTERS.charAt(i)] = SPECIAL;
+	}
+
+	/**
+	 * An optional hook that is told about every character the validator looks at. It receives the
+	 * character class rather than the character, so tracing never exposes the password itself.
+	 */
+	public interface Tracer {
+		void onCharacter(int index, int characterClass);
+	}
+
+	/**
+	 * The immutable outcome of a validation.
+	 */
+	public static final class Result {
+		private final int foundClasses;
+		private final boolean longEnough;
+		private final boolean invalidCharacter;
+		private final int errorIndex;
+		private final String message;
+		private final String errorMessage;
+
+		private Result(int foundClasses, boolean longEnough, boolean invalidCharacter, int errorIndex,
+				String message, String errorMessage) {
+			this.foundClasses = foundClasses;
+			this.longEnough = longEnough;
+			this.invalidCharacter = invalidCharacter;
+			this.errorIndex = errorIndex;
+			this.message = message;
+			this.errorMessage = errorMessage;
+		}
+
+		public boolean isValid() { return errorIndex < 0; }
+		public boolean foundUpperCase() { return (foundClasses & UPPER) != 0; }
+		public boolean foundLowerCase() { return (foundClasses & LOWER) != 0; }
+		public boolean foundNumericDigit() { return (foundClasses & DIGIT) != 0; }
+		public boolean foundSpecialChar() { return (foundClasses & SPECIAL) != 0; }
+		public boolean foundLongEnough() { return longEnough; }
+		public boolean foundOtherChar() { return invalidCharacter; }
+
+		// The index of the character where the error was found, or -1 if the password is valid
+		public int getErrorIndex() { return errorIndex; }
+
+		// What is wrong, in one line for showing next to the field, or an empty string if the
+		// password is valid
+		public String getMessage() { return message; }
+
+		// The error message in the format of PasswordEvaluator, or an empty string if the password
+		// is valid
+		public String getErrorMessage() { return errorMessage; }
+	}
+
+	// The messages for every combination of missing rules, indexed by found classes and length
+	private static final String[] MISSING_RULES_MESSAGES = new String[(ALL_CLASSES + 1) * 2];
+	private static final String[] MISSING_RULES_SUMMARIES = new String[(ALL_CLASSES + 1) * 2];
+
+	static {
+		for (int found = 0; found <= ALL_CLASSES; found++) {
+			MISSING_RULES_MESSAGES[found * 2] = missingRulesMessage(found, false);
+			MISSING_RULES_MESSAGES[found * 2 + 1] = missingRulesMessage(found, true);
+			MISSING_RULES_SUMMARIES[found * 2] = missingRulesSummary(found, false);
+			MISSING_RULES_SUMMARIES[found * 2 + 1] = missingRulesSummary(found, true);
+		}
+	}
+
+	private static final Result VALID = new Result(ALL_CLASSES, true, false, -1, "", "");
+	private static final Result EMPTY = new Result(0, false, false, 0, "Please input a password",
+			"Please input a password");
+
+	private PasswordValidator() {
+	}
+
+	// Validates a password without tracing.
+	public static Result evaluate(CharSequence input) {
+		return evaluate(input, null);
+	}
+
+	/**
+	 * Validates a password.
+	 *
+	 * @param input  The password to check
+	 * @param tracer A hook that sees every step, or null for no tracing
+	 * @return The outcome, with the rules that were met and the index of the error
+	 */
+	public static Result evaluate(CharSequence input, Tracer tracer) {
+		int length = input.length();
+		if (length == 0) {
+			return EMPTY;
+		}
+
+		int found = 0;
+		for (int i = 0; i < length; i++) {
+			int characterClass = classify(input.charAt(i));
+			if (tracer != null) {
+				tracer.onCharacter(i, characterClass);
+			}
+			if (characterClass == 0) {
+				return invalidCharacter(found, i);
+			}
+			found |= characterClass;
+		}
+		return result(found, length);
+	}
+
+	// Returns the result for a password that has an invalid character at the given index; like
+	// PasswordEvaluator, the rules found are those of the characters before it
+	static Result invalidCharacter(int found, int index) {
+		boolean longEnough = index >= MIN_LENGTH && index <= MAX_LENGTH;
+		return new Result(found, longEnough, true, index, "An invalid character has been found!",
+				"*** Error *** An invalid character has been found!");
+	}
+
+	/**
+	 * Returns the result for a password made only of allowed characters.
+	 *
+	 * @param found  The classes of the characters in the password
+	 * @param length The length of the password
+	 */
+	static Result result(int found, int length) {
+		if (length == 0) {
+			return EMPTY;
+		}
+		boolean longEnough = length >= MIN_LENGTH && length <= MAX_LENGTH;
+		if (found == ALL_CLASSES && longEnough) {
+			return VALID;
+		}
+		int missing = found * 2 + (longEnough ? 1 : 0);
+		return new Result(found, longEnough, false, length, MISSING_RULES_SUMMARIES[missing], MISSING_RULES_MESSAGES[missing]);
+	}
+
+	// Returns the class bit of a character, or 0 if the character is not allowed
+	static int classify(char c) {
+		return c < 128 ? CHARACTER_CLASS[c] : 0;
+	}
+
+	// Builds the message listing every rule the password does not meet yet
+	static String missingRulesMessage(int found, boolean longEnough) {
+		StringBuilder message = new StringBuilder("Please create a password that\n ");
+		if ((found & UPPER) == 0)
+			message.append("Has at least one upper case letter;\n ");
+		if ((found & LOWER) == 0)
+			message.append("Has at least one lower case letter;\n ");
+		if ((found & DIGIT) == 0)
+			message.append("Has at least one number;\n ");
+		if ((found & SPECIAL) == 0)
+			message.append("Has at least one special character;\n ");
+		if (!longEnough)
+			message.append("Is between 8-16 characters;\n ");
+		return message.toString();
+	}
+
+	// Builds the one-line list of the rules the password does not meet yet
+	static String missingRulesSummary(int found, boolean longEnough) {
+		StringJoiner missing = new StringJoiner(", ", "The password still needs ", "");
+		if ((found & UPPER) == 0)
+			missing.add("an upper case letter");
+		if ((found & LOWER) == 0)
+			missing.add("a lower case letter");
+		if ((found & DIGIT) == 0)
+			missing.add("a number");
+		if ((found & SPECIAL) == 0)
+			missing.add("a special character");
+		if (!longEnough)
+			missing.add("8-16 characters");
+		return missing.toString();
+	}
+}
@@ -0,0 +1,215 @@
+package application;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+import javafx.collections.ObservableListBase;
+
+import databasePart1.DatabaseService;
+import databasePart2.PageKey;
+import databasePart2.Question;
+import databasePart2.QuestionAnswerDAO;
+
+/**
+ * The QuestionFeed class is the list of questions behind the feed on the user home page, newest
+ * first. It has a row for every question, but holds only the pages of rows near the ones the list
+ * view has asked for. A row that is not loaded yet is null, which the cells show as loading, and
+ * asking for it loads its page in the background, along with the next page in the direction of
+ * scrolling. When the page arrives the list reports its rows as replaced, so the visible cells
+ * show them.
+ *
+ * Pages are read by keyset through {@link QuestionAnswerDAO}: the key that ends each page is kept,
+ * so scrolling on reads the next page by key. Jumping with the scroll bar to a page whose start is
+ * not known finds it in the index first. The loaded pages are kept in a small cache, the least
+ * recently used evicted first, so memory stays the same however far the user scrolls.
+ *
+ * Like the list view, the feed must only be used on the JavaFX Application Thread. The database is
+ * only read on the {@link DatabaseService}, whose replies come back to the JavaFX thread.
+ */
+public class QuestionFeed extends ObservableListBase<Question> {
+
+	static final int PAGE_SIZE = Integer.getInteger("cse360.feed.pageSize", 50);
+	static final int CACHED_PAGES = Integer.getInteger("cse360.feed.cachedPages", 12);
+
+	private final DatabaseService databaseService;
+	private final QuestionAnswerDAO questionAnswerDAO;
+	private int size;
+	// In order of use, so the first page is the one to evict
+	private final LinkedHashMap<Integer, List<Question>> pages = new LinkedHashMap<>(32, 0.75f, true);
+	// The key to read each page after, from the page before it; kept for pages that were evicted
+	private final Map<Integer, PageKey> pageStarts = new HashMap<>();
+	private final Set<Integer> loading = new HashSet<>();
+	// The page last asked for, read by loads to skip pages the user has already scrolled past
+	private volatile int lastPage = 0;
+	// Raised by refresh, so replies for the feed as it was before are ignored
+	private int generation;
+	private Consumer<Throwable> onLoadFailed = error -> System.err.println("Could not load the feed: " + error.getMessage());
+
+	private long pageLoads;
+	private long jumps;
+	private long evictions;
+	private long skips;
+
+	public QuestionFeed(DatabaseService databaseService, QuestionAnswerDAO questionAnswerDAO) {
+		this.databaseService = databaseService;
+		this.questionAnswerDAO = questionAnswerDAO;
+	}
+
+	// Sets what to do when a page could not be loaded; by default the error is logged.
+	public void setOnLoadFailed(Consumer<Throwable> onLoadFailed) {
+		this.onLoadFailed = Objects.requireNonNull(onLoadFailed);
+	}
+
+	/**
+	 * Counts the questions again and empties the cache, for when the feed is opened or questions
+	 * have been posted.
+	 *
+	 * @return A future completed on the JavaFX thread once the feed has its new size
+	 */
+	public CompletableFuture<Integer> refresh() {
+		int refreshed = ++generation;
+		return databaseService.submit(() -> (int) Math.min(Integer.MAX_VALUE, questionAnswerDAO.countQuestions()))
+				.whenComplete((count, error) -> {
+					if (error != null) {
+						onLoadFailed.accept(error);
+						return;
+					}
+					if (refreshed != generation) {
+						return;
+					}
+					pages.clear();
+					pageStarts.clear();
+					loading.clear();
+					int oldSize = size;
+					size = count;
+					beginChange();
+					if (oldSize > 0) {
+						nextRemove(0, Collections.<Question>nCopies(oldSize, null));
+					}
+					if (count > 0) {
+						nextAdd(0, count);
+					}
+					endChange();
+				});
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns a question, or null while its page is loading.
+	 */
+	@Override
+	public Question get(int index) {
+		Objects.checkIndex(index, size);
+		int page = index / PAGE_SIZE;
+		List<Question> rows = pages.get(page);
+		if (page != lastPage) {
+			// Read ahead in the direction the user is scrolling
+			load(page > lastPage ? page + 1 : page - 1);
+			lastPage = page;
+		}
+		if (rows == null) {
+			load(page);
+			return null;
+		}
+		int row = index % PAGE_SIZE;
+		// A page may be short if questions were deleted since the feed was counted
+		return row < rows.size() ? rows.get(row) : null;
+	}
+
+	// Starts loading a page unless it is cached, loading or past the end
+	private void load(int page) {
+		if (page < 0 || (long) page * PAGE_SIZE >= size || pages.containsKey(page) || !loading.add(page)) {
+			return;
+		}
+		int requested = generation;
+		PageKey start = pageStarts.get(page);
+		boolean jump = page > 0 && start == null;
+		boolean[] skipped = { false };
+		databaseService.submit(() -> {
+			// Dragging the scroll bar asks for every page on the way; only read the ones still near
+			if (Math.abs(page - lastPage) > CACHED_PAGES / 2) {
+				skipped[0] = true;
+				return null;
+			}
+			PageKey after = start;
+			if (jump) {
+				after = questionAnswerDAO.findQuestionKey((long) page * PAGE_SIZE - 1);
+				if (after == null) {
+					return null;
+				}
+			}
+			return questionAnswerDAO.listQuestions(after, PAGE_SIZE);
+		}).whenComplete((result, error) -> {
+			if (requested != generation) {
+				return;
+			}
+			loading.remove(page);
+			if (error != null) {
+				onLoadFailed.accept(error);
+				return;
+			}
+			if (skipped[0]) {
+				skips++;
+				return;
+			}
+			pageLoads++;
+			if (jump) {
+				jumps++;
+			}
+			install(page, result == null ? Collections.<Question>emptyList() : result.getItems(),
+					result == null ? null : result.getNextKey());
+		});
+	}
+
+	// Caches a page, evicting the least recently used ones, and shows its rows
+	private void install(int page, List<Question> rows, PageKey nextKey) {
+		pages.put(page, rows);
+		if (nextKey != null) {
+			pageStarts.put(page + 1, nextKey);
+		}
+		for (Iterator<Integer> eldest = pages.keySet().iterator(); pages.size() > CACHED_PAGES; ) {
+			eldest.next();
+			eldest.remove();
+			evictions++;
+		}
+
+		int from = page * PAGE_SIZE;
+		int to = Math.min(size, from + PAGE_SIZE);
+		if (from >= to) {
+			return;
+		}
+		beginChange();
+		for (int i = from; i < to; i++) {
+			nextSet(i, null);
+		}
+		endChange();
+	}
+
+	// The number of questions held in the cache
+	public int getCachedRows() {
+		int rows = 0;
+		for (List<Question> page : pages.values()) {
+			rows += page.size();
+		}
+		return rows;
+	}
+
+	@Override
+	public String toString() {
+		return "QuestionFeed[rows=" + size + ", cachedPages=" + pages.size() + ", loading=" + loading.size()
+				+ ", pageLoads=" + pageLoads + ", jumps=" + jumps + ", evictions=" + evictions + ", skips=" + skips + "]";
+	}
+}
@@ -0,0 +1,46 @@
+package application;
+
+import java.util.prefs.BackingStoreException;
+import java.util.prefs.Preferences;
+
+/**
+ * The RememberedSession class keeps the session token of a user who chose to stay signed in, in
+ * the Java preferences of the operating system account, so the next start of the application can
+ * skip the login page. It only helps if the session store is saved to a file
+ * (-Dcse360.session.file); otherwise the session is gone after a restart and the login page is
+ * shown as usual.
+ */
+final class RememberedSession {
+
+	private static final String KEY = "sessionToken";
+
+	private RememberedSession() {
+	}
+
+	private static Preferences preferences() {
+		return Preferences.userNodeForPackage(RememberedSession.class);
+	}
+
+	// Returns the remembered token, or null if there is none
+	static String load() {
+		return preferences().get(KEY, null);
+	}
+
+	static void save(String token) {
+		preferences().put(KEY, token);
+		flush();
+	}
+
+	static void clear() {
+		preferences().remove(KEY);
+		flush();
+	}
+
+	private static void flush() {
+		try {
+			preferences().flush();
+		} catch (BackingStoreException e) {
+			System.err.println("Could not save the sign-in preference: " + e.getMessage());
+		}
+	}
+}
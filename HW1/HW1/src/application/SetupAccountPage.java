@@ -1,11 +1,16 @@
 package application;
 
+import javafx.animation.PauseTransition;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.layout.VBox;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Text;
+import javafx.scene.text.TextFlow;
 import javafx.stage.Stage;
+import javafx.util.Duration;
 
-import java.sql.SQLException;
+import java.util.function.ObjIntConsumer;
 
 import databasePart1.*;
 
@@ -14,11 +19,17 @@ import databasePart1.*;
  * Users provide their userName, password, and a valid invitation code to register.
  */
 public class SetupAccountPage {
+
+    // How long typing must pause before the userName is checked
+    static final Duration AVAILABILITY_CHECK_DELAY = Duration.millis(Integer.getInteger("cse360.setup.checkDelayMs", 250));
+    static final int SUGGESTION_COUNT = 3;
 	
     private final DatabaseHelper databaseHelper;
-    // DatabaseHelper to handle database operations.
-    public SetupAccountPage(DatabaseHelper databaseHelper) {
+    private final DatabaseService databaseService;
+    // DatabaseHelper to handle database operations, DatabaseService to run them in the background.
+    public SetupAccountPage(DatabaseHelper databaseHelper, DatabaseService databaseService) {
         this.databaseHelper = databaseHelper;
+        this.databaseService = databaseService;
     }
 
     /**
@@ -35,6 +46,34 @@ public class SetupAccountPage {
         passwordField.setPromptText("Enter Password");
         passwordField.setMaxWidth(250);
         
+        // Says whether the userName is free while it is typed
+        Label availabilityLabel = new Label();
+        availabilityLabel.setStyle("-fx-font-size: 12px;");
+        PauseTransition availabilityCheck = new PauseTransition(AVAILABILITY_CHECK_DELAY);
+        availabilityCheck.setOnFinished(e -> checkAvailability(userNameField, availabilityLabel));
+        userNameField.textProperty().addListener((observable, oldText, newText) -> {
+            availabilityLabel.setText("");
+            availabilityCheck.playFromStart();
+        });
+
+        // Live validation: each field keeps its own validator, which only looks at what was typed
+        // since the last keystroke, and the character at the error index is highlighted below it
+        IncrementalUserNameValidator userNameValidator = new IncrementalUserNameValidator();
+        TextFlow userNameErrors = new TextFlow();
+        userNameErrors.setMaxWidth(500);
+        trackEdits(userNameField, (text, changeStart) -> {
+            UserNameValidator.Result result = userNameValidator.update(text, changeStart);
+            showError(userNameErrors, text, text, result.getErrorIndex(), result.getMessage());
+        });
+
+        IncrementalPasswordValidator passwordValidator = new IncrementalPasswordValidator();
+        TextFlow passwordErrors = new TextFlow();
+        passwordErrors.setMaxWidth(500);
+        trackEdits(passwordField, (text, changeStart) -> {
+            PasswordValidator.Result result = passwordValidator.update(text, changeStart);
+            showError(passwordErrors, text, "\u2022".repeat(text.length()), result.getErrorIndex(), result.getMessage());
+        });
+
         TextField inviteCodeField = new TextField();
         inviteCodeField.setPromptText("Enter InvitationCode");
         inviteCodeField.setMaxWidth(250);
@@ -44,64 +83,139 @@ public class SetupAccountPage {
         errorLabel.setStyle("-fx-text-fill: red; -fx-font-size: 12px;");
         
 
+        // Spinner shown while the account is being created
+        ProgressIndicator progress = new ProgressIndicator();
+        progress.setMaxSize(24, 24);
+        progress.setVisible(false);
+
         Button setupButton = new Button("Setup");
         
         setupButton.setOnAction(a -> {
         	// Retrieve user input
             String userName = userNameField.getText();
-            String validUsernameMsg = UserNameRecognizer.checkForValidUserName(userName); //Check if the username is valid
+            UserNameValidator.Result userNameResult = UserNameValidator.validate(userName); //Check if the username is valid
             String password = passwordField.getText();
-            String validPasswordMsg = PasswordEvaluator.evaluatePassword(password);		//Check if the password is valid
+            PasswordValidator.Result passwordResult = PasswordValidator.evaluate(password);		//Check if the password is valid
             String code = inviteCodeField.getText();
             
-            try {
-            	// Check if the user already exists
-            	if(!databaseHelper.doesUserExist(userName)) {
-            		
-            		// Validate the invitation code
-            		if(databaseHelper.validateInvitationCode(code)) {
-            			
-            			// Create a new user and register them in the database
-		            	User user=new User(userName, password, "user");
-		                databaseHelper.register(user);
-		                
-		             // Navigate to the Welcome Login Page
-		                new WelcomeLoginPage(databaseHelper).show(primaryStage,user);
-            		}
-            		else {
-            			errorLabel.setText("Please enter a valid invitation code");
-            		}
-            	}
-            	else {
-            		errorLabel.setText("This userName is taken!!.. Please use another to setup an account");
+            //Display why the username is invalid
+            if(!userNameResult.isValid()) {
+            	errorLabel.setText(userNameResult.getErrorMessage());
+            	return;
+            }
+            //Display why the password is invalid
+            if(!passwordResult.isValid()) {
+            	errorLabel.setText(passwordResult.getErrorMessage());
+            	return;
+            }
+            
+            // Redeem the invitation code and create the account in a single transaction, in the background
+            User user=new User(userName, password, "user");
+            errorLabel.setText("");
+            setupButton.setDisable(true);
+            progress.setVisible(true);
+            
+            databaseService.registerWithInvitation(user, code).whenComplete((result, error) -> {
+            	setupButton.setDisable(false);
+            	progress.setVisible(false);
+            	if (error != null) {
+            		System.err.println("Database error: " + error.getMessage());
+            		errorLabel.setText("Could not reach the database, please try again");
+            		return;
             	}
             	
-            	//Display why the username is invalid
-            	if(validPasswordMsg != "") {
-            		errorLabel.setText(validPasswordMsg);
+            	if(result == RegistrationResult.SUCCESS) {
+            		// Navigate to the Welcome Login Page
+            		String token = databaseHelper.getSessionStore().create(user.getUserName(), user.getRole());
+            		new WelcomeLoginPage(databaseHelper, databaseService).show(primaryStage,token);
             	}
-            	//Display why the password is invalid
-            	if(validUsernameMsg != "") {
-            		errorLabel.setText(validUsernameMsg);
+            	else if(result == RegistrationResult.RATE_LIMITED) {
+            		errorLabel.setText("Too many invitation codes tried, please wait a few seconds");
             	}
-            	
-            } catch (SQLException e) {
-                System.err.println("Database error: " + e.getMessage());
-                e.printStackTrace();
-            }
+            	else if(result == RegistrationResult.USERNAME_TAKEN) {
+            		errorLabel.setText("This userName is taken!!.. Please use another to setup an account");
+            	}
+            	else {
+            		errorLabel.setText("Please enter a valid invitation code");
+            	}
+            });
         });
 
         VBox layout = new VBox(10);
         layout.setStyle("-fx-padding: 20; -fx-alignment: center;");
-        layout.getChildren().addAll(userNameField, passwordField,inviteCodeField, setupButton, errorLabel);
+        layout.getChildren().addAll(userNameField, availabilityLabel, userNameErrors, passwordField, passwordErrors,
+                inviteCodeField, setupButton, progress, errorLabel);
 
         primaryStage.setScene(new Scene(layout, 800, 400));
         primaryStage.setTitle("Account Setup");
         primaryStage.show();
     }
+
+    // Calls onEdit with the new text and the index of the first changed character after every edit
+    // of a field. Changes that do not pass through the formatter, such as setText, report index 0.
+    private static void trackEdits(TextField field, ObjIntConsumer<String> onEdit) {
+        int[] changeStart = { 0 };
+        field.setTextFormatter(new TextFormatter<>(change -> {
+            if (change.isContentChange()) {
+                changeStart[0] = change.getRangeStart();
+            }
+            return change;
+        }));
+        field.textProperty().addListener((observable, oldText, newText) -> {
+            onEdit.accept(newText, changeStart[0]);
+            changeStart[0] = 0;
+        });
+    }
+
+    // Shows a field's text with the character at the error index in red, followed by the error.
+    // Nothing is shown while the field is empty or valid.
+    private static void showError(TextFlow flow, String text, String shown, int errorIndex, String message) {
+        if (text.isEmpty() || errorIndex < 0) {
+            flow.getChildren().clear();
+            return;
+        }
+        Text before = new Text(shown.substring(0, Math.min(errorIndex, shown.length())));
+        Text error = new Text(errorIndex < shown.length() ? shown.substring(errorIndex, errorIndex + 1) : "");
+        error.setFill(Color.RED);
+        error.setUnderline(true);
+        Text after = new Text(errorIndex < shown.length() ? shown.substring(errorIndex + 1) : "");
+        Text description = new Text("   " + message);
+        description.setFill(Color.RED);
+        description.setStyle("-fx-font-size: 11px;");
+        flow.getChildren().setAll(before, error, after, description);
+    }
+
+    // Looks the typed userName up in the availability index and suggests free ones if it is taken.
+    // A reply is ignored if the field has changed since it was asked for.
+    private void checkAvailability(TextField userNameField, Label availabilityLabel) {
+        String userName = userNameField.getText();
+        if (!UserNameValidator.validate(userName).isValid()) {
+            return;
+        }
+        databaseService.isUserNameAvailable(userName).thenAccept(available -> {
+            if (!userName.equals(userNameField.getText())) {
+                return;
+            }
+            if (available) {
+                availabilityLabel.setStyle("-fx-text-fill: green; -fx-font-size: 12px;");
+                availabilityLabel.setText(userName + " is available");
+                return;
+            }
+            databaseService.suggestUserNames(userName, SUGGESTION_COUNT, UserNameValidator.MAX_LENGTH).thenAccept(suggestions -> {
+                if (userName.equals(userNameField.getText())) {
+                    availabilityLabel.setStyle("-fx-text-fill: red; -fx-font-size: 12px;");
+                    availabilityLabel.setText(userName + " is taken" + (suggestions.isEmpty() ? "" : ", try " + String.join(", ", suggestions)));
+                }
+            });
+        }).exceptionally(error -> {
+            // The Setup button still checks the name, so a failed hint is only logged
+            System.err.println("Could not check the userName: " + error.getMessage());
+            return null;
+        });
+    }
     
 
-    class PasswordEvaluator {
+    public static class PasswordEvaluator {
     	/**
     	 * <p> Title: Directed Graph-translated Password Assessor. </p>
     	 * 
@@ -258,7 +372,7 @@ public class SetupAccountPage {
 
     	}
     }
-    class UserNameRecognizer {
+    public static class UserNameRecognizer {
     	/**
     	 * <p> Title: FSM-translated UserNameRecognizer. </p>
     	 * 
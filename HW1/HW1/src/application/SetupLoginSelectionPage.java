@@ -14,9 +14,11 @@ import databasePart1.*;
 public class SetupLoginSelectionPage {
 	
     private final DatabaseHelper databaseHelper;
+    private final DatabaseService databaseService;
 
-    public SetupLoginSelectionPage(DatabaseHelper databaseHelper) {
+    public SetupLoginSelectionPage(DatabaseHelper databaseHelper, DatabaseService databaseService) {
         this.databaseHelper = databaseHelper;
+        this.databaseService = databaseService;
     }
 
     public void show(Stage primaryStage) {
@@ -26,10 +28,10 @@ public class SetupLoginSelectionPage {
         Button loginButton = new Button("Login");
         
         setupButton.setOnAction(a -> {
-            new SetupAccountPage(databaseHelper).show(primaryStage);
+            new SetupAccountPage(databaseHelper, databaseService).show(primaryStage);
         });
         loginButton.setOnAction(a -> {
-        	new UserLoginPage(databaseHelper).show(primaryStage);
+        	new UserLoginPage(databaseHelper, databaseService).show(primaryStage);
         });
 
         VBox layout = new VBox(10);
@@ -1,36 +1,124 @@
 package application;
 
 import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.scene.Scene;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressIndicator;
+import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
+
+import java.lang.management.ManagementFactory;
 import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
 
+import databasePart1.DatabaseConfig;
 import databasePart1.DatabaseHelper;
+import databasePart1.DatabaseService;
+import databasePart2.QuestionAnswerDAO;
 
 
 public class StartCSE360 extends Application {
 
 	private static final DatabaseHelper databaseHelper = new DatabaseHelper();
-	
+	// Runs database calls off the JavaFX Application Thread and delivers results back to it
+	private static final DatabaseService databaseService = new DatabaseService(databaseHelper, Platform::runLater);
+
 	public static void main( String[] args )
 	{
 		 launch(args);
 	}
-	
+
 	@Override
     public void start(Stage primaryStage) {
-        try {
-            databaseHelper.connectToDatabase(); // Connect to the database
-            if (databaseHelper.isDatabaseEmpty()) {
-            	
-            	new FirstPage(databaseHelper).show(primaryStage);
-            } else {
-            	new SetupLoginSelectionPage(databaseHelper).show(primaryStage);
-                
-            }
-        } catch (SQLException e) {
-        	System.out.println(e.getMessage());
-        }
+		// Show the window right away and open the database in the background
+		Label statusLabel = new Label("Opening the database...");
+		VBox layout = new VBox(10, new ProgressIndicator(), statusLabel);
+		layout.setStyle("-fx-padding: 20; -fx-alignment: center;");
+		primaryStage.setScene(new Scene(layout, 800, 400));
+		primaryStage.setTitle("CSE360");
+		primaryStage.show();
+
+		long connectStart = System.nanoTime();
+		// Connect on a thread of its own rather than through the service, whose timeout is meant for
+		// short calls: the first start after an upgrade migrates the schema, which can take minutes
+		CompletableFuture<Boolean> connected = new CompletableFuture<>();
+		Thread.ofVirtual().name("database-startup").start(() -> {
+			try {
+				databaseHelper.connectToDatabase(status -> Platform.runLater(() -> statusLabel.setText(status)));
+				boolean empty = databaseHelper.isDatabaseEmpty();
+				Platform.runLater(() -> connected.complete(empty));
+			} catch (Throwable e) {
+				Platform.runLater(() -> connected.completeExceptionally(e));
+			}
+		});
+		connected.whenComplete((empty, error) -> {
+			if (error != null) {
+				statusLabel.setText("Could not open the database: " + error.getMessage());
+				System.out.println(error.getMessage());
+				return;
+			}
+			long connectMillis = (System.nanoTime() - connectStart) / 1_000_000;
+			String rememberedToken = RememberedSession.load();
+			if (empty) {
+				new FirstPage(databaseHelper, databaseService).show(primaryStage);
+			} else if (databaseHelper.getSessionStore().validate(rememberedToken) != null) {
+				// Signed in last time and the session is still valid
+				new WelcomeLoginPage(databaseHelper, databaseService).show(primaryStage, rememberedToken);
+			} else {
+				new SetupLoginSelectionPage(databaseHelper, databaseService).show(primaryStage);
+			}
+			// Measured once the first page has been laid out and rendered
+			Platform.runLater(() -> logColdStart(connectMillis));
+
+			// Prepare the sign-up and login statements while the user reads the first page
+			databaseService.submit(() -> {
+				databaseHelper.warmUp();
+				return null;
+			}).exceptionally(e -> {
+				System.out.println("Connection warm-up failed: " + e.getMessage());
+				return null;
+			});
+
+			// Load the taken userNames for the as-you-type check on the setup page, on a thread of
+			// its own, since reading every user of a large database takes longer than the service
+			// lets a call run
+			Thread.ofVirtual().name("user-name-index-load").start(() -> {
+				try {
+					databaseHelper.loadUserNameIndex();
+				} catch (SQLException e) {
+					System.out.println("Loading the userName index failed: " + e.getMessage());
+				}
+			});
+
+			// Read or rebuild the search index the same way
+			Thread.ofVirtual().name("search-index-load").start(() -> {
+				try {
+					new QuestionAnswerDAO(databaseHelper).loadSearchIndex();
+				} catch (SQLException e) {
+					System.out.println("Loading the search index failed: " + e.getMessage());
+				}
+			});
+
+			// Fill the duplicate detector, which is only kept in memory, the same way
+			Thread.ofVirtual().name("duplicate-detector-load").start(() -> {
+				try {
+					new QuestionAnswerDAO(databaseHelper).loadDuplicateDetector();
+				} catch (SQLException e) {
+					System.out.println("Loading the duplicate detector failed: " + e.getMessage());
+				}
+			});
+		});
     }
-	
+
+	// Prints how long it took from the start of the JVM to the first page
+	private static void logColdStart(long connectMillis) {
+		if (!DatabaseConfig.DEBUG) {
+			return;
+		}
+		long sinceJvmStart = System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+		System.out.println("Cold start: first page shown " + sinceJvmStart + " ms after JVM start ("
+				+ connectMillis + " ms connecting and checking the schema)");
+	}
 
 }
@@ -1,30 +1,133 @@
 package application;
 
+import javafx.animation.PauseTransition;
+import javafx.collections.FXCollections;
 import javafx.scene.Scene;
+import javafx.scene.control.Button;
 import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.scene.control.TextField;
 import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
+import javafx.util.Duration;
+
+import databasePart1.DatabaseHelper;
+import databasePart1.DatabaseService;
+import databasePart2.Question;
+import databasePart2.QuestionAnswerDAO;
 
 /**
- * This page displays a simple welcome message for the user.
+ * This page displays a simple welcome message for the user and the feed of questions, newest
+ * first, and lets them search the questions and answers already posted before they ask their own.
+ *
+ * The feed is a list view over a {@link QuestionFeed}, so only the visible rows have cells, which
+ * are reused as the user scrolls, and only the pages near them are held in memory.
  */
 
 public class UserHomePage {
 
-    public void show(Stage primaryStage) {
-    	VBox layout = new VBox();
+    static final Duration SEARCH_DELAY = Duration.millis(Integer.getInteger("cse360.search.delayMs", 200));
+    static final int SEARCH_RESULTS = 20;
+    // Rows of one height let the list view place them without measuring each one
+    public static final double ROW_HEIGHT = 24;
+
+    private final DatabaseHelper databaseHelper;
+    private final DatabaseService databaseService;
+    private final QuestionAnswerDAO questionAnswerDAO;
+    private final QuestionFeed feed;
+
+    public UserHomePage(DatabaseHelper databaseHelper, DatabaseService databaseService) {
+        this.databaseHelper = databaseHelper;
+        this.databaseService = databaseService;
+        this.questionAnswerDAO = new QuestionAnswerDAO(databaseHelper);
+        this.feed = new QuestionFeed(databaseService, questionAnswerDAO);
+    }
+
+    /**
+     * Displays the home page.
+     * @param primaryStage The primary stage where the scene will be displayed.
+     * @param userName The signed-in user, who asks any question posted from here.
+     */
+    public void show(Stage primaryStage, String userName) {
+    	VBox layout = new VBox(10);
 	    layout.setStyle("-fx-alignment: center; -fx-padding: 20;");
-	    
+
 	    // Label to display Hello user
 	    Label userLabel = new Label("Hello, User!");
 	    userLabel.setStyle("-fx-font-size: 16px; -fx-font-weight: bold;");
 
-	    layout.getChildren().add(userLabel);
+	    // Search the posted questions as the user types, once they pause
+	    TextField searchField = new TextField();
+	    searchField.setPromptText("Search questions and answers");
+	    searchField.setMaxWidth(500);
+	    Label searchStatus = new Label();
+	    searchStatus.setStyle("-fx-font-size: 12px;");
+	    // Shows the feed, or the search results while there is a search
+	    ListView<Question> results = createQuestionList();
+	    results.setItems(feed);
+	    feed.setOnLoadFailed(error -> searchStatus.setText("Could not load the questions: " + error.getMessage()));
+	    feed.refresh();
+
+	    PauseTransition searchDelay = new PauseTransition(SEARCH_DELAY);
+	    searchDelay.setOnFinished(e -> search(searchField, searchStatus, results));
+	    searchField.textProperty().addListener((observable, oldText, newText) -> searchDelay.playFromStart());
+
+	    // Button to ask a new question
+	    Button askButton = new Button("Ask a question");
+	    askButton.setOnAction(a -> new AskQuestionPage(databaseHelper, databaseService).show(primaryStage, userName));
+
+	    layout.getChildren().addAll(userLabel, searchField, searchStatus, results, askButton);
 	    Scene userScene = new Scene(layout, 800, 400);
 
 	    // Set the scene to primary stage
 	    primaryStage.setScene(userScene);
 	    primaryStage.setTitle("User Page");
-    	
+
+    }
+
+    // Creates a list of questions whose cells show a question's title and number of answers, or
+    // that it is loading
+    public static ListView<Question> createQuestionList() {
+        ListView<Question> list = new ListView<>();
+        list.setMaxWidth(500);
+        list.setFixedCellSize(ROW_HEIGHT);
+        list.setCellFactory(view -> new ListCell<Question>() {
+            @Override
+            protected void updateItem(Question question, boolean empty) {
+                super.updateItem(question, empty);
+                if (empty) {
+                    setText(null);
+                } else if (question == null) {
+                    setText("Loading...");
+                } else {
+                    setText(question.getTitle() + "  (" + question.getAnswerCount()
+                            + (question.getAnswerCount() == 1 ? " answer)" : " answers)"));
+                }
+            }
+        });
+        return list;
+    }
+
+    // Runs the search on the database service and shows the questions found. A reply is ignored
+    // if the field has changed since it was asked for.
+    private void search(TextField searchField, Label searchStatus, ListView<Question> results) {
+        String query = searchField.getText().trim();
+        if (query.isEmpty()) {
+            results.setItems(feed);
+            searchStatus.setText("");
+            return;
+        }
+        databaseService.submit(() -> questionAnswerDAO.searchQuestions(query, SEARCH_RESULTS)).whenComplete((questions, error) -> {
+            if (!query.equals(searchField.getText().trim())) {
+                return;
+            }
+            if (error != null) {
+                searchStatus.setText("Search failed: " + error.getMessage());
+                return;
+            }
+            results.setItems(FXCollections.observableArrayList(questions));
+            searchStatus.setText(questions.isEmpty() ? "No questions match \"" + query + "\"" : "");
+        });
     }
-}
\ No newline at end of file
+}
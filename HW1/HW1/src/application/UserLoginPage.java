@@ -5,8 +5,6 @@ import javafx.scene.control.*;
 import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
 
-import java.sql.SQLException;
-
 import databasePart1.*;
 
 /**
@@ -16,9 +14,11 @@ import databasePart1.*;
 public class UserLoginPage {
 	
     private final DatabaseHelper databaseHelper;
+    private final DatabaseService databaseService;
 
-    public UserLoginPage(DatabaseHelper databaseHelper) {
+    public UserLoginPage(DatabaseHelper databaseHelper, DatabaseService databaseService) {
         this.databaseHelper = databaseHelper;
+        this.databaseService = databaseService;
     }
 
     public void show(Stage primaryStage) {
@@ -31,48 +31,69 @@ public class UserLoginPage {
         passwordField.setPromptText("Enter Password");
         passwordField.setMaxWidth(250);
         
+        // Keeps the session token after the application is closed
+        CheckBox keepSignedInBox = new CheckBox("Keep me signed in");
+
         // Label to display error messages
         Label errorLabel = new Label();
         errorLabel.setStyle("-fx-text-fill: red; -fx-font-size: 12px;");
 
 
+        // Spinner shown while the credentials are being checked
+        ProgressIndicator progress = new ProgressIndicator();
+        progress.setMaxSize(24, 24);
+        progress.setVisible(false);
+
         Button loginButton = new Button("Login");
         
         loginButton.setOnAction(a -> {
         	// Retrieve user inputs
             String userName = userNameField.getText();
             String password = passwordField.getText();
-            try {
-            	User user=new User(userName, password, "");
-            	WelcomeLoginPage welcomeLoginPage = new WelcomeLoginPage(databaseHelper);
-            	
-            	// Retrieve the user's role from the database using userName
-            	String role = databaseHelper.getUserRole(userName);
+            errorLabel.setText("");
+            loginButton.setDisable(true);
+            progress.setVisible(true);
+            
+            // Look up the account and check the password in one round trip, in the background
+            databaseService.authenticate(userName, password).whenComplete((result, error) -> {
+            	loginButton.setDisable(false);
+            	progress.setVisible(false);
+            	if (error != null) {
+            		System.err.println("Database error: " + error.getMessage());
+            		error.printStackTrace();
+            		errorLabel.setText("Could not reach the database, please try again");
+            		return;
+            	}
             	
-            	if(role!=null) {
-            		user.setRole(role);
-            		if(databaseHelper.login(user)) {
-            			welcomeLoginPage.show(primaryStage,user);
-            		}
-            		else {
-            			// Display an error if the login fails
-                        errorLabel.setText("Error logging in");
+            	if(result.isSuccess()) {
+            		// From here on the pages only see the session token, not the password
+            		String token = databaseHelper.getSessionStore().create(userName, result.getRole());
+            		if (keepSignedInBox.isSelected()) {
+            			RememberedSession.save(token);
+            		} else {
+            			RememberedSession.clear();
             		}
+            		new WelcomeLoginPage(databaseHelper, databaseService).show(primaryStage,token);
+            	}
+            	else if(result.isRateLimited()) {
+            		// Too many attempts for this account or from this computer
+            		errorLabel.setText("Too many login attempts, please try again in "
+            				+ Math.max(1, (result.getRetryAfterMillis() + 999) / 1000) + " seconds");
+            	}
+            	else if(result.isFound()) {
+            		// Display an error if the login fails
+                    errorLabel.setText("Error logging in");
             	}
             	else {
             		// Display an error if the account does not exist
                     errorLabel.setText("user account doesn't exists");
             	}
-            	
-            } catch (SQLException e) {
-                System.err.println("Database error: " + e.getMessage());
-                e.printStackTrace();
-            } 
+            });
         });
 
         VBox layout = new VBox(10);
         layout.setStyle("-fx-padding: 20; -fx-alignment: center;");
-        layout.getChildren().addAll(userNameField, passwordField, loginButton, errorLabel);
+        layout.getChildren().addAll(userNameField, passwordField, keepSignedInBox, loginButton, progress, errorLabel);
 
         primaryStage.setScene(new Scene(layout, 800, 400));
         primaryStage.setTitle("User Login");
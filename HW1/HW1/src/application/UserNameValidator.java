@@ -0,0 +1,173 @@
+package application;
+
+import java.util.Arrays;
+
+/**
+ * The UserNameValidator class recognizes the same userName language as
+ * SetupAccountPage.UserNameRecognizer: a letter, then letters and digits, where a single _, - or .
+ * may separate alphanumeric runs, for a total of 5 to 16 characters.
+ *
+ * The state machine is compiled once into a transition table indexed by state and character class,
+ * and a validation is a short loop over that table. Nothing is kept between calls and nothing is
+ * printed, so the validator can be used from many threads at once.
+ */
+public final class UserNameValidator {
+
+	// Character classes
+	private static final int ALPHA = 0;
+	private static final int DIGIT = 1;
+	private static final int SEPARATOR = 2;
+	private static final int OTHER = 3;
+	private static final int CLASS_COUNT = 4;
+
+	// States. START is the initial state and SEPARATED follows a _, - or .
+	static final int START = 0;
+	static final int FIRST_LETTER = 1;
+	static final int BODY = 2;
+	static final int SEPARATED = 3;
+	private static final int STATE_COUNT = 4;
+	static final int HALT = -1;
+
+	static final int MIN_LENGTH = 5;
+	static final int MAX_LENGTH = 16;
+
+	private static final String ERROR_PREFIX = "\n*** ERROR *** ";
+
+	// The transitions of the recognizer: from state, on character class, to state
+	private static final int[][] GRAMMAR = {
+		{ START,        ALPHA,     FIRST_LETTER },
+		{ FIRST_LETTER, ALPHA,     BODY },
+		{ FIRST_LETTER, DIGIT,     BODY },
+		{ BODY,         ALPHA,     BODY },
+		{ BODY,         DIGIT,     BODY },
+		{ BODY,         SEPARATOR, SEPARATED },
+		{ SEPARATED,    ALPHA,     BODY },
+		{ SEPARATED,    DIGIT,     BODY },
+	};
+
+	// The compiled transition table and the class of every ASCII character
+	private static final byte[] TRANSITIONS = new byte[STATE_COUNT * CLASS_COUNT];
+	private static final byte[] CHARACTER_CLASS = new byte[128];
+
+	static {
+		Arrays.fill(TRANSITIONS, (byte) HALT);
+		for (int[] rule : GRAMMAR) {
+			TRANSITIONS[rule[0] * CLASS_COUNT + rule[1]] = (byte) rule[2];
+		}
+
+		Arrays.fill(CHARACTER_CLASS, (byte) OTHER);
+		for (char c = 'A'; c <= 'Z'; c++) CHARACTER_CLASS[c] = ALPHA;
+		for (char c = 'a'; c <= 'z'; c++) CHARACTER_CLASS[c] = ALPHA;
+		for (char c = '0'; c <= '9'; c++) CHARACTER_CLASS[c] = DIGIT;
+		CHARACTER_CLASS['_'] = SEPARATOR;
+		CHARACTER_CLASS['-'] = SEPARATOR;
+		CHARACTER_CLASS['.'] = SEPARATOR;
+	}
+
+	/**
+	 * The immutable outcome of a validation.
+	 */
+	public static final class Result {
+		private final int errorIndex;
+		private final String message;
+		private final String errorMessage;
+
+		private Result(int errorIndex, String message, String errorMessage) {
+			this.errorIndex = errorIndex;
+			this.message = message;
+			this.errorMessage = errorMessage;
+		}
+
+		public boolean isValid() { return errorIndex < 0; }
+
+		// The index of the character where the error was found, or -1 if the userName is valid
+		public int getErrorIndex() { return errorIndex; }
+
+		// What is wrong, in one line for showing next to the field, or an empty string if the
+		// userName is valid
+		public String getMessage() { return message; }
+
+		// The error message in the format of UserNameRecognizer, or an empty string if the
+		// userName is valid
+		public String getErrorMessage() { return errorMessage; }
+	}
+
+	private static final Result VALID = new Result(-1, "", "");
+	private static final Result EMPTY = new Result(0, "The input is empty", ERROR_PREFIX + "The input is empty");
+
+	private UserNameValidator() {
+	}
+
+	/**
+	 * Checks whether the input is a valid userName.
+	 *
+	 * @param input The userName to check
+	 * @return The outcome, with the index of the error and a message describing it
+	 */
+	public static Result validate(CharSequence input) {
+		int length = input.length();
+		if (length == 0) {
+			return EMPTY;
+		}
+
+		int state = START;
+		int index = 0;
+		int size = 0;
+		while (index < length) {
+			int next = next(state, input.charAt(index));
+			if (next == HALT) {
+				break;
+			}
+			size = index + 1;
+			if (size > MAX_LENGTH) {
+				break; // The character is counted but the machine does not move on
+			}
+			state = next;
+			index++;
+		}
+		return result(state, size, index, length);
+	}
+
+	// Returns the state the machine moves to on a character, or HALT
+	static int next(int state, char c) {
+		return TRANSITIONS[state * CLASS_COUNT + classify(c)];
+	}
+
+	// Returns the character class of a character
+	static int classify(char c) {
+		return c < 128 ? CHARACTER_CLASS[c] : OTHER;
+	}
+
+	/**
+	 * Turns the state the machine stopped in into a result.
+	 *
+	 * @param state  The state the machine stopped in
+	 * @param size   The number of characters counted
+	 * @param index  The index where the machine stopped
+	 * @param length The length of the input
+	 */
+	static Result result(int state, int size, int index, int length) {
+		switch (state) {
+		case START:
+			return error(index, "A UserName must start with A-Z, a-z.");
+		case FIRST_LETTER:
+			return error(index, "A UserName must have A-Z, a-z, or 0-9.");
+		case BODY:
+			if (size < MIN_LENGTH)
+				return error(index, "A UserName must have at least 5 characters.");
+			if (size > MAX_LENGTH)
+				return error(index, "A UserName must have no more than 16 character.");
+			if (index < length)
+				return error(index, "A UserName may only contain the characters A-Z, a-z, "
+						+ "or a _, -, or . in between alphanumeric characters");
+			return VALID;
+		default:
+			return error(index, "A UserName character after an underscore, minus, or period, must be A-Z, a-z, 0-9.");
+		}
+	}
+
+	// Builds a failed result, with the message also in the format of UserNameRecognizer
+	private static Result error(int index, String message) {
+		return new Result(index, message, ERROR_PREFIX + message + "\n");
+	}
+}
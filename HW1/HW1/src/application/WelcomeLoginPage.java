@@ -10,57 +10,89 @@ import databasePart1.*;
 /**
  * The WelcomeLoginPage class displays a welcome screen for authenticated users.
  * It allows users to navigate to their respective pages based on their role or quit the application.
+ *
+ * The page only holds the session token. The user's name and role are looked up in the session
+ * store whenever they are needed, so an expired or revoked session sends the user back to log in.
  */
 public class WelcomeLoginPage {
-	
+
 	private final DatabaseHelper databaseHelper;
+	private final DatabaseService databaseService;
 
-    public WelcomeLoginPage(DatabaseHelper databaseHelper) {
+    public WelcomeLoginPage(DatabaseHelper databaseHelper, DatabaseService databaseService) {
         this.databaseHelper = databaseHelper;
+        this.databaseService = databaseService;
     }
-    public void show( Stage primaryStage, User user) {
-    	
+
+    /**
+     * Displays the welcome page for a signed-in user.
+     * @param primaryStage The primary stage where the scene will be displayed.
+     * @param sessionToken The token returned by SessionStore.create when the user signed in.
+     */
+    public void show( Stage primaryStage, String sessionToken) {
+    	SessionStore sessions = databaseHelper.getSessionStore();
+    	Session session = sessions.validate(sessionToken);
+    	if (session == null) {
+    		new UserLoginPage(databaseHelper, databaseService).show(primaryStage);
+    		return;
+    	}
+
     	VBox layout = new VBox(5);
 	    layout.setStyle("-fx-alignment: center; -fx-padding: 20;");
-	    
-	    Label welcomeLabel = new Label("Welcome!!");
+
+	    Label welcomeLabel = new Label("Welcome " + session.getUserName() + "!!");
 	    welcomeLabel.setStyle("-fx-font-size: 16px; -fx-font-weight: bold;");
-	    
+
 	    // Button to navigate to the user's respective page based on their role
 	    Button continueButton = new Button("Continue to your Page");
 	    continueButton.setOnAction(a -> {
-	    	String role =user.getRole();
+	    	Session current = sessions.validate(sessionToken);
+	    	if (current == null) {
+	    		// The session expired while the page was open
+	    		new UserLoginPage(databaseHelper, databaseService).show(primaryStage);
+	    		return;
+	    	}
+	    	String role = current.getRole();
 	    	System.out.println(role);
-	    	
+
 	    	if(role.equals("admin")) {
 	    		new AdminHomePage().show(primaryStage);
 	    	}
 	    	else if(role.equals("user")) {
-	    		new UserHomePage().show(primaryStage);
+	    		new UserHomePage(databaseHelper, databaseService).show(primaryStage, current.getUserName());
 	    	}
 	    });
-	    
+
+	    // Button to end the session and go back to the login choice
+	    Button logoutButton = new Button("Log out");
+	    logoutButton.setOnAction(a -> {
+	    	sessions.revoke(sessionToken);
+	    	RememberedSession.clear();
+	    	new SetupLoginSelectionPage(databaseHelper, databaseService).show(primaryStage);
+	    });
+
 	    // Button to quit the application
 	    Button quitButton = new Button("Quit");
 	    quitButton.setOnAction(a -> {
+	    	databaseService.close();
 	    	databaseHelper.closeConnection();
 	    	Platform.exit(); // Exit the JavaFX application
 	    });
-	    
+
 	    // "Invite" button for admin to generate invitation codes
-	    if ("admin".equals(user.getRole())) {
+	    if (sessions.hasRole(sessionToken, "admin")) {
             Button inviteButton = new Button("Invite");
             inviteButton.setOnAction(a -> {
-                new InvitationPage().show(databaseHelper, primaryStage);
+                new InvitationPage().show(databaseService, primaryStage);
             });
             layout.getChildren().add(inviteButton);
         }
 
-	    layout.getChildren().addAll(welcomeLabel,continueButton,quitButton);
+	    layout.getChildren().addAll(welcomeLabel,continueButton,logoutButton,quitButton);
 	    Scene welcomeScene = new Scene(layout, 800, 400);
 
 	    // Set the scene to primary stage
 	    primaryStage.setScene(welcomeScene);
 	    primaryStage.setTitle("Welcome Page");
     }
-}
\ No newline at end of file
+}
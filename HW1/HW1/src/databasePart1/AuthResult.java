@@ -0,0 +1,67 @@
+package databasePart1;
+
+/**
+ * The AuthResult class is the outcome of {@link DatabaseHelper#authenticate(String, String)}.
+ * It tells whether the account was found, whether the secret matched, and on success carries the
+ * user's id and role so the caller does not need a second lookup.
+ */
+public final class AuthResult {
+
+	public enum Status { SUCCESS, NOT_FOUND, INVALID_CREDENTIALS, RATE_LIMITED }
+
+	private static final AuthResult NOT_FOUND = new AuthResult(Status.NOT_FOUND, -1, null);
+	private static final AuthResult INVALID_CREDENTIALS = new AuthResult(Status.INVALID_CREDENTIALS, -1, null);
+
+	private final Status status;
+	private final int userId;
+	private final String role;
+	private final long retryAfterMillis;
+
+	private AuthResult(Status status, int userId, String role) {
+		this(status, userId, role, 0);
+	}
+
+	private AuthResult(Status status, int userId, String role, long retryAfterMillis) {
+		this.status = status;
+		this.userId = userId;
+		this.role = role;
+		this.retryAfterMillis = retryAfterMillis;
+	}
+
+	static AuthResult success(int userId, String role) {
+		return new AuthResult(Status.SUCCESS, userId, role);
+	}
+
+	static AuthResult notFound() {
+		return NOT_FOUND;
+	}
+
+	static AuthResult invalidCredentials() {
+		return INVALID_CREDENTIALS;
+	}
+
+	// The attempt was refused by the login throttle without looking the user up
+	static AuthResult rateLimited(long retryAfterMillis) {
+		return new AuthResult(Status.RATE_LIMITED, -1, null, retryAfterMillis);
+	}
+
+	public Status getStatus() { return status; }
+	public boolean isSuccess() { return status == Status.SUCCESS; }
+	public boolean isFound() { return status == Status.SUCCESS || status == Status.INVALID_CREDENTIALS; }
+	public boolean isRateLimited() { return status == Status.RATE_LIMITED; }
+
+	// How long to wait before trying again, if the attempt was rate limited
+	public long getRetryAfterMillis() { return retryAfterMillis; }
+
+	// The user's id, or -1 if authentication failed
+	public int getUserId() { return userId; }
+
+	// The user's role, or null if authentication failed
+	public String getRole() { return role; }
+
+	@Override
+	public String toString() {
+		return "AuthResult[" + status + (isSuccess() ? ", id=" + userId + ", role=" + role : "")
+				+ (isRateLimited() ? ", retryAfter=" + retryAfterMillis + " ms" : "") + "]";
+	}
+}
@@ -0,0 +1,56 @@
+package databasePart1;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The BulkRegistrationResult class reports the outcome of
+ * {@link DatabaseHelper#registerAll(Iterable)}: how many users were registered and which rows
+ * were rejected. Only failures are kept, so the result stays small however many rows are imported.
+ */
+public class BulkRegistrationResult {
+
+	/**
+	 * A row that was not registered.
+	 */
+	public static final class Failure {
+		private final long row;
+		private final String userName;
+		private final String reason;
+
+		Failure(long row, String userName, String reason) {
+			this.row = row;
+			this.userName = userName;
+			this.reason = reason;
+		}
+
+		// The number of the user's row: its line in a roster file, or its position in the input
+		// counting from 1
+		public long getRow() { return row; }
+		public String getUserName() { return userName; }
+		public String getReason() { return reason; }
+
+		@Override
+		public String toString() {
+			return "row " + row + " (" + userName + "): " + reason;
+		}
+	}
+
+	private long registered = 0;
+	private long processed = 0;
+	private final List<Failure> failures = new ArrayList<>();
+
+	void addRegistered(long count) { registered += count; }
+	void addProcessed(long count) { processed += count; }
+	void addFailure(long row, String userName, String reason) { failures.add(new Failure(row, userName, reason)); }
+
+	public long getRegisteredCount() { return registered; }
+	public long getProcessedCount() { return processed; }
+	public List<Failure> getFailures() { return Collections.unmodifiableList(failures); }
+
+	@Override
+	public String toString() {
+		return "Registered " + registered + " of " + processed + " users, " + failures.size() + " failed";
+	}
+}
@@ -0,0 +1,355 @@
+package databasePart1;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The ConnectionPool class keeps a bounded set of JDBC connections that callers borrow for the
+ * length of a single operation. Connections are validated when they are checked out, borrowers
+ * that hold a connection for too long are reported as leaks, and the time spent waiting for a
+ * free connection is recorded so the pool can be sized from real numbers. Each connection also
+ * keeps a {@link StatementCache} so repeated queries reuse their prepared plans.
+ */
+public class ConnectionPool implements AutoCloseable {
+
+	// Connection settings
+	private final String url;
+	private final String user;
+	private final String password;
+
+	// Pool sizing
+	private final int minSize;
+	private final int maxSize;
+	private final long borrowTimeoutMillis;
+	private final long leakThresholdMillis;
+	private final int statementCacheSize;
+
+	// Idle connections and the lock that guards them
+	private final ArrayDeque<Connection> idle = new ArrayDeque<>();
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition available = lock.newCondition();
+	private int totalConnections = 0;
+	private boolean closed = false;
+
+	// Borrowed connections, used for leak detection
+	private final Set<PooledConnection> borrowed = ConcurrentHashMap.newKeySet();
+	private final ScheduledExecutorService leakDetector;
+
+	// The statement cache of every open connection
+	private final Map<Connection, StatementCache> statementCaches = new ConcurrentHashMap<>();
+	private final LongAdder statementHits = new LongAdder();
+	private final LongAdder statementMisses = new LongAdder();
+	private final LongAdder statementEvictions = new LongAdder();
+
+	// Pool-wait metrics
+	private final AtomicLong borrowCount = new AtomicLong();
+	private final AtomicLong waitCount = new AtomicLong();
+	private final AtomicLong totalWaitNanos = new AtomicLong();
+	private final AtomicLong maxWaitNanos = new AtomicLong();
+	private final AtomicLong timeoutCount = new AtomicLong();
+	private final AtomicLong invalidCount = new AtomicLong();
+	private final AtomicLong leakCount = new AtomicLong();
+
+	/**
+	 * Creates a pool and opens its minimum number of connections.
+	 *
+	 * @param url                 The JDBC url of the database
+	 * @param user                The database user
+	 * @param password            The database password
+	 * @param minSize             The number of connections kept open at all times
+	 * @param maxSize             The largest number of connections the pool will open
+	 * @param borrowTimeoutMillis How long a caller waits for a free connection before failing
+	 * @param leakThresholdMillis How long a connection may be held before it is reported as a leak
+	 * @param statementCacheSize  How many prepared statements each connection keeps open
+	 */
+	public ConnectionPool(String url, String user, String password, int minSize, int maxSize,
+			long borrowTimeoutMillis, long leakThresholdMillis, int statementCacheSize) throws SQLException {
+		if (minSize < 0 || maxSize < 1 || minSize > maxSize) {
+			throw new IllegalArgumentException("Invalid pool size: min=" + minSize + ", max=" + maxSize);
+		}
+		if (statementCacheSize < 1) {
+			throw new IllegalArgumentException("Invalid statement cache size: " + statementCacheSize);
+		}
+		this.url = url;
+		this.user = user;
+		this.password = password;
+		this.minSize = minSize;
+		this.maxSize = maxSize;
+		this.borrowTimeoutMillis = borrowTimeoutMillis;
+		this.leakThresholdMillis = leakThresholdMillis;
+		this.statementCacheSize = statementCacheSize;
+
+		for (int i = 0; i < minSize; i++) {
+			idle.push(openConnection());
+			totalConnections++;
+		}
+
+		leakDetector = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "connection-pool-leak-detector");
+			t.setDaemon(true);
+			return t;
+		});
+		long period = Math.max(1000, leakThresholdMillis / 2);
+		leakDetector.scheduleAtFixedRate(this::detectLeaks, period, period, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Borrows a connection from the pool, opening a new one if the pool has not reached its
+	 * maximum size. The connection goes back to the pool when the returned object is closed.
+	 *
+	 * @return A validated connection wrapped so it can be used in a try-with-resources block
+	 * @throws SQLException If no connection becomes free in time or a new one cannot be opened
+	 */
+	public PooledConnection borrow() throws SQLException {
+		long start = System.nanoTime();
+		long deadline = start + TimeUnit.MILLISECONDS.toNanos(borrowTimeoutMillis);
+		boolean waited = false;
+
+		while (true) {
+			Connection connection = null;
+			boolean open = false;
+
+			lock.lock();
+			try {
+				while (!closed && idle.isEmpty() && totalConnections >= maxSize) {
+					long remaining = deadline - System.nanoTime();
+					if (remaining <= 0) {
+						timeoutCount.incrementAndGet();
+						throw new SQLException("Timed out after " + borrowTimeoutMillis
+								+ " ms waiting for a database connection");
+					}
+					waited = true;
+					available.awaitNanos(remaining);
+				}
+				if (closed) {
+					throw new SQLException("The connection pool is closed");
+				}
+				if (!idle.isEmpty()) {
+					connection = idle.pop();
+				} else {
+					totalConnections++;
+					open = true;
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new SQLException("Interrupted while waiting for a database connection", e);
+			} finally {
+				lock.unlock();
+			}
+
+			if (open) {
+				try {
+					connection = openConnection();
+				} catch (SQLException e) {
+					discard(null);
+					throw e;
+				}
+			} else if (!isValid(connection)) {
+				// The idle connection went stale, drop it and try again
+				invalidCount.incrementAndGet();
+				discard(connection);
+				continue;
+			}
+
+			recordWait(System.nanoTime() - start, waited);
+			PooledConnection pooled = new PooledConnection(this, connection, statementCaches.get(connection));
+			borrowed.add(pooled);
+			return pooled;
+		}
+	}
+
+	// Opens a new physical connection together with its statement cache
+	private Connection openConnection() throws SQLException {
+		Connection connection = DriverManager.getConnection(url, user, password);
+		statementCaches.put(connection, new StatementCache(connection, statementCacheSize,
+				statementHits, statementMisses, statementEvictions));
+		return connection;
+	}
+
+	// Checks a connection before it is handed out
+	private boolean isValid(Connection connection) {
+		try {
+			return !connection.isClosed() && connection.isValid(1);
+		} catch (SQLException e) {
+			return false;
+		}
+	}
+
+	// Records how long a borrow call took to get its connection
+	private void recordWait(long nanos, boolean waited) {
+		borrowCount.incrementAndGet();
+		if (waited) {
+			waitCount.incrementAndGet();
+		}
+		totalWaitNanos.addAndGet(nanos);
+		maxWaitNanos.accumulateAndGet(nanos, Math::max);
+	}
+
+	// Returns a connection to the pool, called by PooledConnection.close()
+	void release(PooledConnection pooled) {
+		borrowed.remove(pooled);
+		Connection connection = pooled.getConnection();
+		boolean healthy;
+		try {
+			healthy = !connection.isClosed();
+			if (healthy && !connection.getAutoCommit()) {
+				// Never hand out a connection with an open transaction
+				connection.rollback();
+				connection.setAutoCommit(true);
+			}
+		} catch (SQLException e) {
+			healthy = false;
+		}
+
+		if (!healthy) {
+			discard(connection);
+			return;
+		}
+
+		lock.lock();
+		try {
+			if (closed) {
+				totalConnections--;
+			} else {
+				idle.push(connection);
+				available.signal();
+				return;
+			}
+		} finally {
+			lock.unlock();
+		}
+		closeQuietly(connection);
+	}
+
+	// Removes a connection from the pool's count and closes it
+	private void discard(Connection connection) {
+		lock.lock();
+		try {
+			totalConnections--;
+			available.signal();
+		} finally {
+			lock.unlock();
+		}
+		if (connection != null) {
+			closeQuietly(connection);
+		}
+	}
+
+	// Reports connections that have been borrowed for longer than the leak threshold
+	private void detectLeaks() {
+		long now = System.nanoTime();
+		long threshold = TimeUnit.MILLISECONDS.toNanos(leakThresholdMillis);
+		for (PooledConnection pooled : borrowed) {
+			if (now - pooled.getBorrowedAt() > threshold && pooled.markLeakReported()) {
+				leakCount.incrementAndGet();
+				System.err.println("Possible connection leak: connection held for more than "
+						+ leakThresholdMillis + " ms by " + pooled.getBorrowerName());
+				Throwable trace = pooled.getBorrowTrace();
+				if (trace != null) {
+					trace.printStackTrace();
+				} else {
+					System.err.println("Run with -Dcse360.pool.leakTrace=true to see where it was borrowed");
+				}
+			}
+		}
+	}
+
+	// Closes a connection after closing the statements cached on it
+	private void closeQuietly(Connection connection) {
+		StatementCache cache = statementCaches.remove(connection);
+		if (cache != null) {
+			cache.close();
+		}
+		try {
+			connection.close();
+		} catch (SQLException e) {
+			e.printStackTrace();
+		}
+	}
+
+	// Pool statistics
+	public int getMinSize() { return minSize; }
+	public int getMaxSize() { return maxSize; }
+	public long getBorrowCount() { return borrowCount.get(); }
+	public long getWaitCount() { return waitCount.get(); }
+	public long getTimeoutCount() { return timeoutCount.get(); }
+	public long getInvalidCount() { return invalidCount.get(); }
+	public long getLeakCount() { return leakCount.get(); }
+	public int getActiveCount() { return borrowed.size(); }
+	public long getMaxWaitMillis() { return TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get()); }
+	public long getStatementCacheHits() { return statementHits.sum(); }
+	public long getStatementCacheMisses() { return statementMisses.sum(); }
+	public long getStatementCacheEvictions() { return statementEvictions.sum(); }
+
+	public double getAverageWaitMillis() {
+		long count = borrowCount.get();
+		return count == 0 ? 0.0 : totalWaitNanos.get() / 1_000_000.0 / count;
+	}
+
+	public int getIdleCount() {
+		lock.lock();
+		try {
+			return idle.size();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public int getTotalCount() {
+		lock.lock();
+		try {
+			return totalConnections;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Closes every idle connection and stops the pool from handing out new ones. Connections that
+	 * are still borrowed are closed as they are returned.
+	 */
+	@Override
+	public void close() {
+		ArrayDeque<Connection> toClose;
+		lock.lock();
+		try {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			toClose = new ArrayDeque<>(idle);
+			totalConnections -= idle.size();
+			idle.clear();
+			available.signalAll();
+		} finally {
+			lock.unlock();
+		}
+		leakDetector.shutdownNow();
+		for (Connection connection : toClose) {
+			closeQuietly(connection);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return String.format("ConnectionPool[total=%d, idle=%d, active=%d, borrows=%d, waits=%d, "
+				+ "avgWait=%.3f ms, maxWait=%d ms, timeouts=%d, invalid=%d, leaks=%d, "
+				+ "statementHits=%d, statementMisses=%d, statementEvictions=%d]",
+				getTotalCount(), getIdleCount(), getActiveCount(), getBorrowCount(), getWaitCount(),
+				getAverageWaitMillis(), getMaxWaitMillis(), getTimeoutCount(), getInvalidCount(),
+				getLeakCount(), getStatementCacheHits(), getStatementCacheMisses(),
+				getStatementCacheEvictions());
+	}
+}
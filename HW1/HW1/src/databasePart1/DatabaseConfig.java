@@ -0,0 +1,293 @@
+package databasePart1;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.net.BindException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * The DatabaseConfig class decides which H2 database {@link DatabaseHelper} opens and how. It reads
+ * database.properties from the working directory (or the file named by -Dcse360.db.config), and
+ * any cse360.db.* system property overrides the value from the file.
+ *
+ * The cse360.db.profile property selects one of three storage profiles:
+ * <ul>
+ * <li>embedded-file: the default, a database file opened by this process only</li>
+ * <li>in-memory: a private database that disappears when the application exits, for tests</li>
+ * <li>local-server: a database file served by an H2 TCP server on this machine, so several
+ * instances of the application can share it. The server is started if it is not running yet,
+ * and the instance that started it keeps serving the others after its own window closes.</li>
+ * </ul>
+ *
+ * The tunables cacheSizeKb, writeDelayMs and lockTimeoutMs can be set for every profile, as
+ * cse360.db.cacheSizeKb, or for one profile only, as cse360.db.in-memory.cacheSizeKb.
+ */
+public class DatabaseConfig {
+
+	public static final String EMBEDDED_FILE = "embedded-file";
+	public static final String IN_MEMORY = "in-memory";
+	public static final String LOCAL_SERVER = "local-server";
+
+	// -Dcse360.debug=true prints load times, and the statistics of the caches, pools and indexes
+	// when the database is closed
+	public static final boolean DEBUG = Boolean.getBoolean("cse360.debug");
+
+	static final String PREFIX = "cse360.db.";
+	static final String DEFAULT_CONFIG_FILE = "database.properties";
+	// How often a closed instance checks whether others still use the server it runs
+	static final long SERVER_IDLE_CHECK_MS = Long.getLong("cse360.db.serverIdleCheckMs", 2000);
+
+	private final String profile;
+	private final String url;
+	private final String user;
+	private final String password;
+	private final String serverPort;
+
+	private DatabaseConfig(String profile, String url, String user, String password, String serverPort) {
+		this.profile = profile;
+		this.url = url;
+		this.user = user;
+		this.password = password;
+		this.serverPort = serverPort;
+	}
+
+	/**
+	 * Loads the configuration from database.properties and the system properties.
+	 *
+	 * @throws IllegalArgumentException If the profile is unknown or a tunable is not a number
+	 */
+	public static DatabaseConfig load() {
+		Properties properties = new Properties();
+		String file = System.getProperty(PREFIX + "config", DEFAULT_CONFIG_FILE);
+		Path path = Paths.get(file);
+		try {
+			if (Files.isRegularFile(path)) {
+				try (InputStream in = Files.newInputStream(path)) {
+					properties.load(in);
+				}
+			} else {
+				try (InputStream in = DatabaseConfig.class.getResourceAsStream("/" + DEFAULT_CONFIG_FILE)) {
+					if (in != null) {
+						properties.load(in);
+					}
+				}
+			}
+		} catch (IOException e) {
+			System.err.println("Could not read " + file + ", using the default database settings: " + e.getMessage());
+		}
+		for (String name : System.getProperties().stringPropertyNames()) {
+			if (name.startsWith(PREFIX)) {
+				properties.setProperty(name, System.getProperty(name));
+			}
+		}
+		return fromProperties(properties);
+	}
+
+	/**
+	 * Builds a configuration from cse360.db.* properties.
+	 */
+	public static DatabaseConfig fromProperties(Properties properties) {
+		String profile = properties.getProperty(PREFIX + "profile", EMBEDDED_FILE).trim().toLowerCase(Locale.ROOT);
+		String user = properties.getProperty(PREFIX + "user", "sa");
+		String password = properties.getProperty(PREFIX + "password", "");
+		String path = properties.getProperty(PREFIX + "path", "~/FoundationDatabase");
+
+		StringBuilder url = new StringBuilder("jdbc:h2:");
+		String serverPort = null;
+		switch (profile) {
+		case EMBEDDED_FILE:
+			url.append(path);
+			break;
+		case IN_MEMORY:
+			// Keep the database while the pool has no open connections
+			url.append("mem:").append(properties.getProperty(PREFIX + "name", "FoundationDatabase"))
+					.append(";DB_CLOSE_DELAY=-1");
+			break;
+		case LOCAL_SERVER:
+			serverPort = tunable(properties, profile, "port", "9092");
+			url.append("tcp://localhost:").append(serverPort).append('/').append(path);
+			break;
+		default:
+			throw new IllegalArgumentException("Unknown database profile '" + profile + "', expected "
+					+ EMBEDDED_FILE + ", " + IN_MEMORY + " or " + LOCAL_SERVER);
+		}
+
+		appendSetting(url, "CACHE_SIZE", tunable(properties, profile, "cacheSizeKb", null));
+		if (!profile.equals(IN_MEMORY)) {
+			// An in-memory database has nothing to write
+			appendSetting(url, "WRITE_DELAY", tunable(properties, profile, "writeDelayMs", null));
+		}
+		appendSetting(url, "LOCK_TIMEOUT", tunable(properties, profile, "lockTimeoutMs", null));
+		return new DatabaseConfig(profile, url.toString(), user, password, serverPort);
+	}
+
+	/**
+	 * Uses a JDBC URL as it is, with the default credentials. The profile is reported as "custom".
+	 */
+	public static DatabaseConfig forUrl(String url) {
+		return new DatabaseConfig("custom", url, "sa", "", null);
+	}
+
+	// Reads a tunable for one profile, falling back to the value for every profile
+	private static String tunable(Properties properties, String profile, String name, String defaultValue) {
+		String value = properties.getProperty(PREFIX + profile + "." + name);
+		if (value == null) {
+			value = properties.getProperty(PREFIX + name, defaultValue);
+		}
+		return value == null ? null : value.trim();
+	}
+
+	// Adds an H2 setting to the URL; settings that are not given keep H2's own default
+	private static void appendSetting(StringBuilder url, String setting, String value) {
+		if (value == null || value.isEmpty()) {
+			return;
+		}
+		try {
+			Long.parseLong(value);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException(setting + " must be a number, not '" + value + "'");
+		}
+		url.append(';').append(setting).append('=').append(value);
+	}
+
+	/**
+	 * For the local-server profile, starts an H2 TCP server on localhost unless one is already
+	 * listening on the port. H2 is loaded by name, like the JDBC driver, so it only needs to be on
+	 * the class path at run time.
+	 *
+	 * @return The server that was started, to be passed to stopServerWhenIdle, or null if none was
+	 *         started
+	 * @throws SQLException If the server could not be started for a reason other than another
+	 *                      server already listening on the port
+	 */
+	Object startServerIfNeeded() throws SQLException {
+		if (serverPort == null) {
+			return null;
+		}
+		try {
+			Class<?> serverClass = Class.forName("org.h2.tools.Server");
+			Object server = serverClass.getMethod("createTcpServer", String[].class)
+					.invoke(null, (Object) new String[] { "-tcpPort", serverPort, "-ifNotExists" });
+			serverClass.getMethod("start").invoke(server);
+			System.out.println("Started H2 server on port " + serverPort);
+			return server;
+		} catch (InvocationTargetException e) {
+			if (!isPortInUse(e.getCause())) {
+				throw new SQLException("Could not start the H2 server on port " + serverPort + ": "
+						+ e.getCause().getMessage(), e.getCause());
+			}
+			// Another instance of the application already runs the server
+			System.out.println("Using the H2 server already running on port " + serverPort);
+			return null;
+		} catch (ReflectiveOperationException e) {
+			System.err.println("Could not start the H2 server: " + e);
+			return null;
+		}
+	}
+
+	// H2 reports a port it cannot listen on as error 90061; when the port is taken, the cause is a
+	// BindException
+	private static boolean isPortInUse(Throwable error) {
+		for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+			if (cause instanceof BindException) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Stops a server started by startServerIfNeeded once no other instance of the application is
+	 * connected to it. The server runs inside this process, so while others still use it the
+	 * process stays up without a window, checking again every SERVER_IDLE_CHECK_MS.
+	 */
+	void stopServerWhenIdle(Object server) {
+		if (server == null) {
+			return;
+		}
+		if (countOtherSessions() == 0) {
+			stopServer(server);
+			return;
+		}
+		System.out.println("Other instances still use the H2 server on port " + serverPort
+				+ "; it stops once they have disconnected");
+		Thread.ofPlatform().name("h2-server-shutdown").start(() -> {
+			try {
+				while (countOtherSessions() > 0) {
+					Thread.sleep(SERVER_IDLE_CHECK_MS);
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			stopServer(server);
+		});
+	}
+
+	// Counts the sessions on the database other than the one asking
+	private int countOtherSessions() {
+		try (Connection connection = DriverManager.getConnection(url, user, password);
+				Statement statement = connection.createStatement();
+				ResultSet rs = statement.executeQuery(
+						"SELECT COUNT(*) FROM INFORMATION_SCHEMA.SESSIONS WHERE SESSION_ID <> SESSION_ID()")) {
+			return rs.next() ? rs.getInt(1) : 0;
+		} catch (SQLException e) {
+			// The database cannot be reached, so no one else can be using it either
+			return 0;
+		}
+	}
+
+	private static void stopServer(Object server) {
+		try {
+			server.getClass().getMethod("stop").invoke(server);
+		} catch (ReflectiveOperationException e) {
+			System.err.println("Could not stop the H2 server: " + e);
+		}
+	}
+
+	/**
+	 * Returns where the search index is saved: next to the database file, with .search added to
+	 * its name. An in-memory database has no file, and a database on a server may be shared by
+	 * several instances of the application that would overwrite each other's index, so for both
+	 * the index is kept in memory and this returns null.
+	 */
+	public Path getSearchIndexDirectory() {
+		String location = url.startsWith("jdbc:h2:") ? url.substring("jdbc:h2:".length()) : null;
+		if (location == null || location.startsWith("mem:") || location.startsWith("tcp:")
+				|| location.startsWith("ssl:") || LOCAL_SERVER.equals(profile)) {
+			return null;
+		}
+		if (location.startsWith("file:")) {
+			location = location.substring("file:".length());
+		}
+		int settings = location.indexOf(';');
+		if (settings >= 0) {
+			location = location.substring(0, settings);
+		}
+		// H2 expands ~ to the home directory, so the index does the same
+		if (location.startsWith("~")) {
+			location = System.getProperty("user.home") + location.substring(1);
+		}
+		return Paths.get(location + ".search");
+	}
+
+	public String getProfile() { return profile; }
+	public String getUrl() { return url; }
+	public String getUser() { return user; }
+	String getPassword() { return password; }
+
+	// Describes the configuration for the startup log, without the password
+	@Override
+	public String toString() {
+		return "profile=" + profile + ", url=" + url + ", user=" + user;
+	}
+}
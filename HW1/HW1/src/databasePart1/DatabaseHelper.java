@@ -1,109 +1,540 @@
 package databasePart1;
 import java.sql.*;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.sql.Statement;
-import java.util.UUID;
+import java.nio.file.Paths;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.stream.Stream;
 
+import application.PasswordValidator;
 import application.User;
+import application.UserNameValidator;
+import databasePart2.DuplicateDetector;
+import databasePart2.SearchIndex;
 
 
 /**
  * The DatabaseHelper class is responsible for managing the connection to the database,
  * performing operations such as user registration, login validation, and handling invitation codes.
+ * Each operation borrows its own connection from a {@link ConnectionPool}, so independent
+ * operations from different threads can run in parallel. Every operation is timed by
+ * {@link DatabaseMetrics}, which publishes its counters through JMX and Flight Recorder.
  */
 public class DatabaseHelper {
 
-	// JDBC driver name and database URL 
+	// JDBC driver name; the database URL and credentials come from DatabaseConfig
 	static final String JDBC_DRIVER = "org.h2.Driver";   
-	static final String DB_URL = "jdbc:h2:~/FoundationDatabase";  
 
-	//  Database credentials 
-	static final String USER = "sa"; 
-	static final String PASS = ""; 
+	// Connection pool settings, can be overridden with system properties
+	static final int POOL_MIN_SIZE = Integer.getInteger("cse360.pool.minSize", 2);
+	static final int POOL_MAX_SIZE = Integer.getInteger("cse360.pool.maxSize", 10);
+	static final long POOL_BORROW_TIMEOUT_MS = Long.getLong("cse360.pool.borrowTimeoutMs", 5000);
+	static final long POOL_LEAK_THRESHOLD_MS = Long.getLong("cse360.pool.leakThresholdMs", 30000);
+	static final int STATEMENT_CACHE_SIZE = Integer.getInteger("cse360.pool.statementCacheSize", 32);
 
-	private Connection connection = null;
-	private Statement statement = null; 
-	//	PreparedStatement pstmt
+	// Invitation codes are 10 characters from a 32 letter alphabet (50 random bits). The alphabet
+	// leaves out I, L, O and U so codes are hard to misread.
+	static final String INVITATION_CODE_ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ";
+	static final int INVITATION_CODE_LENGTH = 10;
+	static final int INVITATION_POOL_SIZE = Integer.getInteger("cse360.invitations.poolSize", 32);
+	static final int INVITATION_POOL_LOW_WATER = Integer.getInteger("cse360.invitations.lowWaterMark", 8);
+	static final int INVITATION_BATCH_SIZE = 500;
+	static final int REGISTRATION_BATCH_SIZE = Integer.getInteger("cse360.import.batchSize", 500);
 
+	// Statements run on every sign-up and login, prepared on each connection by warmUp
+	static final String INSERT_USER = "INSERT INTO cse360users (userName, role, iterations, salt, passwordHash) "
+			+ "VALUES (?, ?, ?, ?, ?)";
+	static final String SELECT_CREDENTIALS = "SELECT id, role, iterations, salt, passwordHash, legacyPassword "
+			+ "FROM cse360users WHERE userName = ?";
+	static final String REDEEM_INVITATION_CODE = "UPDATE InvitationCodes SET usedAt = CURRENT_TIMESTAMP "
+			+ "WHERE code = ? AND usedAt IS NULL AND issuedAt IS NOT NULL";
+	static final String[] WARM_UP_STATEMENTS = { INSERT_USER, SELECT_CREDENTIALS, REDEEM_INVITATION_CODE };
+
+	// User directory cache settings
+	static final int USER_CACHE_SIZE = Integer.getInteger("cse360.userCache.maxSize", 10_000);
+	static final long USER_CACHE_TTL_MS = Long.getLong("cse360.userCache.ttlMs", 0);
+	static final long USER_CACHE_NEGATIVE_TTL_MS = Long.getLong("cse360.userCache.negativeTtlMs", 5_000);
+
+	// Session settings; sessions are only saved if a file is given
+	static final long SESSION_IDLE_TIMEOUT_MS = Long.getLong("cse360.session.idleTimeoutMs", 30 * 60 * 1000);
+	static final long SESSION_TICK_MS = Long.getLong("cse360.session.tickMs", 1000);
+	static final String SESSION_FILE = System.getProperty("cse360.session.file");
+
+	// Password hashing settings
+	static final long HASH_TARGET_MS = Long.getLong("cse360.hash.targetMs", 50);
+	static final int HASH_QUEUE_CAPACITY = Integer.getInteger("cse360.hash.queueCapacity", 256);
+
+	private final SecureRandom random = new SecureRandom();
+	private DatabaseConfig config;
+	private Object server = null;
+	private ConnectionPool pool = null;
+	private InvitationCodePool invitationCodePool = null;
+	private PasswordHasher passwordHasher = null;
+	private SessionStore sessionStore = null;
+	private final DatabaseMetrics metrics = new DatabaseMetrics();
+	private final SchemaMigrations migrations = new SchemaMigrations();
+	private final UserDirectoryCache userCache = new UserDirectoryCache(USER_CACHE_SIZE, USER_CACHE_TTL_MS,
+			USER_CACHE_NEGATIVE_TTL_MS);
+	private final UserNameIndex userNameIndex = new UserNameIndex();
+	private SearchIndex searchIndex = null;
+	// Empty until QuestionAnswerDAO.loadDuplicateDetector fills it
+	private final DuplicateDetector duplicateDetector = new DuplicateDetector();
+	// Set once any user is known to exist; users are never deleted, so it never goes back
+	private volatile boolean hasUsers = false;
+
+	// Creates a helper for the application database, configured by database.properties and
+	// cse360.db.* system properties when it connects.
+	public DatabaseHelper() {
+		this((DatabaseConfig) null);
+	}
+
+	// Creates a helper for another database, such as an in-memory database for benchmarks.
+	public DatabaseHelper(String dbUrl) {
+		this(DatabaseConfig.forUrl(dbUrl));
+	}
+
+	// Creates a helper for the database described by a configuration.
+	public DatabaseHelper(DatabaseConfig config) {
+		this.config = config;
+	}
+
+	// Connects without reporting progress.
 	public void connectToDatabase() throws SQLException {
+		connectToDatabase(status -> { });
+	}
+
+	/**
+	 * Connects to the database, migrates its schema and starts the services built on it. This
+	 * can take a long time on the first start after an upgrade, so it reports what it is doing.
+	 *
+	 * @param progress Told each step as it starts, for showing to the user
+	 */
+	public void connectToDatabase(Consumer<String> progress) throws SQLException {
 		try {
 			Class.forName(JDBC_DRIVER); // Load the JDBC driver
-			System.out.println("Connecting to database...");
-			connection = DriverManager.getConnection(DB_URL, USER, PASS);
-			statement = connection.createStatement(); 
+			if (config == null) {
+				try {
+					config = DatabaseConfig.load();
+				} catch (IllegalArgumentException e) {
+					throw new SQLException("Invalid database configuration: " + e.getMessage(), e);
+				}
+			}
+			System.out.println("Connecting to database... (" + config + ")");
+			progress.accept("Connecting to the database...");
+			server = config.startServerIfNeeded();
+			pool = new ConnectionPool(config.getUrl(), config.getUser(), config.getPassword(), POOL_MIN_SIZE,
+					POOL_MAX_SIZE, POOL_BORROW_TIMEOUT_MS, POOL_LEAK_THRESHOLD_MS, STATEMENT_CACHE_SIZE);
 			// You can use this command to clear the database and restart from fresh.
 			//statement.execute("DROP ALL OBJECTS");
 
-			createTables();  // Create the necessary tables if they don't exist
+			metrics.register(this, config.getUrl());
+			migrateSchema(progress);  // Create or upgrade the tables if the schema is not current
+			progress.accept("Preparing password checks...");
+			passwordHasher = new PasswordHasher(HASH_TARGET_MS, HASH_QUEUE_CAPACITY);
+			invitationCodePool = new InvitationCodePool(this, INVITATION_POOL_SIZE, INVITATION_POOL_LOW_WATER);
+			sessionStore = new SessionStore(SESSION_IDLE_TIMEOUT_MS, SESSION_TICK_MS,
+					SESSION_FILE == null || SESSION_FILE.isEmpty() ? null : Paths.get(SESSION_FILE));
+			sessionStore.start();
+			// Empty until QuestionAnswerDAO.loadSearchIndex reads or rebuilds it
+			searchIndex = new SearchIndex(config.getSearchIndexDirectory());
+			searchIndex.start();
 		} catch (ClassNotFoundException e) {
 			System.err.println("JDBC Driver not found: " + e.getMessage());
 		}
 	}
 
-	private void createTables() throws SQLException {
-		String userTable = "CREATE TABLE IF NOT EXISTS cse360users ("
-				+ "id INT AUTO_INCREMENT PRIMARY KEY, "
-				+ "userName VARCHAR(255) UNIQUE, "
-				+ "password VARCHAR(255), "
-				+ "role VARCHAR(20))";
-		statement.execute(userTable);
-		
-		// Create the invitation codes table
-	    String invitationCodesTable = "CREATE TABLE IF NOT EXISTS InvitationCodes ("
-	            + "code VARCHAR(10) PRIMARY KEY, "
-	            + "isUsed BOOLEAN DEFAULT FALSE)";
-	    statement.execute(invitationCodesTable);
+	// Borrows a connection from the pool for the length of one operation.
+	private PooledConnection borrow() throws SQLException {
+		if (pool == null) {
+			throw new SQLException("Not connected to the database");
+		}
+		return pool.borrow();
+	}
+
+	// Returns the configuration in use, or null before connectToDatabase has been called.
+	public DatabaseConfig getConfig() {
+		return config;
+	}
+
+	// Returns the connection pool so its statistics can be inspected.
+	public ConnectionPool getConnectionPool() {
+		return pool;
 	}
 
+	// Returns the cache in front of doesUserExist and getUserRole, for its statistics.
+	public UserDirectoryCache getUserDirectoryCache() {
+		return userCache;
+	}
+
+	// Returns the store of signed-in users, or null before connectToDatabase has been called.
+	public SessionStore getSessionStore() {
+		return sessionStore;
+	}
+
+	// Returns the in-memory set of taken userNames, for its size and memory use.
+	public UserNameIndex getUserNameIndex() {
+		return userNameIndex;
+	}
 
-	// Check if the database is empty
+	// Returns the full-text index of the questions and answers, or null before connectToDatabase
+	// has been called.
+	public SearchIndex getSearchIndex() {
+		return searchIndex;
+	}
+
+	// Returns the in-memory detector of questions asked before in nearly the same words.
+	public DuplicateDetector getDuplicateDetector() {
+		return duplicateDetector;
+	}
+
+	// Returns the latency histograms and counters of every operation.
+	public DatabaseMetrics getMetrics() {
+		return metrics;
+	}
+
+	// Applies the schema migrations the database does not have yet. A current database only
+	// answers one query for its schema version.
+	private void migrateSchema(Consumer<String> progress) throws SQLException {
+		metrics.time(DatabaseOperation.MIGRATE_SCHEMA, () -> {
+			try (PooledConnection pooled = borrow()) {
+				if (migrations.isCurrent(pooled.getConnection())) {
+					return 0;
+				}
+				// The migration lock is held on a second connection, since DDL commits as it runs
+				try (PooledConnection lock = borrow()) {
+					return migrations.migrate(pooled.getConnection(), lock.getConnection(), progress);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Prepares the statements used by sign-up and login on every connection the pool keeps open,
+	 * so the first user does not wait for them to be parsed. Meant to run in the background while
+	 * the first page is shown.
+	 */
+	public void warmUp() throws SQLException {
+		metrics.time(DatabaseOperation.WARM_UP, () -> {
+			List<PooledConnection> borrowed = new ArrayList<>(POOL_MIN_SIZE);
+			try {
+				for (int i = 0; i < POOL_MIN_SIZE; i++) {
+					PooledConnection pooled = borrow();
+					borrowed.add(pooled);
+					for (String sql : WARM_UP_STATEMENTS) {
+						pooled.prepare(sql);
+					}
+				}
+			} finally {
+				for (PooledConnection pooled : borrowed) {
+					pooled.close();
+				}
+			}
+			return null;
+		});
+	}
+
+
+	// Check if the database is empty. This reads at most one row, and once a user has been
+	// found or registered the answer is remembered.
 	public boolean isDatabaseEmpty() throws SQLException {
-		String query = "SELECT COUNT(*) AS count FROM cse360users";
-		ResultSet resultSet = statement.executeQuery(query);
-		if (resultSet.next()) {
-			return resultSet.getInt("count") == 0;
+		if (hasUsers) {
+			return false;
 		}
-		return true;
+		String query = "SELECT 1 FROM cse360users LIMIT 1";
+		return metrics.time(DatabaseOperation.IS_DATABASE_EMPTY, () -> {
+			try (PooledConnection pooled = borrow();
+					ResultSet resultSet = pooled.prepare(query).executeQuery()) {
+				if (resultSet.next()) {
+					hasUsers = true;
+				}
+			}
+			return !hasUsers;
+		});
 	}
 
-	// Registers a new user in the database.
+	// Registers a new user in the database. Only a salted hash of the password is stored.
 	public void register(User user) throws SQLException {
-		String insertUser = "INSERT INTO cse360users (userName, password, role) VALUES (?, ?, ?)";
-		try (PreparedStatement pstmt = connection.prepareStatement(insertUser)) {
-			pstmt.setString(1, user.getUserName());
-			pstmt.setString(2, user.getPassword());
-			pstmt.setString(3, user.getRole());
-			pstmt.executeUpdate();
+		metrics.time(DatabaseOperation.REGISTER, () -> {
+			PasswordCredential credential = passwordHasher.hash(user.getPassword());
+			try (PooledConnection pooled = borrow()) {
+				PreparedStatement pstmt = pooled.prepare(INSERT_USER);
+				bindUser(pstmt, user, credential);
+				pstmt.executeUpdate();
+			} finally {
+				userCache.invalidate(user.getUserName());
+			}
+			userNameIndex.add(user.getUserName());
+			hasUsers = true;
+			return null;
+		});
+	}
+
+	/**
+	 * Registers many users with batched inserts, committing once per chunk of
+	 * cse360.import.batchSize rows. Each row gets the same checks as SetupAccountPage: a row whose
+	 * userName or password the validators reject, whose role is not one the application knows,
+	 * or whose userName is already taken, is reported in the result and skipped; it does not
+	 * abort the rest of the batch. Users are read from the iterator one chunk at a time, so the
+	 * input can be larger than memory. Rows are numbered by their position in the input,
+	 * starting at 1.
+	 *
+	 * @param users The users to register
+	 * @return The number of users registered and the rows that were rejected
+	 */
+	public BulkRegistrationResult registerAll(Iterable<User> users) throws SQLException {
+		AtomicLong position = new AtomicLong();
+		return registerAll(users.iterator(), position::incrementAndGet, new BulkRegistrationResult());
+	}
+
+	/**
+	 * Registers users as registerAll(Iterable) does, with rows numbered by the caller, such as by
+	 * their line in a file. Rows the caller rejected itself can already be in the result.
+	 *
+	 * @param iterator  The users to register
+	 * @param rowNumber Called once after each user is read, and returns the number of its row
+	 * @param result    Where the outcome is added
+	 */
+	BulkRegistrationResult registerAll(Iterator<User> iterator, LongSupplier rowNumber, BulkRegistrationResult result)
+			throws SQLException {
+		String insertUser = "INSERT INTO cse360users (userName, role, iterations, salt, passwordHash) SELECT ?, ?, ?, ?, ? "
+				+ "WHERE NOT EXISTS (SELECT 1 FROM cse360users WHERE userName = ?)";
+		return metrics.time(DatabaseOperation.REGISTER_ALL, () -> {
+			List<User> chunk = new ArrayList<>(REGISTRATION_BATCH_SIZE);
+			// The row number of each user in the chunk
+			long[] rows = new long[REGISTRATION_BATCH_SIZE];
+
+			try (PooledConnection pooled = borrow()) {
+				Connection connection = pooled.getConnection();
+				connection.setAutoCommit(false);
+				try {
+					while (iterator.hasNext()) {
+						chunk.clear();
+						while (chunk.size() < REGISTRATION_BATCH_SIZE && iterator.hasNext()) {
+							User user = iterator.next();
+							long row = rowNumber.getAsLong();
+							// Checked before batching, since an unknown role would fail the whole batch
+							String problem = validate(user);
+							if (problem != null) {
+								result.addFailure(row, user.getUserName(), problem);
+								result.addProcessed(1);
+								continue;
+							}
+							rows[chunk.size()] = row;
+							chunk.add(user);
+						}
+						if (chunk.isEmpty()) {
+							continue;
+						}
+						try {
+							registerChunk(pooled, insertUser, chunk, rows, result);
+							// Rejected rows are taken names, so every name in the chunk is taken now
+							for (User user : chunk) {
+								userNameIndex.add(user.getUserName());
+							}
+						} finally {
+							for (User user : chunk) {
+								userCache.invalidate(user.getUserName());
+							}
+						}
+					}
+				} finally {
+					connection.setAutoCommit(true);
+				}
+			}
+			if (result.getRegisteredCount() > 0) {
+				hasUsers = true;
+			}
+			return result;
+		});
+	}
+
+	// Registers users from a stream; see registerAll(Iterable).
+	public BulkRegistrationResult registerAll(Stream<User> users) throws SQLException {
+		try (users) {
+			return registerAll((Iterable<User>) users::iterator);
 		}
 	}
 
+	// Returns why a user cannot be registered, or null if it can
+	private static String validate(User user) {
+		UserNameValidator.Result userName = UserNameValidator.validate(user.getUserName());
+		if (!userName.isValid()) {
+			return userName.getMessage();
+		}
+		PasswordValidator.Result password = PasswordValidator.evaluate(user.getPassword());
+		if (!password.isValid()) {
+			return password.getMessage();
+		}
+		if (!RoleCodes.isKnown(user.getRole())) {
+			return "unknown role " + user.getRole();
+		}
+		return null;
+	}
+
+	// Inserts one chunk as a single batch and commits it. If the batch fails because another
+	// caller registered one of the names in the meantime, the chunk is retried row by row.
+	private void registerChunk(PooledConnection pooled, String insertUser, List<User> chunk,
+			long[] rows, BulkRegistrationResult result) throws SQLException {
+		Connection connection = pooled.getConnection();
+		PreparedStatement pstmt = pooled.prepare(insertUser);
+		List<String> passwords = new ArrayList<>(chunk.size());
+		for (User user : chunk) {
+			passwords.add(user.getPassword());
+		}
+		PasswordCredential[] credentials = passwordHasher.hashAll(passwords);
+		try {
+			for (int i = 0; i < chunk.size(); i++) {
+				bindNewUser(pstmt, chunk.get(i), credentials[i]);
+				pstmt.addBatch();
+			}
+			int[] counts = pstmt.executeBatch();
+			connection.commit();
+
+			int inserted = 0;
+			for (int i = 0; i < counts.length; i++) {
+				if (counts[i] == 1) {
+					inserted++;
+				} else {
+					result.addFailure(rows[i], chunk.get(i).getUserName(), "userName is already taken");
+				}
+			}
+			result.addRegistered(inserted);
+			result.addProcessed(chunk.size());
+			return;
+		} catch (BatchUpdateException e) {
+			connection.rollback();
+			pstmt.clearBatch();
+		} catch (SQLException e) {
+			connection.rollback();
+			throw e;
+		}
+
+		// Slow path: one statement per row so a single failure only affects its own row
+		for (int i = 0; i < chunk.size(); i++) {
+			User user = chunk.get(i);
+			try {
+				bindNewUser(pstmt, user, credentials[i]);
+				if (pstmt.executeUpdate() == 1) {
+					result.addRegistered(1);
+				} else {
+					result.addFailure(rows[i], user.getUserName(), "userName is already taken");
+				}
+			} catch (SQLException e) {
+				if (!isUniqueViolation(e)) {
+					connection.rollback();
+					throw e;
+				}
+				result.addFailure(rows[i], user.getUserName(), "userName is already taken");
+			}
+		}
+		connection.commit();
+		result.addProcessed(chunk.size());
+	}
+
+	// Binds a user to the conditional insert used by registerAll
+	private static void bindNewUser(PreparedStatement pstmt, User user, PasswordCredential credential) throws SQLException {
+		bindUser(pstmt, user, credential);
+		pstmt.setString(6, user.getUserName());
+	}
+
+	// Binds the userName, role code and password credential of a new user
+	private static void bindUser(PreparedStatement pstmt, User user, PasswordCredential credential) throws SQLException {
+		pstmt.setString(1, user.getUserName());
+		pstmt.setByte(2, RoleCodes.encode(user.getRole()));
+		credential.bind(pstmt, 3);
+	}
+
 	// Validates a user's login credentials.
 	public boolean login(User user) throws SQLException {
-		String query = "SELECT * FROM cse360users WHERE userName = ? AND password = ? AND role = ?";
-		try (PreparedStatement pstmt = connection.prepareStatement(query)) {
-			pstmt.setString(1, user.getUserName());
-			pstmt.setString(2, user.getPassword());
-			pstmt.setString(3, user.getRole());
-			try (ResultSet rs = pstmt.executeQuery()) {
-				return rs.next();
+		AuthResult result = authenticate(user.getUserName(), user.getPassword());
+		return result.isSuccess() && result.getRole().equals(user.getRole());
+	}
+
+	/**
+	 * Checks a user's credentials with a single lookup by userName that reads only the id, role
+	 * and stored password, all of which are in the idx_users_auth index, so the row itself is not
+	 * read. This replaces calling getUserRole followed by login.
+	 *
+	 * The password is checked against its salted hash on the hashing executor after the connection
+	 * has been returned to the pool. An unknown userName is checked against a dummy credential
+	 * instead, so it takes as long to refuse as a wrong password and does not reveal which accounts
+	 * exist. A password still stored in plaintext, or hashed with fewer iterations than are used
+	 * now, is replaced with a new hash in the background after a successful check.
+	 *
+	 * @param userName The userName to look up
+	 * @param secret   The password the user entered
+	 * @return Whether the user was found and the secret matched, and the user's id and role on success
+	 */
+	public AuthResult authenticate(String userName, String secret) throws SQLException {
+		return metrics.time(DatabaseOperation.AUTHENTICATE, () -> {
+			int id = 0;
+			String role = null;
+			PasswordCredential stored = null;
+			try (PooledConnection pooled = borrow()) {
+				PreparedStatement pstmt = pooled.prepare(SELECT_CREDENTIALS);
+				pstmt.setString(1, userName);
+				try (ResultSet rs = pstmt.executeQuery()) {
+					if (rs.next()) {
+						id = rs.getInt(1);
+						role = RoleCodes.decode(rs.getByte(2));
+						stored = PasswordCredential.read(rs, 3);
+					}
+				}
 			}
+
+			// Checked even when there is no such user, against the dummy credential
+			boolean matches = passwordHasher.verify(secret, stored);
+			if (stored == null) {
+				return AuthResult.notFound();
+			}
+			if (!matches) {
+				return AuthResult.invalidCredentials();
+			}
+			if (passwordHasher.needsRehash(stored)) {
+				int userId = id;
+				PasswordCredential old = stored;
+				Thread.ofVirtual().name("password-upgrade").start(() -> upgradePasswordHash(userId, old, secret));
+			}
+			return AuthResult.success(id, role);
+		});
+	}
+
+	// Replaces a plaintext or outdated password with a new hash, off the login path. The old value
+	// is part of the condition so a password changed in the meantime is not overwritten.
+	private void upgradePasswordHash(int id, PasswordCredential stored, String secret) {
+		String query = "UPDATE cse360users SET iterations = ?, salt = ?, passwordHash = ?, legacyPassword = NULL "
+				+ "WHERE id = ? AND passwordHash IS NOT DISTINCT FROM ? AND legacyPassword IS NOT DISTINCT FROM ?";
+		try {
+			metrics.time(DatabaseOperation.UPGRADE_PASSWORD_HASH, () -> {
+				PasswordCredential credential = passwordHasher.hash(secret);
+				try (PooledConnection pooled = borrow()) {
+					PreparedStatement pstmt = pooled.prepare(query);
+					credential.bind(pstmt, 1);
+					pstmt.setInt(4, id);
+					pstmt.setBytes(5, stored.hash);
+					pstmt.setString(6, stored.legacyPassword);
+					return pstmt.executeUpdate();
+				}
+			});
+		} catch (SQLException e) {
+			// The login itself succeeded; the upgrade is retried on the next login
+			e.printStackTrace();
 		}
 	}
 	
 	// Checks if a user already exists in the database based on their userName.
 	public boolean doesUserExist(String userName) {
-	    String query = "SELECT COUNT(*) FROM cse360users WHERE userName = ?";
-	    try (PreparedStatement pstmt = connection.prepareStatement(query)) {
-	        
-	        pstmt.setString(1, userName);
-	        ResultSet rs = pstmt.executeQuery();
-	        
-	        if (rs.next()) {
-	            // If the count is greater than 0, the user exists
-	            return rs.getInt(1) > 0;
-	        }
+	    try {
+	        return metrics.time(DatabaseOperation.DOES_USER_EXIST, () -> lookUpRole(userName) != null);
 	    } catch (SQLException e) {
 	        e.printStackTrace();
 	    }
@@ -112,75 +543,355 @@ public class DatabaseHelper {
 	
 	// Retrieves the role of a user from the database using their UserName.
 	public String getUserRole(String userName) {
-	    String query = "SELECT role FROM cse360users WHERE userName = ?";
-	    try (PreparedStatement pstmt = connection.prepareStatement(query)) {
-	        pstmt.setString(1, userName);
-	        ResultSet rs = pstmt.executeQuery();
-	        
-	        if (rs.next()) {
-	            return rs.getString("role"); // Return the role if user exists
-	        }
+	    try {
+	        return metrics.time(DatabaseOperation.GET_USER_ROLE, () -> lookUpRole(userName));
 	    } catch (SQLException e) {
 	        e.printStackTrace();
 	    }
 	    return null; // If no user exists or an error occurs
 	}
+
+	// Returns a user's role, or null if there is no such user, from the user directory cache if
+	// it has the answer and from the database otherwise.
+	private String lookUpRole(String userName) throws SQLException {
+	    UserDirectoryCache.Lookup cached = userCache.get(userName);
+	    if (cached.hit) {
+	        return cached.role;
+	    }
+	    String query = "SELECT role FROM cse360users WHERE userName = ?";
+	    String role = null;
+	    try (PooledConnection pooled = borrow()) {
+	        PreparedStatement pstmt = pooled.prepare(query);
+	        pstmt.setString(1, userName);
+	        try (ResultSet rs = pstmt.executeQuery()) {
+	            if (rs.next()) {
+	                role = RoleCodes.decode(rs.getByte("role"));
+	            }
+	        }
+	    }
+	    userCache.put(userName, role, cached.stamp);
+	    return role;
+	}
+
+	/**
+	 * Reads every userName into the availability index. Meant to run in the background at
+	 * startup; until it has finished, isUserNameAvailable asks the database.
+	 */
+	public void loadUserNameIndex() throws SQLException {
+	    String query = "SELECT userName FROM cse360users";
+	    metrics.time(DatabaseOperation.LOAD_USER_NAME_INDEX, () -> {
+	        long start = System.nanoTime();
+	        List<String> names = new ArrayList<>();
+	        try (PooledConnection pooled = borrow();
+	                Statement statement = pooled.getConnection().createStatement()) {
+	            statement.setFetchSize(10_000);
+	            try (ResultSet rs = statement.executeQuery(query)) {
+	                while (rs.next()) {
+	                    names.add(rs.getString(1));
+	                }
+	            }
+	        }
+	        userNameIndex.load(names);
+	        if (DatabaseConfig.DEBUG) {
+	            System.out.println("Loaded " + userNameIndex + " in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+	        }
+	        return null;
+	    });
+	}
+
+	/**
+	 * Returns whether a userName is free, from the availability index once it is loaded and from
+	 * the database before that. Cheap enough to call on every keystroke.
+	 */
+	public boolean isUserNameAvailable(String userName) {
+	    if (userNameIndex.isLoaded()) {
+	        return !userNameIndex.contains(userName);
+	    }
+	    return !doesUserExist(userName);
+	}
+
+	/**
+	 * Suggests free userNames made by appending a number to a taken one.
+	 *
+	 * @param userName  The taken userName
+	 * @param count     The number of suggestions wanted
+	 * @param maxLength The longest userName allowed
+	 */
+	public List<String> suggestUserNames(String userName, int count, int maxLength) {
+	    List<String> suggestions = userNameIndex.suggest(userName, count, maxLength);
+	    if (!userNameIndex.isLoaded()) {
+	        suggestions.removeIf(this::doesUserExist);
+	    }
+	    return suggestions;
+	}
+
+	/**
+	 * Changes a user's role, removes the user from the user directory cache and gives their
+	 * sessions the new role.
+	 *
+	 * @param userName The user whose role changes
+	 * @param role     The new role
+	 * @return Whether the user exists
+	 */
+	public boolean updateUserRole(String userName, String role) throws SQLException {
+	    String query = "UPDATE cse360users SET role = ? WHERE userName = ?";
+	    return metrics.time(DatabaseOperation.UPDATE_USER_ROLE, () -> {
+	        try (PooledConnection pooled = borrow()) {
+	            PreparedStatement pstmt = pooled.prepare(query);
+	            pstmt.setByte(1, RoleCodes.encode(role));
+	            pstmt.setString(2, userName);
+	            boolean updated = pstmt.executeUpdate() == 1;
+	            if (updated && sessionStore != null) {
+	                sessionStore.updateRole(userName, role);
+	            }
+	            return updated;
+	        } finally {
+	            userCache.invalidate(userName);
+	        }
+	    });
+	}
 	
-	// Generates a new invitation code and inserts it into the database.
+	// Hands out an unused invitation code from the pool of codes minted in the background, and
+	// records it as issued, which is what lets it be redeemed.
 	public String generateInvitationCode() {
-	    String code = UUID.randomUUID().toString().substring(0, 4); // Generate a random 4-character code
-	    String query = "INSERT INTO InvitationCodes (code) VALUES (?)";
-
-	    try (PreparedStatement pstmt = connection.prepareStatement(query)) {
-	        pstmt.setString(1, code);
-	        pstmt.executeUpdate();
+	    try {
+	        return metrics.time(DatabaseOperation.GENERATE_INVITATION_CODE, () -> {
+	            while (true) {
+	                String code = invitationCodePool.take();
+	                if (issueInvitationCode(code)) {
+	                    return code;
+	                }
+	                // Another instance sharing the database reloaded the same code and issued it first
+	            }
+	        });
 	    } catch (SQLException e) {
 	        e.printStackTrace();
+	        return null;
 	    }
+	}
+
+	/**
+	 * Mints new invitation codes and stores them with batched inserts, a few hundred per
+	 * transaction. A code that collides with one already in the table is not inserted and is
+	 * replaced with a fresh one, so every returned code is stored and unused. The codes are not
+	 * issued, so they cannot be redeemed until generateInvitationCode hands them out.
+	 *
+	 * @param count The number of codes to mint
+	 * @return The minted codes
+	 */
+	public List<String> mintInvitationCodes(int count) throws SQLException {
+	    String query = "INSERT INTO InvitationCodes (code) SELECT ? "
+	            + "WHERE NOT EXISTS (SELECT 1 FROM InvitationCodes WHERE code = ?)";
+	    return metrics.time(DatabaseOperation.MINT_INVITATION_CODES, () -> {
+	        List<String> minted = new ArrayList<>(count);
 
-	    return code;
+	        try (PooledConnection pooled = borrow()) {
+	            Connection connection = pooled.getConnection();
+	            PreparedStatement pstmt = pooled.prepare(query);
+	            connection.setAutoCommit(false);
+	            try {
+	                while (minted.size() < count) {
+	                    // Draw distinct candidates for one batch
+	                    int batchSize = Math.min(INVITATION_BATCH_SIZE, count - minted.size());
+	                    Set<String> candidates = new LinkedHashSet<>();
+	                    while (candidates.size() < batchSize) {
+	                        candidates.add(newInvitationCode());
+	                    }
+	                    for (String code : candidates) {
+	                        pstmt.setString(1, code);
+	                        pstmt.setString(2, code);
+	                        pstmt.addBatch();
+	                    }
+	                    int[] counts = pstmt.executeBatch();
+	                    connection.commit();
+
+	                    // Keep only the codes that were actually inserted
+	                    int i = 0;
+	                    for (String code : candidates) {
+	                        if (counts[i++] == 1) {
+	                            minted.add(code);
+	                        }
+	                    }
+	                }
+	            } catch (SQLException e) {
+	                connection.rollback();
+	                throw e;
+	            } finally {
+	                connection.setAutoCommit(true);
+	            }
+	        }
+	        return minted;
+	    });
 	}
-	
-	// Validates an invitation code to check if it is unused.
-	public boolean validateInvitationCode(String code) {
-	    String query = "SELECT * FROM InvitationCodes WHERE code = ? AND isUsed = FALSE";
-	    try (PreparedStatement pstmt = connection.prepareStatement(query)) {
-	        pstmt.setString(1, code);
-	        ResultSet rs = pstmt.executeQuery();
-	        if (rs.next()) {
-	            // Mark the code as used
-	            markInvitationCodeAsUsed(code);
-	            return true;
+
+	// Counts the codes that have been issued but not redeemed, from the idx_codes_unused index.
+	public int countUnusedInvitationCodes() throws SQLException {
+	    String query = "SELECT COUNT(code) FROM InvitationCodes WHERE usedAt IS NULL AND issuedAt IS NOT NULL";
+	    try (PooledConnection pooled = borrow(); ResultSet rs = pooled.prepare(query).executeQuery()) {
+	        return rs.next() ? rs.getInt(1) : 0;
+	    }
+	}
+
+	// Counts the codes that have been minted but not issued yet, most of them waiting in a pool.
+	int countUnissuedInvitationCodes() throws SQLException {
+	    String query = "SELECT COUNT(code) FROM InvitationCodes WHERE usedAt IS NULL AND issuedAt IS NULL";
+	    try (PooledConnection pooled = borrow(); ResultSet rs = pooled.prepare(query).executeQuery()) {
+	        return rs.next() ? rs.getInt(1) : 0;
+	    }
+	}
+
+	// Reads up to count codes that were minted but never issued, such as those still in the pool
+	// when the application last closed, so the pool can hand them out before minting more.
+	List<String> loadUnissuedInvitationCodes(int count) throws SQLException {
+	    String query = "SELECT code FROM InvitationCodes WHERE usedAt IS NULL AND issuedAt IS NULL LIMIT ?";
+	    List<String> codes = new ArrayList<>(count);
+	    try (PooledConnection pooled = borrow()) {
+	        PreparedStatement pstmt = pooled.prepare(query);
+	        pstmt.setInt(1, count);
+	        try (ResultSet rs = pstmt.executeQuery()) {
+	            while (rs.next()) {
+	                codes.add(rs.getString(1));
+	            }
 	        }
-	    } catch (SQLException e) {
-	        e.printStackTrace();
 	    }
-	    return false;
+	    return codes;
 	}
-	
-	// Marks the invitation code as used in the database.
-	private void markInvitationCodeAsUsed(String code) {
-	    String query = "UPDATE InvitationCodes SET isUsed = TRUE WHERE code = ?";
-	    try (PreparedStatement pstmt = connection.prepareStatement(query)) {
+
+	// Records a code as issued; returns false if it already was.
+	private boolean issueInvitationCode(String code) throws SQLException {
+	    String query = "UPDATE InvitationCodes SET issuedAt = CURRENT_TIMESTAMP WHERE code = ? AND issuedAt IS NULL";
+	    try (PooledConnection pooled = borrow()) {
+	        PreparedStatement pstmt = pooled.prepare(query);
 	        pstmt.setString(1, code);
-	        pstmt.executeUpdate();
+	        return pstmt.executeUpdate() == 1;
+	    }
+	}
+
+	// Returns the pool of codes waiting to be issued.
+	InvitationCodePool getInvitationCodePool() {
+	    return invitationCodePool;
+	}
+
+	// Builds a random invitation code from the code alphabet.
+	private String newInvitationCode() {
+	    long bits = random.nextLong();
+	    char[] code = new char[INVITATION_CODE_LENGTH];
+	    for (int i = 0; i < INVITATION_CODE_LENGTH; i++) {
+	        code[i] = INVITATION_CODE_ALPHABET.charAt((int) (bits & 31));
+	        bits >>>= 5;
+	    }
+	    return new String(code);
+	}
+	
+	// Validates an invitation code and marks it as used, in one conditional update.
+	public boolean validateInvitationCode(String code) {
+	    try {
+	        return metrics.time(DatabaseOperation.VALIDATE_INVITATION_CODE, () -> {
+	            try (PooledConnection pooled = borrow()) {
+	                return redeemInvitationCode(pooled, code);
+	            }
+	        });
 	    } catch (SQLException e) {
 	        e.printStackTrace();
 	    }
+	    return false;
+	}
+
+	/**
+	 * Redeems an invitation code and registers the new user in the same transaction, so a sign-up
+	 * is a single commit. If the userName is already taken the transaction is rolled back and the
+	 * code stays unused.
+	 *
+	 * @param user The user to register
+	 * @param code The invitation code the user entered
+	 * @return Whether the account was created, and if not, why
+	 */
+	public RegistrationResult registerWithInvitation(User user, String code) throws SQLException {
+		return metrics.time(DatabaseOperation.REGISTER_WITH_INVITATION, () -> {
+			PasswordCredential credential = passwordHasher.hash(user.getPassword());
+			try (PooledConnection pooled = borrow()) {
+				Connection connection = pooled.getConnection();
+				connection.setAutoCommit(false);
+				try {
+					if (!redeemInvitationCode(pooled, code)) {
+						connection.rollback();
+						return RegistrationResult.INVALID_INVITATION_CODE;
+					}
+
+					PreparedStatement pstmt = pooled.prepare(INSERT_USER);
+					bindUser(pstmt, user, credential);
+					try {
+						pstmt.executeUpdate();
+					} catch (SQLException e) {
+						if (!isUniqueViolation(e)) {
+							throw e;
+						}
+						connection.rollback();
+						// Registered since the index was loaded, perhaps by another process
+						userNameIndex.add(user.getUserName());
+						return RegistrationResult.USERNAME_TAKEN;
+					}
+
+					connection.commit();
+					userCache.invalidate(user.getUserName());
+					userNameIndex.add(user.getUserName());
+					hasUsers = true;
+					return RegistrationResult.SUCCESS;
+				} catch (SQLException e) {
+					connection.rollback();
+					throw e;
+				} finally {
+					connection.setAutoCommit(true);
+				}
+			}
+		});
+	}
+
+	// Marks the invitation code as used if it has been issued and is unused. Only one caller can
+	// win, because the check and the update are the same statement.
+	private boolean redeemInvitationCode(PooledConnection pooled, String code) throws SQLException {
+	    PreparedStatement pstmt = pooled.prepare(REDEEM_INVITATION_CODE);
+	    pstmt.setString(1, code);
+	    return pstmt.executeUpdate() == 1;
 	}
 
-	// Closes the database connection and statement.
+	// Checks whether an exception was caused by a unique constraint, such as a duplicate userName.
+	private static boolean isUniqueViolation(SQLException e) {
+		return "23505".equals(e.getSQLState());
+	}
+
+	// Closes the connection pool, every connection in it and their cached statements.
 	public void closeConnection() {
-		try{ 
-			if(statement!=null) statement.close(); 
-		} catch(SQLException se2) { 
-			se2.printStackTrace();
-		} 
-		try { 
-			if(connection!=null) connection.close(); 
-		} catch(SQLException se){ 
-			se.printStackTrace(); 
-		} 
+		if (invitationCodePool != null) {
+			invitationCodePool.shutdown();
+		}
+		if (passwordHasher != null) {
+			passwordHasher.shutdown();
+		}
+		if (DatabaseConfig.DEBUG && pool != null) {
+			System.out.println(sessionStore);
+			System.out.println(searchIndex);
+			System.out.println(pool);
+			System.out.println(userCache);
+			System.out.println(userNameIndex);
+			System.out.println(duplicateDetector);
+		}
+		if (sessionStore != null) {
+			sessionStore.close();
+			sessionStore = null;
+		}
+		if (searchIndex != null) {
+			searchIndex.close();
+			searchIndex = null;
+		}
+		if (pool != null) {
+			pool.close();
+		}
+		metrics.unregister();
+		if (config != null) {
+			config.stopServerWhenIdle(server);
+		}
+		server = null;
 	}
 
 }
@@ -0,0 +1,237 @@
+package databasePart1;
+
+import java.lang.management.ManagementFactory;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * The DatabaseMetrics class measures every {@link DatabaseHelper} operation. Each operation has a
+ * {@link LatencyHistogram} and success and failure counters, all updated without locking, and the
+ * totals are published through JMX as {@link DatabaseMetricsMXBean}.
+ *
+ * Every call also emits a {@link DatabaseOperationEvent}. When no Flight Recorder recording has the
+ * event enabled, begin, end and shouldCommit do nothing and the JIT compiler removes the event
+ * entirely, so the cost of a call is two clock reads and three counter increments.
+ */
+public class DatabaseMetrics implements DatabaseMetricsMXBean {
+
+	/**
+	 * The counters of one operation at the moment they were read.
+	 */
+	public static final class OperationSnapshot {
+		private final String operation;
+		private final String sqlCategory;
+		private final long calls;
+		private final long failures;
+		private final double meanMillis;
+		private final double p50Millis;
+		private final double p99Millis;
+		private final double p999Millis;
+
+		OperationSnapshot(DatabaseOperation operation, OperationMetrics metrics) {
+			this.operation = operation.getOperationName();
+			this.sqlCategory = operation.getSqlCategory();
+			this.calls = metrics.latency.getCount();
+			this.failures = metrics.failures.sum();
+			this.meanMillis = metrics.latency.getMeanNanos() / 1e6;
+			this.p50Millis = metrics.latency.getPercentileMillis(0.50);
+			this.p99Millis = metrics.latency.getPercentileMillis(0.99);
+			this.p999Millis = metrics.latency.getPercentileMillis(0.999);
+		}
+
+		public String getOperation() { return operation; }
+		public String getSqlCategory() { return sqlCategory; }
+		public long getCalls() { return calls; }
+		public long getFailures() { return failures; }
+		public double getMeanMillis() { return meanMillis; }
+		public double getP50Millis() { return p50Millis; }
+		public double getP99Millis() { return p99Millis; }
+		public double getP999Millis() { return p999Millis; }
+
+		@Override
+		public String toString() {
+			return String.format(Locale.ROOT, "%s[%s calls=%d failures=%d mean=%.2f ms p50=%.2f ms p99=%.2f ms p999=%.2f ms]",
+					operation, sqlCategory, calls, failures, meanMillis, p50Millis, p99Millis, p999Millis);
+		}
+	}
+
+	// The counters of one operation
+	static final class OperationMetrics {
+		final LatencyHistogram latency = new LatencyHistogram();
+		final LongAdder failures = new LongAdder();
+	}
+
+	private final Map<DatabaseOperation, OperationMetrics> operations = new EnumMap<>(DatabaseOperation.class);
+	// The helper whose pool and cache the gauges read; set when the metrics are registered
+	private DatabaseHelper databaseHelper;
+	private ObjectName objectName = null;
+
+	DatabaseMetrics() {
+		for (DatabaseOperation operation : DatabaseOperation.values()) {
+			operations.put(operation, new OperationMetrics());
+		}
+	}
+
+	/**
+	 * Runs a database call, recording its latency and whether it threw.
+	 *
+	 * @param operation The operation being measured
+	 * @param call      The work to do
+	 * @return The result of the call
+	 */
+	public <T> T time(DatabaseOperation operation, DatabaseService.DatabaseCall<T> call) throws SQLException {
+		DatabaseOperationEvent event = new DatabaseOperationEvent();
+		event.begin();
+		long start = System.nanoTime();
+		boolean succeeded = false;
+		try {
+			T result = call.call();
+			succeeded = true;
+			return result;
+		} finally {
+			OperationMetrics metrics = operations.get(operation);
+			metrics.latency.record(System.nanoTime() - start);
+			if (!succeeded) {
+				metrics.failures.increment();
+			}
+			event.end();
+			if (event.shouldCommit()) {
+				event.operation = operation.getOperationName();
+				event.sqlCategory = operation.getSqlCategory();
+				event.succeeded = succeeded;
+				event.commit();
+			}
+		}
+	}
+
+	// Returns the latency histogram of one operation
+	public LatencyHistogram getLatency(DatabaseOperation operation) {
+		return operations.get(operation).latency;
+	}
+
+	public long getFailures(DatabaseOperation operation) {
+		return operations.get(operation).failures.sum();
+	}
+
+	@Override
+	public List<OperationSnapshot> getOperations() {
+		List<OperationSnapshot> snapshots = new ArrayList<>(operations.size());
+		for (Map.Entry<DatabaseOperation, OperationMetrics> entry : operations.entrySet()) {
+			snapshots.add(new OperationSnapshot(entry.getKey(), entry.getValue()));
+		}
+		return snapshots;
+	}
+
+	@Override
+	public long getTotalCalls() {
+		long total = 0;
+		for (OperationMetrics metrics : operations.values()) {
+			total += metrics.latency.getCount();
+		}
+		return total;
+	}
+
+	@Override
+	public long getTotalFailures() {
+		long total = 0;
+		for (OperationMetrics metrics : operations.values()) {
+			total += metrics.failures.sum();
+		}
+		return total;
+	}
+
+	@Override
+	public int getActiveConnections() {
+		ConnectionPool pool = databaseHelper.getConnectionPool();
+		return pool == null ? 0 : pool.getActiveCount();
+	}
+
+	@Override
+	public int getIdleConnections() {
+		ConnectionPool pool = databaseHelper.getConnectionPool();
+		return pool == null ? 0 : pool.getIdleCount();
+	}
+
+	@Override
+	public long getPoolWaitCount() {
+		ConnectionPool pool = databaseHelper.getConnectionPool();
+		return pool == null ? 0 : pool.getWaitCount();
+	}
+
+	@Override
+	public double getUserCacheHitRatio() {
+		return databaseHelper.getUserDirectoryCache().getHitRatio();
+	}
+
+	@Override
+	public long getUserCacheHits() {
+		return databaseHelper.getUserDirectoryCache().getHitCount();
+	}
+
+	@Override
+	public long getUserCacheMisses() {
+		return databaseHelper.getUserDirectoryCache().getMissCount();
+	}
+
+	@Override
+	public long getUserCacheEvictions() {
+		return databaseHelper.getUserDirectoryCache().getEvictionCount();
+	}
+
+	@Override
+	public int getUserCacheSize() {
+		return databaseHelper.getUserDirectoryCache().size();
+	}
+
+	@Override
+	public void reset() {
+		for (OperationMetrics metrics : operations.values()) {
+			metrics.latency.reset();
+			metrics.failures.reset();
+		}
+	}
+
+	/**
+	 * Registers the metrics with the platform MBean server as databasePart1:type=DatabaseMetrics,
+	 * named after the quoted database URL. If another helper for the same database is already
+	 * registered, this one is not.
+	 *
+	 * @param databaseHelper The helper whose connection pool and user cache are reported
+	 * @param dbUrl          The URL of the database
+	 */
+	void register(DatabaseHelper databaseHelper, String dbUrl) {
+		this.databaseHelper = databaseHelper;
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName name = new ObjectName("databasePart1:type=DatabaseMetrics,name=" + ObjectName.quote(dbUrl));
+			if (!server.isRegistered(name)) {
+				server.registerMBean(this, name);
+				objectName = name;
+			}
+		} catch (JMException e) {
+			System.err.println("Database metrics are not available through JMX: " + e.getMessage());
+		}
+	}
+
+	// Removes the metrics from the platform MBean server
+	void unregister() {
+		if (objectName == null) {
+			return;
+		}
+		try {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+		} catch (JMException e) {
+			// Already gone
+		}
+		objectName = null;
+	}
+}
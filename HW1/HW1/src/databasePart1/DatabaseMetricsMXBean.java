@@ -0,0 +1,38 @@
+package databasePart1;
+
+import java.util.List;
+
+/**
+ * The management interface of {@link DatabaseMetrics}. It is registered with the platform MBean
+ * server, so the counters can be read with JConsole or Java Mission Control.
+ */
+public interface DatabaseMetricsMXBean {
+
+	// One row per operation with its call and failure counts and latency percentiles
+	List<DatabaseMetrics.OperationSnapshot> getOperations();
+
+	long getTotalCalls();
+
+	long getTotalFailures();
+
+	// Connection pool gauges
+	int getActiveConnections();
+
+	int getIdleConnections();
+
+	long getPoolWaitCount();
+
+	// User directory cache statistics
+	double getUserCacheHitRatio();
+
+	long getUserCacheHits();
+
+	long getUserCacheMisses();
+
+	long getUserCacheEvictions();
+
+	int getUserCacheSize();
+
+	// Clears every counter and histogram
+	void reset();
+}
@@ -0,0 +1,57 @@
+package databasePart1;
+
+/**
+ * The DatabaseOperation enum lists the operations of {@link DatabaseHelper} and of the question and
+ * answer store in databasePart2 that are measured by {@link DatabaseMetrics}, together with the
+ * kind of SQL each one runs.
+ */
+public enum DatabaseOperation {
+	MIGRATE_SCHEMA("migrateSchema", "DDL"),
+	IS_DATABASE_EMPTY("isDatabaseEmpty", "SELECT"),
+	REGISTER("register", "INSERT"),
+	REGISTER_ALL("registerAll", "BATCH"),
+	AUTHENTICATE("authenticate", "SELECT"),
+	UPGRADE_PASSWORD_HASH("upgradePasswordHash", "UPDATE"),
+	DOES_USER_EXIST("doesUserExist", "SELECT"),
+	GET_USER_ROLE("getUserRole", "SELECT"),
+	UPDATE_USER_ROLE("updateUserRole", "UPDATE"),
+	LOAD_USER_NAME_INDEX("loadUserNameIndex", "SELECT"),
+	GENERATE_INVITATION_CODE("generateInvitationCode", "POOL"),
+	MINT_INVITATION_CODES("mintInvitationCodes", "BATCH"),
+	VALIDATE_INVITATION_CODE("validateInvitationCode", "UPDATE"),
+	REGISTER_WITH_INVITATION("registerWithInvitation", "TRANSACTION"),
+	WARM_UP("warmUp", "SELECT"),
+	CREATE_QUESTION("createQuestion", "INSERT"),
+	UPDATE_QUESTION("updateQuestion", "UPDATE"),
+	DELETE_QUESTION("deleteQuestion", "DELETE"),
+	GET_QUESTION("getQuestion", "SELECT"),
+	LIST_QUESTIONS("listQuestions", "SELECT"),
+	COUNT_QUESTIONS("countQuestions", "SELECT"),
+	FIND_QUESTION_KEY("findQuestionKey", "SELECT"),
+	CREATE_ANSWER("createAnswer", "TRANSACTION"),
+	UPDATE_ANSWER("updateAnswer", "UPDATE"),
+	DELETE_ANSWER("deleteAnswer", "TRANSACTION"),
+	LIST_ANSWERS("listAnswers", "SELECT"),
+	LOAD_SEARCH_INDEX("loadSearchIndex", "SELECT"),
+	SEARCH_QUESTIONS("searchQuestions", "INDEX"),
+	LOAD_DUPLICATE_DETECTOR("loadDuplicateDetector", "SELECT"),
+	FIND_SIMILAR_QUESTIONS("findSimilarQuestions", "INDEX");
+
+	private final String operationName;
+	private final String sqlCategory;
+
+	DatabaseOperation(String operationName, String sqlCategory) {
+		this.operationName = operationName;
+		this.sqlCategory = sqlCategory;
+	}
+
+	// The name of the method that runs the operation
+	public String getOperationName() {
+		return operationName;
+	}
+
+	// The kind of statement the operation runs, such as SELECT, UPDATE or TRANSACTION
+	public String getSqlCategory() {
+		return sqlCategory;
+	}
+}
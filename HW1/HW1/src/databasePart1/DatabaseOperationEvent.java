@@ -0,0 +1,31 @@
+package databasePart1;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The DatabaseOperationEvent class is a JDK Flight Recorder event emitted for every
+ * {@link DatabaseHelper} operation, so slow logins can be lined up with garbage collection, I/O
+ * and lock contention in the same recording. It is disabled unless a recording enables
+ * "cse360.DatabaseOperation", and only operations slower than the recording's threshold are kept.
+ */
+@Name("cse360.DatabaseOperation")
+@Label("Database Operation")
+@Category({ "CSE360", "Database" })
+@Description("A DatabaseHelper operation, with its SQL category and whether it succeeded")
+@StackTrace(false)
+class DatabaseOperationEvent extends Event {
+
+	@Label("Operation")
+	String operation;
+
+	@Label("SQL Category")
+	String sqlCategory;
+
+	@Label("Succeeded")
+	boolean succeeded;
+}
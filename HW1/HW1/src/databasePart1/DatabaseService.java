@@ -0,0 +1,198 @@
+package databasePart1;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import application.User;
+
+/**
+ * The DatabaseService class runs {@link DatabaseHelper} operations off the caller's thread, so the
+ * user interface never waits on the database. Every call runs on its own virtual thread and returns
+ * a CompletableFuture.
+ *
+ * The returned futures are completed on the callback executor given to the constructor (the JavaFX
+ * application thread, through Platform.runLater), so handlers attached with whenComplete or
+ * thenAccept can update controls directly. A call that takes longer than the timeout fails with a
+ * TimeoutException. Registrations have no timeout: the call goes on after its future fails, so a
+ * timed out registration may still create the account, and the user would be told it had failed.
+ *
+ * A timeout or a cancellation only fails the future; the call itself runs to the end and returns
+ * its connection to the pool. Its thread is never interrupted, because interrupting H2 while it
+ * reads or writes the database file closes the file for every connection, after which every
+ * write fails until the application is restarted. The service is therefore meant for short calls
+ * on the request path; long work such as migrations runs on threads of its own.
+ *
+ * Logins and account setups first go through a {@link LoginThrottle}. An attempt over the limit is
+ * answered with a RATE_LIMITED result right away, without starting a thread or touching the
+ * database.
+ */
+public class DatabaseService implements AutoCloseable {
+
+	/**
+	 * A database operation that may throw an SQLException.
+	 */
+	@FunctionalInterface
+	public interface DatabaseCall<T> {
+		T call() throws SQLException;
+	}
+
+	static final long DEFAULT_TIMEOUT_MS = Long.getLong("cse360.service.timeoutMs", 10000);
+
+	private final DatabaseHelper databaseHelper;
+	private final Executor callbackExecutor;
+	private final long timeoutMillis;
+	private final String clientId;
+	private final LoginThrottle throttle = new LoginThrottle();
+	private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+	private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread t = new Thread(r, "database-service-timer");
+		t.setDaemon(true);
+		return t;
+	});
+
+	/**
+	 * @param databaseHelper   The helper that performs the operations
+	 * @param callbackExecutor Where results are delivered, for example Platform::runLater
+	 */
+	public DatabaseService(DatabaseHelper databaseHelper, Executor callbackExecutor) {
+		this(databaseHelper, callbackExecutor, DEFAULT_TIMEOUT_MS);
+	}
+
+	/**
+	 * @param databaseHelper   The helper that performs the operations
+	 * @param callbackExecutor Where results are delivered, for example Platform::runLater
+	 * @param timeoutMillis    How long a call may run before it fails with a TimeoutException
+	 */
+	public DatabaseService(DatabaseHelper databaseHelper, Executor callbackExecutor, long timeoutMillis) {
+		this(databaseHelper, callbackExecutor, timeoutMillis, "local");
+	}
+
+	/**
+	 * @param databaseHelper   The helper that performs the operations
+	 * @param callbackExecutor Where results are delivered, for example Platform::runLater
+	 * @param timeoutMillis    How long a call may run before it fails with a TimeoutException
+	 * @param clientId         Who is making the calls, for the per-client login limits
+	 */
+	public DatabaseService(DatabaseHelper databaseHelper, Executor callbackExecutor, long timeoutMillis, String clientId) {
+		this.databaseHelper = databaseHelper;
+		this.callbackExecutor = callbackExecutor;
+		this.timeoutMillis = timeoutMillis;
+		this.clientId = clientId;
+	}
+
+	public LoginThrottle getLoginThrottle() {
+		return throttle;
+	}
+
+	public DatabaseHelper getDatabaseHelper() {
+		return databaseHelper;
+	}
+
+	/**
+	 * Runs a database operation on a virtual thread.
+	 *
+	 * @param call The operation to run
+	 * @return A future completed on the callback executor with the result, the exception thrown,
+	 *         or a TimeoutException if the call did not finish in time
+	 */
+	public <T> CompletableFuture<T> submit(DatabaseCall<T> call) {
+		return submit(call, timeoutMillis);
+	}
+
+	// Runs a database operation on a virtual thread, failing it after timeoutMillis, or never if
+	// timeoutMillis is 0
+	private <T> CompletableFuture<T> submit(DatabaseCall<T> call, long timeoutMillis) {
+		CompletableFuture<T> result = new CompletableFuture<>();
+		Future<?> task = executor.submit(() -> {
+			try {
+				T value = call.call();
+				callbackExecutor.execute(() -> result.complete(value));
+			} catch (Throwable e) {
+				callbackExecutor.execute(() -> result.completeExceptionally(e));
+			}
+		});
+
+		ScheduledFuture<?> timeout = timeoutMillis <= 0 ? null : timer.schedule(() -> callbackExecutor.execute(() ->
+				result.completeExceptionally(new TimeoutException(
+						"The database did not answer within " + timeoutMillis + " ms"))),
+				timeoutMillis, TimeUnit.MILLISECONDS);
+
+		// When the caller cancels or the call times out, drop the call if it has not started yet.
+		// One that has started is left to finish, since interrupting it could close the database.
+		result.whenComplete((value, error) -> {
+			if (timeout != null) {
+				timeout.cancel(false);
+			}
+			if (error != null) {
+				task.cancel(false);
+			}
+		});
+		return result;
+	}
+
+	public CompletableFuture<Boolean> isDatabaseEmpty() {
+		return submit(databaseHelper::isDatabaseEmpty);
+	}
+
+	public CompletableFuture<Void> register(User user) {
+		return submit(() -> {
+			databaseHelper.register(user);
+			return null;
+		}, 0);
+	}
+
+	public CompletableFuture<AuthResult> authenticate(String userName, String secret) {
+		long retryAfter = throttle.checkLogin(clientId, userName);
+		if (retryAfter > 0) {
+			return completed(AuthResult.rateLimited(retryAfter));
+		}
+		return submit(() -> databaseHelper.authenticate(userName, secret));
+	}
+
+	public CompletableFuture<RegistrationResult> registerWithInvitation(User user, String code) {
+		if (throttle.checkInvitation(clientId) > 0) {
+			return completed(RegistrationResult.RATE_LIMITED);
+		}
+		return submit(() -> databaseHelper.registerWithInvitation(user, code), 0);
+	}
+
+	// Returns a future that is completed with a value on the callback executor
+	private <T> CompletableFuture<T> completed(T value) {
+		CompletableFuture<T> result = new CompletableFuture<>();
+		callbackExecutor.execute(() -> result.complete(value));
+		return result;
+	}
+
+	public CompletableFuture<Boolean> doesUserExist(String userName) {
+		return submit(() -> databaseHelper.doesUserExist(userName));
+	}
+
+	public CompletableFuture<Boolean> isUserNameAvailable(String userName) {
+		return submit(() -> databaseHelper.isUserNameAvailable(userName));
+	}
+
+	public CompletableFuture<List<String>> suggestUserNames(String userName, int count, int maxLength) {
+		return submit(() -> databaseHelper.suggestUserNames(userName, count, maxLength));
+	}
+
+	public CompletableFuture<String> generateInvitationCode() {
+		return submit(databaseHelper::generateInvitationCode);
+	}
+
+	// Stops accepting work. Calls that are still running are left to finish, for the same reason
+	// they are not interrupted on a timeout.
+	@Override
+	public void close() {
+		executor.shutdown();
+		timer.shutdownNow();
+	}
+}
@@ -0,0 +1,100 @@
+package databasePart1;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The FrequencySketch class estimates how often each key has been seen recently, in a fixed amount
+ * of memory. It is a count-min sketch of 4-bit counters, sixteen to a long: every key updates four
+ * counters and its estimate is the smallest of them. Once the sketch has counted ten times as many
+ * keys as it has counters per slot, every counter is halved, so old popularity fades.
+ *
+ * Updates use compare-and-set and never block. An update that races with halving may be lost,
+ * which only makes the estimate slightly less exact.
+ */
+final class FrequencySketch {
+
+	private static final long[] SEEDS = { 0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+	private static final long RESET_MASK = 0x7777777777777777L;
+	private static final int MAX_COUNT = 15;
+
+	private final AtomicLongArray table;
+	private final int mask;
+	private final int sampleSize;
+	private final AtomicInteger additions = new AtomicInteger();
+
+	/**
+	 * @param expectedKeys The number of keys the cache holds; the sketch gets one long per key
+	 */
+	FrequencySketch(int expectedKeys) {
+		int size = Integer.highestOneBit(Math.max(16, expectedKeys - 1)) << 1;
+		this.table = new AtomicLongArray(size);
+		this.mask = size - 1;
+		this.sampleSize = 10 * size;
+	}
+
+	// Returns the estimated number of recent occurrences of a key, at most 15
+	int frequency(Object key) {
+		int hash = spread(key.hashCode());
+		int start = (hash & 3) << 2;
+		int frequency = MAX_COUNT;
+		for (int i = 0; i < 4; i++) {
+			int offset = (start + i) << 2;
+			long count = (table.get(indexOf(hash, i)) >>> offset) & 0xF;
+			frequency = Math.min(frequency, (int) count);
+		}
+		return frequency;
+	}
+
+	// Counts one occurrence of a key
+	void increment(Object key) {
+		int hash = spread(key.hashCode());
+		int start = (hash & 3) << 2;
+		boolean added = false;
+		for (int i = 0; i < 4; i++) {
+			added |= incrementAt(indexOf(hash, i), (start + i) << 2);
+		}
+		if (added && additions.incrementAndGet() >= sampleSize) {
+			reset();
+		}
+	}
+
+	// Increments one 4-bit counter unless it is already at its maximum
+	private boolean incrementAt(int index, int offset) {
+		long counterMask = 0xFL << offset;
+		while (true) {
+			long value = table.get(index);
+			if ((value & counterMask) == counterMask) {
+				return false;
+			}
+			if (table.compareAndSet(index, value, value + (1L << offset))) {
+				return true;
+			}
+		}
+	}
+
+	// Halves every counter
+	private void reset() {
+		additions.set(0);
+		for (int i = 0; i < table.length(); i++) {
+			long value;
+			do {
+				value = table.get(i);
+			} while (!table.compareAndSet(i, value, (value >>> 1) & RESET_MASK));
+		}
+	}
+
+	// Picks the slot for the i-th counter of a key
+	private int indexOf(int hash, int i) {
+		long x = (hash + SEEDS[i]) * SEEDS[i];
+		x += x >>> 32;
+		return (int) x & mask;
+	}
+
+	// Mixes the bits of a hash code so similar keys land in different slots
+	private static int spread(int x) {
+		x = ((x >>> 16) ^ x) * 0x45d9f3b;
+		x = ((x >>> 16) ^ x) * 0x45d9f3b;
+		return (x >>> 16) ^ x;
+	}
+}
@@ -0,0 +1,123 @@
+package databasePart1;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The InvitationCodePool class keeps a supply of invitation codes that have already been inserted
+ * into the database, so handing one to an admin is a queue poll and a one-row update rather than
+ * a batch insert. A background thread mints a new batch whenever the supply drops below its
+ * low-water mark.
+ *
+ * Codes in the pool have not been issued, so they cannot be redeemed until
+ * DatabaseHelper.generateInvitationCode hands them out. The codes left in the pool when the
+ * application closes stay unissued in the database, and the next start reloads them before it
+ * mints any new ones.
+ */
+public class InvitationCodePool {
+
+	private final DatabaseHelper databaseHelper;
+	private final BlockingQueue<String> ready;
+	private final int lowWaterMark;
+	private final Object refillSignal = new Object();
+	private final Thread refiller;
+	private volatile boolean running = true;
+
+	/**
+	 * Creates the pool and starts its background refill thread.
+	 *
+	 * @param databaseHelper The helper used to mint codes
+	 * @param capacity       The number of codes to keep ready
+	 * @param lowWaterMark   The supply size below which a new batch is minted
+	 */
+	public InvitationCodePool(DatabaseHelper databaseHelper, int capacity, int lowWaterMark) {
+		if (capacity < 1 || lowWaterMark < 0 || lowWaterMark >= capacity) {
+			throw new IllegalArgumentException("Invalid pool settings: capacity=" + capacity
+					+ ", lowWaterMark=" + lowWaterMark);
+		}
+		this.databaseHelper = databaseHelper;
+		this.ready = new ArrayBlockingQueue<>(capacity);
+		this.lowWaterMark = lowWaterMark;
+		this.refiller = new Thread(this::refillLoop, "invitation-code-refill");
+		this.refiller.setDaemon(true);
+		this.refiller.start();
+	}
+
+	/**
+	 * Takes a pre-minted code. If the supply has run dry the code is minted on the calling thread.
+	 *
+	 * @return An unused invitation code that is already stored in the database
+	 */
+	public String take() throws SQLException {
+		String code = ready.poll();
+		if (ready.size() <= lowWaterMark) {
+			synchronized (refillSignal) {
+				refillSignal.notify();
+			}
+		}
+		if (code != null) {
+			return code;
+		}
+		return databaseHelper.mintInvitationCodes(1).get(0);
+	}
+
+	// The number of codes ready to be handed out
+	public int available() {
+		return ready.size();
+	}
+
+	// Reloads the unissued codes, then mints codes until the supply is full and waits to be woken
+	// up again
+	private void refillLoop() {
+		try {
+			for (String code : databaseHelper.loadUnissuedInvitationCodes(ready.remainingCapacity())) {
+				ready.offer(code);
+			}
+		} catch (SQLException e) {
+			System.err.println("Could not reload invitation codes: " + e.getMessage());
+		}
+		while (running) {
+			int missing = ready.remainingCapacity();
+			if (missing > 0) {
+				try {
+					List<String> codes = databaseHelper.mintInvitationCodes(missing);
+					for (String code : codes) {
+						if (!ready.offer(code)) {
+							break; // Full; the extra codes are reloaded by a later start
+						}
+					}
+				} catch (SQLException e) {
+					if (running) { // Failures while the pool is being closed are expected
+						System.err.println("Could not refill invitation codes: " + e.getMessage());
+					}
+				}
+			}
+			synchronized (refillSignal) {
+				try {
+					if (running && ready.size() > lowWaterMark) {
+						refillSignal.wait(TimeUnit.SECONDS.toMillis(30));
+					} else if (running) {
+						// Still short after a refill attempt, back off before trying again
+						refillSignal.wait(1000);
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+		}
+	}
+
+	// Stops the refill thread. It is woken rather than interrupted, since interrupting it while it
+	// writes to H2 would close the database file. Codes still in the pool stay unissued in the
+	// database for the next start to reload.
+	public void shutdown() {
+		running = false;
+		synchronized (refillSignal) {
+			refillSignal.notifyAll();
+		}
+	}
+}
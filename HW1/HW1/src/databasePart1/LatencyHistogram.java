@@ -0,0 +1,100 @@
+package databasePart1;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The LatencyHistogram class records latencies from many threads at once without locking. Values
+ * are counted in buckets that grow by powers of two, each split into 16 linear sub-buckets, so any
+ * recorded value is reported within about 6% of its real size while the whole histogram stays a
+ * fixed array of counters.
+ */
+public class LatencyHistogram {
+
+	private static final int SUB_BUCKET_BITS = 4;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	// Values below 16 get a bucket each, then 16 buckets for every power of two up to 2^63
+	private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final LongAdder count = new LongAdder();
+	private final LongAdder sum = new LongAdder();
+
+	// Records one latency in nanoseconds
+	public void record(long nanos) {
+		long value = Math.max(0, nanos);
+		counts.incrementAndGet(bucketOf(value));
+		count.increment();
+		sum.add(value);
+	}
+
+	// Maps a value to its bucket: the position of its highest bit, then the four bits below it
+	static int bucketOf(long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+		int subBucket = (int) (value >>> exponent) - SUB_BUCKETS;
+		return (exponent + 1) * SUB_BUCKETS + subBucket;
+	}
+
+	// The largest value that falls into a bucket
+	static long upperBoundOf(int bucket) {
+		if (bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+		int exponent = bucket / SUB_BUCKETS - 1;
+		long subBucket = bucket % SUB_BUCKETS + SUB_BUCKETS;
+		return ((subBucket + 1) << exponent) - 1;
+	}
+
+	public long getCount() {
+		return count.sum();
+	}
+
+	public double getMeanNanos() {
+		long n = count.sum();
+		return n == 0 ? 0.0 : (double) sum.sum() / n;
+	}
+
+	/**
+	 * Returns the latency below which the given fraction of values fall.
+	 *
+	 * @param fraction A value between 0 and 1, such as 0.99
+	 * @return The percentile in nanoseconds, or 0 if nothing has been recorded
+	 */
+	public long getPercentileNanos(double fraction) {
+		long total = 0;
+		long[] snapshot = new long[BUCKETS];
+		for (int i = 0; i < BUCKETS; i++) {
+			snapshot[i] = counts.get(i);
+			total += snapshot[i];
+		}
+		if (total == 0) {
+			return 0;
+		}
+		long target = Math.max(1, (long) Math.ceil(fraction * total));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += snapshot[i];
+			if (seen >= target) {
+				return upperBoundOf(i);
+			}
+		}
+		return upperBoundOf(BUCKETS - 1);
+	}
+
+	public double getPercentileMillis(double fraction) {
+		return getPercentileNanos(fraction) / (double) TimeUnit.MILLISECONDS.toNanos(1);
+	}
+
+	// Clears every recorded value
+	public void reset() {
+		for (int i = 0; i < BUCKETS; i++) {
+			counts.set(i, 0);
+		}
+		count.reset();
+		sum.reset();
+	}
+}
@@ -0,0 +1,87 @@
+package databasePart1;
+
+/**
+ * The LoginThrottle class limits how often logins and invitation codes can be tried, before the
+ * attempt reaches the database. A login needs a token from the bucket of its client and from the
+ * bucket of the userName, so guessing one user's password is slow even from many clients, and one
+ * client cannot spray guesses over many users. Account setup needs a token from the client's
+ * invitation bucket, which makes guessing invitation codes slow.
+ *
+ * The limits are read from system properties; -Dcse360.throttle.disabled=true turns the throttle
+ * off, for example for load tests.
+ */
+public class LoginThrottle {
+
+	static final boolean DISABLED = Boolean.getBoolean("cse360.throttle.disabled");
+	static final int MAX_KEYS = Integer.getInteger("cse360.throttle.maxKeys", 100_000);
+	// Five logins per userName at once, then one every 12 seconds
+	static final int LOGIN_USER_BURST = Integer.getInteger("cse360.throttle.login.userBurst", 5);
+	static final long LOGIN_USER_PERIOD_MS = Long.getLong("cse360.throttle.login.userPeriodMs", 12_000);
+	// Twenty logins per client at once, then one a second
+	static final int LOGIN_CLIENT_BURST = Integer.getInteger("cse360.throttle.login.clientBurst", 20);
+	static final long LOGIN_CLIENT_PERIOD_MS = Long.getLong("cse360.throttle.login.clientPeriodMs", 1_000);
+	// Five invitation codes per client at once, then one every 10 seconds
+	static final int INVITATION_CLIENT_BURST = Integer.getInteger("cse360.throttle.invitation.clientBurst", 5);
+	static final long INVITATION_CLIENT_PERIOD_MS = Long.getLong("cse360.throttle.invitation.clientPeriodMs", 10_000);
+
+	private final boolean enabled;
+	private final RateLimiter loginsPerUser;
+	private final RateLimiter loginsPerClient;
+	private final RateLimiter invitationsPerClient;
+
+	// Creates a throttle with the limits from the system properties
+	public LoginThrottle() {
+		this(!DISABLED);
+	}
+
+	public LoginThrottle(boolean enabled) {
+		this.enabled = enabled;
+		this.loginsPerUser = new RateLimiter("loginsPerUser", LOGIN_USER_BURST, LOGIN_USER_PERIOD_MS, MAX_KEYS);
+		this.loginsPerClient = new RateLimiter("loginsPerClient", LOGIN_CLIENT_BURST, LOGIN_CLIENT_PERIOD_MS, MAX_KEYS);
+		this.invitationsPerClient = new RateLimiter("invitationsPerClient", INVITATION_CLIENT_BURST,
+				INVITATION_CLIENT_PERIOD_MS, MAX_KEYS);
+	}
+
+	/**
+	 * Takes a login attempt from the client's and the userName's buckets.
+	 *
+	 * @return 0 if the attempt may go ahead, otherwise the milliseconds to wait
+	 */
+	public long checkLogin(String clientId, String userName) {
+		if (!enabled) {
+			return 0;
+		}
+		long wait = loginsPerClient.tryAcquire(clientId);
+		if (wait == 0) {
+			wait = loginsPerUser.tryAcquire(userName);
+		}
+		return toMillis(wait);
+	}
+
+	/**
+	 * Takes an invitation code attempt from the client's bucket.
+	 *
+	 * @return 0 if the attempt may go ahead, otherwise the milliseconds to wait
+	 */
+	public long checkInvitation(String clientId) {
+		if (!enabled) {
+			return 0;
+		}
+		return toMillis(invitationsPerClient.tryAcquire(clientId));
+	}
+
+	// Rounds a wait up so a caller told to wait 0.3 ms is not told 0
+	private static long toMillis(long nanos) {
+		return (nanos + 999_999) / 1_000_000;
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	@Override
+	public String toString() {
+		return "LoginThrottle[" + (enabled ? "" : "disabled, ") + loginsPerUser + ", " + loginsPerClient + ", "
+				+ invitationsPerClient + "]";
+	}
+}
@@ -0,0 +1,94 @@
+package databasePart1;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Base64;
+
+/**
+ * The PasswordCredential class is what is stored for a user's password: a PBKDF2 iteration count,
+ * a 16 byte salt and a 32 byte hash, kept in the fixed-width iterations, salt and passwordHash
+ * columns. Accounts created before passwords were hashed have a legacy plaintext password
+ * instead, until their next login replaces it with a hash.
+ */
+public final class PasswordCredential {
+
+	final int iterations;
+	final byte[] salt;
+	final byte[] hash;
+	final String legacyPassword;
+
+	private PasswordCredential(int iterations, byte[] salt, byte[] hash, String legacyPassword) {
+		this.iterations = iterations;
+		this.salt = salt;
+		this.hash = hash;
+		this.legacyPassword = legacyPassword;
+	}
+
+	static PasswordCredential hashed(int iterations, byte[] salt, byte[] hash) {
+		return new PasswordCredential(iterations, salt, hash, null);
+	}
+
+	static PasswordCredential legacy(String plaintext) {
+		return new PasswordCredential(0, null, null, plaintext);
+	}
+
+	/**
+	 * Reads a password as it was stored in the old VARCHAR password column, either
+	 * "pbkdf2$iterations$salt$hash" with Base64 salt and hash, or plaintext. Any password was
+	 * accepted before hashing was added, so a value that only starts like a hash, such as
+	 * "pbkdf2$Ab1!xyz", is a plaintext password.
+	 */
+	static PasswordCredential parse(String stored) {
+		if (stored == null || !stored.startsWith(PasswordHasher.PREFIX)) {
+			return legacy(stored);
+		}
+		String[] parts = stored.split("\\$", -1);
+		if (parts.length == 4) {
+			try {
+				Base64.Decoder decoder = Base64.getDecoder();
+				int iterations = Integer.parseInt(parts[1]);
+				byte[] salt = decoder.decode(parts[2]);
+				byte[] hash = decoder.decode(parts[3]);
+				if (iterations > 0 && salt.length == PasswordHasher.SALT_BYTES && hash.length == PasswordHasher.HASH_BITS / 8) {
+					return hashed(iterations, salt, hash);
+				}
+			} catch (IllegalArgumentException e) {
+				// Not a number or not Base64, so not a hash
+			}
+		}
+		return legacy(stored);
+	}
+
+	// Reads the iterations, salt, passwordHash and legacyPassword columns, starting at a column
+	static PasswordCredential read(ResultSet rs, int firstColumn) throws SQLException {
+		byte[] hash = rs.getBytes(firstColumn + 2);
+		if (hash == null) {
+			return legacy(rs.getString(firstColumn + 3));
+		}
+		return hashed(rs.getInt(firstColumn), rs.getBytes(firstColumn + 1), hash);
+	}
+
+	// Binds the iterations, salt and passwordHash columns, starting at a parameter
+	void bind(PreparedStatement pstmt, int firstParameter) throws SQLException {
+		if (isLegacy()) {
+			pstmt.setNull(firstParameter, Types.INTEGER);
+			pstmt.setNull(firstParameter + 1, Types.BINARY);
+			pstmt.setNull(firstParameter + 2, Types.BINARY);
+		} else {
+			pstmt.setInt(firstParameter, iterations);
+			pstmt.setBytes(firstParameter + 1, salt);
+			pstmt.setBytes(firstParameter + 2, hash);
+		}
+	}
+
+	// Tells whether this is a plaintext password left over from before hashing was added
+	public boolean isLegacy() {
+		return hash == null;
+	}
+
+	public int getIterations() {
+		return iterations;
+	}
+}
@@ -0,0 +1,216 @@
+package databasePart1;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.security.spec.InvalidKeySpecException;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+/**
+ * The PasswordHasher class turns passwords into salted PBKDF2 hashes and checks passwords against
+ * them, using only the JDK. The iteration count is picked at startup by timing a few hashes so that
+ * one verification takes about the target time on this machine.
+ *
+ * All hashing runs on a small executor with one thread per core and a bounded queue. A flood of
+ * logins waits in that queue instead of taking every CPU away from the rest of the application,
+ * and once the queue is full further requests are turned away.
+ *
+ * Hashes are returned as {@link PasswordCredential} objects, which DatabaseHelper stores in
+ * fixed-width binary columns.
+ */
+public class PasswordHasher {
+
+	static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+	// Earlier versions stored hashes as text, "pbkdf2$iterations$salt$hash"
+	static final String PREFIX = "pbkdf2$";
+	static final int SALT_BYTES = 16;
+	static final int HASH_BITS = 256;
+	static final int MIN_ITERATIONS = 10_000;
+	static final int MAX_ITERATIONS = 5_000_000;
+	// Calibrated counts are rounded down to a multiple of this, so runs on the same machine agree
+	static final int ITERATION_STEP = 10_000;
+
+	private final SecureRandom random = new SecureRandom();
+	private final ThreadPoolExecutor executor;
+	private final int iterations;
+	// Checked in place of a stored credential when there is none, so every check costs the same;
+	// its hash is all zeros, which no password hashes to
+	private final PasswordCredential dummy;
+
+	/**
+	 * Creates a hasher whose iteration count is calibrated to the target verification time.
+	 *
+	 * @param targetMillis  How long one verification should take
+	 * @param queueCapacity How many hashing requests may wait for a free thread
+	 */
+	public PasswordHasher(long targetMillis, int queueCapacity) {
+		int threads = Runtime.getRuntime().availableProcessors();
+		AtomicInteger count = new AtomicInteger();
+		this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<>(queueCapacity), r -> {
+					Thread t = new Thread(r, "password-hasher-" + count.incrementAndGet());
+					t.setDaemon(true);
+					return t;
+				});
+		this.iterations = calibrate(targetMillis);
+		byte[] salt = new byte[SALT_BYTES];
+		random.nextBytes(salt);
+		this.dummy = PasswordCredential.hashed(iterations, salt, new byte[HASH_BITS / 8]);
+		if (DatabaseConfig.DEBUG) {
+			System.out.println("Password hashing uses " + iterations + " PBKDF2 iterations (target "
+					+ targetMillis + " ms) on " + threads + " threads");
+		}
+	}
+
+	// The iteration count used for new hashes
+	public int getIterations() {
+		return iterations;
+	}
+
+	// Times hashes with a known iteration count and scales it to the target time
+	private static int calibrate(long targetMillis) {
+		byte[] salt = new byte[SALT_BYTES];
+		char[] sample = "calibration-password".toCharArray();
+		int probe = 20_000;
+		pbkdf2(sample, salt, probe);	// Warm up the JIT first
+
+		long best = Long.MAX_VALUE;
+		for (int i = 0; i < 3; i++) {
+			long start = System.nanoTime();
+			pbkdf2(sample, salt, probe);
+			best = Math.min(best, System.nanoTime() - start);
+		}
+		double perIteration = (double) best / probe;
+		long scaled = (long) (TimeUnit.MILLISECONDS.toNanos(targetMillis) / perIteration);
+		scaled -= scaled % ITERATION_STEP;
+		return (int) Math.max(MIN_ITERATIONS, Math.min(MAX_ITERATIONS, scaled));
+	}
+
+	/**
+	 * Hashes a password with a new random salt, on the hashing executor.
+	 *
+	 * @param password The password to hash
+	 * @return The credential to store
+	 */
+	public PasswordCredential hash(String password) throws SQLException {
+		return await(submit(hashTask(password)));
+	}
+
+	/**
+	 * Hashes many passwords in parallel on the hashing executor. Only a few tasks per thread are
+	 * queued at a time, so a large batch does not fill the queue and lock out logins.
+	 *
+	 * @param passwords The passwords to hash
+	 * @return The credentials, in the same order
+	 */
+	public PasswordCredential[] hashAll(List<String> passwords) throws SQLException {
+		PasswordCredential[] hashes = new PasswordCredential[passwords.size()];
+		int window = executor.getMaximumPoolSize() * 2;
+		ArrayDeque<Future<PasswordCredential>> pending = new ArrayDeque<>(window);
+		int done = 0;
+		for (String password : passwords) {
+			if (pending.size() == window) {
+				hashes[done++] = await(pending.poll());
+			}
+			pending.add(submit(hashTask(password)));
+		}
+		while (!pending.isEmpty()) {
+			hashes[done++] = await(pending.poll());
+		}
+		return hashes;
+	}
+
+	// Builds a task that hashes one password with a new random salt
+	private Callable<PasswordCredential> hashTask(String password) {
+		byte[] salt = new byte[SALT_BYTES];
+		random.nextBytes(salt);
+		int rounds = iterations;
+		return () -> PasswordCredential.hashed(rounds, salt, pbkdf2(password.toCharArray(), salt, rounds));
+	}
+
+	/**
+	 * Checks a password against a stored credential, on the hashing executor. A legacy plaintext
+	 * password is compared directly, but only after hashing the password against the dummy
+	 * credential, so that legacy accounts take as long to check as the others.
+	 *
+	 * @param password The password the user entered
+	 * @param stored   The stored credential, or null for a user that does not exist, which is
+	 *                 checked against the dummy credential and never matches
+	 * @return Whether the password matches
+	 */
+	public boolean verify(String password, PasswordCredential stored) throws SQLException {
+		String secret = password == null ? "" : password;
+		PasswordCredential hashed = stored == null || stored.isLegacy() ? dummy : stored;
+		byte[] actual = await(submit(() -> pbkdf2(secret.toCharArray(), hashed.salt, hashed.iterations)));
+		if (stored == null || password == null) {
+			return false;
+		}
+		if (stored.isLegacy()) {
+			return stored.legacyPassword != null && MessageDigest.isEqual(
+					stored.legacyPassword.getBytes(StandardCharsets.UTF_8), password.getBytes(StandardCharsets.UTF_8));
+		}
+		return MessageDigest.isEqual(stored.hash, actual);
+	}
+
+	/**
+	 * Tells whether a stored credential should be replaced with a new hash after a successful
+	 * login, because it is still plaintext or was hashed with clearly fewer iterations than are
+	 * used now. Calibration can land a step lower or higher from one start to the next, so a hash
+	 * within a quarter of the current count is kept; otherwise every restart would rehash them all.
+	 */
+	public boolean needsRehash(PasswordCredential stored) {
+		return stored.isLegacy() || stored.iterations < iterations - iterations / 4;
+	}
+
+	// Queues a hashing task, failing if the queue is full
+	private <T> Future<T> submit(Callable<T> task) throws SQLException {
+		try {
+			return executor.submit(task);
+		} catch (RejectedExecutionException e) {
+			throw new SQLException("Too many password checks in progress, please try again");
+		}
+	}
+
+	// Waits for a hashing task to finish
+	private static <T> T await(Future<T> future) throws SQLException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			future.cancel(true);
+			Thread.currentThread().interrupt();
+			throw new SQLException("Interrupted while checking a password");
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Password hashing failed", e.getCause());
+		}
+	}
+
+	private static byte[] pbkdf2(char[] password, byte[] salt, int iterations) {
+		PBEKeySpec spec = new PBEKeySpec(password, salt, iterations, HASH_BITS);
+		try {
+			return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+		} catch (NoSuchAlgorithmException | InvalidKeySpecException e) {
+			throw new IllegalStateException(ALGORITHM + " is not available", e);
+		} finally {
+			spec.clearPassword();
+		}
+	}
+
+	// Stops the hashing threads
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+}
@@ -0,0 +1,67 @@
+package databasePart1;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A connection borrowed from a {@link ConnectionPool}. Closing it hands the underlying
+ * connection back to the pool instead of closing it, so it is meant to be used in a
+ * try-with-resources block around a single database operation.
+ */
+public class PooledConnection implements AutoCloseable {
+
+	// Stack traces are only captured when asked for, since they are costly to build on every borrow
+	private static final boolean CAPTURE_BORROW_TRACE = Boolean.getBoolean("cse360.pool.leakTrace");
+
+	private final ConnectionPool pool;
+	private final Connection connection;
+	private final StatementCache statementCache;
+	private final long borrowedAt = System.nanoTime();
+	private final String borrowerName = Thread.currentThread().getName();
+	private final Throwable borrowTrace;
+	private final AtomicBoolean returned = new AtomicBoolean(false);
+	private volatile boolean leakReported = false;
+
+	PooledConnection(ConnectionPool pool, Connection connection, StatementCache statementCache) {
+		this.pool = pool;
+		this.connection = connection;
+		this.statementCache = statementCache;
+		this.borrowTrace = CAPTURE_BORROW_TRACE ? new Throwable("Connection borrowed here") : null;
+	}
+
+	// Returns the JDBC connection this object wraps.
+	public Connection getConnection() {
+		return connection;
+	}
+
+	/**
+	 * Returns a prepared statement for the given SQL from this connection's statement cache.
+	 * The statement belongs to the cache, so callers close its result sets but not the statement.
+	 */
+	public PreparedStatement prepare(String sql) throws SQLException {
+		return statementCache.prepare(sql);
+	}
+
+	long getBorrowedAt() { return borrowedAt; }
+	String getBorrowerName() { return borrowerName; }
+	Throwable getBorrowTrace() { return borrowTrace; }	// null unless traces are enabled
+
+	// Marks the leak as reported, returning false if it had already been reported
+	boolean markLeakReported() {
+		if (leakReported) {
+			return false;
+		}
+		leakReported = true;
+		return true;
+	}
+
+	// Hands the connection back to the pool. Calling this more than once has no effect.
+	@Override
+	public void close() {
+		if (returned.compareAndSet(false, true)) {
+			pool.release(this);
+		}
+	}
+}
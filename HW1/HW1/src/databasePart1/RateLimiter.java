@@ -0,0 +1,147 @@
+package databasePart1;
+
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The RateLimiter class gives every key, such as a userName or a client, a token bucket: a burst
+ * of attempts is allowed, and after that one attempt per refill period.
+ *
+ * Each bucket is a single AtomicLong holding its theoretical arrival time, the moment at which it
+ * will be full again (the generic cell rate algorithm). An attempt moves that time forward by one
+ * period with a compare-and-set, and is refused if it would end up more than a burst ahead of
+ * now, so a check never takes a lock and never allocates once the key is known.
+ *
+ * Keys are spread over stripes, each a concurrent map with a share of the key limit. A bucket
+ * whose time has passed is full, so it is the same as no bucket at all; when a stripe reaches its
+ * limit those idle buckets are dropped. If a stripe is still full, which takes more active keys
+ * than the limit, new keys share one overflow bucket per stripe, so memory stays bounded and a
+ * flood of random keys is still rate limited.
+ */
+public class RateLimiter {
+
+	static final int STRIPES = 64;
+
+	private static final class Stripe {
+		final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+		final AtomicLong overflow = new AtomicLong(Long.MIN_VALUE);
+	}
+
+	private final String name;
+	private final long periodNanos;
+	private final long burstNanos;
+	private final int maxKeysPerStripe;
+	private final Stripe[] stripes = new Stripe[STRIPES];
+
+	private final LongAdder allowed = new LongAdder();
+	private final LongAdder rejected = new LongAdder();
+	private final LongAdder evicted = new LongAdder();
+	private final LongAdder overflowed = new LongAdder();
+
+	/**
+	 * @param name         A name for log messages and statistics
+	 * @param burst        How many attempts a key may make at once
+	 * @param periodMillis How long it takes to earn one more attempt
+	 * @param maxKeys      How many keys are tracked at most
+	 */
+	public RateLimiter(String name, int burst, long periodMillis, int maxKeys) {
+		if (burst < 1 || periodMillis < 1 || maxKeys < STRIPES) {
+			throw new IllegalArgumentException("Invalid rate limit for " + name + ": burst=" + burst
+					+ ", period=" + periodMillis + " ms, maxKeys=" + maxKeys);
+		}
+		this.name = name;
+		this.periodNanos = TimeUnit.MILLISECONDS.toNanos(periodMillis);
+		this.burstNanos = periodNanos * (burst - 1);
+		this.maxKeysPerStripe = maxKeys / STRIPES;
+		for (int i = 0; i < STRIPES; i++) {
+			stripes[i] = new Stripe();
+		}
+	}
+
+	/**
+	 * Takes one attempt from a key's bucket.
+	 *
+	 * @param key The userName or client making the attempt
+	 * @return 0 if the attempt is allowed, otherwise how many nanoseconds until it would be
+	 */
+	public long tryAcquire(String key) {
+		long now = System.nanoTime();
+		AtomicLong bucket = bucketFor(key, now);
+		while (true) {
+			long arrival = bucket.get();
+			// A bucket that has been idle for a full burst starts from now
+			long start = arrival == Long.MIN_VALUE || now - arrival > 0 ? now : arrival;
+			long wait = start - now - burstNanos;
+			if (wait > 0) {
+				rejected.increment();
+				return wait;
+			}
+			if (bucket.compareAndSet(arrival, start + periodNanos)) {
+				allowed.increment();
+				return 0;
+			}
+		}
+	}
+
+	// Finds the bucket of a key, making room in its stripe if needed
+	private AtomicLong bucketFor(String key, long now) {
+		int h = key.hashCode();
+		Stripe stripe = stripes[(h ^ (h >>> 16)) & (STRIPES - 1)];
+		AtomicLong bucket = stripe.buckets.get(key);
+		if (bucket != null) {
+			return bucket;
+		}
+		if (stripe.buckets.size() >= maxKeysPerStripe) {
+			evictIdle(stripe, now);
+			if (stripe.buckets.size() >= maxKeysPerStripe) {
+				overflowed.increment();
+				return stripe.overflow;
+			}
+		}
+		return stripe.buckets.computeIfAbsent(key, k -> new AtomicLong(Long.MIN_VALUE));
+	}
+
+	// Drops the buckets of a stripe that have refilled completely. An attempt racing with the
+	// removal may be forgotten, which gives that key at most one extra attempt.
+	private void evictIdle(Stripe stripe, long now) {
+		for (Iterator<AtomicLong> it = stripe.buckets.values().iterator(); it.hasNext(); ) {
+			long arrival = it.next().get();
+			if (arrival == Long.MIN_VALUE || now - arrival > 0) {
+				it.remove();
+				evicted.increment();
+			}
+		}
+	}
+
+	// Drops every idle bucket
+	public void evictIdle() {
+		long now = System.nanoTime();
+		for (Stripe stripe : stripes) {
+			evictIdle(stripe, now);
+		}
+	}
+
+	// The number of keys with a bucket
+	public int size() {
+		int size = 0;
+		for (Stripe stripe : stripes) {
+			size += stripe.buckets.size();
+		}
+		return size;
+	}
+
+	public long getAllowedCount() { return allowed.sum(); }
+	public long getRejectedCount() { return rejected.sum(); }
+	public long getEvictedCount() { return evicted.sum(); }
+	public long getOverflowCount() { return overflowed.sum(); }
+
+	@Override
+	public String toString() {
+		return String.format(Locale.ROOT, "RateLimiter[%s, keys=%d, allowed=%d, rejected=%d, evicted=%d, overflow=%d]",
+				name, size(), getAllowedCount(), getRejectedCount(), getEvictedCount(), getOverflowCount());
+	}
+}
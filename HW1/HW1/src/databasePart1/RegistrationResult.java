@@ -0,0 +1,15 @@
+package databasePart1;
+
+/**
+ * The outcome of {@link DatabaseHelper#registerWithInvitation(application.User, String)}.
+ */
+public enum RegistrationResult {
+	// The invitation code was redeemed and the account was created
+	SUCCESS,
+	// The invitation code does not exist or has already been used
+	INVALID_INVITATION_CODE,
+	// Another account already has this userName; the invitation code was not used up
+	USERNAME_TAKEN,
+	// Too many invitation codes were tried recently; nothing was checked
+	RATE_LIMITED
+}
@@ -0,0 +1,47 @@
+package databasePart1;
+
+import java.sql.SQLException;
+
+/**
+ * The RoleCodes class maps role names to the TINYINT codes stored in the role column. The codes
+ * are part of the schema: a code may be added, but an existing one must never change meaning.
+ */
+final class RoleCodes {
+
+	// Indexed by code; code 0 is not used so a missing value is never mistaken for a role
+	private static final String[] NAMES = { null, "admin", "user" };
+
+	private RoleCodes() {
+	}
+
+	// Tells whether a role name has a code
+	static boolean isKnown(String role) {
+		return indexOf(role) > 0;
+	}
+
+	// Returns the code stored for a role name
+	static byte encode(String role) throws SQLException {
+		int code = indexOf(role);
+		if (code < 1) {
+			throw new SQLException("Unknown role: " + role);
+		}
+		return (byte) code;
+	}
+
+	private static int indexOf(String role) {
+		for (int code = 1; code < NAMES.length; code++) {
+			if (NAMES[code].equals(role)) {
+				return code;
+			}
+		}
+		return -1;
+	}
+
+	// Returns the role name for a stored code
+	static String decode(int code) throws SQLException {
+		if (code < 1 || code >= NAMES.length) {
+			throw new SQLException("Unknown role code: " + code);
+		}
+		return NAMES[code];
+	}
+}
@@ -0,0 +1,176 @@
+package databasePart1;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import application.User;
+
+/**
+ * The RosterImporter class registers a course roster from a CSV file. Each line holds
+ * userName,password and optionally a role (which defaults to "user"); a header line is skipped
+ * if present. The file is read line by line while the rows are handed to
+ * {@link DatabaseHelper#registerAll(Iterable)}, so memory use does not grow with the file size.
+ * Every failure, whether the line could not be parsed or the row was rejected, is reported with
+ * the line it came from.
+ *
+ * Run it with: java databasePart1.RosterImporter roster.csv
+ */
+public class RosterImporter {
+
+	private final DatabaseHelper databaseHelper;
+
+	public RosterImporter(DatabaseHelper databaseHelper) {
+		this.databaseHelper = databaseHelper;
+	}
+
+	/**
+	 * Imports every row of the given CSV file.
+	 *
+	 * @param file The roster file
+	 * @return The result of the bulk registration, with failures numbered by line
+	 */
+	public BulkRegistrationResult importFile(Path file) throws IOException, SQLException {
+		BulkRegistrationResult result = new BulkRegistrationResult();
+		try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			RosterIterator iterator = new RosterIterator(reader, result);
+			return databaseHelper.registerAll(iterator, iterator::getLineNumber, result);
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 * Splits one CSV line into fields. Fields may be quoted with double quotes, and a doubled
+	 * quote inside a quoted field stands for one quote character.
+	 */
+	static List<String> parseLine(String line) {
+		List<String> fields = new ArrayList<>(3);
+		StringBuilder field = new StringBuilder();
+		boolean quoted = false;
+		for (int i = 0; i < line.length(); i++) {
+			char c = line.charAt(i);
+			if (quoted) {
+				if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+					field.append('"');
+					i++;
+				} else if (c == '"') {
+					quoted = false;
+				} else {
+					field.append(c);
+				}
+			} else if (c == '"') {
+				quoted = true;
+			} else if (c == ',') {
+				fields.add(field.toString().trim());
+				field.setLength(0);
+			} else {
+				field.append(c);
+			}
+		}
+		fields.add(field.toString().trim());
+		return fields;
+	}
+
+	// Reads users from the file one line at a time, skipping blank lines and reporting malformed ones
+	private static class RosterIterator implements Iterator<User> {
+		private final BufferedReader reader;
+		private final BulkRegistrationResult result;
+		private long lineNumber = 0;
+		// The lines of the user read ahead by hasNext() and of the one returned last by next()
+		private long lineOfNext = 0;
+		private long lineOfReturned = 0;
+		private User next;
+
+		RosterIterator(BufferedReader reader, BulkRegistrationResult result) {
+			this.reader = reader;
+			this.result = result;
+		}
+
+		long getLineNumber() {
+			return lineOfReturned;
+		}
+
+		@Override
+		public boolean hasNext() {
+			while (next == null) {
+				String line;
+				try {
+					line = reader.readLine();
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+				if (line == null) {
+					return false;
+				}
+				lineNumber++;
+				next = parseUser(line);
+				lineOfNext = lineNumber;
+			}
+			return true;
+		}
+
+		@Override
+		public User next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			User user = next;
+			next = null;
+			lineOfReturned = lineOfNext;
+			return user;
+		}
+
+		// Turns a line into a user, or returns null if the line should be skipped
+		private User parseUser(String line) {
+			if (line.isBlank()) {
+				return null;
+			}
+			List<String> fields = parseLine(line);
+			if (lineNumber == 1 && fields.get(0).equalsIgnoreCase("userName")) {
+				return null; // Header
+			}
+			if (fields.size() < 2 || fields.size() > 3 || fields.get(0).isEmpty() || fields.get(1).isEmpty()) {
+				result.addFailure(lineNumber, fields.get(0), "expected userName,password[,role]");
+				result.addProcessed(1);
+				return null;
+			}
+			String role = fields.size() == 3 && !fields.get(2).isEmpty() ? fields.get(2) : "user";
+			return new User(fields.get(0), fields.get(1), role);
+		}
+	}
+
+	public static void main(String[] args) {
+		if (args.length != 1) {
+			System.err.println("Usage: java databasePart1.RosterImporter <roster.csv>");
+			System.exit(2);
+		}
+		DatabaseHelper databaseHelper = new DatabaseHelper();
+		try {
+			databaseHelper.connectToDatabase();
+			RosterImporter importer = new RosterImporter(databaseHelper);
+			long start = System.nanoTime();
+			BulkRegistrationResult result = importer.importFile(Paths.get(args[0]));
+			long millis = (System.nanoTime() - start) / 1_000_000;
+
+			System.out.println(result + " in " + millis + " ms");
+			for (BulkRegistrationResult.Failure failure : result.getFailures()) {
+				System.out.println("  " + failure);
+			}
+		} catch (IOException | SQLException e) {
+			System.err.println("Import failed: " + e.getMessage());
+			e.printStackTrace();
+		} finally {
+			databaseHelper.closeConnection();
+		}
+	}
+}
@@ -0,0 +1,394 @@
+package databasePart1;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * The SchemaMigrations class brings the database schema up to date. Every change to the schema is
+ * a numbered migration, and the schema_version table records which migrations have been applied.
+ * On a database that is already current, the only statement run at startup is the query for the
+ * highest applied version; no DDL is executed.
+ *
+ * Migrations are applied in order, and each one's row in schema_version is committed as soon as
+ * it has run. H2 commits every DDL statement as it runs, so a migration is not one transaction;
+ * each is instead written to be run again from the top if it was interrupted.
+ *
+ * Only one instance migrates at a time. Before migrating, an instance locks the row of the
+ * schema_lock table on a second connection and keeps it locked until it is done, so a second
+ * instance started against a shared database waits, then finds the schema current.
+ */
+class SchemaMigrations {
+
+	/**
+	 * The work done by one migration.
+	 */
+	@FunctionalInterface
+	interface MigrationStep {
+		void apply(Connection connection) throws SQLException;
+	}
+
+	/**
+	 * A numbered change to the schema.
+	 */
+	static final class Migration {
+		final int version;
+		final String description;
+		final MigrationStep step;
+
+		Migration(int version, String description, MigrationStep step) {
+			this.version = version;
+			this.description = description;
+			this.step = step;
+		}
+	}
+
+	// H2 reports a missing table with one of these SQL states, the second when the database has no
+	// tables at all
+	private static final String TABLE_NOT_FOUND = "42S02";
+	private static final String TABLE_NOT_FOUND_DATABASE_EMPTY = "42S04";
+	// H2 reports a lock it could not take within its lock timeout with this SQL state
+	private static final String LOCK_TIMEOUT = "HYT00";
+
+	private final List<Migration> migrations = new ArrayList<>();
+
+	SchemaMigrations() {
+		// Version 1 is the schema created by createTables before migrations existed. It keeps
+		// IF NOT EXISTS so databases created by older builds are adopted as they are.
+		add(1, "Create users and invitation codes",
+				"CREATE TABLE IF NOT EXISTS cse360users ("
+						+ "id INT AUTO_INCREMENT PRIMARY KEY, "
+						+ "userName VARCHAR(255) UNIQUE, "
+						+ "password VARCHAR(255), "
+						+ "role VARCHAR(20))",
+				"CREATE TABLE IF NOT EXISTS InvitationCodes ("
+						+ "code VARCHAR(10) PRIMARY KEY, "
+						+ "isUsed BOOLEAN DEFAULT FALSE)");
+		add(new Migration(2, "Compact typed users and invitation codes", SchemaMigrations::compactAuthTables));
+		// The indexes match the ORDER BY of each list, so a page is read in index order and stops
+		// after its last row. H2 adds its own single-column index for each foreign key as well.
+		// H2 commits each DDL statement on its own, so a start that stops partway through runs the
+		// migration again from the top; every statement therefore skips what already exists.
+		add(3, "Create questions and answers",
+				"CREATE TABLE IF NOT EXISTS questions ("
+						+ "id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, "
+						+ "authorId INT NOT NULL, "
+						+ "title VARCHAR(200) NOT NULL, "
+						+ "body VARCHAR(20000) NOT NULL, "
+						+ "createdAt TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP, "
+						+ "updatedAt TIMESTAMP, "
+						+ "answerCount INT NOT NULL DEFAULT 0, "
+						+ "resolved BOOLEAN NOT NULL DEFAULT FALSE)",
+				"CREATE INDEX IF NOT EXISTS idx_questions_feed ON questions (createdAt DESC, id DESC)",
+				"CREATE INDEX IF NOT EXISTS idx_questions_author ON questions (authorId, createdAt DESC, id DESC)",
+				"ALTER TABLE questions ADD CONSTRAINT IF NOT EXISTS fk_questions_author FOREIGN KEY (authorId) REFERENCES cse360users (id)",
+				"CREATE TABLE IF NOT EXISTS answers ("
+						+ "id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, "
+						+ "questionId BIGINT NOT NULL, "
+						+ "authorId INT NOT NULL, "
+						+ "body VARCHAR(20000) NOT NULL, "
+						+ "createdAt TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP, "
+						+ "updatedAt TIMESTAMP, "
+						+ "accepted BOOLEAN NOT NULL DEFAULT FALSE)",
+				"CREATE INDEX IF NOT EXISTS idx_answers_question ON answers (questionId, createdAt, id)",
+				"ALTER TABLE answers ADD CONSTRAINT IF NOT EXISTS fk_answers_question FOREIGN KEY (questionId) REFERENCES questions (id) ON DELETE CASCADE",
+				"ALTER TABLE answers ADD CONSTRAINT IF NOT EXISTS fk_answers_author FOREIGN KEY (authorId) REFERENCES cse360users (id)");
+		// Minted codes wait in the pool until an admin is given one, and only then can they be
+		// redeemed. Codes from earlier versions may already have been given out, so they count as
+		// issued. The index lists unissued codes for the pool and counts issued unused ones.
+		add(4, "Record when invitation codes are issued",
+				"ALTER TABLE InvitationCodes ADD COLUMN IF NOT EXISTS issuedAt TIMESTAMP",
+				"UPDATE InvitationCodes SET issuedAt = createdAt WHERE issuedAt IS NULL",
+				"DROP INDEX IF EXISTS idx_codes_unused",
+				"CREATE INDEX IF NOT EXISTS idx_codes_unused ON InvitationCodes (usedAt, issuedAt, code)");
+	}
+
+	// Adds a migration made of plain SQL statements
+	void add(int version, String description, String... statements) {
+		add(new Migration(version, description, connection -> {
+			try (Statement statement = connection.createStatement()) {
+				for (String sql : statements) {
+					statement.execute(sql);
+				}
+			}
+		}));
+	}
+
+	void add(Migration migration) {
+		if (!migrations.isEmpty() && migration.version <= migrations.get(migrations.size() - 1).version) {
+			throw new IllegalArgumentException("Migrations must be added in increasing version order");
+		}
+		migrations.add(migration);
+	}
+
+	List<Migration> getMigrations() {
+		return Collections.unmodifiableList(migrations);
+	}
+
+	// The version the schema has once every migration has been applied
+	int getLatestVersion() {
+		return migrations.isEmpty() ? 0 : migrations.get(migrations.size() - 1).version;
+	}
+
+	// Tells whether every migration has been applied; the only query a current database answers
+	boolean isCurrent(Connection connection) throws SQLException {
+		return currentVersion(connection) >= getLatestVersion();
+	}
+
+	/**
+	 * Applies every migration newer than the database's current version, holding the migration
+	 * lock while it does.
+	 *
+	 * @param connection     A connection with auto-commit on
+	 * @param lockConnection Another connection with auto-commit on, which holds the lock
+	 * @param progress       Told which migration is running, for showing to the user
+	 * @return The number of migrations applied, 0 if the schema was already current
+	 */
+	int migrate(Connection connection, Connection lockConnection, Consumer<String> progress) throws SQLException {
+		if (isCurrent(connection)) {
+			return 0;
+		}
+		lock(lockConnection, progress);
+		try {
+			// Read again, since another instance may have migrated while this one waited
+			return applyPending(connection, currentVersion(connection), progress);
+		} finally {
+			lockConnection.rollback();
+			lockConnection.setAutoCommit(true);
+		}
+	}
+
+	// Applies the migrations newer than the current version, in order
+	private int applyPending(Connection connection, int current, Consumer<String> progress) throws SQLException {
+		int applied = 0;
+		connection.setAutoCommit(false);
+		try {
+			for (Migration migration : migrations) {
+				if (migration.version <= current) {
+					continue;
+				}
+				progress.accept("Upgrading the database (" + migration.version + " of " + getLatestVersion() + "): "
+						+ migration.description + "...");
+				migration.step.apply(connection);
+				if (record(connection, migration)) {
+					connection.commit();
+					if (DatabaseConfig.DEBUG) {
+						System.out.println("Applied schema migration " + migration.version + ": " + migration.description);
+					}
+					applied++;
+				} else {
+					// Already recorded by a build that migrated without the lock
+					connection.rollback();
+				}
+			}
+		} catch (SQLException e) {
+			connection.rollback();
+			throw e;
+		} finally {
+			connection.setAutoCommit(true);
+		}
+		return applied;
+	}
+
+	// Version 2 of cse360users: the role as a TINYINT code, the password as fixed-width binary
+	// columns, and a covering index that answers the login lookup without reading the row
+	static final String USERS_V2 = "CREATE TABLE cse360users_v2 ("
+			+ "id INT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, "
+			+ "userName VARCHAR(255) NOT NULL, "
+			+ "role TINYINT NOT NULL, "
+			+ "iterations INT, "
+			+ "salt BINARY(16), "
+			+ "passwordHash BINARY(32), "
+			+ "legacyPassword VARCHAR(255), "
+			+ "createdAt TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP, "
+			+ "CONSTRAINT uq_users_userName UNIQUE (userName))";
+	static final String USERS_V2_AUTH_INDEX = "CREATE INDEX idx_users_auth ON cse360users_v2 "
+			+ "(userName, id, role, iterations, salt, passwordHash, legacyPassword)";
+
+	// Version 2 of InvitationCodes: when a code was minted and when it was redeemed, instead of a
+	// flag, and an index that lists unused codes without reading the rows
+	static final String CODES_V2 = "CREATE TABLE InvitationCodes_v2 ("
+			+ "code VARCHAR(10) PRIMARY KEY, "
+			+ "createdAt TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP, "
+			+ "usedAt TIMESTAMP)";
+	static final String CODES_V2_UNUSED_INDEX = "CREATE INDEX idx_codes_unused ON InvitationCodes_v2 (usedAt, code)";
+
+	static final int COPY_BATCH_SIZE = 1000;
+
+	/**
+	 * Rebuilds cse360users and InvitationCodes in the version 2 layout. H2 commits every DDL
+	 * statement as it runs, so this cannot be one transaction, and copying a million users takes
+	 * long enough to be interrupted. The step is instead safe to run again from the top:
+	 *
+	 * First each table still in the old layout is copied, with its index, into a new _v2 table.
+	 * A _v2 table left by an earlier attempt may be only partly filled, so it is dropped and the
+	 * copy started over. Only once both copies are complete are the old tables dropped and the
+	 * copies renamed in their place; a _v2 table whose old table is already gone is the end of a
+	 * swap that was cut short, and is renamed. Creation times of existing rows are not known and
+	 * are set to now.
+	 */
+	private static void compactAuthTables(Connection connection) throws SQLException {
+		try (Statement statement = connection.createStatement()) {
+			if (hasColumn(connection, "CSE360USERS", "PASSWORD")) {
+				statement.execute("DROP TABLE IF EXISTS cse360users_v2");
+				statement.execute(USERS_V2);
+				int nextId = copyUsers(connection);
+				statement.execute("ALTER TABLE cse360users_v2 ALTER COLUMN id RESTART WITH " + nextId);
+				statement.execute(USERS_V2_AUTH_INDEX);
+				connection.commit();
+			}
+			if (hasColumn(connection, "INVITATIONCODES", "ISUSED")) {
+				statement.execute("DROP TABLE IF EXISTS InvitationCodes_v2");
+				statement.execute(CODES_V2);
+				statement.execute("INSERT INTO InvitationCodes_v2 (code, usedAt) "
+						+ "SELECT code, CASE WHEN isUsed THEN CURRENT_TIMESTAMP END FROM InvitationCodes");
+				statement.execute(CODES_V2_UNUSED_INDEX);
+				connection.commit();
+			}
+
+			// Both copies are complete; swap them in
+			replaceWithCopy(connection, statement, "cse360users", "CSE360USERS_V2");
+			replaceWithCopy(connection, statement, "InvitationCodes", "INVITATIONCODES_V2");
+		}
+	}
+
+	// Drops a table, if it is still there, and renames its _v2 copy to take its place
+	private static void replaceWithCopy(Connection connection, Statement statement, String table, String copy)
+			throws SQLException {
+		if (hasTable(connection, copy)) {
+			statement.execute("DROP TABLE IF EXISTS " + table);
+			statement.execute("ALTER TABLE " + copy + " RENAME TO " + table);
+		}
+	}
+
+	// Copies every user into cse360users_v2, converting the role and password, and returns the
+	// next free id
+	private static int copyUsers(Connection connection) throws SQLException {
+		String insert = "INSERT INTO cse360users_v2 (id, userName, role, iterations, salt, passwordHash, legacyPassword) "
+				+ "VALUES (?, ?, ?, ?, ?, ?, ?)";
+		int maxId = 0;
+		long copied = 0;
+		try (Statement select = connection.createStatement();
+				ResultSet rs = select.executeQuery("SELECT id, userName, role, password FROM cse360users ORDER BY id");
+				PreparedStatement pstmt = connection.prepareStatement(insert)) {
+			while (rs.next()) {
+				int id = rs.getInt(1);
+				String userName = rs.getString(2);
+				PasswordCredential credential = PasswordCredential.parse(rs.getString(4));
+				pstmt.setInt(1, id);
+				pstmt.setString(2, userName);
+				pstmt.setByte(3, RoleCodes.encode(rs.getString(3)));
+				credential.bind(pstmt, 4);
+				pstmt.setString(7, credential.legacyPassword);
+				pstmt.addBatch();
+				maxId = Math.max(maxId, id);
+				if (++copied % COPY_BATCH_SIZE == 0) {
+					// Committed as it goes so a large table does not build one huge transaction;
+					// if the copy is interrupted, the next start drops it and copies again
+					pstmt.executeBatch();
+					connection.commit();
+				}
+			}
+			pstmt.executeBatch();
+		}
+		if (copied > 0 && DatabaseConfig.DEBUG) {
+			System.out.println("Migrated " + copied + " users to the compact layout");
+		}
+		return maxId + 1;
+	}
+
+	private static boolean hasTable(Connection connection, String table) throws SQLException {
+		return hasColumn(connection, table, null);
+	}
+
+	// Looks a table, or one of its columns, up in INFORMATION_SCHEMA
+	private static boolean hasColumn(Connection connection, String table, String column) throws SQLException {
+		String query = "SELECT 1 FROM INFORMATION_SCHEMA.COLUMNS WHERE TABLE_SCHEMA = SCHEMA() AND TABLE_NAME = ?"
+				+ (column == null ? "" : " AND COLUMN_NAME = ?");
+		try (PreparedStatement pstmt = connection.prepareStatement(query)) {
+			pstmt.setString(1, table);
+			if (column != null) {
+				pstmt.setString(2, column);
+			}
+			try (ResultSet rs = pstmt.executeQuery()) {
+				return rs.next();
+			}
+		}
+	}
+
+	// Locks the row of schema_lock until the transaction on lockConnection ends, waiting for as
+	// long as another instance holds it
+	private static void lock(Connection lockConnection, Consumer<String> progress) throws SQLException {
+		try (Statement statement = lockConnection.createStatement()) {
+			statement.execute("CREATE TABLE IF NOT EXISTS schema_lock (id INT PRIMARY KEY)");
+			// Only reads the row if it is there, so it does not wait for a holder of the lock
+			statement.execute("INSERT INTO schema_lock (id) SELECT 1 WHERE NOT EXISTS (SELECT 1 FROM schema_lock)");
+		} catch (SQLException e) {
+			// Another instance inserted the row first
+			if (!"23505".equals(e.getSQLState())) {
+				throw e;
+			}
+		}
+
+		lockConnection.setAutoCommit(false);
+		boolean waiting = false;
+		while (true) {
+			try (Statement statement = lockConnection.createStatement()) {
+				statement.executeQuery("SELECT id FROM schema_lock WHERE id = 1 FOR UPDATE").close();
+				return;
+			} catch (SQLException e) {
+				if (!LOCK_TIMEOUT.equals(e.getSQLState())) {
+					lockConnection.rollback();
+					lockConnection.setAutoCommit(true);
+					throw e;
+				}
+				if (!waiting) {
+					progress.accept("Waiting for another instance to finish upgrading the database...");
+					waiting = true;
+				}
+			}
+		}
+	}
+
+	// Reads the highest applied version, creating the schema_version table on a new database
+	static int currentVersion(Connection connection) throws SQLException {
+		try (Statement statement = connection.createStatement();
+				ResultSet rs = statement.executeQuery("SELECT MAX(version) FROM schema_version")) {
+			return rs.next() ? rs.getInt(1) : 0;
+		} catch (SQLException e) {
+			if (!TABLE_NOT_FOUND.equals(e.getSQLState()) && !TABLE_NOT_FOUND_DATABASE_EMPTY.equals(e.getSQLState())) {
+				throw e;
+			}
+		}
+		try (Statement statement = connection.createStatement()) {
+			statement.execute("CREATE TABLE IF NOT EXISTS schema_version ("
+					+ "version INT PRIMARY KEY, "
+					+ "description VARCHAR(255), "
+					+ "appliedAt TIMESTAMP DEFAULT CURRENT_TIMESTAMP)");
+		}
+		return 0;
+	}
+
+	// Records a migration as applied; returns false if it already was
+	private static boolean record(Connection connection, Migration migration) throws SQLException {
+		String insert = "INSERT INTO schema_version (version, description) SELECT ?, ? "
+				+ "WHERE NOT EXISTS (SELECT 1 FROM schema_version WHERE version = ?)";
+		try (PreparedStatement pstmt = connection.prepareStatement(insert)) {
+			pstmt.setInt(1, migration.version);
+			pstmt.setString(2, migration.description);
+			pstmt.setInt(3, migration.version);
+			return pstmt.executeUpdate() == 1;
+		} catch (SQLException e) {
+			if ("23505".equals(e.getSQLState())) {
+				return false;
+			}
+			throw e;
+		}
+	}
+}
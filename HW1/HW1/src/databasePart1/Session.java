@@ -0,0 +1,41 @@
+package databasePart1;
+
+/**
+ * The Session class is a signed-in user as the {@link SessionStore} remembers them: the userName
+ * and role that were checked at login, and when the session was last used. It holds no password
+ * and not even its own token, only the store knows the token's hash.
+ */
+public final class Session {
+
+	// The SHA-256 hash of the token, which is the key in the store and in the session file
+	final String tokenHash;
+	private final String userName;
+	private volatile String role;
+	private final long createdAt;
+	// Epoch milliseconds; every successful lookup moves it forward
+	volatile long lastAccess;
+	// Set when the session is revoked or expires, so the timing wheel drops it
+	volatile boolean ended;
+
+	Session(String tokenHash, String userName, String role, long createdAt, long lastAccess) {
+		this.tokenHash = tokenHash;
+		this.userName = userName;
+		this.role = role;
+		this.createdAt = createdAt;
+		this.lastAccess = lastAccess;
+	}
+
+	public String getUserName() { return userName; }
+	public String getRole() { return role; }
+	public long getCreatedAt() { return createdAt; }
+	public long getLastAccess() { return lastAccess; }
+
+	void setRole(String role) {
+		this.role = role;
+	}
+
+	@Override
+	public String toString() {
+		return "Session[" + userName + ", role=" + role + "]";
+	}
+}
@@ -0,0 +1,310 @@
+package databasePart1;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The SessionStore class issues an opaque token when a user signs in, and afterwards answers who
+ * the token belongs to and with which role from memory, so the pages never hold a password and
+ * going back to a page does not check the credentials again.
+ *
+ * Sessions expire after a period without use. Each lookup just records the time; expiry is done by
+ * a hashed timing wheel: a ring of buckets, one per tick, where a session waits in the bucket of
+ * the tick it would expire at. A background thread visits one bucket per tick, ends the sessions
+ * whose time is really up and moves the ones that were used in the meantime to the bucket of their
+ * new deadline. The cost is proportional to the sessions that are due, never a scan of them all,
+ * and a lookup that arrives before the wheel does still sees the session as expired.
+ *
+ * Only the SHA-256 hash of each token is kept. If a file is given, the sessions are written to it
+ * every minute and on close, and read back when the store is created, so users who asked to stay
+ * signed in remain signed in after a restart.
+ */
+public class SessionStore {
+
+	static final int WHEEL_SIZE = 512;
+	static final int TOKEN_BYTES = 32;
+	static final long SAVE_INTERVAL_MS = 60_000;
+	private static final String FILE_HEADER = "# CSE360 sessions v1";
+
+	private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+	private final long idleTimeoutMillis;
+	private final long tickMillis;
+	private final Path file;
+	private final SecureRandom random = new SecureRandom();
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private final ConcurrentLinkedQueue<Session>[] wheel = new ConcurrentLinkedQueue[WHEEL_SIZE];
+	// The last tick whose bucket has been processed; only the timer thread changes it
+	private long currentTick;
+	private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread t = new Thread(r, "session-expiry");
+		t.setDaemon(true);
+		return t;
+	});
+	private volatile boolean dirty;
+	private long lastSave = System.currentTimeMillis();
+
+	private final LongAdder created = new LongAdder();
+	private final LongAdder expired = new LongAdder();
+	private final LongAdder revoked = new LongAdder();
+
+	/**
+	 * Creates the store and reads the sessions saved in the file if there is one. Sessions do not
+	 * expire until {@link #start()} is called.
+	 *
+	 * @param idleTimeoutMillis How long a session stays valid without being used
+	 * @param tickMillis        The resolution of the timing wheel
+	 * @param file              Where sessions are saved, or null to keep them in memory only
+	 */
+	public SessionStore(long idleTimeoutMillis, long tickMillis, Path file) {
+		if (idleTimeoutMillis <= 0 || tickMillis <= 0) {
+			throw new IllegalArgumentException("Invalid session settings: idleTimeout=" + idleTimeoutMillis
+					+ ", tick=" + tickMillis);
+		}
+		this.idleTimeoutMillis = idleTimeoutMillis;
+		this.tickMillis = tickMillis;
+		this.file = file;
+		for (int i = 0; i < WHEEL_SIZE; i++) {
+			wheel[i] = new ConcurrentLinkedQueue<>();
+		}
+		this.currentTick = System.currentTimeMillis() / tickMillis;
+		if (file != null) {
+			load();
+		}
+	}
+
+	// Starts the expiry thread, which turns the wheel once a tick
+	public void start() {
+		timer.scheduleAtFixedRate(this::advance, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Starts a session for a user whose credentials have just been checked.
+	 *
+	 * @return The token; only its hash is kept, so it cannot be recovered from the store
+	 */
+	public String create(String userName, String role) {
+		byte[] bytes = new byte[TOKEN_BYTES];
+		random.nextBytes(bytes);
+		String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+		long now = System.currentTimeMillis();
+		Session session = new Session(hash(token), userName, role, now, now);
+		sessions.put(session.tokenHash, session);
+		schedule(session);
+		created.increment();
+		dirty = true;
+		return token;
+	}
+
+	/**
+	 * Looks a token up and, if it is still valid, extends its session.
+	 *
+	 * @return The session, or null if the token is unknown, revoked or expired
+	 */
+	public Session validate(String token) {
+		if (token == null) {
+			return null;
+		}
+		Session session = sessions.get(hash(token));
+		if (session == null) {
+			return null;
+		}
+		long now = System.currentTimeMillis();
+		if (now - session.lastAccess >= idleTimeoutMillis) {
+			end(session, expired);
+			return null;
+		}
+		session.lastAccess = now;
+		return session;
+	}
+
+	// Whether the token belongs to a valid session with the given role
+	public boolean hasRole(String token, String role) {
+		Session session = validate(token);
+		return session != null && session.getRole().equals(role);
+	}
+
+	// Ends the session of a token, for example when the user logs out
+	public void revoke(String token) {
+		Session session = token == null ? null : sessions.get(hash(token));
+		if (session != null) {
+			end(session, revoked);
+		}
+	}
+
+	// Ends every session of a user. This scans all sessions, which is fine for a rare admin action.
+	public void revokeAll(String userName) {
+		for (Session session : sessions.values()) {
+			if (session.getUserName().equals(userName)) {
+				end(session, revoked);
+			}
+		}
+	}
+
+	// Gives every session of a user their new role. This scans all sessions, like revokeAll.
+	public void updateRole(String userName, String role) {
+		for (Session session : sessions.values()) {
+			if (session.getUserName().equals(userName)) {
+				session.setRole(role);
+				dirty = true;
+			}
+		}
+	}
+
+	private void end(Session session, LongAdder counter) {
+		session.ended = true;
+		if (sessions.remove(session.tokenHash, session)) {
+			counter.increment();
+			dirty = true;
+		}
+	}
+
+	// Puts a session in the bucket of the tick at which it expires if it is not used again
+	private void schedule(Session session) {
+		long deadline = session.lastAccess + idleTimeoutMillis;
+		long tick = (deadline + tickMillis - 1) / tickMillis;
+		wheel[(int) (tick & (WHEEL_SIZE - 1))].add(session);
+	}
+
+	// Runs on the timer thread: processes the buckets of every tick that has passed
+	private void advance() {
+		try {
+			long now = System.currentTimeMillis();
+			long nowTick = now / tickMillis;
+			List<Session> due = new ArrayList<>();
+			while (currentTick < nowTick) {
+				currentTick++;
+				// Take the whole bucket first; sessions put back may land in it again
+				ConcurrentLinkedQueue<Session> bucket = wheel[(int) (currentTick & (WHEEL_SIZE - 1))];
+				for (Session session; (session = bucket.poll()) != null; ) {
+					due.add(session);
+				}
+				for (Session session : due) {
+					if (session.ended) {
+						continue;
+					}
+					if (now - session.lastAccess >= idleTimeoutMillis) {
+						end(session, expired);
+					} else {
+						schedule(session); // Used since it was scheduled, or due in a later round
+					}
+				}
+				due.clear();
+			}
+			if (file != null && dirty && now - lastSave >= SAVE_INTERVAL_MS) {
+				save();
+			}
+		} catch (RuntimeException e) {
+			// An exception would cancel the periodic task, and with it all expiry
+			System.err.println("Session expiry failed: " + e);
+		}
+	}
+
+	/**
+	 * Writes the sessions to the file, replacing it in one step.
+	 */
+	public synchronized void save() {
+		if (file == null) {
+			return;
+		}
+		dirty = false;
+		lastSave = System.currentTimeMillis();
+		try {
+			Path parent = file.toAbsolutePath().getParent();
+			Files.createDirectories(parent);
+			Path temporary = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+			try (BufferedWriter out = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+				out.write(FILE_HEADER);
+				out.newLine();
+				for (Session session : sessions.values()) {
+					out.write(session.tokenHash + "\t" + session.getUserName() + "\t" + session.getRole() + "\t"
+							+ session.getCreatedAt() + "\t" + session.lastAccess);
+					out.newLine();
+				}
+			}
+			Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			dirty = true;
+			System.err.println("Could not save sessions to " + file + ": " + e.getMessage());
+		}
+	}
+
+	// Reads the sessions saved in the file, skipping the ones that expired while the program was closed
+	private void load() {
+		long now = System.currentTimeMillis();
+		try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			if (!FILE_HEADER.equals(in.readLine())) {
+				System.err.println("Ignoring " + file + ": not a session file");
+				return;
+			}
+			for (String line; (line = in.readLine()) != null; ) {
+				String[] fields = line.split("\t");
+				if (fields.length != 5) {
+					continue;
+				}
+				long lastAccess = Long.parseLong(fields[4]);
+				if (now - lastAccess >= idleTimeoutMillis) {
+					continue;
+				}
+				Session session = new Session(fields[0], fields[1], fields[2], Long.parseLong(fields[3]), lastAccess);
+				sessions.put(session.tokenHash, session);
+				schedule(session);
+			}
+		} catch (NoSuchFileException e) {
+			// Nothing saved yet
+		} catch (IOException | NumberFormatException e) {
+			System.err.println("Could not read sessions from " + file + ": " + e.getMessage());
+		}
+	}
+
+	private static String hash(String token) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+			return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is not available", e);
+		}
+	}
+
+	// The number of active sessions
+	public int size() {
+		return sessions.size();
+	}
+
+	public long getCreatedCount() { return created.sum(); }
+	public long getExpiredCount() { return expired.sum(); }
+	public long getRevokedCount() { return revoked.sum(); }
+
+	// Stops the expiry thread and saves the sessions
+	public void close() {
+		timer.shutdownNow();
+		save();
+	}
+
+	@Override
+	public String toString() {
+		return String.format(Locale.ROOT, "SessionStore[active=%d, created=%d, expired=%d, revoked=%d, idleTimeout=%d s%s]",
+				size(), getCreatedCount(), getExpiredCount(), getRevokedCount(), idleTimeoutMillis / 1000,
+				file == null ? "" : ", file=" + file);
+	}
+}
@@ -0,0 +1,81 @@
+package databasePart1;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The StatementCache class keeps the prepared statements of one pooled connection, keyed by their
+ * SQL text, so the database does not have to parse the same query again on every call. The least
+ * recently used statement is closed once the cache is full.
+ *
+ * A cache belongs to a single connection and is only used by whoever has that connection borrowed,
+ * so it does not need its own locking.
+ */
+class StatementCache {
+
+	private final Connection connection;
+	private final LinkedHashMap<String, PreparedStatement> statements;
+
+	// Counters shared by every cache in the pool
+	private final LongAdder hits;
+	private final LongAdder misses;
+	private final LongAdder evictions;
+
+	StatementCache(Connection connection, int maxSize, LongAdder hits, LongAdder misses, LongAdder evictions) {
+		this.connection = connection;
+		this.hits = hits;
+		this.misses = misses;
+		this.evictions = evictions;
+		// An access-ordered map keeps the least recently used statement first
+		this.statements = new LinkedHashMap<>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+				if (size() > maxSize) {
+					StatementCache.this.evictions.increment();
+					closeQuietly(eldest.getValue());
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Returns the prepared statement for the given SQL, preparing it the first time it is asked for.
+	 * The caller must not close the statement; it stays open until it is evicted or the cache is closed.
+	 */
+	PreparedStatement prepare(String sql) throws SQLException {
+		PreparedStatement statement = statements.get(sql);
+		if (statement != null && !statement.isClosed()) {
+			hits.increment();
+			statement.clearParameters();
+			return statement;
+		}
+		misses.increment();
+		statement = connection.prepareStatement(sql);
+		statements.put(sql, statement);
+		return statement;
+	}
+
+	// Closes every cached statement
+	void close() {
+		for (PreparedStatement statement : statements.values()) {
+			closeQuietly(statement);
+		}
+		statements.clear();
+	}
+
+	private static void closeQuietly(PreparedStatement statement) {
+		try {
+			statement.close();
+		} catch (SQLException e) {
+			e.printStackTrace();
+		}
+	}
+}
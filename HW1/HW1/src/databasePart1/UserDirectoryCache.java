@@ -0,0 +1,239 @@
+package databasePart1;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The UserDirectoryCache class keeps the roles of recently looked-up users in memory, so
+ * doesUserExist and getUserRole do not query the database for a name they have just seen. A name
+ * that does not exist is cached too, as a negative entry, so repeated attempts with a mistyped
+ * name are answered from memory as well.
+ *
+ * The cache is split into segments, each a small LRU map behind its own lock, so lookups for
+ * different names rarely wait for each other. When a segment is full, a new entry only replaces
+ * the least recently used one if a {@link FrequencySketch} says it has been asked for more often.
+ * Names looked up once, such as a scan of random names, therefore cannot push out the names that
+ * are used all the time.
+ *
+ * Entries can expire after a time to live, and negative entries have their own, usually shorter,
+ * one. Writes call {@link #invalidate}. A lookup that was started before an invalidation of the
+ * same segment does not store its result, so a stale answer read from the database just before a
+ * write cannot be cached after it.
+ */
+public class UserDirectoryCache {
+
+	/**
+	 * The result of a cache lookup.
+	 */
+	static final class Lookup {
+		// Whether the cache had an answer
+		final boolean hit;
+		// The role, or null if the user does not exist
+		final String role;
+		// For a miss, the stamp to pass to put
+		final long stamp;
+
+		Lookup(boolean hit, String role, long stamp) {
+			this.hit = hit;
+			this.role = role;
+			this.stamp = stamp;
+		}
+	}
+
+	// A cached role, or a negative entry if role is null
+	private static final class Entry {
+		final String role;
+		final long expiresAtNanos;
+
+		Entry(String role, long expiresAtNanos) {
+			this.role = role;
+			this.expiresAtNanos = expiresAtNanos;
+		}
+
+		boolean isExpired(long now) {
+			return expiresAtNanos != 0 && now - expiresAtNanos >= 0;
+		}
+	}
+
+	// One part of the cache with its own lock
+	private static final class Segment {
+		final ReentrantLock lock = new ReentrantLock();
+		final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+		// Incremented by every invalidation, so lookups started before it can tell
+		long invalidations;
+	}
+
+	static final int SEGMENTS = 16;
+
+	private final Segment[] segments = new Segment[SEGMENTS];
+	private final int segmentCapacity;
+	private final long ttlNanos;
+	private final long negativeTtlNanos;
+	private final FrequencySketch sketch;
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder negativeHits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+	private final LongAdder rejections = new LongAdder();
+
+	/**
+	 * @param maximumSize       The most entries the cache holds
+	 * @param ttlMillis         How long a role stays cached, or 0 to keep it until it is evicted
+	 * @param negativeTtlMillis How long a "no such user" answer stays cached, or 0 for no limit
+	 */
+	public UserDirectoryCache(int maximumSize, long ttlMillis, long negativeTtlMillis) {
+		if (maximumSize < 1) {
+			throw new IllegalArgumentException("Invalid cache size: " + maximumSize);
+		}
+		for (int i = 0; i < SEGMENTS; i++) {
+			segments[i] = new Segment();
+		}
+		this.segmentCapacity = Math.max(1, (maximumSize + SEGMENTS - 1) / SEGMENTS);
+		this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+		this.negativeTtlNanos = TimeUnit.MILLISECONDS.toNanos(negativeTtlMillis);
+		this.sketch = new FrequencySketch(maximumSize);
+	}
+
+	private Segment segmentFor(String userName) {
+		int h = userName.hashCode();
+		return segments[(h ^ (h >>> 16)) & (SEGMENTS - 1)];
+	}
+
+	/**
+	 * Looks a user up in the cache.
+	 *
+	 * @param userName The userName to look up
+	 * @return A hit with the role (null for a cached "no such user"), or a miss with a stamp
+	 */
+	Lookup get(String userName) {
+		sketch.increment(userName);
+		Segment segment = segmentFor(userName);
+		segment.lock.lock();
+		try {
+			Entry entry = segment.entries.get(userName);
+			if (entry != null && entry.isExpired(System.nanoTime())) {
+				segment.entries.remove(userName);
+				entry = null;
+			}
+			if (entry == null) {
+				misses.increment();
+				return new Lookup(false, null, segment.invalidations);
+			}
+			if (entry.role == null) {
+				negativeHits.increment();
+			}
+			hits.increment();
+			return new Lookup(true, entry.role, 0);
+		} finally {
+			segment.lock.unlock();
+		}
+	}
+
+	/**
+	 * Caches the result of a database lookup, unless the user was invalidated after the lookup
+	 * started or a more frequently used entry would have to make room for it.
+	 *
+	 * @param userName The userName that was looked up
+	 * @param role     The role, or null if the user does not exist
+	 * @param stamp    The stamp of the miss returned by get
+	 */
+	void put(String userName, String role, long stamp) {
+		Segment segment = segmentFor(userName);
+		segment.lock.lock();
+		try {
+			if (segment.invalidations != stamp) {
+				return;
+			}
+			store(segment, userName, role);
+		} finally {
+			segment.lock.unlock();
+		}
+	}
+
+	// Adds an entry, evicting the least recently used one if the segment is full and the new
+	// entry is used more often. Called with the segment locked.
+	private void store(Segment segment, String userName, String role) {
+		long now = System.nanoTime();
+		long ttl = role == null ? negativeTtlNanos : ttlNanos;
+		Entry entry = new Entry(role, ttl == 0 ? 0 : now + ttl);
+
+		if (!segment.entries.containsKey(userName) && segment.entries.size() >= segmentCapacity) {
+			Iterator<Map.Entry<String, Entry>> eldest = segment.entries.entrySet().iterator();
+			Map.Entry<String, Entry> victim = eldest.next();
+			if (!victim.getValue().isExpired(now) && sketch.frequency(userName) <= sketch.frequency(victim.getKey())) {
+				rejections.increment();
+				return;
+			}
+			eldest.remove();
+			evictions.increment();
+		}
+		segment.entries.put(userName, entry);
+	}
+
+	/**
+	 * Removes a user from the cache. Called whenever a user is registered or their role changes.
+	 */
+	public void invalidate(String userName) {
+		Segment segment = segmentFor(userName);
+		segment.lock.lock();
+		try {
+			segment.invalidations++;
+			segment.entries.remove(userName);
+		} finally {
+			segment.lock.unlock();
+		}
+	}
+
+	// Removes every entry
+	public void invalidateAll() {
+		for (Segment segment : segments) {
+			segment.lock.lock();
+			try {
+				segment.invalidations++;
+				segment.entries.clear();
+			} finally {
+				segment.lock.unlock();
+			}
+		}
+	}
+
+	public int size() {
+		int size = 0;
+		for (Segment segment : segments) {
+			segment.lock.lock();
+			try {
+				size += segment.entries.size();
+			} finally {
+				segment.lock.unlock();
+			}
+		}
+		return size;
+	}
+
+	public long getHitCount() { return hits.sum(); }
+	public long getNegativeHitCount() { return negativeHits.sum(); }
+	public long getMissCount() { return misses.sum(); }
+	public long getEvictionCount() { return evictions.sum(); }
+	public long getRejectionCount() { return rejections.sum(); }
+
+	// The fraction of lookups answered from memory
+	public double getHitRatio() {
+		long hitCount = hits.sum();
+		long total = hitCount + misses.sum();
+		return total == 0 ? 0.0 : (double) hitCount / total;
+	}
+
+	@Override
+	public String toString() {
+		return String.format(Locale.ROOT,
+				"UserDirectoryCache[size=%d, hits=%d (negative %d), misses=%d, hitRatio=%.3f, evictions=%d, rejected=%d]",
+				size(), getHitCount(), getNegativeHitCount(), getMissCount(), getHitRatio(),
+				getEvictionCount(), getRejectionCount());
+	}
+}
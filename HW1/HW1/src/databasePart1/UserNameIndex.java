@@ -0,0 +1,243 @@
+package databasePart1;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The UserNameIndex class holds every userName in memory so the setup page can say whether a name
+ * is taken while it is being typed, without a query per keystroke.
+ *
+ * The names loaded from the database are kept in one sorted block: their UTF-8 bytes back to back
+ * in a single array, with an array of start offsets, so a million short names take about 15 MB
+ * instead of the 60 MB or more of a HashSet of Strings. A lookup is a binary search over the block.
+ * Names registered after the load go into a small concurrent set, which is merged into a new block
+ * once it grows past a fraction of the old one.
+ *
+ * The index only knows about names registered through this process after it was loaded, and the
+ * ones in the table when it was. It is a hint for the user interface; registerWithInvitation still
+ * rejects a name that is taken by the time the account is created.
+ */
+public class UserNameIndex {
+
+	// Merge the pending names once there are this many, or one per sixteen indexed names
+	static final int MIN_MERGE_THRESHOLD = 1024;
+
+	// An immutable sorted set of names
+	private static final class Block {
+		static final Block EMPTY = new Block(new byte[0], new int[] { 0 });
+
+		// The names' bytes in unsigned lexicographic order
+		final byte[] data;
+		// Name i is data[offsets[i] .. offsets[i + 1]); one more offset than names
+		final int[] offsets;
+
+		Block(byte[] data, int[] offsets) {
+			this.data = data;
+			this.offsets = offsets;
+		}
+
+		int size() {
+			return offsets.length - 1;
+		}
+
+		// Returns the index of the name, or -(insertion point) - 1 like Arrays.binarySearch
+		int indexOf(byte[] key) {
+			int low = 0;
+			int high = size() - 1;
+			while (low <= high) {
+				int mid = (low + high) >>> 1;
+				int cmp = Arrays.compareUnsigned(data, offsets[mid], offsets[mid + 1], key, 0, key.length);
+				if (cmp < 0) {
+					low = mid + 1;
+				} else if (cmp > 0) {
+					high = mid - 1;
+				} else {
+					return mid;
+				}
+			}
+			return -(low + 1);
+		}
+
+		byte[] get(int i) {
+			return Arrays.copyOfRange(data, offsets[i], offsets[i + 1]);
+		}
+
+		// Builds a block from names sorted with Arrays::compareUnsigned, dropping duplicates
+		static Block of(List<byte[]> sorted) {
+			int totalBytes = 0;
+			for (byte[] name : sorted) {
+				totalBytes += name.length;
+			}
+			byte[] data = new byte[totalBytes];
+			int[] offsets = new int[sorted.size() + 1];
+			int count = 0;
+			int position = 0;
+			byte[] previous = null;
+			for (byte[] name : sorted) {
+				if (previous != null && Arrays.equals(previous, name)) {
+					continue;
+				}
+				System.arraycopy(name, 0, data, position, name.length);
+				position += name.length;
+				offsets[++count] = position;
+				previous = name;
+			}
+			return new Block(Arrays.copyOf(data, position), Arrays.copyOf(offsets, count + 1));
+		}
+	}
+
+	// Null until load has been called
+	private volatile Block block;
+	// Names added since the block was built
+	private final Set<String> pending = ConcurrentHashMap.newKeySet();
+	private final Object mergeLock = new Object();
+
+	/**
+	 * Replaces the index with the given names. Names added while they were being read are kept.
+	 *
+	 * @param names Every userName in the table, in any order
+	 */
+	public void load(Iterable<String> names) {
+		List<byte[]> encoded = new ArrayList<>();
+		for (String name : names) {
+			encoded.add(encode(name));
+		}
+		encoded.sort(Arrays::compareUnsigned);
+		synchronized (mergeLock) {
+			block = Block.of(encoded);
+		}
+		mergePending();
+	}
+
+	// Whether load has been called, so contains gives a complete answer
+	public boolean isLoaded() {
+		return block != null;
+	}
+
+	/**
+	 * Records a newly registered name.
+	 */
+	public void add(String userName) {
+		pending.add(userName);
+		Block current = block;
+		if (current != null && pending.size() >= Math.max(MIN_MERGE_THRESHOLD, current.size() / 16)) {
+			mergePending();
+		}
+	}
+
+	/**
+	 * Returns whether a name is in the index. Before load this only knows about added names.
+	 */
+	public boolean contains(String userName) {
+		// Pending names are removed only after the block that holds them is published, so a name
+		// that is not pending any more is found in the block read after it
+		if (pending.contains(userName)) {
+			return true;
+		}
+		Block current = block;
+		return current != null && current.indexOf(encode(userName)) >= 0;
+	}
+
+	/**
+	 * Suggests free names close to a taken one by appending the smallest unused numbers to it,
+	 * shortening the name if a number would make it too long.
+	 *
+	 * @param userName  The name that is taken
+	 * @param count     The number of suggestions wanted
+	 * @param maxLength The longest name allowed
+	 * @return Up to count names that are not in the index
+	 */
+	public List<String> suggest(String userName, int count, int maxLength) {
+		List<String> suggestions = new ArrayList<>(count);
+		for (int n = 1; suggestions.size() < count && n < 10_000; n++) {
+			String suffix = Integer.toString(n);
+			int keep = Math.min(userName.length(), maxLength - suffix.length());
+			if (keep < 1) {
+				break;
+			}
+			String candidate = userName.substring(0, keep) + suffix;
+			if (!contains(candidate) && !suggestions.contains(candidate)) {
+				suggestions.add(candidate);
+			}
+		}
+		return suggestions;
+	}
+
+	// Moves the pending names into a new block
+	private void mergePending() {
+		synchronized (mergeLock) {
+			Block current = block;
+			if (current == null || pending.isEmpty()) {
+				return;
+			}
+			List<String> snapshot = new ArrayList<>(pending);
+			List<byte[]> added = new ArrayList<>(snapshot.size());
+			for (String name : snapshot) {
+				byte[] key = encode(name);
+				if (current.indexOf(key) < 0) {
+					added.add(key);
+				}
+			}
+			if (!added.isEmpty()) {
+				added.sort(Arrays::compareUnsigned);
+				block = merge(current, added);
+			}
+			pending.removeAll(snapshot);
+		}
+	}
+
+	// Merges a sorted list of new names into a block
+	private static Block merge(Block current, List<byte[]> added) {
+		List<byte[]> merged = new ArrayList<>(current.size() + added.size());
+		int i = 0;
+		int j = 0;
+		while (i < current.size() || j < added.size()) {
+			if (j == added.size() || (i < current.size() && Arrays.compareUnsigned(current.data, current.offsets[i],
+					current.offsets[i + 1], added.get(j), 0, added.get(j).length) < 0)) {
+				merged.add(current.get(i++));
+			} else {
+				merged.add(added.get(j++));
+			}
+		}
+		return Block.of(merged);
+	}
+
+	private static byte[] encode(String userName) {
+		return userName.getBytes(StandardCharsets.UTF_8);
+	}
+
+	// The number of names in the index
+	public int size() {
+		Block current = block;
+		return (current == null ? 0 : current.size()) + pending.size();
+	}
+
+	/**
+	 * Estimates the heap used by the index: the two arrays of the block, and for each pending name
+	 * its String and hash set node.
+	 */
+	public long estimateBytes() {
+		Block current = block;
+		long bytes = 0;
+		if (current != null) {
+			bytes += 16 + current.data.length + 16 + 4L * current.offsets.length;
+		}
+		for (String name : pending) {
+			bytes += 24 + 16 + name.length() + 32;
+		}
+		return bytes;
+	}
+
+	@Override
+	public String toString() {
+		int size = size();
+		long bytes = estimateBytes();
+		return String.format(Locale.ROOT, "UserNameIndex[names=%d, bytes=%d (%.1f per name), pending=%d]",
+				size, bytes, size == 0 ? 0.0 : (double) bytes / size, pending.size());
+	}
+}
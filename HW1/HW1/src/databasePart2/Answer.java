@@ -0,0 +1,49 @@
+package databasePart2;
+
+import java.time.LocalDateTime;
+
+/**
+ * The Answer class is a reply to a {@link Question}, as it is stored in the answers table.
+ * Instances are immutable snapshots; edits go through {@link QuestionAnswerDAO}.
+ */
+public final class Answer {
+
+	private final long id;
+	private final long questionId;
+	private final String authorName;
+	private final String body;
+	private final LocalDateTime createdAt;
+	private final LocalDateTime updatedAt;
+	private final boolean accepted;
+
+	Answer(long id, long questionId, String authorName, String body, LocalDateTime createdAt,
+			LocalDateTime updatedAt, boolean accepted) {
+		this.id = id;
+		this.questionId = questionId;
+		this.authorName = authorName;
+		this.body = body;
+		this.createdAt = createdAt;
+		this.updatedAt = updatedAt;
+		this.accepted = accepted;
+	}
+
+	public long getId() { return id; }
+	public long getQuestionId() { return questionId; }
+	public String getAuthorName() { return authorName; }
+	public String getBody() { return body; }
+	public LocalDateTime getCreatedAt() { return createdAt; }
+
+	// When the answer was last edited, or null if it never was
+	public LocalDateTime getUpdatedAt() { return updatedAt; }
+	public boolean isAccepted() { return accepted; }
+
+	// The position of this answer under its question, to ask for the page after it
+	public PageKey getPageKey() {
+		return new PageKey(createdAt, id);
+	}
+
+	@Override
+	public String toString() {
+		return "Answer[" + id + " to " + questionId + " by " + authorName + (accepted ? ", accepted" : "") + "]";
+	}
+}
@@ -0,0 +1,643 @@
+package databasePart2;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * The DuplicateDetector class finds questions that were already asked in nearly the same words,
+ * so a student can be shown them before posting theirs. Two questions are compared by the Jaccard
+ * similarity of their shingles: the pairs of consecutive terms of the title and body, after
+ * {@link Tokenizer} has dropped stop words and stemmed the rest.
+ *
+ * Every question is summarised by a MinHash signature of NUM_HASHES values, the smallest hash of
+ * its shingles under each of that many hash functions. Two signatures agree at a position with a
+ * probability equal to the similarity of the questions, so the share of positions that agree
+ * estimates it. Only the low 16 bits of each value are kept, as in b-bit minwise hashing; two
+ * different values share them once in 65,536 times, too rarely to matter.
+ *
+ * To avoid comparing a new question with every other one, the signature is cut into bands of a few
+ * values (locality-sensitive hashing). Questions that agree on a whole band are candidates, and
+ * only candidates are compared. The number of values per band is chosen from the threshold, so a
+ * question at the threshold becomes a candidate at least nine times in ten, and more similar ones
+ * almost always. For each band the questions are kept sorted by the hash of their band, and the
+ * hash is recomputed from the signature while searching, so a band costs four bytes per question.
+ *
+ * The detector is kept in memory only and rebuilt from the database at startup. New and edited
+ * questions go into a tail that is compared value by value, and are merged into the bands in the
+ * background once the tail is long enough. An edit or a deletion marks the question's old slot
+ * deleted; slots are only reclaimed by the next rebuild.
+ */
+public class DuplicateDetector implements AutoCloseable {
+
+	static final int NUM_HASHES = 64;
+	public static final double DEFAULT_THRESHOLD = Double.parseDouble(System.getProperty("cse360.duplicates.threshold", "0.5"));
+	// The tail is merged into the bands once it holds this many questions
+	static final int TAIL_LIMIT = Integer.getInteger("cse360.duplicates.tailLimit", 4096);
+	// The chance that a question exactly at the threshold becomes a candidate
+	static final double TARGET_RECALL = 0.9;
+	// The bands are sorted again once this share of the questions in them has been deleted
+	static final double MAX_DELETED_RATIO = 0.25;
+
+	private static final ThreadLocal<Tokenizer> TOKENIZER = ThreadLocal.withInitial(Tokenizer::new);
+	// The multipliers and increments of the hash functions, fixed so signatures are the same every run
+	private static final long[] MULTIPLIERS = new long[NUM_HASHES];
+	private static final long[] INCREMENTS = new long[NUM_HASHES];
+	static {
+		long seed = 0x5DEECE66DL;
+		for (int i = 0; i < NUM_HASHES; i++) {
+			seed = mix(seed + 0x9E3779B97F4A7C15L);
+			MULTIPLIERS[i] = seed | 1;
+			seed = mix(seed + 0x9E3779B97F4A7C15L);
+			INCREMENTS[i] = seed;
+		}
+	}
+
+	private final double threshold;
+	private final int rows;
+	private final int bands;
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+	// Questions by slot; a slot is never reused until the detector is rebuilt
+	private long[] ids = new long[1024];
+	private short[] signatures = new short[1024 * NUM_HASHES];
+	private int count;
+	private final BitSet deleted = new BitSet();
+	private int deletedCount;
+	private final IdMap slotsById = new IdMap();
+	// For each band, the slots below mergedCount in order of their band's hash
+	private int[][] sortedSlots;
+	private int mergedCount;
+	private boolean bulkLoading;
+	private volatile boolean ready;
+
+	private final ExecutorService merger = Executors.newSingleThreadExecutor(r -> {
+		Thread thread = new Thread(r, "duplicate-detector");
+		thread.setDaemon(true);
+		return thread;
+	});
+	private final AtomicBoolean mergeQueued = new AtomicBoolean();
+	// Held by a merge, and by a rebuild so none can be in progress while it empties the detector
+	private final Object mergeLock = new Object();
+	private long merges;
+	// Lookups run in parallel under the read lock
+	private final LongAdder lookups = new LongAdder();
+
+	public DuplicateDetector() {
+		this(DEFAULT_THRESHOLD);
+	}
+
+	/**
+	 * @param threshold The similarity, between 0 and 1, from which a question counts as a near
+	 *                  duplicate. Lower values find more, and more loosely related, questions.
+	 */
+	public DuplicateDetector(double threshold) {
+		if (!(threshold > 0 && threshold <= 1)) {
+			throw new IllegalArgumentException("The similarity threshold must be above 0 and at most 1, not " + threshold);
+		}
+		this.threshold = threshold;
+		this.rows = rowsPerBand(threshold);
+		this.bands = NUM_HASHES / rows;
+		this.sortedSlots = new int[bands][0];
+	}
+
+	/**
+	 * Chooses the most values per band, which gives the fewest candidates to compare, for which a
+	 * question at the threshold still becomes a candidate with at least TARGET_RECALL chance: it
+	 * agrees on a band with chance threshold^rows, and on at least one of the bands with chance
+	 * 1 - (1 - threshold^rows)^bands.
+	 */
+	static int rowsPerBand(double threshold) {
+		for (int rows = 8; rows > 1; rows--) {
+			int bands = NUM_HASHES / rows;
+			if (1 - Math.pow(1 - Math.pow(threshold, rows), bands) >= TARGET_RECALL) {
+				return rows;
+			}
+		}
+		return 1;
+	}
+
+	public double getThreshold() {
+		return threshold;
+	}
+
+	// Whether every question has been read from the database, so that checks cover them all
+	public boolean isReady() {
+		return ready;
+	}
+
+	/**
+	 * Empties the detector before it is rebuilt from the database. Until {@link #finishRebuild()},
+	 * questions only go into the tail, and are sorted into the bands once at the end.
+	 */
+	public void startRebuild() {
+		synchronized (mergeLock) {
+			lock.writeLock().lock();
+			try {
+				ids = new long[1024];
+				signatures = new short[1024 * NUM_HASHES];
+				count = 0;
+				deleted.clear();
+				deletedCount = 0;
+				slotsById.clear();
+				sortedSlots = new int[bands][0];
+				mergedCount = 0;
+				bulkLoading = true;
+				ready = false;
+			} finally {
+				lock.writeLock().unlock();
+			}
+		}
+	}
+
+	// Sorts the questions read since startRebuild into the bands.
+	public void finishRebuild() {
+		lock.writeLock().lock();
+		try {
+			bulkLoading = false;
+		} finally {
+			lock.writeLock().unlock();
+		}
+		merge();
+		ready = true;
+	}
+
+	/**
+	 * Adds a question, or replaces it if it was edited. A question with no terms, such as one made
+	 * only of stop words, is not added, since it would match every other such question.
+	 */
+	public void add(long id, String title, String body) {
+		short[] signature = signature(title, body);
+		boolean full;
+		lock.writeLock().lock();
+		try {
+			remove(slotsById.get(id));
+			if (signature == null) {
+				return;
+			}
+			if (count == ids.length) {
+				ids = Arrays.copyOf(ids, count * 2);
+				signatures = Arrays.copyOf(signatures, count * 2 * NUM_HASHES);
+			}
+			int slot = count++;
+			ids[slot] = id;
+			System.arraycopy(signature, 0, signatures, slot * NUM_HASHES, NUM_HASHES);
+			slotsById.put(id, slot);
+			full = !bulkLoading && count - mergedCount >= TAIL_LIMIT;
+		} finally {
+			lock.writeLock().unlock();
+		}
+		if (full && mergeQueued.compareAndSet(false, true)) {
+			try {
+				merger.execute(() -> {
+					mergeQueued.set(false);
+					merge();
+				});
+			} catch (RejectedExecutionException e) {
+				mergeQueued.set(false);	// closing
+			}
+		}
+	}
+
+	// Removes a question.
+	public void remove(long id) {
+		lock.writeLock().lock();
+		try {
+			remove(slotsById.get(id));
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	// Marks a slot deleted; called with the write lock held
+	private void remove(int slot) {
+		if (slot >= 0 && !deleted.get(slot)) {
+			deleted.set(slot);
+			deletedCount++;
+			slotsById.put(ids[slot], -1);
+		}
+	}
+
+	/**
+	 * Finds the questions most similar to a new one, from the threshold up.
+	 *
+	 * @param limit The most questions to return
+	 * @return The matches, most similar first
+	 */
+	public List<Match> findSimilar(String title, String body, int limit) {
+		if (limit < 1) {
+			throw new IllegalArgumentException("At least one match must be asked for, not " + limit);
+		}
+		short[] signature = signature(title, body);
+		List<Match> matches = new ArrayList<>();
+		if (signature == null) {
+			return matches;
+		}
+		int minAgreeing = (int) Math.ceil(threshold * NUM_HASHES - 1e-9);
+		lock.readLock().lock();
+		try {
+			lookups.increment();
+			// Candidates from the bands, then every question in the tail
+			int[] candidates = new int[16];
+			int candidateCount = 0;
+			for (int band = 0; band < bands; band++) {
+				int[] slots = sortedSlots[band];
+				int hash = bandHash(signature, 0, band);
+				int low = 0;
+				int high = slots.length;
+				while (low < high) {
+					int mid = (low + high) >>> 1;
+					if (bandHash(signatures, slots[mid] * NUM_HASHES, band) < hash) {
+						low = mid + 1;
+					} else {
+						high = mid;
+					}
+				}
+				for (int i = low; i < slots.length && bandHash(signatures, slots[i] * NUM_HASHES, band) == hash; i++) {
+					if (candidateCount == candidates.length) {
+						candidates = Arrays.copyOf(candidates, candidateCount * 2);
+					}
+					candidates[candidateCount++] = slots[i];
+				}
+			}
+			Arrays.sort(candidates, 0, candidateCount);
+			int previous = -1;
+			for (int i = 0; i < candidateCount; i++) {
+				int slot = candidates[i];
+				if (slot != previous) {
+					collect(signature, slot, minAgreeing, matches);
+					previous = slot;
+				}
+			}
+			for (int slot = mergedCount; slot < count; slot++) {
+				collect(signature, slot, minAgreeing, matches);
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+		matches.sort((a, b) -> a.similarity != b.similarity ? Float.compare(b.similarity, a.similarity)
+				: Long.compare(b.questionId, a.questionId));
+		return matches.size() > limit ? new ArrayList<>(matches.subList(0, limit)) : matches;
+	}
+
+	// Compares a question with the new one and keeps it if it is similar enough
+	private void collect(short[] signature, int slot, int minAgreeing, List<Match> matches) {
+		if (deleted.get(slot)) {
+			return;
+		}
+		int offset = slot * NUM_HASHES;
+		int agreeing = 0;
+		for (int i = 0; i < NUM_HASHES; i++) {
+			if (signatures[offset + i] == signature[i]) {
+				agreeing++;
+			}
+		}
+		if (agreeing >= minAgreeing) {
+			matches.add(new Match(ids[slot], (float) agreeing / NUM_HASHES));
+		}
+	}
+
+	/**
+	 * Merges the tail into the bands. The tail is sorted on its own and each of its questions put
+	 * in place by binary search, so a merge copies the bands once rather than sorting them again.
+	 * Deleted questions stay in the bands, where lookups skip them, until they are a quarter of
+	 * them; then every band is sorted again from the questions still there.
+	 *
+	 * The work is done on a snapshot without holding the lock, since the slots and signatures below
+	 * the snapshot's count never change and the bands are never changed in place; only the new
+	 * bands are swapped in under the lock.
+	 */
+	public void merge() {
+		synchronized (mergeLock) {
+			int snapshotCount;
+			int snapshotMerged;
+			short[] snapshotSignatures;
+			BitSet snapshotDeleted;
+			int[][] merged;
+			lock.readLock().lock();
+			try {
+				if (count == mergedCount) {
+					return;
+				}
+				snapshotCount = count;
+				snapshotMerged = mergedCount;
+				snapshotSignatures = signatures;
+				snapshotDeleted = (BitSet) deleted.clone();
+				merged = sortedSlots;
+			} finally {
+				lock.readLock().unlock();
+			}
+
+			int inBands = merged[0].length;
+			int deletedInBands = inBands - (snapshotMerged - snapshotDeleted.get(0, snapshotMerged).cardinality());
+			boolean resort = deletedInBands > 0 && deletedInBands >= inBands * MAX_DELETED_RATIO;
+			int from = resort ? 0 : snapshotMerged;
+			int adding = (snapshotCount - from) - snapshotDeleted.get(from, snapshotCount).cardinality();
+			int[][] sorted = new int[bands][];
+			long[] keys = new long[adding];
+			for (int band = 0; band < bands; band++) {
+				int k = 0;
+				for (int slot = from; slot < snapshotCount; slot++) {
+					if (!snapshotDeleted.get(slot)) {
+						keys[k++] = (long) bandHash(snapshotSignatures, slot * NUM_HASHES, band) << 32 | slot;
+					}
+				}
+				Arrays.sort(keys);
+				if (resort) {
+					int[] slots = new int[adding];
+					for (int i = 0; i < adding; i++) {
+						slots[i] = (int) keys[i];
+					}
+					sorted[band] = slots;
+				} else {
+					sorted[band] = insert(merged[band], keys, snapshotSignatures, band);
+				}
+			}
+
+			lock.writeLock().lock();
+			try {
+				sortedSlots = sorted;
+				mergedCount = snapshotCount;
+				merges++;
+			} finally {
+				lock.writeLock().unlock();
+			}
+		}
+	}
+
+	// Puts slots sorted by band hash, as in keys, into a band, each after those with the same hash
+	private int[] insert(int[] band, long[] keys, short[] snapshotSignatures, int bandNumber) {
+		int[] slots = new int[band.length + keys.length];
+		int copied = 0;
+		int out = 0;
+		for (long key : keys) {
+			int hash = (int) (key >> 32);
+			int low = copied;
+			int high = band.length;
+			while (low < high) {
+				int mid = (low + high) >>> 1;
+				if (bandHash(snapshotSignatures, band[mid] * NUM_HASHES, bandNumber) <= hash) {
+					low = mid + 1;
+				} else {
+					high = mid;
+				}
+			}
+			System.arraycopy(band, copied, slots, out, low - copied);
+			out += low - copied;
+			copied = low;
+			slots[out++] = (int) key;
+		}
+		System.arraycopy(band, copied, slots, out, band.length - copied);
+		return slots;
+	}
+
+	// Hashes one band of a signature, so that questions agreeing on the band have the same hash
+	private int bandHash(short[] values, int offset, int band) {
+		int hash = band;
+		int start = offset + band * rows;
+		for (int i = 0; i < rows; i++) {
+			hash = hash * 0x10001 + (values[start + i] & 0xffff);
+		}
+		// The finaliser of MurmurHash3, to spread the bits
+		hash ^= hash >>> 16;
+		hash *= 0x85ebca6b;
+		hash ^= hash >>> 13;
+		hash *= 0xc2b2ae35;
+		return hash ^ (hash >>> 16);
+	}
+
+	/**
+	 * Computes the exact similarity of two questions: the share of the shingles of either that
+	 * both have, which the signatures estimate. It is too slow to compare a question with every
+	 * other one, but serves to check the estimates.
+	 */
+	public static double similarity(String title, String body, String otherTitle, String otherBody) {
+		long[] shingles = shingles(title, body);
+		long[] others = shingles(otherTitle, otherBody);
+		if (shingles.length == 0 && others.length == 0) {
+			return 1;
+		}
+		Arrays.sort(shingles);
+		Arrays.sort(others);
+		int common = 0;
+		int union = 0;
+		for (int i = 0, j = 0; i < shingles.length || j < others.length; union++) {
+			if (j == others.length || (i < shingles.length && shingles[i] < others[j])) {
+				i = next(shingles, i);
+			} else if (i == shingles.length || others[j] < shingles[i]) {
+				j = next(others, j);
+			} else {
+				common++;
+				i = next(shingles, i);
+				j = next(others, j);
+			}
+		}
+		return (double) common / union;
+	}
+
+	// Skips past the copies of a value in a sorted array
+	private static int next(long[] sorted, int i) {
+		long value = sorted[i];
+		while (i < sorted.length && sorted[i] == value) {
+			i++;
+		}
+		return i;
+	}
+
+	/**
+	 * Hashes the shingles of a question, the pairs of consecutive terms of its title and body. A
+	 * question of one term has that term as its only shingle. The same pair may appear more than
+	 * once.
+	 */
+	private static long[] shingles(String title, String body) {
+		Tokenizer tokenizer = TOKENIZER.get();
+		List<String> terms = new ArrayList<>(tokenizer.terms(title == null ? "" : title));
+		terms.addAll(tokenizer.terms(body == null ? "" : body));
+		if (terms.isEmpty()) {
+			return new long[0];
+		}
+		long[] shingles = new long[Math.max(1, terms.size() - 1)];
+		for (int s = 0; s < shingles.length; s++) {
+			long shingle = terms.get(s).hashCode();
+			if (s + 1 < terms.size()) {
+				shingle = shingle << 32 ^ terms.get(s + 1).hashCode() & 0xffffffffL;
+			}
+			shingles[s] = mix(shingle);
+		}
+		return shingles;
+	}
+
+	/**
+	 * Computes the MinHash signature of a question, or null if it has no terms.
+	 */
+	static short[] signature(String title, String body) {
+		long[] shingles = shingles(title, body);
+		if (shingles.length == 0) {
+			return null;
+		}
+
+		long[] minimums = new long[NUM_HASHES];
+		Arrays.fill(minimums, Long.MAX_VALUE);
+		for (long shingle : shingles) {
+			for (int i = 0; i < NUM_HASHES; i++) {
+				// Multiply-shift hashing: the high 32 bits of a*x + b
+				long hash = (MULTIPLIERS[i] * shingle + INCREMENTS[i]) >>> 32;
+				if (hash < minimums[i]) {
+					minimums[i] = hash;
+				}
+			}
+		}
+		short[] signature = new short[NUM_HASHES];
+		for (int i = 0; i < NUM_HASHES; i++) {
+			signature[i] = (short) minimums[i];
+		}
+		return signature;
+	}
+
+	// The finaliser of SplitMix64
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+
+	// The number of questions that can be found
+	public int size() {
+		lock.readLock().lock();
+		try {
+			return count - deletedCount;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Estimates the memory used: the id and signature of every slot, the bands, and the map from
+	 * ids to slots.
+	 */
+	public long estimateBytes() {
+		lock.readLock().lock();
+		try {
+			return (long) ids.length * (8 + 2 * NUM_HASHES) + (long) bands * 4 * sortedSlots[0].length + slotsById.estimateBytes();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public void close() {
+		merger.shutdownNow();
+		try {
+			merger.awaitTermination(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	@Override
+	public String toString() {
+		lock.readLock().lock();
+		try {
+			return "DuplicateDetector[questions=" + (count - deletedCount) + ", threshold=" + threshold + ", bands=" + bands
+					+ "x" + rows + ", tail=" + (count - mergedCount) + ", deleted=" + deletedCount + ", merges=" + merges
+					+ ", lookups=" + lookups.sum() + ", bytes=" + estimateBytes() + (ready ? "" : ", not ready") + "]";
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * A question found to be similar, with its estimated similarity.
+	 */
+	public static final class Match {
+		private final long questionId;
+		private final float similarity;
+
+		Match(long questionId, float similarity) {
+			this.questionId = questionId;
+			this.similarity = similarity;
+		}
+
+		public long getQuestionId() { return questionId; }
+		// The estimated Jaccard similarity of the shingles, between the threshold and 1
+		public float getSimilarity() { return similarity; }
+
+		@Override
+		public String toString() {
+			return "Match[" + questionId + ", " + similarity + "]";
+		}
+	}
+
+	/**
+	 * A map from question ids to slots with open addressing, which takes 12 bytes an entry at
+	 * most half full instead of the 80 or so of a HashMap of boxed values. A removed question keeps
+	 * its entry with slot -1.
+	 */
+	private static final class IdMap {
+		private long[] keys = new long[2048];
+		private int[] values = new int[2048];
+		private boolean[] used = new boolean[2048];
+		private int size;
+
+		int get(long key) {
+			int mask = keys.length - 1;
+			for (int i = (int) mix(key) & mask; used[i]; i = (i + 1) & mask) {
+				if (keys[i] == key) {
+					return values[i];
+				}
+			}
+			return -1;
+		}
+
+		void put(long key, int value) {
+			if (size * 2 >= keys.length) {
+				resize();
+			}
+			int mask = keys.length - 1;
+			int i = (int) mix(key) & mask;
+			while (used[i] && keys[i] != key) {
+				i = (i + 1) & mask;
+			}
+			if (!used[i]) {
+				used[i] = true;
+				keys[i] = key;
+				size++;
+			}
+			values[i] = value;
+		}
+
+		private void resize() {
+			long[] oldKeys = keys;
+			int[] oldValues = values;
+			boolean[] oldUsed = used;
+			keys = new long[oldKeys.length * 2];
+			values = new int[oldKeys.length * 2];
+			used = new boolean[oldKeys.length * 2];
+			size = 0;
+			for (int i = 0; i < oldKeys.length; i++) {
+				if (oldUsed[i]) {
+					put(oldKeys[i], oldValues[i]);
+				}
+			}
+		}
+
+		void clear() {
+			keys = new long[2048];
+			values = new int[2048];
+			used = new boolean[2048];
+			size = 0;
+		}
+
+		long estimateBytes() {
+			return (long) keys.length * 13;
+		}
+	}
+}
@@ -0,0 +1,31 @@
+package databasePart2;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The Page class is one page of a keyset-paginated list: its rows, and the key to pass back to
+ * get the page after it.
+ */
+public final class Page<T> {
+
+	private final List<T> items;
+	private final PageKey nextKey;
+
+	Page(List<T> items, PageKey nextKey) {
+		this.items = Collections.unmodifiableList(items);
+		this.nextKey = nextKey;
+	}
+
+	public List<T> getItems() { return items; }
+
+	// The key of the last row, or null if this is the last page
+	public PageKey getNextKey() { return nextKey; }
+
+	public boolean hasNext() { return nextKey != null; }
+
+	@Override
+	public String toString() {
+		return "Page[" + items.size() + " items" + (hasNext() ? ", next after " + nextKey : ", last") + "]";
+	}
+}
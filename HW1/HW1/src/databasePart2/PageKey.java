@@ -0,0 +1,46 @@
+package databasePart2;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * The PageKey class is a position in a list ordered by creation time: the createdAt and id of the
+ * last row of a page. The next page is read by seeking past this key in the index, so it costs
+ * the same however deep the list has been paged, unlike an OFFSET that reads every skipped row.
+ * The id breaks ties between rows created in the same instant.
+ */
+public final class PageKey {
+
+	private final LocalDateTime createdAt;
+	private final long id;
+
+	public PageKey(LocalDateTime createdAt, long id) {
+		this.createdAt = Objects.requireNonNull(createdAt, "createdAt");
+		this.id = id;
+	}
+
+	public LocalDateTime getCreatedAt() { return createdAt; }
+	public long getId() { return id; }
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (!(o instanceof PageKey)) {
+			return false;
+		}
+		PageKey other = (PageKey) o;
+		return id == other.id && createdAt.equals(other.createdAt);
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * createdAt.hashCode() + Long.hashCode(id);
+	}
+
+	@Override
+	public String toString() {
+		return "PageKey[" + createdAt + ", " + id + "]";
+	}
+}
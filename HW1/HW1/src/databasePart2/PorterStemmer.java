@@ -0,0 +1,344 @@
+package databasePart2;
+
+/**
+ * The PorterStemmer class reduces English words to their stems with Martin Porter's algorithm
+ * (1980), so that "connected", "connecting" and "connection" are all indexed and searched as
+ * "connect". It expects lowercase ASCII letters; {@link Tokenizer} only passes it such words.
+ *
+ * An instance reuses its buffer between words and must not be shared between threads.
+ */
+final class PorterStemmer {
+
+	private char[] b = new char[32];
+	private int k;	// the end of the word being stemmed
+	private int j;	// the end of the stem in the step being applied
+
+	/**
+	 * Returns the stem of a lowercase word. Words of one or two letters are returned as they are.
+	 */
+	String stem(String word) {
+		int length = word.length();
+		if (length <= 2) {
+			return word;
+		}
+		if (b.length < length) {
+			b = new char[length * 2];
+		}
+		word.getChars(0, length, b, 0);
+		k = length - 1;
+		step1ab();
+		if (k > 0) {
+			step1c();
+			step2();
+			step3();
+			step4();
+			step5();
+		}
+		return unchanged(word) ? word : new String(b, 0, k + 1);
+	}
+
+	// Whether the buffer still holds the word, to avoid copying words that have no suffix
+	private boolean unchanged(String word) {
+		if (k + 1 != word.length()) {
+			return false;
+		}
+		for (int i = 0; i <= k; i++) {
+			if (b[i] != word.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	// Whether b[i] is a consonant; y is a consonant at the start or after a vowel
+	private boolean isConsonant(int i) {
+		switch (b[i]) {
+		case 'a': case 'e': case 'i': case 'o': case 'u':
+			return false;
+		case 'y':
+			return i == 0 || !isConsonant(i - 1);
+		default:
+			return true;
+		}
+	}
+
+	// The number of vowel-consonant sequences in b[0..j], called m in the paper
+	private int measure() {
+		int n = 0;
+		int i = 0;
+		while (true) {
+			if (i > j) {
+				return n;
+			}
+			if (!isConsonant(i)) {
+				break;
+			}
+			i++;
+		}
+		i++;
+		while (true) {
+			while (true) {
+				if (i > j) {
+					return n;
+				}
+				if (isConsonant(i)) {
+					break;
+				}
+				i++;
+			}
+			i++;
+			n++;
+			while (true) {
+				if (i > j) {
+					return n;
+				}
+				if (!isConsonant(i)) {
+					break;
+				}
+				i++;
+			}
+			i++;
+		}
+	}
+
+	// Whether b[0..j] contains a vowel
+	private boolean vowelInStem() {
+		for (int i = 0; i <= j; i++) {
+			if (!isConsonant(i)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// Whether b[i-1..i] is a double consonant
+	private boolean doubleConsonant(int i) {
+		return i >= 1 && b[i] == b[i - 1] && isConsonant(i);
+	}
+
+	// Whether b[i-2..i] is consonant-vowel-consonant and the last is not w, x or y, as in "hop"
+	private boolean cvc(int i) {
+		if (i < 2 || !isConsonant(i) || isConsonant(i - 1) || !isConsonant(i - 2)) {
+			return false;
+		}
+		char c = b[i];
+		return c != 'w' && c != 'x' && c != 'y';
+	}
+
+	// Whether the word ends with s, setting j to the end of the stem before it
+	private boolean ends(String s) {
+		int length = s.length();
+		int offset = k - length + 1;
+		if (offset < 0) {
+			return false;
+		}
+		for (int i = 0; i < length; i++) {
+			if (b[offset + i] != s.charAt(i)) {
+				return false;
+			}
+		}
+		j = k - length;
+		return true;
+	}
+
+	// Replaces b[j+1..k] with s
+	private void setTo(String s) {
+		int length = s.length();
+		int offset = j + 1;
+		for (int i = 0; i < length; i++) {
+			b[offset + i] = s.charAt(i);
+		}
+		k = j + length;
+	}
+
+	// Replaces the ending with s if the stem before it has a measure above zero
+	private void replace(String s) {
+		if (measure() > 0) {
+			setTo(s);
+		}
+	}
+
+	// Plurals and -ed or -ing: caresses to caress, ponies to poni, meetings to meet, hoped to hope
+	private void step1ab() {
+		if (b[k] == 's') {
+			if (ends("sses")) {
+				k -= 2;
+			} else if (ends("ies")) {
+				setTo("i");
+			} else if (b[k - 1] != 's') {
+				k--;
+			}
+		}
+		if (ends("eed")) {
+			if (measure() > 0) {
+				k--;
+			}
+		} else if ((ends("ed") || ends("ing")) && vowelInStem()) {
+			k = j;
+			if (ends("at")) {
+				setTo("ate");
+			} else if (ends("bl")) {
+				setTo("ble");
+			} else if (ends("iz")) {
+				setTo("ize");
+			} else if (doubleConsonant(k)) {
+				k--;
+				char c = b[k];
+				if (c == 'l' || c == 's' || c == 'z') {
+					k++;
+				}
+			} else if (measure() == 1 && cvc(k)) {
+				setTo("e");
+			}
+		}
+	}
+
+	// A final y after a vowel in the stem becomes i: happy to happi
+	private void step1c() {
+		if (ends("y") && vowelInStem()) {
+			b[k] = 'i';
+		}
+	}
+
+	// Double suffixes to single ones: relational to relate, conditional to condition
+	private void step2() {
+		if (k == 0) {
+			return;
+		}
+		switch (b[k - 1]) {
+		case 'a':
+			if (ends("ational")) { replace("ate"); break; }
+			if (ends("tional")) { replace("tion"); break; }
+			break;
+		case 'c':
+			if (ends("enci")) { replace("ence"); break; }
+			if (ends("anci")) { replace("ance"); break; }
+			break;
+		case 'e':
+			if (ends("izer")) { replace("ize"); break; }
+			break;
+		case 'l':
+			if (ends("bli")) { replace("ble"); break; }
+			if (ends("alli")) { replace("al"); break; }
+			if (ends("entli")) { replace("ent"); break; }
+			if (ends("eli")) { replace("e"); break; }
+			if (ends("ousli")) { replace("ous"); break; }
+			break;
+		case 'o':
+			if (ends("ization")) { replace("ize"); break; }
+			if (ends("ation")) { replace("ate"); break; }
+			if (ends("ator")) { replace("ate"); break; }
+			break;
+		case 's':
+			if (ends("alism")) { replace("al"); break; }
+			if (ends("iveness")) { replace("ive"); break; }
+			if (ends("fulness")) { replace("ful"); break; }
+			if (ends("ousness")) { replace("ous"); break; }
+			break;
+		case 't':
+			if (ends("aliti")) { replace("al"); break; }
+			if (ends("iviti")) { replace("ive"); break; }
+			if (ends("biliti")) { replace("ble"); break; }
+			break;
+		case 'g':
+			if (ends("logi")) { replace("log"); break; }
+			break;
+		default:
+			break;
+		}
+	}
+
+	// -ic-, -full, -ness and the like: triplicate to triplic, hopeful to hope, goodness to good
+	private void step3() {
+		switch (b[k]) {
+		case 'e':
+			if (ends("icate")) { replace("ic"); break; }
+			if (ends("ative")) { replace(""); break; }
+			if (ends("alize")) { replace("al"); break; }
+			break;
+		case 'i':
+			if (ends("iciti")) { replace("ic"); break; }
+			break;
+		case 'l':
+			if (ends("ical")) { replace("ic"); break; }
+			if (ends("ful")) { replace(""); break; }
+			break;
+		case 's':
+			if (ends("ness")) { replace(""); break; }
+			break;
+		default:
+			break;
+		}
+	}
+
+	// -ant, -ence and the like when the stem is long enough: revival to reviv, adjustment to adjust
+	private void step4() {
+		if (k == 0) {
+			return;
+		}
+		switch (b[k - 1]) {
+		case 'a':
+			if (ends("al")) break;
+			return;
+		case 'c':
+			if (ends("ance")) break;
+			if (ends("ence")) break;
+			return;
+		case 'e':
+			if (ends("er")) break;
+			return;
+		case 'i':
+			if (ends("ic")) break;
+			return;
+		case 'l':
+			if (ends("able")) break;
+			if (ends("ible")) break;
+			return;
+		case 'n':
+			if (ends("ant")) break;
+			if (ends("ement")) break;
+			if (ends("ment")) break;
+			if (ends("ent")) break;
+			return;
+		case 'o':
+			if (ends("ion") && j >= 0 && (b[j] == 's' || b[j] == 't')) break;
+			if (ends("ou")) break;
+			return;
+		case 's':
+			if (ends("ism")) break;
+			return;
+		case 't':
+			if (ends("ate")) break;
+			if (ends("iti")) break;
+			return;
+		case 'u':
+			if (ends("ous")) break;
+			return;
+		case 'v':
+			if (ends("ive")) break;
+			return;
+		case 'z':
+			if (ends("ize")) break;
+			return;
+		default:
+			return;
+		}
+		if (measure() > 1) {
+			k = j;
+		}
+	}
+
+	// A final e and a final double l when the stem is long enough: probate to probat, controll to control
+	private void step5() {
+		j = k;
+		if (b[k] == 'e') {
+			int m = measure();
+			if (m > 1 || m == 1 && !cvc(k - 1)) {
+				k--;
+			}
+		}
+		if (b[k] == 'l' && doubleConsonant(k) && measure() > 1) {
+			k--;
+		}
+	}
+}
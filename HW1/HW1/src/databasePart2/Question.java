@@ -0,0 +1,52 @@
+package databasePart2;
+
+import java.time.LocalDateTime;
+
+/**
+ * The Question class is a question posted by a student, as it is stored in the questions table.
+ * Instances are immutable snapshots; edits go through {@link QuestionAnswerDAO}.
+ */
+public final class Question {
+
+	private final long id;
+	private final String authorName;
+	private final String title;
+	private final String body;
+	private final LocalDateTime createdAt;
+	private final LocalDateTime updatedAt;
+	private final int answerCount;
+	private final boolean resolved;
+
+	Question(long id, String authorName, String title, String body, LocalDateTime createdAt,
+			LocalDateTime updatedAt, int answerCount, boolean resolved) {
+		this.id = id;
+		this.authorName = authorName;
+		this.title = title;
+		this.body = body;
+		this.createdAt = createdAt;
+		this.updatedAt = updatedAt;
+		this.answerCount = answerCount;
+		this.resolved = resolved;
+	}
+
+	public long getId() { return id; }
+	public String getAuthorName() { return authorName; }
+	public String getTitle() { return title; }
+	public String getBody() { return body; }
+	public LocalDateTime getCreatedAt() { return createdAt; }
+
+	// When the question was last edited, or null if it never was
+	public LocalDateTime getUpdatedAt() { return updatedAt; }
+	public int getAnswerCount() { return answerCount; }
+	public boolean isResolved() { return resolved; }
+
+	// The position of this question in the feed, to ask for the page after it
+	public PageKey getPageKey() {
+		return new PageKey(createdAt, id);
+	}
+
+	@Override
+	public String toString() {
+		return "Question[" + id + ", " + title + " by " + authorName + ", " + answerCount + " answers]";
+	}
+}
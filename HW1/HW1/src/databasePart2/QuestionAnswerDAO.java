@@ -0,0 +1,642 @@
+package databasePart2;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import databasePart1.DatabaseConfig;
+import databasePart1.DatabaseHelper;
+import databasePart1.DatabaseMetrics;
+import databasePart1.DatabaseOperation;
+import databasePart1.PooledConnection;
+
+/**
+ * The QuestionAnswerDAO class stores the questions students ask and the answers they give, in the
+ * questions and answers tables of the database that {@link DatabaseHelper} connects to. It borrows
+ * connections from the helper's pool and reports its timings to the helper's metrics.
+ *
+ * Lists are paged by keyset instead of by OFFSET: each page ends with a {@link PageKey}, and the
+ * next page is read by seeking past that key in an index on (createdAt, id). A page therefore
+ * reads only its own rows, so page 500 costs the same as page 1.
+ *
+ * Every change is also made to the helper's {@link SearchIndex} once it is committed, so a
+ * search finds a post as soon as it is saved, and every change to a question to the helper's
+ * {@link DuplicateDetector}, so a question asked twice in a row is caught.
+ */
+public class QuestionAnswerDAO {
+
+	// The most rows a single page may hold
+	public static final int MAX_PAGE_SIZE = 200;
+
+	// The author's name is looked up row by row on the primary key, rather than by joining
+	// cse360users, so each list reads a single table. Given a join, H2 may start from the smaller
+	// users table once it has statistics, and then has to sort every question before the first page.
+	private static final String QUESTION_COLUMNS = "q.id, (SELECT userName FROM cse360users WHERE id = q.authorId), "
+			+ "q.title, q.body, q.createdAt, q.updatedAt, q.answerCount, q.resolved";
+	private static final String ANSWER_COLUMNS = "a.id, a.questionId, (SELECT userName FROM cse360users WHERE id = a.authorId), "
+			+ "a.body, a.createdAt, a.updatedAt, a.accepted";
+
+	// Each list names the index that matches its ORDER BY, because H2 otherwise tends to pick the
+	// narrower index it adds for the foreign key and sort. The seek predicates are written out as
+	// createdAt <= ? AND (createdAt < ? OR id < ?) rather than as a row value comparison, because
+	// H2 only turns the first form into an index range.
+	private static final String LIST_QUESTIONS_FIRST = "SELECT " + QUESTION_COLUMNS
+			+ " FROM questions q USE INDEX (idx_questions_feed)"
+			+ " ORDER BY q.createdAt DESC, q.id DESC LIMIT ?";
+	private static final String LIST_QUESTIONS_AFTER = "SELECT " + QUESTION_COLUMNS
+			+ " FROM questions q USE INDEX (idx_questions_feed)"
+			+ " WHERE q.createdAt <= ? AND (q.createdAt < ? OR q.id < ?)"
+			+ " ORDER BY q.createdAt DESC, q.id DESC LIMIT ?";
+	// Reads only the index, since it holds both columns; used to jump into the middle of the feed
+	private static final String FIND_QUESTION_KEY = "SELECT q.createdAt, q.id FROM questions q USE INDEX (idx_questions_feed)"
+			+ " ORDER BY q.createdAt DESC, q.id DESC LIMIT 1 OFFSET ?";
+	private static final String FIND_AUTHOR_ID = "SELECT id FROM cse360users WHERE userName = ?";
+	private static final String LIST_AUTHOR_QUESTIONS_FIRST = "SELECT " + QUESTION_COLUMNS
+			+ " FROM questions q USE INDEX (idx_questions_author) WHERE q.authorId = ?"
+			+ " ORDER BY q.authorId, q.createdAt DESC, q.id DESC LIMIT ?";
+	private static final String LIST_AUTHOR_QUESTIONS_AFTER = "SELECT " + QUESTION_COLUMNS
+			+ " FROM questions q USE INDEX (idx_questions_author) WHERE q.authorId = ?"
+			+ " AND q.createdAt <= ? AND (q.createdAt < ? OR q.id < ?)"
+			+ " ORDER BY q.authorId, q.createdAt DESC, q.id DESC LIMIT ?";
+	// The answers are in the order they were given. The ORDER BY names questionId as well, even
+	// though it is fixed, so that H2 sees it matches idx_answers_question and skips the sort.
+	private static final String LIST_ANSWERS_FIRST = "SELECT " + ANSWER_COLUMNS
+			+ " FROM answers a USE INDEX (idx_answers_question) WHERE a.questionId = ?"
+			+ " ORDER BY a.questionId, a.createdAt, a.id LIMIT ?";
+	private static final String LIST_ANSWERS_AFTER = "SELECT " + ANSWER_COLUMNS
+			+ " FROM answers a USE INDEX (idx_answers_question) WHERE a.questionId = ?"
+			+ " AND a.createdAt >= ? AND (a.createdAt > ? OR a.id > ?)"
+			+ " ORDER BY a.questionId, a.createdAt, a.id LIMIT ?";
+
+	private static final String GET_QUESTION = "SELECT " + QUESTION_COLUMNS + " FROM questions q WHERE q.id = ?";
+	private static final String INSERT_QUESTION = "SELECT id, createdAt FROM FINAL TABLE ("
+			+ "INSERT INTO questions (authorId, title, body) SELECT id, ?, ? FROM cse360users WHERE userName = ?)";
+	private static final String INSERT_ANSWER = "SELECT id, createdAt FROM FINAL TABLE ("
+			+ "INSERT INTO answers (questionId, authorId, body) SELECT ?, id, ? FROM cse360users WHERE userName = ?)";
+	private static final String UPDATE_ANSWER = "SELECT questionId FROM FINAL TABLE ("
+			+ "UPDATE answers SET body = ?, updatedAt = CURRENT_TIMESTAMP WHERE id = ?)";
+	private static final String DELETE_ANSWER = "SELECT questionId FROM OLD TABLE (DELETE FROM answers WHERE id = ?)";
+	private static final String GET_QUESTIONS = "SELECT " + QUESTION_COLUMNS + " FROM questions q WHERE q.id = ANY(?)";
+	// The rebuild reads the posts in batches by id, so it never holds a connection for long
+	private static final String SCAN_QUESTIONS = "SELECT id, title, body FROM questions WHERE id > ? ORDER BY id LIMIT ?";
+	private static final String SCAN_ANSWERS = "SELECT id, questionId, body FROM answers WHERE id > ? ORDER BY id LIMIT ?";
+	private static final int SCAN_BATCH_SIZE = 5000;
+	private static final String ADD_TO_ANSWER_COUNT = "UPDATE questions SET answerCount = answerCount + ? WHERE id = ?";
+
+	private final DatabaseHelper databaseHelper;
+
+	/**
+	 * @param databaseHelper A helper that is already connected, whose pool and metrics are used
+	 */
+	public QuestionAnswerDAO(DatabaseHelper databaseHelper) {
+		this.databaseHelper = databaseHelper;
+	}
+
+	/**
+	 * Posts a new question.
+	 *
+	 * @param authorName The userName of the student asking
+	 * @param title      The title, at most 200 characters
+	 * @param body       The question itself
+	 * @return The question as it was stored
+	 * @throws SQLException If the author does not exist or the question could not be stored
+	 */
+	public Question createQuestion(String authorName, String title, String body) throws SQLException {
+		return metrics().time(DatabaseOperation.CREATE_QUESTION, () -> {
+			try (PooledConnection pooled = borrow()) {
+				PreparedStatement pstmt = pooled.prepare(INSERT_QUESTION);
+				pstmt.setString(1, title);
+				pstmt.setString(2, body);
+				pstmt.setString(3, authorName);
+				try (ResultSet rs = pstmt.executeQuery()) {
+					if (!rs.next()) {
+						throw new SQLException("No user named " + authorName);
+					}
+					Question question = new Question(rs.getLong(1), authorName, title, body,
+							rs.getObject(2, LocalDateTime.class), null, 0, false);
+					searchIndex().addQuestion(question.getId(), title, body);
+					duplicateDetector().add(question.getId(), title, body);
+					return question;
+				}
+			}
+		});
+	}
+
+	// Changes the title and body of a question, returning false if there is no such question.
+	public boolean updateQuestion(long id, String title, String body) throws SQLException {
+		String query = "UPDATE questions SET title = ?, body = ?, updatedAt = CURRENT_TIMESTAMP WHERE id = ?";
+		return metrics().time(DatabaseOperation.UPDATE_QUESTION, () -> {
+			try (PooledConnection pooled = borrow()) {
+				PreparedStatement pstmt = pooled.prepare(query);
+				pstmt.setString(1, title);
+				pstmt.setString(2, body);
+				pstmt.setLong(3, id);
+				if (pstmt.executeUpdate() != 1) {
+					return false;
+				}
+				searchIndex().addQuestion(id, title, body);
+				duplicateDetector().add(id, title, body);
+				return true;
+			}
+		});
+	}
+
+	// Marks a question as resolved or open again, returning false if there is no such question.
+	public boolean setResolved(long id, boolean resolved) throws SQLException {
+		String query = "UPDATE questions SET resolved = ? WHERE id = ?";
+		return metrics().time(DatabaseOperation.UPDATE_QUESTION, () -> {
+			try (PooledConnection pooled = borrow()) {
+				PreparedStatement pstmt = pooled.prepare(query);
+				pstmt.setBoolean(1, resolved);
+				pstmt.setLong(2, id);
+				return pstmt.executeUpdate() == 1;
+			}
+		});
+	}
+
+	// Deletes a question and, through the foreign key, its answers.
+	public boolean deleteQuestion(long id) throws SQLException {
+		String query = "DELETE FROM questions WHERE id = ?";
+		return metrics().time(DatabaseOperation.DELETE_QUESTION, () -> {
+			try (PooledConnection pooled = borrow()) {
+				PreparedStatement pstmt = pooled.prepare(query);
+				pstmt.setLong(1, id);
+				if (pstmt.executeUpdate() != 1) {
+					return false;
+				}
+				searchIndex().deleteQuestion(id);
+				duplicateDetector().remove(id);
+				return true;
+			}
+		});
+	}
+
+	// Returns a question by its id, or null if there is no such question.
+	public Question getQuestion(long id) throws SQLException {
+		return metrics().time(DatabaseOperation.GET_QUESTION, () -> {
+			try (PooledConnection pooled = borrow()) {
+				PreparedStatement pstmt = pooled.prepare(GET_QUESTION);
+				pstmt.setLong(1, id);
+				try (ResultSet rs = pstmt.executeQuery()) {
+					return rs.next() ? readQuestion(rs) : null;
+				}
+			}
+		});
+	}
+
+	// Counts every question. This reads the whole feed index, so it is done once when the feed is
+	// opened, not for every page.
+	public long countQuestions() throws SQLException {
+		String query = "SELECT COUNT(*) FROM questions";
+		return metrics().time(DatabaseOperation.COUNT_QUESTIONS, () -> {
+			try (PooledConnection pooled = borrow(); ResultSet rs = pooled.prepare(query).executeQuery()) {
+				rs.next();
+				return rs.getLong(1);
+			}
+		});
+	}
+
+	/**
+	 * Lists questions newest first.
+	 *
+	 * @param after The key of the last question of the previous page, or null for the first page
+	 * @param limit The most questions to return, at most {@link #MAX_PAGE_SIZE}
+	 * @return The page, whose next key is null once there are no older questions
+	 */
+	public Page<Question> listQuestions(PageKey after, int limit) throws SQLException {
+		int pageSize = checkPageSize(limit);
+		return metrics().time(DatabaseOperation.LIST_QUESTIONS, () -> {
+			try (PooledConnection pooled = borrow()) {
+				PreparedStatement pstmt = pooled.prepare(after == null ? LIST_QUESTIONS_FIRST : LIST_QUESTIONS_AFTER);
+				int index = 1;
+				if (after != null) {
+					index = bindKey(pstmt, index, after);
+				}
+				pstmt.setInt(index, pageSize + 1);
+				return readQuestions(pstmt, pageSize);
+			}
+		});
+	}
+
+	/**
+	 * Finds the key of the question at a position in the feed, to start a page there when the
+	 * pages before it have not been read. This skips the rows before the position, like an OFFSET
+	 * page, but reads only the index; once a page is read, the pages after it are read by key.
+	 *
+	 * @param position The position in the feed, counting from 0 for the newest question
+	 * @return The key, or null if the feed is shorter than that
+	 */
+	public PageKey findQuestionKey(long position) throws SQLException {
+		return metrics().time(DatabaseOperation.FIND_QUESTION_KEY, () -> {
+			try (PooledConnection pooled = borrow()) {
+				PreparedStatement pstmt = pooled.prepare(FIND_QUESTION_KEY);
+				pstmt.setLong(1, position);
+				try (ResultSet rs = pstmt.executeQuery()) {
+					return rs.next() ? new PageKey(rs.getObject(1, LocalDateTime.class), rs.getLong(2)) : null;
+				}
+			}
+		});
+	}
+
+	/**
+	 * Lists the questions one student asked, newest first.
+	 *
+	 * @param authorName The userName of the student
+	 * @param after      The key of the last question of the previous page, or null for the first page
+	 * @param limit      The most questions to return, at most {@link #MAX_PAGE_SIZE}
+	 */
+	public Page<Question> listQuestionsByAuthor(String authorName, PageKey after, int limit) throws SQLException {
+		int pageSize = checkPageSize(limit);
+		return metrics().time(DatabaseOperation.LIST_QUESTIONS, () -> {
+			try (PooledConnection pooled = borrow()) {
+				PreparedStatement findAuthor = pooled.prepare(FIND_AUTHOR_ID);
+				findAuthor.setString(1, authorName);
+				int authorId;
+				try (ResultSet rs = findAuthor.executeQuery()) {
+					if (!rs.next()) {
+						return new Page<Question>(new ArrayList<>(), null);
+					}
+					authorId = rs.getInt(1);
+				}
+
+				PreparedStatement pstmt = pooled.prepare(after == null
+						? LIST_AUTHOR_QUESTIONS_FIRST : LIST_AUTHOR_QUESTIONS_AFTER);
+				pstmt.setInt(1, authorId);
+				int index = 2;
+				if (after != null) {
+					index = bindKey(pstmt, index, after);
+				}
+				pstmt.setInt(index, pageSize + 1);
+				return readQuestions(pstmt, pageSize);
+			}
+		});
+	}
+
+	/**
+	 * Posts an answer to a question and counts it on the question, in one transaction.
+	 *
+	 * @param questionId The question being answered
+	 * @param authorName The userName of the student answering
+	 * @param body       The answer itself
+	 * @return The answer as it was stored
+	 * @throws SQLException If the question or the author does not exist
+	 */
+	public Answer createAnswer(long questionId, String authorName, String body) throws SQLException {
+		return metrics().time(DatabaseOperation.CREATE_ANSWER, () -> {
+			try (PooledConnection pooled = borrow()) {
+				Connection connection = pooled.getConnection();
+				connection.setAutoCommit(false);
+				try {
+					PreparedStatement pstmt = pooled.prepare(INSERT_ANSWER);
+					pstmt.setLong(1, questionId);
+					pstmt.setString(2, body);
+					pstmt.setString(3, authorName);
+					Answer answer;
+					try (ResultSet rs = pstmt.executeQuery()) {
+						if (!rs.next()) {
+							throw new SQLException("No user named " + authorName);
+						}
+						answer = new Answer(rs.getLong(1), questionId, authorName, body,
+								rs.getObject(2, LocalDateTime.class), null, false);
+					}
+					addToAnswerCount(pooled, questionId, 1);
+					connection.commit();
+					searchIndex().addAnswer(answer.getId(), questionId, body);
+					return answer;
+				} catch (SQLException e) {
+					connection.rollback();
+					throw e;
+				} finally {
+					connection.setAutoCommit(true);
+				}
+			}
+		});
+	}
+
+	// Changes the body of an answer, returning false if there is no such answer.
+	public boolean updateAnswer(long id, String body) throws SQLException {
+		return metrics().time(DatabaseOperation.UPDATE_ANSWER, () -> {
+			try (PooledConnection pooled = borrow()) {
+				PreparedStatement pstmt = pooled.prepare(UPDATE_ANSWER);
+				pstmt.setString(1, body);
+				pstmt.setLong(2, id);
+				try (ResultSet rs = pstmt.executeQuery()) {
+					if (!rs.next()) {
+						return false;
+					}
+					searchIndex().addAnswer(id, rs.getLong(1), body);
+					return true;
+				}
+			}
+		});
+	}
+
+	// Deletes an answer and takes it off its question's count, returning false if there is no such answer.
+	public boolean deleteAnswer(long id) throws SQLException {
+		return metrics().time(DatabaseOperation.DELETE_ANSWER, () -> {
+			try (PooledConnection pooled = borrow()) {
+				Connection connection = pooled.getConnection();
+				connection.setAutoCommit(false);
+				try {
+					PreparedStatement pstmt = pooled.prepare(DELETE_ANSWER);
+					pstmt.setLong(1, id);
+					long questionId;
+					try (ResultSet rs = pstmt.executeQuery()) {
+						if (!rs.next()) {
+							connection.rollback();
+							return false;
+						}
+						questionId = rs.getLong(1);
+					}
+					addToAnswerCount(pooled, questionId, -1);
+					connection.commit();
+					searchIndex().deleteAnswer(id);
+					return true;
+				} catch (SQLException e) {
+					connection.rollback();
+					throw e;
+				} finally {
+					connection.setAutoCommit(true);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Lists the answers to a question in the order they were given.
+	 *
+	 * @param questionId The question
+	 * @param after      The key of the last answer of the previous page, or null for the first page
+	 * @param limit      The most answers to return, at most {@link #MAX_PAGE_SIZE}
+	 * @return The page, whose next key is null once there are no later answers
+	 */
+	public Page<Answer> listAnswers(long questionId, PageKey after, int limit) throws SQLException {
+		int pageSize = checkPageSize(limit);
+		return metrics().time(DatabaseOperation.LIST_ANSWERS, () -> {
+			try (PooledConnection pooled = borrow()) {
+				PreparedStatement pstmt = pooled.prepare(after == null ? LIST_ANSWERS_FIRST : LIST_ANSWERS_AFTER);
+				pstmt.setLong(1, questionId);
+				int index = 2;
+				if (after != null) {
+					index = bindKey(pstmt, index, after);
+				}
+				pstmt.setInt(index, pageSize + 1);
+
+				List<Answer> answers = new ArrayList<>(pageSize);
+				boolean more = false;
+				try (ResultSet rs = pstmt.executeQuery()) {
+					while (rs.next()) {
+						if (answers.size() == pageSize) {
+							more = true;
+							break;
+						}
+						answers.add(new Answer(rs.getLong(1), rs.getLong(2), rs.getString(3), rs.getString(4),
+								rs.getObject(5, LocalDateTime.class), rs.getObject(6, LocalDateTime.class),
+								rs.getBoolean(7)));
+					}
+				}
+				return new Page<>(answers, more ? answers.get(answers.size() - 1).getPageKey() : null);
+			}
+		});
+	}
+
+	/**
+	 * Finds the questions that best match the words of a query, in the question or in its
+	 * answers, ranked by the search index and then read from the database.
+	 *
+	 * @param query The words to look for
+	 * @param limit The most questions to return, at most {@link #MAX_PAGE_SIZE}
+	 * @return The questions, best match first
+	 */
+	public List<Question> searchQuestions(String query, int limit) throws SQLException {
+		int pageSize = checkPageSize(limit);
+		return metrics().time(DatabaseOperation.SEARCH_QUESTIONS, () -> {
+			List<SearchHit> hits = searchIndex().searchQuestions(query, pageSize);
+			Long[] ids = new Long[hits.size()];
+			for (int i = 0; i < ids.length; i++) {
+				ids[i] = hits.get(i).getQuestionId();
+			}
+			Map<Long, Question> byId = getQuestions(ids);
+			// A question deleted since it was found is left out
+			List<Question> questions = new ArrayList<>(ids.length);
+			for (Long id : ids) {
+				Question question = byId.get(id);
+				if (question != null) {
+					questions.add(question);
+				}
+			}
+			return questions;
+		});
+	}
+
+	/**
+	 * Finds the questions already posted that are nearly the same as one about to be posted, so
+	 * the student can read them first. They are found by the duplicate detector and then read from
+	 * the database.
+	 *
+	 * @param title The title of the new question
+	 * @param body  The new question itself
+	 * @param limit The most questions to return, at most {@link #MAX_PAGE_SIZE}
+	 * @return The questions at or above the detector's similarity threshold, most similar first
+	 */
+	public List<SimilarQuestion> findSimilarQuestions(String title, String body, int limit) throws SQLException {
+		int pageSize = checkPageSize(limit);
+		return metrics().time(DatabaseOperation.FIND_SIMILAR_QUESTIONS, () -> {
+			List<DuplicateDetector.Match> matches = duplicateDetector().findSimilar(title, body, pageSize);
+			Long[] ids = new Long[matches.size()];
+			for (int i = 0; i < ids.length; i++) {
+				ids[i] = matches.get(i).getQuestionId();
+			}
+			Map<Long, Question> byId = getQuestions(ids);
+			List<SimilarQuestion> similar = new ArrayList<>(ids.length);
+			for (DuplicateDetector.Match match : matches) {
+				Question question = byId.get(match.getQuestionId());
+				if (question != null) {
+					similar.add(new SimilarQuestion(question, match.getSimilarity()));
+				}
+			}
+			return similar;
+		});
+	}
+
+	// Reads the questions with the given ids, by id; any that no longer exist are missing
+	private Map<Long, Question> getQuestions(Long[] ids) throws SQLException {
+		Map<Long, Question> byId = new HashMap<>();
+		if (ids.length == 0) {
+			return byId;
+		}
+		try (PooledConnection pooled = borrow()) {
+			PreparedStatement pstmt = pooled.prepare(GET_QUESTIONS);
+			pstmt.setObject(1, ids);
+			try (ResultSet rs = pstmt.executeQuery()) {
+				while (rs.next()) {
+					Question question = readQuestion(rs);
+					byId.put(question.getId(), question);
+				}
+			}
+		}
+		return byId;
+	}
+
+	/**
+	 * Reads the saved search index, or rebuilds it from the database if it was not closed cleanly
+	 * or there is none. Meant to run in the background at startup; posts saved in the meantime are
+	 * indexed as usual and are not lost.
+	 */
+	public void loadSearchIndex() throws SQLException {
+		metrics().time(DatabaseOperation.LOAD_SEARCH_INDEX, () -> {
+			long start = System.nanoTime();
+			SearchIndex index = searchIndex();
+			try {
+				boolean loaded = index.load();
+				if (!loaded) {
+					rebuildSearchIndex(index);
+				}
+				if (DatabaseConfig.DEBUG) {
+					System.out.println((loaded ? "Loaded " : "Rebuilt ") + index + " in "
+							+ (System.nanoTime() - start) / 1_000_000 + " ms");
+				}
+			} catch (IOException e) {
+				throw new SQLException("Could not read the search index: " + e.getMessage(), e);
+			}
+			return null;
+		});
+	}
+
+	// Indexes every question and answer, in batches by id
+	private void rebuildSearchIndex(SearchIndex index) throws SQLException, IOException {
+		index.startRebuild();
+		scanQuestions(index::addQuestion);
+
+		long lastId = 0;
+		int read;
+		do {
+			read = 0;
+			try (PooledConnection pooled = borrow()) {
+				PreparedStatement pstmt = pooled.prepare(SCAN_ANSWERS);
+				pstmt.setLong(1, lastId);
+				pstmt.setInt(2, SCAN_BATCH_SIZE);
+				try (ResultSet rs = pstmt.executeQuery()) {
+					while (rs.next()) {
+						lastId = rs.getLong(1);
+						index.addAnswer(lastId, rs.getLong(2), rs.getString(3));
+						read++;
+					}
+				}
+			}
+		} while (read == SCAN_BATCH_SIZE);
+		index.finishRebuild();
+	}
+
+	/**
+	 * Fills the duplicate detector with every question in the database. The detector is only kept
+	 * in memory, so this runs in the background at every startup; questions posted in the meantime
+	 * are added as usual and are not lost.
+	 */
+	public void loadDuplicateDetector() throws SQLException {
+		metrics().time(DatabaseOperation.LOAD_DUPLICATE_DETECTOR, () -> {
+			long start = System.nanoTime();
+			DuplicateDetector detector = duplicateDetector();
+			detector.startRebuild();
+			scanQuestions(detector::add);
+			detector.finishRebuild();
+			if (DatabaseConfig.DEBUG) {
+				System.out.println("Loaded " + detector + " in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+			}
+			return null;
+		});
+	}
+
+	// Receives the questions read by scanQuestions
+	private interface QuestionVisitor {
+		void visit(long id, String title, String body);
+	}
+
+	// Reads the id, title and body of every question, in batches by id
+	private void scanQuestions(QuestionVisitor visitor) throws SQLException {
+		long lastId = 0;
+		int read;
+		do {
+			read = 0;
+			try (PooledConnection pooled = borrow()) {
+				PreparedStatement pstmt = pooled.prepare(SCAN_QUESTIONS);
+				pstmt.setLong(1, lastId);
+				pstmt.setInt(2, SCAN_BATCH_SIZE);
+				try (ResultSet rs = pstmt.executeQuery()) {
+					while (rs.next()) {
+						lastId = rs.getLong(1);
+						visitor.visit(lastId, rs.getString(2), rs.getString(3));
+						read++;
+					}
+				}
+			}
+		} while (read == SCAN_BATCH_SIZE);
+	}
+
+	private PooledConnection borrow() throws SQLException {
+		return databaseHelper.getConnectionPool().borrow();
+	}
+
+	private SearchIndex searchIndex() {
+		return databaseHelper.getSearchIndex();
+	}
+
+	private DuplicateDetector duplicateDetector() {
+		return databaseHelper.getDuplicateDetector();
+	}
+
+	private DatabaseMetrics metrics() {
+		return databaseHelper.getMetrics();
+	}
+
+	private static int checkPageSize(int limit) {
+		if (limit < 1) {
+			throw new IllegalArgumentException("A page must hold at least one row, not " + limit);
+		}
+		return Math.min(limit, MAX_PAGE_SIZE);
+	}
+
+	// Binds the three parameters of a seek predicate, returning the index of the next parameter
+	private static int bindKey(PreparedStatement pstmt, int index, PageKey key) throws SQLException {
+		pstmt.setObject(index, key.getCreatedAt());
+		pstmt.setObject(index + 1, key.getCreatedAt());
+		pstmt.setLong(index + 2, key.getId());
+		return index + 3;
+	}
+
+	private static void addToAnswerCount(PooledConnection pooled, long questionId, int delta) throws SQLException {
+		PreparedStatement pstmt = pooled.prepare(ADD_TO_ANSWER_COUNT);
+		pstmt.setInt(1, delta);
+		pstmt.setLong(2, questionId);
+		pstmt.executeUpdate();
+	}
+
+	// Reads one more row than the page holds, to tell whether there is a next page
+	private static Page<Question> readQuestions(PreparedStatement pstmt, int pageSize) throws SQLException {
+		List<Question> questions = new ArrayList<>(pageSize);
+		boolean more = false;
+		try (ResultSet rs = pstmt.executeQuery()) {
+			while (rs.next()) {
+				if (questions.size() == pageSize) {
+					more = true;
+					break;
+				}
+				questions.add(readQuestion(rs));
+			}
+		}
+		return new Page<>(questions, more ? questions.get(questions.size() - 1).getPageKey() : null);
+	}
+
+	private static Question readQuestion(ResultSet rs) throws SQLException {
+		return new Question(rs.getLong(1), rs.getString(2), rs.getString(3), rs.getString(4),
+				rs.getObject(5, LocalDateTime.class), rs.getObject(6, LocalDateTime.class),
+				rs.getInt(7), rs.getBoolean(8));
+	}
+}
@@ -0,0 +1,23 @@
+package databasePart2;
+
+import databasePart2.Segment.PostingsSlice;
+
+/**
+ * The ScoreScratch class holds the arrays one thread uses to add up scores while searching a
+ * segment. They are kept between searches, since a segment of a million posts needs several
+ * megabytes of them, and the scores are put back to zero after each segment.
+ */
+final class ScoreScratch {
+
+	float[] scores = new float[0];
+	int[] touched = new int[0];
+	final PostingsSlice slice = new PostingsSlice();
+
+	void ensureCapacity(int docs) {
+		if (scores.length < docs) {
+			int capacity = Math.max(docs, scores.length + (scores.length >> 1));
+			scores = new float[capacity];
+			touched = new int[capacity];
+		}
+	}
+}
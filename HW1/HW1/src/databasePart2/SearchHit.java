@@ -0,0 +1,40 @@
+package databasePart2;
+
+/**
+ * The SearchHit class is one post found by {@link SearchIndex#search}: a question or an answer,
+ * the question it belongs to, and how well it matched.
+ */
+public final class SearchHit {
+
+	private final long postId;
+	private final long questionId;
+	private final boolean answer;
+	private final float score;
+
+	private SearchHit(long postId, long questionId, boolean answer, float score) {
+		this.postId = postId;
+		this.questionId = questionId;
+		this.answer = answer;
+		this.score = score;
+	}
+
+	// Makes a hit from a post key as the index stores it
+	static SearchHit of(long docKey, long questionId, float score) {
+		return new SearchHit(SearchIndex.postId(docKey), questionId, SearchIndex.isAnswer(docKey), score);
+	}
+
+	// The id of the question or answer
+	public long getPostId() { return postId; }
+
+	// The id of the question, or of the question the answer belongs to
+	public long getQuestionId() { return questionId; }
+	public boolean isAnswer() { return answer; }
+
+	// The BM25 score; only comparable between hits of the same search
+	public float getScore() { return score; }
+
+	@Override
+	public String toString() {
+		return (answer ? "Answer[" + postId + " to " : "Question[") + questionId + "] " + score;
+	}
+}
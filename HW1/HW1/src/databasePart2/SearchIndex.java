@@ -0,0 +1,671 @@
+package databasePart2;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * The SearchIndex class is a full-text index of the questions and answers, kept in memory and
+ * saved next to the database file. Posts are split into terms by {@link Tokenizer} and ranked
+ * with BM25, so rare terms count for more than common ones and a term repeated in a short post
+ * counts for more than in a long one.
+ *
+ * The index is made of segments, as Lucene's is. New and edited posts go into an in-memory
+ * buffer that is searched as it grows. A background thread freezes the buffer into a segment
+ * once it holds enough posts or has waited long enough, saves the segment, and merges small
+ * segments, and segments with many deleted posts, into larger ones so a search only has to
+ * look in a few places.
+ *
+ * The saved index is only trusted after a clean shutdown. While the application runs, the
+ * manifest says the index is not clean, and if the application stops without closing the index,
+ * the next start rebuilds it from the database, which remains the source of truth.
+ */
+public class SearchIndex implements AutoCloseable {
+
+	// The BM25 parameters: how quickly repeats of a term stop adding to the score, and how much
+	// a post's length counts against it
+	static final float K1 = 1.2f;
+	static final float B = 0.75f;
+
+	static final int FLUSH_DOCS = Integer.getInteger("cse360.search.flushDocs", 2000);
+	static final long FLUSH_INTERVAL_MS = Long.getLong("cse360.search.flushMs", 2000);
+	static final int MAX_SEGMENTS = Integer.getInteger("cse360.search.maxSegments", 8);
+	// The buffer size while the index is rebuilt from the database
+	static final int BULK_FLUSH_DOCS = 100_000;
+	// Segments with a larger share of deleted posts are rewritten without them
+	static final double MAX_DELETED_RATIO = 0.25;
+	// searchQuestions looks at this many posts per question it returns, since answers to the same
+	// question may fill several places
+	static final int POSTS_PER_QUESTION = 4;
+
+	private static final String MANIFEST = "segments";
+	private static final String MANIFEST_HEADER = "# CSE360 search index v1";
+
+	private static final ThreadLocal<Tokenizer> TOKENIZER = ThreadLocal.withInitial(Tokenizer::new);
+	private static final ThreadLocal<ScoreScratch> SCRATCH = ThreadLocal.withInitial(ScoreScratch::new);
+
+	private final Path directory;
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+	// Replaced, never changed, under the write lock
+	private List<SearchSegment> segments = new ArrayList<>();
+	private SegmentBuffer buffer = new SegmentBuffer();
+	private long bufferStartedAt = System.nanoTime();
+	private long liveDocs;
+	private long liveLength;
+	private volatile boolean bulkLoading;
+	private volatile boolean ready;
+
+	// Guards the files, so commits from flushes, merges and close do not interleave
+	private final Object commitLock = new Object();
+	private final Set<String> savedSegments = new HashSet<>();
+	// Held for a whole merge, so two merges never take the same segments
+	private final Object mergeLock = new Object();
+	private final AtomicLong nextSegment = new AtomicLong();
+
+	private final ScheduledExecutorService maintenance;
+	private final AtomicBoolean maintenanceQueued = new AtomicBoolean();
+
+	private final LongAdder searches = new LongAdder();
+	private final AtomicLong flushes = new AtomicLong();
+	private final AtomicLong merges = new AtomicLong();
+
+	/**
+	 * Creates an empty index. Nothing is read until {@link #load()} is called, and the buffer is
+	 * only saved when it fills up until {@link #start()} is called.
+	 *
+	 * @param directory The directory to save the index in, or null to keep it only in memory
+	 */
+	public SearchIndex(Path directory) {
+		this.directory = directory;
+		this.maintenance = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread thread = new Thread(r, "search-index");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	// Starts saving the buffer on the maintenance thread once it is older than the flush interval
+	public void start() {
+		maintenance.scheduleWithFixedDelay(this::flushIfStale, FLUSH_INTERVAL_MS, FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+	}
+
+	// Keys combine the post's id with whether it is an answer, so questions and answers can share ids
+	static long docKey(boolean answer, long postId) {
+		return postId << 1 | (answer ? 1 : 0);
+	}
+
+	static long postId(long docKey) {
+		return docKey >>> 1;
+	}
+
+	static boolean isAnswer(long docKey) {
+		return (docKey & 1) != 0;
+	}
+
+	/**
+	 * Reads the saved index if it was closed cleanly. Posts added before the load are kept.
+	 *
+	 * @return Whether the saved index was read; if not, the index has to be rebuilt, and any files
+	 *         left from an index that was not closed cleanly have been deleted
+	 */
+	public boolean load() throws IOException {
+		if (directory == null || !Files.exists(directory.resolve(MANIFEST))) {
+			return false;
+		}
+		List<String> lines = Files.readAllLines(directory.resolve(MANIFEST), StandardCharsets.UTF_8);
+		if (lines.isEmpty() || !lines.get(0).equals(MANIFEST_HEADER) || !lines.contains("clean=true")) {
+			deleteSavedFiles();
+			return false;
+		}
+
+		lock.writeLock().lock();
+		try {
+			List<SearchSegment> loaded = new ArrayList<>();
+			for (String line : lines) {
+				if (line.startsWith("next=")) {
+					nextSegment.set(Math.max(nextSegment.get(), Long.parseLong(line.substring(5))));
+				} else if (line.startsWith("segment=")) {
+					loaded.add(SearchSegment.read(directory, line.substring(8)));
+				}
+			}
+			// Posts that were added before the load replace their saved versions
+			for (SearchSegment segment : loaded) {
+				for (int ord = 0; ord < buffer.docCount(); ord++) {
+					if (!buffer.isDeleted(ord)) {
+						int old = segment.findLive(buffer.docKey(ord));
+						if (old >= 0) {
+							segment.delete(old);
+						}
+					}
+				}
+				liveDocs += segment.liveCount();
+				liveLength += liveLength(segment);
+			}
+			List<SearchSegment> all = new ArrayList<>(loaded);
+			all.addAll(segments);
+			segments = all;
+			ready = true;
+		} finally {
+			lock.writeLock().unlock();
+		}
+		synchronized (commitLock) {
+			for (SearchSegment segment : segments) {
+				savedSegments.add(segment.name);
+			}
+		}
+		// From now on the saved index is out of date until it is closed
+		commit(false);
+		return true;
+	}
+
+	// The total length of a segment's live posts
+	private static long liveLength(Segment segment) {
+		if (segment.deletedCount == 0) {
+			return segment.totalLength();
+		}
+		long length = 0;
+		for (int ord = 0; ord < segment.docCount(); ord++) {
+			if (!segment.isDeleted(ord)) {
+				length += segment.length(ord);
+			}
+		}
+		return length;
+	}
+
+	/**
+	 * Empties the index before it is rebuilt from the database. Until {@link #finishRebuild()},
+	 * posts are buffered in larger batches and the index does not report itself ready.
+	 */
+	public void startRebuild() {
+		lock.writeLock().lock();
+		try {
+			segments = new ArrayList<>();
+			buffer = new SegmentBuffer();
+			liveDocs = 0;
+			liveLength = 0;
+			bulkLoading = true;
+			ready = false;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	// Saves the rebuilt index and lets it be merged in the background.
+	public void finishRebuild() throws IOException {
+		bulkLoading = false;
+		flush();
+		ready = true;
+		scheduleMaintenance();
+	}
+
+	// Whether the index has been loaded or rebuilt, so that searches cover every post
+	public boolean isReady() {
+		return ready;
+	}
+
+	// Adds a question, or replaces it if it was edited.
+	public void addQuestion(long id, String title, String body) {
+		add(docKey(false, id), id, title + "\n" + body);
+	}
+
+	// Adds an answer, or replaces it if it was edited.
+	public void addAnswer(long id, long questionId, String body) {
+		add(docKey(true, id), questionId, body);
+	}
+
+	private void add(long key, long questionId, String text) {
+		List<String> terms = TOKENIZER.get().terms(text);
+		boolean full;
+		lock.writeLock().lock();
+		try {
+			deleteKey(key);
+			if (buffer.docCount() == 0) {
+				bufferStartedAt = System.nanoTime();
+			}
+			buffer.add(key, questionId, terms);
+			liveDocs++;
+			liveLength += terms.size();
+			full = buffer.docCount() >= (bulkLoading ? BULK_FLUSH_DOCS : FLUSH_DOCS);
+		} finally {
+			lock.writeLock().unlock();
+		}
+		if (full) {
+			if (bulkLoading) {
+				// The thread loading the posts saves them itself, so they cannot pile up in memory
+				try {
+					flush();
+				} catch (IOException e) {
+					System.err.println("Saving the search index failed: " + e.getMessage());
+				}
+			}
+			scheduleMaintenance();
+		}
+	}
+
+	// Removes a question and every answer to it.
+	public void deleteQuestion(long id) {
+		lock.writeLock().lock();
+		try {
+			deleteQuestionPosts(buffer, id);
+			for (SearchSegment segment : segments) {
+				deleteQuestionPosts(segment, id);
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	// Removes an answer.
+	public void deleteAnswer(long id) {
+		lock.writeLock().lock();
+		try {
+			deleteKey(docKey(true, id));
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	// Deletes the live post with a key wherever it is; called with the write lock held
+	private void deleteKey(long key) {
+		deleteOrd(buffer, buffer.findLive(key));
+		for (SearchSegment segment : segments) {
+			deleteOrd(segment, segment.findLive(key));
+		}
+	}
+
+	private void deleteQuestionPosts(Segment segment, long questionId) {
+		for (int ord = 0; ord < segment.docCount(); ord++) {
+			if (segment.questionId(ord) == questionId) {
+				deleteOrd(segment, ord);
+			}
+		}
+	}
+
+	private void deleteOrd(Segment segment, int ord) {
+		if (ord >= 0 && segment.delete(ord)) {
+			liveDocs--;
+			liveLength -= segment.length(ord);
+		}
+	}
+
+	/**
+	 * Finds the posts that best match a query.
+	 *
+	 * @param query The words to look for; a post matches if it contains any of them
+	 * @param limit The most hits to return
+	 * @return The hits, best first
+	 */
+	public List<SearchHit> search(String query, int limit) {
+		if (limit < 1) {
+			throw new IllegalArgumentException("A search must return at least one hit, not " + limit);
+		}
+		searches.increment();
+		String[] terms = new LinkedHashSet<>(TOKENIZER.get().terms(query)).toArray(new String[0]);
+		if (terms.length == 0) {
+			return new ArrayList<>();
+		}
+		ScoreScratch scratch = SCRATCH.get();
+		lock.readLock().lock();
+		try {
+			if (liveDocs <= 0) {
+				return new ArrayList<>();
+			}
+			float avgLength = Math.max(1f, (float) liveLength / liveDocs);
+			float[] idf = new float[terms.length];
+			for (int t = 0; t < terms.length; t++) {
+				long docFreq = buffer.docFreq(terms[t]);
+				for (SearchSegment segment : segments) {
+					docFreq += segment.docFreq(terms[t]);
+				}
+				// Deleted posts still count until their segment is merged, as in Lucene
+				docFreq = Math.min(docFreq, liveDocs);
+				idf[t] = (float) Math.log(1 + (liveDocs - docFreq + 0.5) / (docFreq + 0.5));
+			}
+
+			TopHits top = new TopHits(limit);
+			for (SearchSegment segment : segments) {
+				segment.score(terms, idf, avgLength, scratch, top);
+			}
+			buffer.score(terms, idf, avgLength, scratch, top);
+			return top.toHits();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Finds the questions that best match a query, counting a question as matched when the
+	 * question itself or one of its answers does.
+	 *
+	 * @return At most limit hits, one per question, best first
+	 */
+	public List<SearchHit> searchQuestions(String query, int limit) {
+		Map<Long, SearchHit> best = new LinkedHashMap<>();
+		for (SearchHit hit : search(query, limit * POSTS_PER_QUESTION)) {
+			best.putIfAbsent(hit.getQuestionId(), hit);
+			if (best.size() == limit) {
+				break;
+			}
+		}
+		return new ArrayList<>(best.values());
+	}
+
+	/**
+	 * Freezes the buffer into a segment and saves it, along with any deletions.
+	 */
+	public void flush() throws IOException {
+		lock.writeLock().lock();
+		try {
+			if (buffer.docCount() > 0) {
+				SearchSegment frozen = buffer.freeze(nextSegmentName());
+				List<SearchSegment> next = new ArrayList<>(segments);
+				next.add(frozen);
+				segments = next;
+				buffer = new SegmentBuffer();
+				flushes.incrementAndGet();
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+		commit(false);
+	}
+
+	private String nextSegmentName() {
+		return "_" + Long.toString(nextSegment.getAndIncrement(), Character.MAX_RADIX);
+	}
+
+	// Flushes a buffer that has waited long enough, from the maintenance thread
+	private void flushIfStale() {
+		boolean stale;
+		lock.readLock().lock();
+		try {
+			stale = buffer.docCount() > 0
+					&& System.nanoTime() - bufferStartedAt >= TimeUnit.MILLISECONDS.toNanos(FLUSH_INTERVAL_MS);
+		} finally {
+			lock.readLock().unlock();
+		}
+		if (stale) {
+			maintain();
+		}
+	}
+
+	// Asks the maintenance thread to flush and merge, unless it has already been asked
+	private void scheduleMaintenance() {
+		if (maintenanceQueued.compareAndSet(false, true)) {
+			try {
+				maintenance.execute(() -> {
+					maintenanceQueued.set(false);
+					maintain();
+				});
+			} catch (RejectedExecutionException e) {
+				maintenanceQueued.set(false);	// closing
+			}
+		}
+	}
+
+	private void maintain() {
+		try {
+			if (!bulkLoading) {
+				flush();
+			}
+			merge();
+		} catch (IOException | RuntimeException e) {
+			System.err.println("Search index maintenance failed: " + e);
+		}
+	}
+
+	/**
+	 * Merges segments until the merge policy is satisfied. The maintenance thread does this after
+	 * every flush; calling it directly waits for the index to settle, as a benchmark may want.
+	 */
+	public void merge() throws IOException {
+		synchronized (mergeLock) {
+			while (mergeOnce()) {
+				// keep merging
+			}
+		}
+	}
+
+	/**
+	 * Merges the segments the policy picks, if any: the smallest ones while there are more than
+	 * MAX_SEGMENTS, which keeps the number of times a post is rewritten logarithmic, or else one
+	 * segment whose share of deleted posts is too high.
+	 *
+	 * @return Whether a merge was made
+	 */
+	private boolean mergeOnce() throws IOException {
+		List<SearchSegment> sources = new ArrayList<>();
+		List<BitSet> snapshots = new ArrayList<>();
+		lock.readLock().lock();
+		try {
+			if (segments.size() > MAX_SEGMENTS) {
+				List<SearchSegment> bySize = new ArrayList<>(segments);
+				bySize.sort(Comparator.comparingInt(Segment::liveCount));
+				sources.addAll(bySize.subList(0, segments.size() - MAX_SEGMENTS + 1));
+			} else {
+				for (SearchSegment segment : segments) {
+					if (segment.deletedCount > 0 && segment.deletedCount >= segment.docCount() * MAX_DELETED_RATIO) {
+						sources.add(segment);
+						break;
+					}
+				}
+			}
+			// Keep the sources in the order of the segment list, so older posts stay first
+			sources.sort(Comparator.comparingInt(segments::indexOf));
+			for (SearchSegment source : sources) {
+				snapshots.add((BitSet) source.deleted.clone());
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+		if (sources.isEmpty()) {
+			return false;
+		}
+
+		int[][] docMaps = new int[sources.size()][];
+		SearchSegment merged = SearchSegment.merge(nextSegmentName(), sources, snapshots, docMaps);
+		lock.writeLock().lock();
+		try {
+			// Carry over the deletions made while the merge ran
+			for (int s = 0; s < sources.size(); s++) {
+				BitSet since = (BitSet) sources.get(s).deleted.clone();
+				since.andNot(snapshots.get(s));
+				for (int ord = since.nextSetBit(0); ord >= 0; ord = since.nextSetBit(ord + 1)) {
+					int newOrd = docMaps[s][ord];
+					if (newOrd >= 0) {
+						merged.delete(newOrd);
+					}
+				}
+			}
+			List<SearchSegment> next = new ArrayList<>(segments.size());
+			boolean placed = false;
+			for (SearchSegment segment : segments) {
+				if (!sources.contains(segment)) {
+					next.add(segment);
+				} else if (!placed) {
+					next.add(merged);
+					placed = true;
+				}
+			}
+			segments = next;
+		} finally {
+			lock.writeLock().unlock();
+		}
+		merges.incrementAndGet();
+		commit(false);
+		return true;
+	}
+
+	/**
+	 * Saves new segments and changed deletions, then the manifest that lists the segments, and
+	 * deletes the files of segments that were merged away. The manifest is replaced in one step,
+	 * so a crash leaves either the old or the new list.
+	 */
+	private void commit(boolean clean) throws IOException {
+		if (directory == null) {
+			return;
+		}
+		synchronized (commitLock) {
+			List<SearchSegment> current;
+			List<BitSet> dirty = new ArrayList<>();
+			List<SearchSegment> dirtySegments = new ArrayList<>();
+			lock.writeLock().lock();
+			try {
+				current = segments;
+				for (SearchSegment segment : current) {
+					if (segment.deletionsDirty) {
+						dirtySegments.add(segment);
+						dirty.add((BitSet) segment.deleted.clone());
+						segment.deletionsDirty = false;
+					}
+				}
+			} finally {
+				lock.writeLock().unlock();
+			}
+
+			Files.createDirectories(directory);
+			for (SearchSegment segment : current) {
+				if (!savedSegments.contains(segment.name)) {
+					segment.write(directory);
+					savedSegments.add(segment.name);
+				}
+			}
+			for (int i = 0; i < dirtySegments.size(); i++) {
+				dirtySegments.get(i).writeDeletions(directory, dirty.get(i));
+			}
+
+			Path temporary = directory.resolve(MANIFEST + ".tmp");
+			try (BufferedWriter writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+				writer.write(MANIFEST_HEADER);
+				writer.newLine();
+				writer.write("clean=" + clean);
+				writer.newLine();
+				writer.write("next=" + nextSegment.get());
+				writer.newLine();
+				for (SearchSegment segment : current) {
+					writer.write("segment=" + segment.name);
+					writer.newLine();
+				}
+			}
+			Files.move(temporary, directory.resolve(MANIFEST), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+
+			Set<String> live = new HashSet<>();
+			for (SearchSegment segment : current) {
+				live.add(segment.name);
+			}
+			for (String name : new ArrayList<>(savedSegments)) {
+				if (!live.contains(name)) {
+					Files.deleteIfExists(directory.resolve(name + ".seg"));
+					Files.deleteIfExists(directory.resolve(name + ".del"));
+					savedSegments.remove(name);
+				}
+			}
+		}
+	}
+
+	// Deletes the files of an index that will be rebuilt; files of other kinds are left alone
+	private void deleteSavedFiles() throws IOException {
+		if (directory == null || !Files.isDirectory(directory)) {
+			return;
+		}
+		synchronized (commitLock) {
+			try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "{*.seg,*.del,*.tmp," + MANIFEST + "}")) {
+				for (Path file : files) {
+					Files.deleteIfExists(file);
+				}
+			}
+			savedSegments.clear();
+		}
+	}
+
+	/**
+	 * Stops the maintenance thread and saves the index, marked clean so the next start can load
+	 * it instead of rebuilding it.
+	 */
+	@Override
+	public void close() {
+		maintenance.shutdown();
+		try {
+			maintenance.awaitTermination(30, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		try {
+			flush();
+			// An index that never finished loading or rebuilding must not be trusted next time
+			commit(ready);
+		} catch (IOException e) {
+			System.err.println("Saving the search index failed: " + e.getMessage());
+		}
+	}
+
+	public long getLiveDocs() {
+		lock.readLock().lock();
+		try {
+			return liveDocs;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	public int getSegmentCount() {
+		lock.readLock().lock();
+		try {
+			return segments.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	public long getSearchCount() { return searches.sum(); }
+	public long getFlushCount() { return flushes.get(); }
+	public long getMergeCount() { return merges.get(); }
+
+	// The bytes of postings held in memory, the bulk of the index's size
+	public long getPostingsBytes() {
+		lock.readLock().lock();
+		try {
+			long bytes = 0;
+			for (SearchSegment segment : segments) {
+				bytes += segment.postingsBytes();
+			}
+			return bytes;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public String toString() {
+		lock.readLock().lock();
+		try {
+			return "SearchIndex[posts=" + liveDocs + ", segments=" + segments.size() + ", buffered=" + buffer.docCount()
+					+ ", searches=" + searches.sum() + ", flushes=" + flushes.get() + ", merges=" + merges.get()
+					+ (ready ? "" : ", not ready") + "]";
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+}
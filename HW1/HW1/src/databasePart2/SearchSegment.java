@@ -0,0 +1,351 @@
+package databasePart2;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * The SearchSegment class is a frozen segment of the {@link SearchIndex}. Its posts and postings
+ * never change; only its deletions do. The terms are kept sorted, so a term is found by binary
+ * search, and the postings of every term share one byte array.
+ *
+ * A segment is saved in two files: name.seg with the posts and postings, written once, and
+ * name.del with the deletions, rewritten whenever the index commits.
+ */
+final class SearchSegment extends Segment {
+
+	private static final int MAGIC = 0x43535831;	// "CSX1"
+	private static final int DELETIONS_MAGIC = 0x43534431;	// "CSD1"
+
+	private final String[] terms;
+	private final int[] docFreqs;
+	private final int[] starts;
+	private final byte[] postings;
+	private final long[] docKeys;
+	private final long[] questionIds;
+	private final int[] lengths;
+	private final long totalLength;
+	// The ordinals sorted by post key, to find a post by its key
+	private final int[] ordsByKey;
+
+	SearchSegment(String name, String[] terms, int[] docFreqs, int[] starts, byte[] postings,
+			long[] docKeys, long[] questionIds, int[] lengths, long totalLength) {
+		super(name);
+		this.terms = terms;
+		this.docFreqs = docFreqs;
+		this.starts = starts;
+		this.postings = postings;
+		this.docKeys = docKeys;
+		this.questionIds = questionIds;
+		this.lengths = lengths;
+		this.totalLength = totalLength;
+		this.ordsByKey = sortOrdsByKey(docKeys);
+	}
+
+	// Sorts the ordinals by key with a bottom-up merge sort, which needs no boxing and is fast
+	// when the posts were added mostly in order of id, as they usually are
+	private static int[] sortOrdsByKey(long[] docKeys) {
+		int n = docKeys.length;
+		int[] ords = new int[n];
+		for (int i = 0; i < n; i++) {
+			ords[i] = i;
+		}
+		int[] buffer = new int[n];
+		for (int width = 1; width < n; width *= 2) {
+			for (int low = 0; low < n - width; low += 2 * width) {
+				int mid = low + width;
+				int high = Math.min(low + 2 * width, n);
+				if (docKeys[ords[mid - 1]] <= docKeys[ords[mid]]) {
+					continue;	// already in order
+				}
+				int i = low;
+				int j = mid;
+				int k = low;
+				while (i < mid && j < high) {
+					buffer[k++] = docKeys[ords[i]] <= docKeys[ords[j]] ? ords[i++] : ords[j++];
+				}
+				while (i < mid) {
+					buffer[k++] = ords[i++];
+				}
+				while (j < high) {
+					buffer[k++] = ords[j++];
+				}
+				System.arraycopy(buffer, low, ords, low, high - low);
+			}
+		}
+		return ords;
+	}
+
+	@Override int docCount() { return docKeys.length; }
+	@Override long docKey(int ord) { return docKeys[ord]; }
+	@Override long questionId(int ord) { return questionIds[ord]; }
+	@Override int length(int ord) { return lengths[ord]; }
+	@Override long totalLength() { return totalLength; }
+
+	int termCount() {
+		return terms.length;
+	}
+
+	long postingsBytes() {
+		return postings.length;
+	}
+
+	@Override
+	int docFreq(String term) {
+		int i = Arrays.binarySearch(terms, term);
+		return i < 0 ? 0 : docFreqs[i];
+	}
+
+	@Override
+	boolean postings(String term, PostingsSlice slice) {
+		int i = Arrays.binarySearch(terms, term);
+		if (i < 0) {
+			return false;
+		}
+		slice.data = postings;
+		slice.start = starts[i];
+		slice.end = starts[i + 1];
+		slice.docFreq = docFreqs[i];
+		return true;
+	}
+
+	@Override
+	int findLive(long docKey) {
+		int low = 0;
+		int high = ordsByKey.length - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			long key = docKeys[ordsByKey[mid]];
+			if (key < docKey) {
+				low = mid + 1;
+			} else if (key > docKey) {
+				high = mid - 1;
+			} else {
+				int ord = ordsByKey[mid];
+				return deleted.get(ord) ? -1 : ord;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Merges segments into one, leaving out the posts deleted in the given snapshots of their
+	 * deletions.
+	 *
+	 * @param docMaps Filled with, for each source, the new ordinal of each old one, or -1 if the
+	 *                post was left out
+	 */
+	static SearchSegment merge(String name, List<SearchSegment> sources, List<BitSet> deletions, int[][] docMaps) {
+		int docs = 0;
+		long bytes = 0;
+		TreeSet<String> allTerms = new TreeSet<>();
+		for (int s = 0; s < sources.size(); s++) {
+			SearchSegment source = sources.get(s);
+			docs += source.docCount() - deletions.get(s).cardinality();
+			bytes += source.postings.length;
+			allTerms.addAll(Arrays.asList(source.terms));
+		}
+
+		long[] docKeys = new long[docs];
+		long[] questionIds = new long[docs];
+		int[] lengths = new int[docs];
+		long totalLength = 0;
+		int next = 0;
+		for (int s = 0; s < sources.size(); s++) {
+			SearchSegment source = sources.get(s);
+			BitSet deleted = deletions.get(s);
+			int[] map = new int[source.docCount()];
+			for (int ord = 0; ord < map.length; ord++) {
+				if (deleted.get(ord)) {
+					map[ord] = -1;
+					continue;
+				}
+				map[ord] = next;
+				docKeys[next] = source.docKeys[ord];
+				questionIds[next] = source.questionIds[ord];
+				lengths[next] = source.lengths[ord];
+				totalLength += source.lengths[ord];
+				next++;
+			}
+			docMaps[s] = map;
+		}
+
+		String[] terms = new String[allTerms.size()];
+		int[] docFreqs = new int[terms.length];
+		int[] starts = new int[terms.length + 1];
+		byte[] out = new byte[(int) Math.min(Integer.MAX_VALUE - 8, bytes + 16)];
+		int position = 0;
+		int termCount = 0;
+		PostingsSlice slice = new PostingsSlice();
+		for (String term : allTerms) {
+			int start = position;
+			int docFreq = 0;
+			int lastOrd = -1;
+			for (int s = 0; s < sources.size(); s++) {
+				if (!sources.get(s).postings(term, slice)) {
+					continue;
+				}
+				int[] map = docMaps[s];
+				byte[] data = slice.data;
+				int read = slice.start;
+				int ord = -1;
+				while (read < slice.end) {
+					int value = data[read++];
+					if (value < 0) {
+						value &= 0x7f;
+						int shift = 7;
+						int b;
+						do {
+							b = data[read++];
+							value |= (b & 0x7f) << shift;
+							shift += 7;
+						} while (b < 0);
+					}
+					ord += value >>> 1;
+					int frequency = 1;
+					if ((value & 1) == 0) {
+						frequency = data[read++];
+						if (frequency < 0) {
+							frequency &= 0x7f;
+							int shift = 7;
+							int b;
+							do {
+								b = data[read++];
+								frequency |= (b & 0x7f) << shift;
+								shift += 7;
+							} while (b < 0);
+						}
+					}
+					int newOrd = map[ord];
+					if (newOrd < 0) {
+						continue;
+					}
+					if (out.length - position < 10) {
+						out = Arrays.copyOf(out, out.length + (out.length >> 1) + 16);
+					}
+					position = writeVarInt(out, position, (newOrd - lastOrd) << 1 | (frequency == 1 ? 1 : 0));
+					if (frequency != 1) {
+						position = writeVarInt(out, position, frequency);
+					}
+					lastOrd = newOrd;
+					docFreq++;
+				}
+			}
+			// A term whose posts were all deleted is left out
+			if (docFreq > 0) {
+				terms[termCount] = term;
+				docFreqs[termCount] = docFreq;
+				starts[termCount] = start;
+				termCount++;
+			}
+		}
+		starts[termCount] = position;
+
+		return new SearchSegment(name, Arrays.copyOf(terms, termCount), Arrays.copyOf(docFreqs, termCount),
+				Arrays.copyOf(starts, termCount + 1), Arrays.copyOf(out, position),
+				docKeys, questionIds, lengths, totalLength);
+	}
+
+	// Writes the posts and postings to name.seg in a directory
+	void write(Path directory) throws IOException {
+		Path file = directory.resolve(name + ".seg");
+		Path temporary = directory.resolve(name + ".seg.tmp");
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary), 1 << 16))) {
+			out.writeInt(MAGIC);
+			out.writeInt(docKeys.length);
+			out.writeInt(terms.length);
+			out.writeLong(totalLength);
+			for (int i = 0; i < docKeys.length; i++) {
+				out.writeLong(docKeys[i]);
+				out.writeLong(questionIds[i]);
+				out.writeInt(lengths[i]);
+			}
+			for (int i = 0; i < terms.length; i++) {
+				out.writeUTF(terms[i]);
+				out.writeInt(docFreqs[i]);
+				out.writeInt(starts[i + 1] - starts[i]);
+			}
+			out.write(postings);
+		}
+		Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	// Reads a segment written by write, with the deletions from name.del if there is one
+	static SearchSegment read(Path directory, String name) throws IOException {
+		Path file = directory.resolve(name + ".seg");
+		SearchSegment segment;
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+			if (in.readInt() != MAGIC) {
+				throw new IOException(file + " is not a search index segment");
+			}
+			int docs = in.readInt();
+			int termCount = in.readInt();
+			long totalLength = in.readLong();
+			long[] docKeys = new long[docs];
+			long[] questionIds = new long[docs];
+			int[] lengths = new int[docs];
+			for (int i = 0; i < docs; i++) {
+				docKeys[i] = in.readLong();
+				questionIds[i] = in.readLong();
+				lengths[i] = in.readInt();
+			}
+			String[] terms = new String[termCount];
+			int[] docFreqs = new int[termCount];
+			int[] starts = new int[termCount + 1];
+			for (int i = 0; i < termCount; i++) {
+				terms[i] = in.readUTF();
+				docFreqs[i] = in.readInt();
+				starts[i + 1] = starts[i] + in.readInt();
+			}
+			byte[] postings = new byte[starts[termCount]];
+			in.readFully(postings);
+			segment = new SearchSegment(name, terms, docFreqs, starts, postings, docKeys, questionIds, lengths, totalLength);
+		}
+
+		Path deletionsFile = directory.resolve(name + ".del");
+		if (Files.exists(deletionsFile)) {
+			try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(deletionsFile)))) {
+				if (in.readInt() != DELETIONS_MAGIC) {
+					throw new IOException(deletionsFile + " is not a search index deletions file");
+				}
+				long[] words = new long[in.readInt()];
+				for (int i = 0; i < words.length; i++) {
+					words[i] = in.readLong();
+				}
+				segment.deleted.or(BitSet.valueOf(words));
+				segment.deletedCount = segment.deleted.cardinality();
+			}
+		}
+		return segment;
+	}
+
+	// Writes a snapshot of the deletions to name.del in a directory
+	void writeDeletions(Path directory, BitSet snapshot) throws IOException {
+		Path file = directory.resolve(name + ".del");
+		Path temporary = directory.resolve(name + ".del.tmp");
+		long[] words = snapshot.toLongArray();
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+			out.writeInt(DELETIONS_MAGIC);
+			out.writeInt(words.length);
+			for (long word : words) {
+				out.writeLong(word);
+			}
+		}
+		Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	@Override
+	public String toString() {
+		return name + "[docs=" + docCount() + ", deleted=" + deletedCount + ", terms=" + terms.length
+				+ ", postingsBytes=" + postings.length + "]";
+	}
+}
@@ -0,0 +1,157 @@
+package databasePart2;
+
+import java.util.BitSet;
+
+/**
+ * The Segment class is one part of the {@link SearchIndex}: a set of posts, and for every term
+ * in them the list of posts that contain it. A segment is either the {@link SegmentBuffer} that
+ * new posts are added to, or a {@link SearchSegment} frozen from a buffer or merged from other
+ * segments. Posts are never changed in place: an edit deletes the old post and adds the new one.
+ *
+ * Each term's postings are the posts that contain it, in increasing order, written as variable
+ * length integers: the gap from the previous post, shifted left, with the low bit set when the
+ * term occurs once; otherwise the number of occurrences follows. Most postings take one byte.
+ *
+ * A post is identified by a key that combines its id with whether it is a question or an answer.
+ * Segments are read under the index's read lock and changed under its write lock.
+ */
+abstract class Segment {
+
+	final String name;
+	// The deleted posts, by ordinal within the segment
+	final BitSet deleted = new BitSet();
+	int deletedCount;
+	// Whether deletions were made since the segment's deletions were last written
+	boolean deletionsDirty;
+
+	Segment(String name) {
+		this.name = name;
+	}
+
+	abstract int docCount();
+	abstract long docKey(int ord);
+	// For an answer the question it answers, and for a question the question itself
+	abstract long questionId(int ord);
+	// The number of terms in the post
+	abstract int length(int ord);
+	abstract long totalLength();
+	abstract int docFreq(String term);
+	// Points the slice at the postings of a term, returning false if no post contains it
+	abstract boolean postings(String term, PostingsSlice slice);
+	// Returns the ordinal of the live post with the given key, or -1
+	abstract int findLive(long docKey);
+
+	int liveCount() {
+		return docCount() - deletedCount;
+	}
+
+	boolean isDeleted(int ord) {
+		return deleted.get(ord);
+	}
+
+	// Marks a post deleted, returning false if it already was
+	boolean delete(int ord) {
+		if (deleted.get(ord)) {
+			return false;
+		}
+		deleted.set(ord);
+		deletedCount++;
+		deletionsDirty = true;
+		return true;
+	}
+
+	/**
+	 * Scores the segment's live posts for a query with BM25 and offers each post that matched to
+	 * the collector.
+	 *
+	 * @param terms   The distinct terms of the query
+	 * @param idf     The inverse document frequency of each term, over the whole index
+	 * @param avgLength The average number of terms in a live post, over the whole index
+	 */
+	void score(String[] terms, float[] idf, float avgLength, ScoreScratch scratch, TopHits top) {
+		int docs = docCount();
+		scratch.ensureCapacity(docs);
+		float[] scores = scratch.scores;
+		int[] touched = scratch.touched;
+		int touchedCount = 0;
+		PostingsSlice slice = scratch.slice;
+		float lengthNorm = SearchIndex.K1 * SearchIndex.B / avgLength;
+		float constantNorm = SearchIndex.K1 * (1 - SearchIndex.B);
+
+		for (int t = 0; t < terms.length; t++) {
+			if (!postings(terms[t], slice)) {
+				continue;
+			}
+			float weight = idf[t] * (SearchIndex.K1 + 1);
+			byte[] data = slice.data;
+			int position = slice.start;
+			int end = slice.end;
+			int ord = -1;
+			while (position < end) {
+				// Inlined readVarInt, since this loop is where searches spend their time
+				int value = data[position++];
+				if (value < 0) {
+					value &= 0x7f;
+					int shift = 7;
+					int b;
+					do {
+						b = data[position++];
+						value |= (b & 0x7f) << shift;
+						shift += 7;
+					} while (b < 0);
+				}
+				ord += value >>> 1;
+				int frequency;
+				if ((value & 1) != 0) {
+					frequency = 1;
+				} else {
+					frequency = data[position++];
+					if (frequency < 0) {
+						frequency &= 0x7f;
+						int shift = 7;
+						int b;
+						do {
+							b = data[position++];
+							frequency |= (b & 0x7f) << shift;
+							shift += 7;
+						} while (b < 0);
+					}
+				}
+				if (deletedCount > 0 && deleted.get(ord)) {
+					continue;
+				}
+				float score = weight * frequency / (frequency + constantNorm + lengthNorm * length(ord));
+				if (scores[ord] == 0) {
+					touched[touchedCount++] = ord;
+				}
+				scores[ord] += score;
+			}
+		}
+
+		for (int i = 0; i < touchedCount; i++) {
+			int ord = touched[i];
+			top.offer(scores[ord], this, ord);
+			scores[ord] = 0;
+		}
+	}
+
+	// Writes a non-negative integer in seven-bit groups, low group first
+	static int writeVarInt(byte[] out, int position, int value) {
+		while ((value & ~0x7f) != 0) {
+			out[position++] = (byte) ((value & 0x7f) | 0x80);
+			value >>>= 7;
+		}
+		out[position++] = (byte) value;
+		return position;
+	}
+
+	/**
+	 * A range of bytes holding one term's postings.
+	 */
+	static final class PostingsSlice {
+		byte[] data;
+		int start;
+		int end;
+		int docFreq;
+	}
+}
@@ -0,0 +1,137 @@
+package databasePart2;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The SegmentBuffer class is the segment that new and edited posts are added to. It can be
+ * searched as it grows, and once it is large enough, or has waited long enough, the index
+ * freezes it into a {@link SearchSegment} and starts a new buffer.
+ */
+final class SegmentBuffer extends Segment {
+
+	private long[] docKeys = new long[64];
+	private long[] questionIds = new long[64];
+	private int[] lengths = new int[64];
+	private int docCount;
+	private long totalLength;
+	private final Map<String, TermPostings> terms = new HashMap<>();
+	private final Map<Long, Integer> ordsByKey = new HashMap<>();
+
+	// The postings of one term, growing as posts are added
+	private static final class TermPostings {
+		byte[] data = new byte[8];
+		int size;
+		int lastOrd = -1;
+		int docFreq;
+
+		void add(int ord, int frequency) {
+			if (data.length - size < 10) {
+				data = Arrays.copyOf(data, data.length * 2);
+			}
+			size = writeVarInt(data, size, (ord - lastOrd) << 1 | (frequency == 1 ? 1 : 0));
+			if (frequency != 1) {
+				size = writeVarInt(data, size, frequency);
+			}
+			lastOrd = ord;
+			docFreq++;
+		}
+	}
+
+	SegmentBuffer() {
+		super("buffer");
+	}
+
+	/**
+	 * Adds a post. Any earlier version of the post must already have been deleted.
+	 *
+	 * @param postTerms The terms of the post, in order and with repeats
+	 */
+	void add(long docKey, long questionId, List<String> postTerms) {
+		int ord = docCount++;
+		if (ord == docKeys.length) {
+			int capacity = ord * 2;
+			docKeys = Arrays.copyOf(docKeys, capacity);
+			questionIds = Arrays.copyOf(questionIds, capacity);
+			lengths = Arrays.copyOf(lengths, capacity);
+		}
+		docKeys[ord] = docKey;
+		questionIds[ord] = questionId;
+		lengths[ord] = postTerms.size();
+		totalLength += postTerms.size();
+
+		Map<String, int[]> frequencies = new HashMap<>();
+		for (String term : postTerms) {
+			frequencies.computeIfAbsent(term, t -> new int[1])[0]++;
+		}
+		for (Map.Entry<String, int[]> entry : frequencies.entrySet()) {
+			terms.computeIfAbsent(entry.getKey(), t -> new TermPostings()).add(ord, entry.getValue()[0]);
+		}
+		ordsByKey.put(docKey, ord);
+	}
+
+	/**
+	 * Copies the buffer into a frozen segment with the given name, deletions included.
+	 */
+	SearchSegment freeze(String segmentName) {
+		String[] sortedTerms = terms.keySet().toArray(new String[0]);
+		Arrays.sort(sortedTerms);
+		int[] docFreqs = new int[sortedTerms.length];
+		int[] starts = new int[sortedTerms.length + 1];
+		int bytes = 0;
+		for (TermPostings postings : terms.values()) {
+			bytes += postings.size;
+		}
+		byte[] data = new byte[bytes];
+		int position = 0;
+		for (int i = 0; i < sortedTerms.length; i++) {
+			TermPostings postings = terms.get(sortedTerms[i]);
+			starts[i] = position;
+			docFreqs[i] = postings.docFreq;
+			System.arraycopy(postings.data, 0, data, position, postings.size);
+			position += postings.size;
+		}
+		starts[sortedTerms.length] = position;
+
+		SearchSegment segment = new SearchSegment(segmentName, sortedTerms, docFreqs, starts, data,
+				Arrays.copyOf(docKeys, docCount), Arrays.copyOf(questionIds, docCount),
+				Arrays.copyOf(lengths, docCount), totalLength);
+		segment.deleted.or(deleted);
+		segment.deletedCount = deletedCount;
+		segment.deletionsDirty = deletedCount > 0;
+		return segment;
+	}
+
+	@Override int docCount() { return docCount; }
+	@Override long docKey(int ord) { return docKeys[ord]; }
+	@Override long questionId(int ord) { return questionIds[ord]; }
+	@Override int length(int ord) { return lengths[ord]; }
+	@Override long totalLength() { return totalLength; }
+
+	@Override
+	int docFreq(String term) {
+		TermPostings postings = terms.get(term);
+		return postings == null ? 0 : postings.docFreq;
+	}
+
+	@Override
+	boolean postings(String term, PostingsSlice slice) {
+		TermPostings postings = terms.get(term);
+		if (postings == null) {
+			return false;
+		}
+		slice.data = postings.data;
+		slice.start = 0;
+		slice.end = postings.size;
+		slice.docFreq = postings.docFreq;
+		return true;
+	}
+
+	@Override
+	int findLive(long docKey) {
+		Integer ord = ordsByKey.get(docKey);
+		return ord == null || deleted.get(ord) ? -1 : ord;
+	}
+}
@@ -0,0 +1,26 @@
+package databasePart2;
+
+/**
+ * The SimilarQuestion class is a question found by {@link QuestionAnswerDAO#findSimilarQuestions}
+ * to be nearly the same as one about to be posted, with how similar the two are.
+ */
+public final class SimilarQuestion {
+
+	private final Question question;
+	private final float similarity;
+
+	SimilarQuestion(Question question, float similarity) {
+		this.question = question;
+		this.similarity = similarity;
+	}
+
+	public Question getQuestion() { return question; }
+
+	// The estimated share of word pairs the two questions have in common, from 0 to 1
+	public float getSimilarity() { return similarity; }
+
+	@Override
+	public String toString() {
+		return "SimilarQuestion[" + question.getId() + ", " + similarity + "]";
+	}
+}
@@ -0,0 +1,77 @@
+package databasePart2;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * The Tokenizer class turns the text of a post or a search into the terms of the search index.
+ * Text is split on anything that is not a letter or a digit, lowercased, stripped of common English
+ * words, and each word is reduced to its stem. Numbers and words with letters outside a-z are kept
+ * as they are, so "cse360" and "naïve" are still found.
+ *
+ * The same tokenizer must be used for indexing and searching, so that both agree on the terms.
+ */
+final class Tokenizer {
+
+	// Longer tokens are almost always pasted data, such as hashes or URLs, and are dropped
+	static final int MAX_TOKEN_LENGTH = 40;
+
+	private static final Set<String> STOP_WORDS = new HashSet<>(Arrays.asList(
+			"a", "an", "and", "are", "as", "at", "be", "but", "by", "for", "if", "in", "into", "is", "it",
+			"no", "not", "of", "on", "or", "such", "that", "the", "their", "then", "there", "these",
+			"they", "this", "to", "was", "will", "with", "i", "me", "my", "we", "you", "your", "do",
+			"does", "did", "so", "can", "how", "what", "when", "where", "which", "who", "why", "have",
+			"has", "had", "am", "been", "from", "its", "our", "about"));
+
+	private final PorterStemmer stemmer = new PorterStemmer();
+
+	/**
+	 * Returns the terms of a text in order, with repeats.
+	 */
+	List<String> terms(String text) {
+		List<String> terms = new ArrayList<>();
+		if (text == null) {
+			return terms;
+		}
+		int length = text.length();
+		int start = -1;
+		for (int i = 0; i <= length; i++) {
+			boolean wordChar = i < length && Character.isLetterOrDigit(text.charAt(i));
+			if (wordChar) {
+				if (start < 0) {
+					start = i;
+				}
+			} else if (start >= 0) {
+				addTerm(terms, text, start, i);
+				start = -1;
+			}
+		}
+		return terms;
+	}
+
+	private void addTerm(List<String> terms, String text, int start, int end) {
+		if (end - start > MAX_TOKEN_LENGTH) {
+			return;
+		}
+		String word = text.substring(start, end).toLowerCase(Locale.ROOT);
+		if (STOP_WORDS.contains(word)) {
+			return;
+		}
+		terms.add(isPlainWord(word) ? stemmer.stem(word) : word);
+	}
+
+	// Whether a word is made only of the letters a to z, which is what the stemmer understands
+	private static boolean isPlainWord(String word) {
+		for (int i = 0; i < word.length(); i++) {
+			char c = word.charAt(i);
+			if (c < 'a' || c > 'z') {
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,96 @@
+package databasePart2;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The TopHits class keeps the highest scoring posts seen during a search, in a min-heap so the
+ * lowest of them can be replaced in logarithmic time.
+ */
+final class TopHits {
+
+	private final int capacity;
+	private final float[] scores;
+	private final Segment[] segments;
+	private final int[] ords;
+	private int size;
+
+	TopHits(int capacity) {
+		this.capacity = capacity;
+		this.scores = new float[capacity];
+		this.segments = new Segment[capacity];
+		this.ords = new int[capacity];
+	}
+
+	void offer(float score, Segment segment, int ord) {
+		if (size < capacity) {
+			int i = size++;
+			set(i, score, segment, ord);
+			siftUp(i);
+		} else if (score > scores[0]) {
+			set(0, score, segment, ord);
+			siftDown(0);
+		}
+	}
+
+	// Returns the hits with the highest score first
+	List<SearchHit> toHits() {
+		SearchHit[] hits = new SearchHit[size];
+		while (size > 0) {
+			Segment segment = segments[0];
+			int ord = ords[0];
+			hits[size - 1] = SearchHit.of(segment.docKey(ord), segment.questionId(ord), scores[0]);
+			size--;
+			if (size > 0) {
+				set(0, scores[size], segments[size], ords[size]);
+				siftDown(0);
+			}
+		}
+		return new ArrayList<>(Arrays.asList(hits));
+	}
+
+	private void set(int i, float score, Segment segment, int ord) {
+		scores[i] = score;
+		segments[i] = segment;
+		ords[i] = ord;
+	}
+
+	private void swap(int i, int j) {
+		float score = scores[i];
+		Segment segment = segments[i];
+		int ord = ords[i];
+		set(i, scores[j], segments[j], ords[j]);
+		set(j, score, segment, ord);
+	}
+
+	private void siftUp(int i) {
+		while (i > 0) {
+			int parent = (i - 1) >>> 1;
+			if (scores[parent] <= scores[i]) {
+				return;
+			}
+			swap(i, parent);
+			i = parent;
+		}
+	}
+
+	private void siftDown(int i) {
+		while (true) {
+			int smallest = i;
+			int left = 2 * i + 1;
+			int right = left + 1;
+			if (left < size && scores[left] < scores[smallest]) {
+				smallest = left;
+			}
+			if (right < size && scores[right] < scores[smallest]) {
+				smallest = right;
+			}
+			if (smallest == i) {
+				return;
+			}
+			swap(i, smallest);
+			i = smallest;
+		}
+	}
+}
@@ -1,6 +1,9 @@
 module FoundationCode {
 	requires javafx.controls;
 	requires java.sql;
+	requires java.management;
+	requires jdk.jfr;
+	requires java.prefs;
 	
 	opens application to javafx.graphics, javafx.fxml;
 }
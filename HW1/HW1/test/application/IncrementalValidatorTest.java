@@ -0,0 +1,90 @@
+package application;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * The IncrementalValidatorTest class applies random insertions and deletions to a field and
+ * checks, after every edit, that the incremental validators give the same result as validating
+ * the whole text again.
+ */
+class IncrementalValidatorTest {
+
+	static final String USER_NAME_ALPHABET = "aZ9_-.!é";
+	static final String PASSWORD_ALPHABET = "Aa1!/ é";
+	static final int FIELDS = 200;
+	static final int EDITS_PER_FIELD = 100;
+	static final int MAX_TEXT_LENGTH = 24;
+
+	@Test
+	void userNameMatchesAFullValidationAfterEveryEdit() {
+		Random random = new Random(360);
+		for (int field = 0; field < FIELDS; field++) {
+			IncrementalUserNameValidator validator = new IncrementalUserNameValidator();
+			StringBuilder text = new StringBuilder();
+			for (int edit = 0; edit < EDITS_PER_FIELD; edit++) {
+				int changeStart = edit(text, random, USER_NAME_ALPHABET);
+				UserNameValidator.Result result = validator.update(text, changeStart);
+
+				assertSameResult(UserNameValidator.validate(text), result, text.toString());
+				assertSameResult(result, validator.getResult(), text.toString());
+			}
+		}
+	}
+
+	@Test
+	void passwordMatchesAFullValidationAfterEveryEdit() {
+		Random random = new Random(360);
+		for (int field = 0; field < FIELDS; field++) {
+			IncrementalPasswordValidator validator = new IncrementalPasswordValidator();
+			StringBuilder text = new StringBuilder();
+			for (int edit = 0; edit < EDITS_PER_FIELD; edit++) {
+				int changeStart = edit(text, random, PASSWORD_ALPHABET);
+				PasswordValidator.Result result = validator.update(text, changeStart);
+
+				assertSameResult(PasswordValidator.evaluate(text), result, text.toString());
+				assertSameResult(result, validator.getResult(), text.toString());
+			}
+		}
+	}
+
+	// Inserts or deletes a few characters at a random position and returns where the change starts
+	private static int edit(StringBuilder text, Random random, String alphabet) {
+		int position = random.nextInt(text.length() + 1);
+		if (text.length() > 0 && (text.length() >= MAX_TEXT_LENGTH || random.nextBoolean())) {
+			int end = Math.min(text.length(), position + 1 + random.nextInt(3));
+			position = Math.min(position, text.length() - 1);
+			text.delete(position, end);
+		} else {
+			int count = 1 + random.nextInt(3);
+			for (int i = 0; i < count; i++) {
+				text.insert(position, alphabet.charAt(random.nextInt(alphabet.length())));
+			}
+		}
+		return position;
+	}
+
+	// Results do not implement equals, so every field is compared
+	private static void assertSameResult(UserNameValidator.Result expected, UserNameValidator.Result actual, String text) {
+		assertEquals(expected.isValid(), actual.isValid(), text);
+		assertEquals(expected.getErrorIndex(), actual.getErrorIndex(), text);
+		assertEquals(expected.getMessage(), actual.getMessage(), text);
+		assertEquals(expected.getErrorMessage(), actual.getErrorMessage(), text);
+	}
+
+	private static void assertSameResult(PasswordValidator.Result expected, PasswordValidator.Result actual, String text) {
+		assertEquals(expected.isValid(), actual.isValid(), text);
+		assertEquals(expected.foundUpperCase(), actual.foundUpperCase(), text);
+		assertEquals(expected.foundLowerCase(), actual.foundLowerCase(), text);
+		assertEquals(expected.foundNumericDigit(), actual.foundNumericDigit(), text);
+		assertEquals(expected.foundSpecialChar(), actual.foundSpecialChar(), text);
+		assertEquals(expected.foundLongEnough(), actual.foundLongEnough(), text);
+		assertEquals(expected.foundOtherChar(), actual.foundOtherChar(), text);
+		assertEquals(expected.getErrorIndex(), actual.getErrorIndex(), text);
+		assertEquals(expected.getMessage(), actual.getMessage(), text);
+		assertEquals(expected.getErrorMessage(), actual.getErrorMessage(), text);
+	}
+}
@@ -0,0 +1,80 @@
+package application;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Random;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * The PasswordValidatorTest class checks that PasswordValidator gives the same error message,
+ * error index and rule flags as SetupAccountPage.PasswordEvaluator, on the length boundaries and
+ * on random inputs drawn from every character class.
+ */
+class PasswordValidatorTest {
+
+	static final String ALPHABET = "AZaz09!/~é ";
+	static final int RANDOM_INPUTS = 5_000;
+
+	private static PrintStream console;
+
+	// PasswordEvaluator prints every step; keep it out of the test output
+	@BeforeAll
+	static void silenceEvaluator() {
+		console = System.out;
+		System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+	}
+
+	@AfterAll
+	static void restoreConsole() {
+		System.setOut(console);
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = { "", "A", "Aa1!", "Aa1!aaa", "Aa1!aaaa", "Aa1!aaaaaaaaaaaa", "Aa1!aaaaaaaaaaaaa",
+			"aaaaaaaa", "AAAAAAAA", "11111111", "!!!!!!!!", "Aa1!aaaa é", "Aa1!aaa é", "Aa1!aaaaaaaaaaaa é",
+			"Aa1!aaaaaaaaaaaaa é", "é", " Aa1!aaaa", "Aa1\"\\'<>,.?/" })
+	void boundariesMatchTheEvaluator(String input) {
+		assertSameAsEvaluator(input);
+	}
+
+	@Test
+	void randomInputsMatchTheEvaluator() {
+		Random random = new Random(360);
+		for (int i = 0; i < RANDOM_INPUTS; i++) {
+			int length = random.nextInt(20);
+			StringBuilder input = new StringBuilder(length);
+			for (int j = 0; j < length; j++) {
+				input.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+			}
+			assertSameAsEvaluator(input.toString());
+		}
+	}
+
+	private static void assertSameAsEvaluator(String input) {
+		String expected = SetupAccountPage.PasswordEvaluator.evaluatePassword(input);
+		PasswordValidator.Result result = PasswordValidator.evaluate(input);
+
+		assertEquals(expected, result.getErrorMessage(), () -> "message of \"" + input + "\"");
+		// PasswordEvaluator leaves its index at 0 for a valid password, where the validator uses -1
+		if (!expected.isEmpty()) {
+			assertEquals(SetupAccountPage.PasswordEvaluator.passwordIndexofError, result.getErrorIndex(),
+					() -> "error index of \"" + input + "\"");
+		}
+		// PasswordEvaluator does not reset its flags for an empty input, and never sets
+		// foundOtherChar, so only the flags of a non-empty input are compared
+		if (!input.isEmpty()) {
+			assertEquals(SetupAccountPage.PasswordEvaluator.foundUpperCase, result.foundUpperCase(), input);
+			assertEquals(SetupAccountPage.PasswordEvaluator.foundLowerCase, result.foundLowerCase(), input);
+			assertEquals(SetupAccountPage.PasswordEvaluator.foundNumericDigit, result.foundNumericDigit(), input);
+			assertEquals(SetupAccountPage.PasswordEvaluator.foundSpecialChar, result.foundSpecialChar(), input);
+			assertEquals(SetupAccountPage.PasswordEvaluator.foundLongEnough, result.foundLongEnough(), input);
+		}
+	}
+}
@@ -0,0 +1,68 @@
+package application;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Random;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * The UserNameValidatorTest class checks that UserNameValidator gives the same error message and
+ * error index as SetupAccountPage.UserNameRecognizer, on the length and separator boundaries and
+ * on random inputs drawn from every character class.
+ */
+class UserNameValidatorTest {
+
+	static final String ALPHABET = "aZq9_-.!é ";
+	static final int RANDOM_INPUTS = 5_000;
+
+	private static PrintStream console;
+
+	// UserNameRecognizer prints every step; keep it out of the test output
+	@BeforeAll
+	static void silenceRecognizer() {
+		console = System.out;
+		System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+	}
+
+	@AfterAll
+	static void restoreConsole() {
+		System.setOut(console);
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = { "", "a", "abcd", "abcde", "abcdefghijklmnop", "abcdefghijklmnopq",
+			"abcdefghijklmno_", "abcdefghijklmn_p", "abcde_", "_abcde", "1abcde", "a_bcde", "ab_cde",
+			"ab__cd", "ab_-cd", "ab.c-d_e", "abcd!", "abcdé", "a1234", "ab cde" })
+	void boundariesMatchTheRecognizer(String input) {
+		assertSameAsRecognizer(input);
+	}
+
+	@Test
+	void randomInputsMatchTheRecognizer() {
+		Random random = new Random(360);
+		for (int i = 0; i < RANDOM_INPUTS; i++) {
+			int length = random.nextInt(20);
+			StringBuilder input = new StringBuilder(length);
+			for (int j = 0; j < length; j++) {
+				input.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+			}
+			assertSameAsRecognizer(input.toString());
+		}
+	}
+
+	private static void assertSameAsRecognizer(String input) {
+		String expected = SetupAccountPage.UserNameRecognizer.checkForValidUserName(input);
+		UserNameValidator.Result result = UserNameValidator.validate(input);
+
+		assertEquals(expected, result.getErrorMessage(), () -> "message of \"" + input + "\"");
+		assertEquals(SetupAccountPage.UserNameRecognizer.userNameRecognizerIndexofError, result.getErrorIndex(),
+				() -> "error index of \"" + input + "\"");
+	}
+}
@@ -0,0 +1,118 @@
+package databasePart1;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import application.PasswordValidator;
+import application.User;
+import application.UserNameValidator;
+
+/**
+ * The BulkRegistrationTest class checks that a row registerAll cannot insert is reported on its
+ * own, and the rest of its batch is still registered, and that a roster file's failures are
+ * reported with their line.
+ */
+class BulkRegistrationTest {
+
+	static final String PASSWORD = "Bulk!Pass1";
+
+	private DatabaseHelper databaseHelper;
+
+	@BeforeEach
+	void connect() throws Exception {
+		databaseHelper = new DatabaseHelper("jdbc:h2:mem:bulk" + System.nanoTime() + ";DB_CLOSE_DELAY=-1");
+		databaseHelper.connectToDatabase();
+	}
+
+	@AfterEach
+	void close() {
+		databaseHelper.closeConnection();
+	}
+
+	@Test
+	void anUnknownRoleOnlyRejectsItsOwnRow() throws Exception {
+		List<User> users = new ArrayList<>();
+		users.add(new User("first", PASSWORD, "user"));
+		users.add(new User("second", PASSWORD, "student"));
+		users.add(new User("third", PASSWORD, "admin"));
+
+		BulkRegistrationResult result = databaseHelper.registerAll(users);
+
+		assertEquals(2, result.getRegisteredCount());
+		assertEquals(3, result.getProcessedCount());
+		assertEquals(1, result.getFailures().size());
+		BulkRegistrationResult.Failure failure = result.getFailures().get(0);
+		assertEquals(2, failure.getRow());
+		assertEquals("second", failure.getUserName());
+		assertTrue(databaseHelper.doesUserExist("first"));
+		assertFalse(databaseHelper.doesUserExist("second"));
+		assertEquals("admin", databaseHelper.authenticate("third", PASSWORD).getRole());
+	}
+
+	@Test
+	void rowsTheValidatorsRejectAreReportedWithTheirMessage() throws Exception {
+		List<User> users = new ArrayList<>();
+		users.add(new User("1abc", PASSWORD, "user"));
+		users.add(new User("goodName", "weak", "user"));
+		users.add(new User("goodName", PASSWORD, "user"));
+
+		BulkRegistrationResult result = databaseHelper.registerAll(users);
+
+		assertEquals(1, result.getRegisteredCount());
+		assertEquals(2, result.getFailures().size());
+		assertEquals(UserNameValidator.validate("1abc").getMessage(), result.getFailures().get(0).getReason());
+		assertEquals(PasswordValidator.evaluate("weak").getMessage(), result.getFailures().get(1).getReason());
+		assertEquals(2, result.getFailures().get(1).getRow());
+	}
+
+	@Test
+	void aTakenNameIsReportedAtItsRow() throws Exception {
+		databaseHelper.register(new User("taken", PASSWORD, "user"));
+		List<User> users = new ArrayList<>();
+		users.add(new User("badRole", PASSWORD, "reviewer"));
+		users.add(new User("fresh", PASSWORD, "user"));
+		users.add(new User("taken", PASSWORD, "user"));
+
+		BulkRegistrationResult result = databaseHelper.registerAll(users);
+
+		assertEquals(1, result.getRegisteredCount());
+		assertEquals(2, result.getFailures().size());
+		assertEquals(1, result.getFailures().get(0).getRow());
+		assertEquals(3, result.getFailures().get(1).getRow());
+		assertEquals("taken", result.getFailures().get(1).getUserName());
+	}
+
+	@Test
+	void rosterFailuresAreNumberedByLine(@TempDir Path directory) throws Exception {
+		Path roster = directory.resolve("roster.csv");
+		Files.writeString(roster, String.join("\n",
+				"userName,password,role",
+				"rosterOne," + PASSWORD,
+				"",
+				"missingPassword",
+				"rosterTwo," + PASSWORD + ",student",
+				"rosterThree," + PASSWORD + ",admin"), StandardCharsets.UTF_8);
+
+		BulkRegistrationResult result = new RosterImporter(databaseHelper).importFile(roster);
+
+		assertEquals(2, result.getRegisteredCount());
+		assertEquals(4, result.getProcessedCount());
+		assertEquals(2, result.getFailures().size());
+		assertEquals(4, result.getFailures().get(0).getRow());
+		assertEquals("missingPassword", result.getFailures().get(0).getUserName());
+		assertEquals(5, result.getFailures().get(1).getRow());
+		assertEquals("rosterTwo", result.getFailures().get(1).getUserName());
+	}
+}
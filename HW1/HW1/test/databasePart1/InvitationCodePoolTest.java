@@ -0,0 +1,100 @@
+package databasePart1;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The InvitationCodePoolTest class checks that the codes minted ahead of time for the pool can only
+ * be redeemed once they have been issued, and that a new start reloads them instead of minting
+ * another batch.
+ */
+class InvitationCodePoolTest {
+
+	private String url;
+	private DatabaseHelper databaseHelper;
+
+	@BeforeEach
+	void connect() throws Exception {
+		url = "jdbc:h2:mem:invitations" + System.nanoTime() + ";DB_CLOSE_DELAY=-1";
+		databaseHelper = new DatabaseHelper(url);
+		databaseHelper.connectToDatabase();
+	}
+
+	@AfterEach
+	void close() {
+		databaseHelper.closeConnection();
+	}
+
+	@Test
+	void aMintedCodeCannotBeRedeemedUntilItIsIssued() throws Exception {
+		String code = databaseHelper.mintInvitationCodes(1).get(0);
+
+		assertFalse(databaseHelper.validateInvitationCode(code));
+	}
+
+	@Test
+	void anIssuedCodeIsCountedAndCanBeRedeemedOnce() throws Exception {
+		String code = databaseHelper.generateInvitationCode();
+
+		assertNotNull(code);
+		assertEquals(1, databaseHelper.countUnusedInvitationCodes());
+		assertTrue(databaseHelper.validateInvitationCode(code));
+		assertFalse(databaseHelper.validateInvitationCode(code));
+		assertEquals(0, databaseHelper.countUnusedInvitationCodes());
+	}
+
+	@Test
+	void aNewStartReloadsTheUnissuedCodes() throws Exception {
+		awaitFullPool(databaseHelper);
+		int unissued = databaseHelper.countUnissuedInvitationCodes();
+		assertEquals(DatabaseHelper.INVITATION_POOL_SIZE, unissued);
+		databaseHelper.closeConnection();
+
+		databaseHelper = new DatabaseHelper(url);
+		databaseHelper.connectToDatabase();
+		awaitFullPool(databaseHelper);
+
+		assertEquals(unissued, databaseHelper.countUnissuedInvitationCodes());
+		assertEquals(0, databaseHelper.countUnusedInvitationCodes());
+	}
+
+	@Test
+	void twoPoolsOnOneDatabaseNeverIssueTheSameCode() throws Exception {
+		awaitFullPool(databaseHelper);
+		DatabaseHelper other = new DatabaseHelper(url);
+		other.connectToDatabase();
+		try {
+			awaitFullPool(other);
+			List<String> issued = new ArrayList<>();
+			for (int i = 0; i < DatabaseHelper.INVITATION_POOL_SIZE; i++) {
+				issued.add(databaseHelper.generateInvitationCode());
+				issued.add(other.generateInvitationCode());
+			}
+
+			assertEquals(issued.size(), issued.stream().distinct().count());
+			assertEquals(issued.size(), databaseHelper.countUnusedInvitationCodes());
+		} finally {
+			other.closeConnection();
+		}
+	}
+
+	// Waits for the refill thread to fill the pool
+	private static void awaitFullPool(DatabaseHelper databaseHelper) throws InterruptedException {
+		long deadline = System.nanoTime() + 10_000_000_000L;
+		while (databaseHelper.getInvitationCodePool().available() < DatabaseHelper.INVITATION_POOL_SIZE) {
+			if (System.nanoTime() > deadline) {
+				throw new AssertionError("The invitation code pool was not filled in time");
+			}
+			Thread.sleep(10);
+		}
+	}
+}
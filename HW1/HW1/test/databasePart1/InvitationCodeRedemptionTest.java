@@ -0,0 +1,118 @@
+package databasePart1;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import application.User;
+
+/**
+ * The InvitationCodeRedemptionTest class checks that an invitation code is used only once when many
+ * people try to redeem it at the same moment. Every thread waits at a gate, so the redemptions
+ * reach the database together.
+ */
+class InvitationCodeRedemptionTest {
+
+	static final int THREADS = 32;
+	static final String PASSWORD = "Stress!Pass1";
+
+	private DatabaseHelper databaseHelper;
+
+	@BeforeEach
+	void connect() throws Exception {
+		databaseHelper = new DatabaseHelper("jdbc:h2:mem:redemption" + System.nanoTime() + ";DB_CLOSE_DELAY=-1");
+		databaseHelper.connectToDatabase();
+	}
+
+	@AfterEach
+	void close() {
+		databaseHelper.closeConnection();
+	}
+
+	@Test
+	void exactlyOneRegistrationWinsACode() throws Exception {
+		String code = databaseHelper.generateInvitationCode();
+
+		List<RegistrationResult> results = race(thread ->
+				databaseHelper.registerWithInvitation(new User("student" + thread, PASSWORD, "user"), code));
+
+		assertEquals(1, results.stream().filter(result -> result == RegistrationResult.SUCCESS).count(), results.toString());
+		assertEquals(THREADS - 1, results.stream().filter(result -> result == RegistrationResult.INVALID_INVITATION_CODE).count(),
+				results.toString());
+		int registered = 0;
+		for (int thread = 0; thread < THREADS; thread++) {
+			if (databaseHelper.doesUserExist("student" + thread)) {
+				registered++;
+			}
+		}
+		assertEquals(1, registered);
+		assertFalse(databaseHelper.validateInvitationCode(code));
+	}
+
+	@Test
+	void exactlyOneValidationWinsACode() throws Exception {
+		String code = databaseHelper.generateInvitationCode();
+
+		List<Boolean> results = race(thread -> databaseHelper.validateInvitationCode(code));
+
+		assertEquals(1, results.stream().filter(Boolean::booleanValue).count(), results.toString());
+	}
+
+	@Test
+	void aTakenUserNameLeavesTheCodeUnused() throws Exception {
+		databaseHelper.register(new User("student0", PASSWORD, "user"));
+		String code = databaseHelper.generateInvitationCode();
+
+		assertEquals(RegistrationResult.USERNAME_TAKEN,
+				databaseHelper.registerWithInvitation(new User("student0", PASSWORD, "user"), code));
+		assertTrue(databaseHelper.validateInvitationCode(code));
+	}
+
+	/**
+	 * One thread's attempt at a code.
+	 */
+	@FunctionalInterface
+	interface Attempt<T> {
+		T run(int thread) throws Exception;
+	}
+
+	// Runs the attempt on every thread at once and returns what each returned
+	private static <T> List<T> race(Attempt<T> attempt) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		try {
+			CountDownLatch ready = new CountDownLatch(THREADS);
+			CountDownLatch start = new CountDownLatch(1);
+			List<Future<T>> futures = new ArrayList<>(THREADS);
+			for (int t = 0; t < THREADS; t++) {
+				int thread = t;
+				Callable<T> task = () -> {
+					ready.countDown();
+					start.await();
+					return attempt.run(thread);
+				};
+				futures.add(executor.submit(task));
+			}
+			ready.await();
+			start.countDown();
+			List<T> results = new ArrayList<>(THREADS);
+			for (Future<T> future : futures) {
+				results.add(future.get());
+			}
+			return results;
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+}
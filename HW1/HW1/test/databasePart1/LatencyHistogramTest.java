@@ -0,0 +1,81 @@
+package databasePart1;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * The LatencyHistogramTest class checks that the buckets of LatencyHistogram cover every value
+ * without gaps or overlaps, that a bucket's upper bound is within 1/16 of any value in it, and
+ * that percentiles are read from those bounds.
+ */
+class LatencyHistogramTest {
+
+	static final int LAST_BUCKET = LatencyHistogram.bucketOf(Long.MAX_VALUE);
+
+	@Test
+	void smallValuesHaveABucketEach() {
+		for (int value = 0; value < 16; value++) {
+			assertEquals(value, LatencyHistogram.bucketOf(value));
+			assertEquals(value, LatencyHistogram.upperBoundOf(value));
+		}
+		assertEquals(16, LatencyHistogram.bucketOf(16));
+	}
+
+	@Test
+	void bucketsAreContiguous() {
+		assertEquals(0, LatencyHistogram.bucketOf(0));
+		for (int bucket = 0; bucket < LAST_BUCKET; bucket++) {
+			long upper = LatencyHistogram.upperBoundOf(bucket);
+			assertEquals(bucket, LatencyHistogram.bucketOf(upper), "upper bound of " + bucket);
+			assertEquals(bucket + 1, LatencyHistogram.bucketOf(upper + 1), "value after bucket " + bucket);
+		}
+		assertEquals(Long.MAX_VALUE, LatencyHistogram.upperBoundOf(LAST_BUCKET));
+	}
+
+	@Test
+	void anUpperBoundIsWithinASixteenthOfTheValue() {
+		Random random = new Random(360);
+		for (int i = 0; i < 100_000; i++) {
+			// Spread the values over every power of two
+			long value = random.nextLong() >>> (1 + random.nextInt(63));
+			long upper = LatencyHistogram.upperBoundOf(LatencyHistogram.bucketOf(value));
+			assertTrue(upper >= value, () -> value + " -> " + upper);
+			assertTrue(upper - value <= value / 16, () -> value + " -> " + upper);
+		}
+	}
+
+	@Test
+	void percentilesAreReadFromTheBuckets() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		assertEquals(0, histogram.getPercentileNanos(0.5));
+
+		for (long value = 1; value <= 1000; value++) {
+			histogram.record(value);
+		}
+
+		assertEquals(1000, histogram.getCount());
+		assertEquals(500.5, histogram.getMeanNanos(), 1e-9);
+		long median = histogram.getPercentileNanos(0.5);
+		assertTrue(median >= 500 && median <= 500 + 500 / 16, () -> "median " + median);
+		long max = histogram.getPercentileNanos(1.0);
+		assertTrue(max >= 1000 && max <= 1000 + 1000 / 16, () -> "max " + max);
+		assertEquals(1, histogram.getPercentileNanos(0.0));
+	}
+
+	@Test
+	void negativeValuesCountAsZeroAndResetClearsEverything() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(-5);
+		assertEquals(0, histogram.getPercentileNanos(1.0));
+
+		histogram.reset();
+
+		assertEquals(0, histogram.getCount());
+		assertEquals(0.0, histogram.getMeanNanos());
+		assertEquals(0, histogram.getPercentileNanos(1.0));
+	}
+}
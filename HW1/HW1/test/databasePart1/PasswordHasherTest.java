@@ -0,0 +1,52 @@
+package databasePart1;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The PasswordHasherTest class checks that the calibrated iteration count is a whole number of
+ * steps, and that only a hash clearly weaker than the current one is redone at login.
+ */
+class PasswordHasherTest {
+
+	private PasswordHasher hasher;
+
+	@BeforeEach
+	void create() {
+		hasher = new PasswordHasher(5, 16);
+	}
+
+	@AfterEach
+	void shutdown() {
+		hasher.shutdown();
+	}
+
+	@Test
+	void theIterationCountIsRoundedToAStep() {
+		assertEquals(0, hasher.getIterations() % PasswordHasher.ITERATION_STEP);
+	}
+
+	@Test
+	void aSlightlyWeakerHashIsKept() throws Exception {
+		int iterations = hasher.getIterations();
+
+		assertFalse(hasher.needsRehash(hasher.hash("Hasher!Pass1")));
+		assertFalse(hasher.needsRehash(withIterations(iterations - iterations / 5)));
+		assertFalse(hasher.needsRehash(withIterations(iterations * 2)));
+	}
+
+	@Test
+	void aMuchWeakerOrPlaintextPasswordIsRehashed() {
+		assertTrue(hasher.needsRehash(withIterations(hasher.getIterations() / 2)));
+		assertTrue(hasher.needsRehash(PasswordCredential.legacy("Hasher!Pass1")));
+	}
+
+	private static PasswordCredential withIterations(int iterations) {
+		return PasswordCredential.hashed(iterations, new byte[PasswordHasher.SALT_BYTES], new byte[PasswordHasher.HASH_BITS / 8]);
+	}
+}
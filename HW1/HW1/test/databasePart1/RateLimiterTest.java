@@ -0,0 +1,107 @@
+package databasePart1;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * The RateLimiterTest class checks the token bucket arithmetic of RateLimiter: the burst, the wait
+ * it reports, the refill, and that keys over the limit share an overflow bucket instead of
+ * growing the maps.
+ */
+class RateLimiterTest {
+
+	static final long LONG_PERIOD_MS = 60_000;
+	static final long SHORT_PERIOD_MS = 30;
+
+	@Test
+	void aBurstIsAllowedAndThenOneAttemptPerPeriod() {
+		RateLimiter limiter = new RateLimiter("test", 3, LONG_PERIOD_MS, 1024);
+		long start = System.nanoTime();
+
+		for (int i = 0; i < 3; i++) {
+			assertEquals(0, limiter.tryAcquire("alice"));
+		}
+		long wait = limiter.tryAcquire("alice");
+
+		// Three attempts were taken from a bucket that holds three, so the next one is a period away
+		long period = TimeUnit.MILLISECONDS.toNanos(LONG_PERIOD_MS);
+		assertTrue(wait <= period, () -> "wait " + wait);
+		assertTrue(wait >= period - (System.nanoTime() - start), () -> "wait " + wait);
+		assertEquals(3, limiter.getAllowedCount());
+		assertEquals(1, limiter.getRejectedCount());
+	}
+
+	@Test
+	void aRejectedAttemptDoesNotUseUpTheBucket() {
+		RateLimiter limiter = new RateLimiter("test", 1, LONG_PERIOD_MS, 1024);
+
+		assertEquals(0, limiter.tryAcquire("alice"));
+		long first = limiter.tryAcquire("alice");
+		long second = limiter.tryAcquire("alice");
+
+		assertTrue(first > 0);
+		assertTrue(second > 0 && second <= first);
+	}
+
+	@Test
+	void keysHaveSeparateBuckets() {
+		RateLimiter limiter = new RateLimiter("test", 1, LONG_PERIOD_MS, 1024);
+
+		assertEquals(0, limiter.tryAcquire("alice"));
+		assertTrue(limiter.tryAcquire("alice") > 0);
+		assertEquals(0, limiter.tryAcquire("bob"));
+		assertEquals(2, limiter.size());
+	}
+
+	@Test
+	void anAttemptIsEarnedBackAfterAPeriod() throws InterruptedException {
+		RateLimiter limiter = new RateLimiter("test", 1, SHORT_PERIOD_MS, 1024);
+
+		assertEquals(0, limiter.tryAcquire("alice"));
+		long wait = limiter.tryAcquire("alice");
+		assertTrue(wait > 0);
+		TimeUnit.NANOSECONDS.sleep(wait + TimeUnit.MILLISECONDS.toNanos(5));
+
+		assertEquals(0, limiter.tryAcquire("alice"));
+	}
+
+	@Test
+	void idleBucketsAreDropped() throws InterruptedException {
+		RateLimiter limiter = new RateLimiter("test", 1, SHORT_PERIOD_MS, 1024);
+		limiter.tryAcquire("alice");
+		limiter.tryAcquire("bob");
+		Thread.sleep(SHORT_PERIOD_MS * 2);
+
+		limiter.evictIdle();
+
+		assertEquals(0, limiter.size());
+		assertEquals(2, limiter.getEvictedCount());
+	}
+
+	@Test
+	void keysOverTheLimitShareAnOverflowBucket() {
+		RateLimiter limiter = new RateLimiter("test", 1, LONG_PERIOD_MS, RateLimiter.STRIPES);
+
+		for (int i = 0; i < 1000; i++) {
+			limiter.tryAcquire("flood" + i);
+		}
+
+		// One tracked key and one overflow bucket per stripe, each allowing a single attempt
+		assertTrue(limiter.size() <= RateLimiter.STRIPES, limiter::toString);
+		assertTrue(limiter.getAllowedCount() <= 2 * RateLimiter.STRIPES, limiter::toString);
+		assertEquals(1000, limiter.getAllowedCount() + limiter.getRejectedCount());
+		assertTrue(limiter.getOverflowCount() >= 1000 - RateLimiter.STRIPES, limiter::toString);
+	}
+
+	@Test
+	void invalidLimitsAreRejected() {
+		assertThrows(IllegalArgumentException.class, () -> new RateLimiter("test", 0, LONG_PERIOD_MS, 1024));
+		assertThrows(IllegalArgumentException.class, () -> new RateLimiter("test", 1, 0, 1024));
+		assertThrows(IllegalArgumentException.class, () -> new RateLimiter("test", 1, LONG_PERIOD_MS, RateLimiter.STRIPES - 1));
+	}
+}
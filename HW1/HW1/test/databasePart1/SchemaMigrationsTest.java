@@ -0,0 +1,120 @@
+package databasePart1;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.Base64;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import application.User;
+
+/**
+ * The SchemaMigrationsTest class checks that a database created before migrations existed, with
+ * plaintext and text-encoded hashed passwords and used and unused codes, is upgraded to the
+ * current schema without losing any account or code.
+ */
+class SchemaMigrationsTest {
+
+	static final int ITERATIONS = 10_000;
+
+	private String url;
+	private Connection legacy;
+	private DatabaseHelper databaseHelper;
+
+	@BeforeEach
+	void createLegacyDatabase() throws Exception {
+		url = "jdbc:h2:mem:legacy" + System.nanoTime() + ";DB_CLOSE_DELAY=-1";
+		// Kept open so the in-memory database is not dropped between the two connections
+		legacy = DriverManager.getConnection(url, "sa", "");
+		try (Statement statement = legacy.createStatement()) {
+			statement.execute("CREATE TABLE cse360users (id INT AUTO_INCREMENT PRIMARY KEY, "
+					+ "userName VARCHAR(255) UNIQUE, password VARCHAR(255), role VARCHAR(20))");
+			statement.execute("CREATE TABLE InvitationCodes (code VARCHAR(10) PRIMARY KEY, isUsed BOOLEAN DEFAULT FALSE)");
+			statement.execute("INSERT INTO InvitationCodes VALUES ('USED', TRUE), ('OPEN', FALSE)");
+		}
+		try (PreparedStatement pstmt = legacy.prepareStatement(
+				"INSERT INTO cse360users (userName, password, role) VALUES (?, ?, ?)")) {
+			addLegacyUser(pstmt, "adminOne", "Admin!Pass1", "admin");
+			// A plaintext password that only looks like the start of a hash
+			addLegacyUser(pstmt, "lookalike", "pbkdf2$Ab1!xyz", "user");
+			addLegacyUser(pstmt, "hashedUser", encode("Hashed!Pass1"), "user");
+		}
+	}
+
+	@AfterEach
+	void close() throws Exception {
+		if (databaseHelper != null) {
+			databaseHelper.closeConnection();
+		}
+		legacy.close();
+	}
+
+	@Test
+	void everyLegacyAccountCanStillLogIn() throws Exception {
+		connect();
+
+		AuthResult admin = databaseHelper.authenticate("adminOne", "Admin!Pass1");
+		assertTrue(admin.isSuccess());
+		assertEquals("admin", admin.getRole());
+		AuthResult lookalike = databaseHelper.authenticate("lookalike", "pbkdf2$Ab1!xyz");
+		assertTrue(lookalike.isSuccess());
+		assertEquals("user", lookalike.getRole());
+		assertTrue(databaseHelper.authenticate("hashedUser", "Hashed!Pass1").isSuccess());
+		assertFalse(databaseHelper.authenticate("hashedUser", "Wrong!Pass1").isSuccess());
+	}
+
+	@Test
+	void onlyTheUnusedLegacyCodeCanBeRedeemed() throws Exception {
+		connect();
+
+		assertEquals(1, databaseHelper.countUnusedInvitationCodes());
+		assertFalse(databaseHelper.validateInvitationCode("USED"));
+		assertTrue(databaseHelper.validateInvitationCode("OPEN"));
+	}
+
+	@Test
+	void newUsersAreNumberedAfterTheLegacyOnes() throws Exception {
+		connect();
+
+		databaseHelper.register(new User("newUser", "New!Pass1", "user"));
+
+		assertTrue(databaseHelper.authenticate("newUser", "New!Pass1").isSuccess());
+		assertTrue(databaseHelper.authenticate("adminOne", "Admin!Pass1").isSuccess());
+	}
+
+	private void connect() throws Exception {
+		databaseHelper = new DatabaseHelper(url);
+		databaseHelper.connectToDatabase();
+	}
+
+	private static void addLegacyUser(PreparedStatement pstmt, String userName, String password, String role)
+			throws Exception {
+		pstmt.setString(1, userName);
+		pstmt.setString(2, password);
+		pstmt.setString(3, role);
+		pstmt.executeUpdate();
+	}
+
+	// Encodes a password the way it was stored in the password column once hashing was added
+	private static String encode(String password) throws Exception {
+		byte[] salt = new byte[PasswordHasher.SALT_BYTES];
+		for (int i = 0; i < salt.length; i++) {
+			salt[i] = (byte) i;
+		}
+		PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, ITERATIONS, PasswordHasher.HASH_BITS);
+		byte[] hash = SecretKeyFactory.getInstance(PasswordHasher.ALGORITHM).generateSecret(spec).getEncoded();
+		Base64.Encoder encoder = Base64.getEncoder();
+		return PasswordHasher.PREFIX + ITERATIONS + "$" + encoder.encodeToString(salt) + "$" + encoder.encodeToString(hash);
+	}
+}
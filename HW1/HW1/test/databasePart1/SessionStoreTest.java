@@ -0,0 +1,128 @@
+package databasePart1;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * The SessionStoreTest class checks that the timing wheel ends idle sessions without a lookup,
+ * keeps the ones still in use, and that sessions saved to a file are read back by a new store.
+ */
+class SessionStoreTest {
+
+	static final long TICK_MS = 10;
+
+	@Test
+	void aTokenFindsItsSessionUntilItIsRevoked() {
+		SessionStore store = new SessionStore(60_000, TICK_MS, null);
+		String token = store.create("alice", "admin");
+
+		Session session = store.validate(token);
+		assertNotNull(session);
+		assertEquals("alice", session.getUserName());
+		assertTrue(store.hasRole(token, "admin"));
+		assertNull(store.validate(token + "x"));
+
+		store.revoke(token);
+		assertNull(store.validate(token));
+		assertEquals(1, store.getRevokedCount());
+	}
+
+	@Test
+	void anIdleSessionIsExpiredOnLookupBeforeTheWheelReachesIt() throws InterruptedException {
+		SessionStore store = new SessionStore(30, TICK_MS, null);
+		String token = store.create("alice", "user");
+		Thread.sleep(50);
+
+		assertNull(store.validate(token));
+		assertEquals(1, store.getExpiredCount());
+	}
+
+	@Test
+	void theWheelEndsIdleSessionsWithoutALookup() throws InterruptedException {
+		SessionStore store = new SessionStore(100, TICK_MS, null);
+		store.start();
+		try {
+			store.create("alice", "user");
+			store.create("bob", "user");
+
+			await(() -> store.size() == 0);
+			assertEquals(2, store.getExpiredCount());
+		} finally {
+			store.close();
+		}
+	}
+
+	@Test
+	void theWheelKeepsASessionThatIsStillUsed() throws InterruptedException {
+		SessionStore store = new SessionStore(300, TICK_MS, null);
+		store.start();
+		try {
+			String token = store.create("alice", "user");
+			// Used well within the timeout for twice as long as the timeout
+			for (int i = 0; i < 10; i++) {
+				Thread.sleep(60);
+				assertNotNull(store.validate(token), "lookup " + i);
+			}
+			assertEquals(0, store.getExpiredCount());
+
+			await(() -> store.size() == 0);
+			assertEquals(1, store.getExpiredCount());
+		} finally {
+			store.close();
+		}
+	}
+
+	@Test
+	void savedSessionsAreReadBackByANewStore(@TempDir Path directory) {
+		Path file = directory.resolve("sessions");
+		SessionStore first = new SessionStore(60_000, TICK_MS, file);
+		String kept = first.create("alice", "admin");
+		String revoked = first.create("bob", "user");
+		first.revoke(revoked);
+		first.close();
+
+		SessionStore second = new SessionStore(60_000, TICK_MS, file);
+
+		assertEquals(1, second.size());
+		Session session = second.validate(kept);
+		assertNotNull(session);
+		assertEquals("alice", session.getUserName());
+		assertEquals("admin", session.getRole());
+		assertNull(second.validate(revoked));
+	}
+
+	@Test
+	void sessionsThatExpiredWhileClosedAreNotReadBack(@TempDir Path directory) throws Exception {
+		Path file = directory.resolve("sessions");
+		SessionStore first = new SessionStore(30, TICK_MS, file);
+		String token = first.create("alice", "user");
+		first.close();
+		assertTrue(Files.exists(file));
+		Thread.sleep(50);
+
+		SessionStore second = new SessionStore(30, TICK_MS, file);
+
+		assertEquals(0, second.size());
+		assertNull(second.validate(token));
+	}
+
+	// Waits up to a few seconds for the expiry thread to make a condition true
+	private static void await(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.nanoTime() + 5_000_000_000L;
+		while (!condition.getAsBoolean()) {
+			if (System.nanoTime() > deadline) {
+				throw new AssertionError("The condition did not become true in time");
+			}
+			Thread.sleep(TICK_MS);
+		}
+	}
+}
@@ -0,0 +1,95 @@
+package databasePart1;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The StatementCacheTest class checks that StatementCache hands back the statement it prepared,
+ * and that once it is full the least recently used statement is closed and dropped.
+ */
+class StatementCacheTest {
+
+	static final String A = "SELECT 1";
+	static final String B = "SELECT 2";
+	static final String C = "SELECT 3";
+
+	private Connection connection;
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+	private StatementCache cache;
+
+	@BeforeEach
+	void connect() throws Exception {
+		connection = DriverManager.getConnection("jdbc:h2:mem:statements" + System.nanoTime(), "sa", "");
+		cache = new StatementCache(connection, 2, hits, misses, evictions);
+	}
+
+	@AfterEach
+	void close() throws Exception {
+		cache.close();
+		connection.close();
+	}
+
+	@Test
+	void theSameSqlGetsTheSameStatement() throws Exception {
+		PreparedStatement first = cache.prepare(A);
+		PreparedStatement second = cache.prepare(A);
+
+		assertSame(first, second);
+		assertEquals(1, misses.sum());
+		assertEquals(1, hits.sum());
+	}
+
+	@Test
+	void theLeastRecentlyUsedStatementIsEvicted() throws Exception {
+		PreparedStatement a = cache.prepare(A);
+		PreparedStatement b = cache.prepare(B);
+		cache.prepare(A); // A is now used more recently than B
+
+		PreparedStatement c = cache.prepare(C);
+
+		assertEquals(1, evictions.sum());
+		assertTrue(b.isClosed());
+		assertFalse(a.isClosed());
+		assertFalse(c.isClosed());
+		assertSame(a, cache.prepare(A));
+		assertNotSame(b, cache.prepare(B));
+		assertEquals(4, misses.sum());
+	}
+
+	@Test
+	void aClosedStatementIsPreparedAgain() throws Exception {
+		PreparedStatement first = cache.prepare(A);
+		first.close();
+
+		PreparedStatement second = cache.prepare(A);
+
+		assertNotSame(first, second);
+		assertFalse(second.isClosed());
+		assertEquals(2, misses.sum());
+	}
+
+	@Test
+	void closingTheCacheClosesEveryStatement() throws Exception {
+		PreparedStatement a = cache.prepare(A);
+		PreparedStatement b = cache.prepare(B);
+
+		cache.close();
+
+		assertTrue(a.isClosed());
+		assertTrue(b.isClosed());
+	}
+}
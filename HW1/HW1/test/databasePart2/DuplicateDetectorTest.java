@@ -0,0 +1,128 @@
+package databasePart2;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The DuplicateDetectorTest class checks that DuplicateDetector ranks near duplicates by their
+ * similarity, that its MinHash estimates stay close to the exact Jaccard similarity, and that
+ * questions in the bands and in the tail are found the same way.
+ */
+class DuplicateDetectorTest {
+
+	static final String TITLE = "How do I reset my password for the course portal";
+	static final String BODY = "I forgot the password for my course portal account and the reset link in the "
+			+ "email does not work when I open it from the campus network during the evening";
+	// Variants of the question, each further from it than the one before
+	static final String[] VARIANTS = {
+		BODY,
+		BODY.replace("during the evening", "late at night"),
+		BODY.replace("and the reset link in the email", "and the recovery link they sent"),
+		"My portal password expired and the reset link in the email does not work on the campus network",
+	};
+
+	private DuplicateDetector detector;
+
+	@BeforeEach
+	void create() {
+		detector = new DuplicateDetector(0.3);
+	}
+
+	@AfterEach
+	void close() {
+		detector.close();
+	}
+
+	@Test
+	void moreSimilarQuestionsRankHigher() {
+		for (int i = 0; i < VARIANTS.length; i++) {
+			detector.add(i + 1, TITLE, VARIANTS[i]);
+		}
+		detector.add(50, "Group project deadlines", "When is the final report for the group project due this semester");
+
+		List<DuplicateDetector.Match> matches = detector.findSimilar(TITLE, BODY, 10);
+
+		assertEquals(1, matches.get(0).getQuestionId());
+		assertEquals(1.0f, matches.get(0).getSimilarity());
+		for (int i = 1; i < matches.size(); i++) {
+			assertTrue(matches.get(i - 1).getSimilarity() >= matches.get(i).getSimilarity(), matches::toString);
+		}
+		assertTrue(ids(matches).indexOf(2L) < ids(matches).indexOf(3L), matches::toString);
+		assertFalse(ids(matches).contains(50L), matches::toString);
+	}
+
+	@Test
+	void estimatesAreCloseToTheExactSimilarity() {
+		for (int i = 0; i < VARIANTS.length; i++) {
+			detector.add(i + 1, TITLE, VARIANTS[i]);
+		}
+
+		for (DuplicateDetector.Match match : detector.findSimilar(TITLE, BODY, 10)) {
+			double exact = DuplicateDetector.similarity(TITLE, BODY, TITLE, VARIANTS[(int) match.getQuestionId() - 1]);
+			// 64 hashes give a standard error of at most 1/16; allow four of them
+			assertEquals(exact, match.getSimilarity(), 0.25, match.toString());
+		}
+	}
+
+	@Test
+	void theBandsAndTheTailFindTheSameQuestions() {
+		for (int i = 0; i < VARIANTS.length; i++) {
+			detector.add(i + 1, TITLE, VARIANTS[i]);
+		}
+		List<DuplicateDetector.Match> fromTail = detector.findSimilar(TITLE, BODY, 10);
+
+		detector.merge();
+		List<DuplicateDetector.Match> fromBands = detector.findSimilar(TITLE, BODY, 10);
+
+		assertEquals(ids(fromTail), ids(fromBands));
+	}
+
+	@Test
+	void removedAndEditedQuestionsAreNotFoundAsTheyWere() {
+		detector.add(1, TITLE, BODY);
+		detector.add(2, TITLE, BODY);
+		detector.merge();
+
+		detector.remove(1);
+		detector.add(2, "Group project deadlines", "When is the final report for the group project due this semester");
+
+		assertTrue(detector.findSimilar(TITLE, BODY, 10).isEmpty());
+		assertEquals(List.of(2L), ids(detector.findSimilar("Group project deadlines",
+				"When is the final report for the group project due this semester", 10)));
+	}
+
+	@Test
+	void equallySimilarQuestionsAreNewestFirstUpToTheLimit() {
+		for (long id = 1; id <= 5; id++) {
+			detector.add(id, TITLE, BODY);
+		}
+
+		assertEquals(List.of(5L, 4L, 3L), ids(detector.findSimilar(TITLE, BODY, 3)));
+	}
+
+	@Test
+	void theBandsReachTheTargetRecallAtTheThreshold() {
+		for (double threshold = 0.2; threshold <= 1.0; threshold += 0.1) {
+			int rows = DuplicateDetector.rowsPerBand(threshold);
+			int bands = DuplicateDetector.NUM_HASHES / rows;
+			double recall = 1 - Math.pow(1 - Math.pow(threshold, rows), bands);
+			assertTrue(recall >= DuplicateDetector.TARGET_RECALL, "threshold " + threshold + ": " + recall);
+		}
+	}
+
+	private static List<Long> ids(List<DuplicateDetector.Match> matches) {
+		List<Long> ids = new ArrayList<>();
+		for (DuplicateDetector.Match match : matches) {
+			ids.add(match.getQuestionId());
+		}
+		return ids;
+	}
+}
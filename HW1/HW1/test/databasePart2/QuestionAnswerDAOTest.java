@@ -0,0 +1,170 @@
+package databasePart2;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import application.User;
+import databasePart1.DatabaseHelper;
+
+/**
+ * The QuestionAnswerDAOTest class checks the keyset paging of QuestionAnswerDAO: following the
+ * next keys visits every row once, in order, even when rows share a creation time and when new
+ * questions are posted between pages.
+ */
+class QuestionAnswerDAOTest {
+
+	static final String PASSWORD = "Paging!Pass1";
+	static final int QUESTIONS = 25;
+	static final int PAGE_SIZE = 7;
+	static final LocalDateTime BASE = LocalDateTime.of(2024, 1, 1, 12, 0);
+
+	private String url;
+	private DatabaseHelper databaseHelper;
+	private QuestionAnswerDAO dao;
+	// Every question posted in setUp, in feed order
+	private final List<Question> feed = new ArrayList<>();
+
+	@BeforeEach
+	void setUp() throws Exception {
+		url = "jdbc:h2:mem:paging" + System.nanoTime() + ";DB_CLOSE_DELAY=-1";
+		databaseHelper = new DatabaseHelper(url);
+		databaseHelper.connectToDatabase();
+		databaseHelper.register(new User("alice", PASSWORD, "user"));
+		databaseHelper.register(new User("bobby", PASSWORD, "user"));
+		dao = new QuestionAnswerDAO(databaseHelper);
+
+		List<Long> ids = new ArrayList<>();
+		for (int i = 0; i < QUESTIONS; i++) {
+			ids.add(dao.createQuestion(i % 2 == 0 ? "alice" : "bobby", "Question " + i, "Body " + i).getId());
+		}
+		// Three questions share each creation time, so the id has to break the ties
+		try (Connection connection = DriverManager.getConnection(url, "sa", "");
+				PreparedStatement pstmt = connection.prepareStatement("UPDATE questions SET createdAt = ? WHERE id = ?")) {
+			for (int i = 0; i < ids.size(); i++) {
+				pstmt.setObject(1, BASE.plusMinutes(i / 3));
+				pstmt.setLong(2, ids.get(i));
+				pstmt.executeUpdate();
+			}
+		}
+		for (Long id : ids) {
+			feed.add(dao.getQuestion(id));
+		}
+		feed.sort(Comparator.comparing(Question::getCreatedAt).thenComparingLong(Question::getId).reversed());
+	}
+
+	@AfterEach
+	void close() {
+		databaseHelper.closeConnection();
+	}
+
+	@Test
+	void followingTheKeysVisitsEveryQuestionOnceInOrder() throws Exception {
+		List<Long> visited = new ArrayList<>();
+		int pages = 0;
+		PageKey after = null;
+		do {
+			Page<Question> page = dao.listQuestions(after, PAGE_SIZE);
+			pages++;
+			assertTrue(page.getItems().size() <= PAGE_SIZE);
+			for (Question question : page.getItems()) {
+				visited.add(question.getId());
+			}
+			after = page.getNextKey();
+		} while (after != null);
+
+		assertEquals(ids(feed), visited);
+		assertEquals((QUESTIONS + PAGE_SIZE - 1) / PAGE_SIZE, pages);
+	}
+
+	@Test
+	void aQuestionPostedBetweenPagesDoesNotShiftTheNextPage() throws Exception {
+		Page<Question> first = dao.listQuestions(null, PAGE_SIZE);
+		dao.createQuestion("alice", "A new question", "Posted while paging");
+
+		Page<Question> second = dao.listQuestions(first.getNextKey(), PAGE_SIZE);
+
+		assertEquals(ids(feed.subList(PAGE_SIZE, 2 * PAGE_SIZE)), ids(second.getItems()));
+	}
+
+	@Test
+	void aPageCanStartAtAPositionInTheFeed() throws Exception {
+		int position = 10;
+		PageKey key = dao.findQuestionKey(position);
+
+		assertEquals(feed.get(position).getPageKey(), key);
+		Page<Question> page = dao.listQuestions(key, PAGE_SIZE);
+		assertEquals(ids(feed.subList(position + 1, position + 1 + PAGE_SIZE)), ids(page.getItems()));
+		assertNull(dao.findQuestionKey(QUESTIONS));
+	}
+
+	@Test
+	void anAuthorsQuestionsArePagedOnTheirOwn() throws Exception {
+		List<Long> expected = new ArrayList<>();
+		for (Question question : feed) {
+			if (question.getAuthorName().equals("bobby")) {
+				expected.add(question.getId());
+			}
+		}
+
+		List<Long> visited = new ArrayList<>();
+		PageKey after = null;
+		do {
+			Page<Question> page = dao.listQuestionsByAuthor("bobby", after, 5);
+			visited.addAll(ids(page.getItems()));
+			after = page.getNextKey();
+		} while (after != null);
+
+		assertEquals(expected, visited);
+		assertFalse(dao.listQuestionsByAuthor("nobody", null, 5).hasNext());
+	}
+
+	@Test
+	void answersArePagedOldestFirst() throws Exception {
+		long questionId = feed.get(0).getId();
+		List<Long> posted = new ArrayList<>();
+		for (int i = 0; i < 12; i++) {
+			posted.add(dao.createAnswer(questionId, i % 2 == 0 ? "bobby" : "alice", "Answer " + i).getId());
+		}
+
+		List<Long> visited = new ArrayList<>();
+		PageKey after = null;
+		do {
+			Page<Answer> page = dao.listAnswers(questionId, after, 5);
+			for (Answer answer : page.getItems()) {
+				visited.add(answer.getId());
+			}
+			after = page.getNextKey();
+		} while (after != null);
+
+		assertEquals(posted, visited);
+		assertEquals(12, dao.getQuestion(questionId).getAnswerCount());
+	}
+
+	@Test
+	void aPageMustHoldAtLeastOneRow() {
+		assertThrows(IllegalArgumentException.class, () -> dao.listQuestions(null, 0));
+	}
+
+	private static List<Long> ids(List<Question> questions) {
+		List<Long> ids = new ArrayList<>(questions.size());
+		for (Question question : questions) {
+			ids.add(question.getId());
+		}
+		return ids;
+	}
+}
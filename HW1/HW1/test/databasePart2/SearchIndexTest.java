@@ -0,0 +1,153 @@
+package databasePart2;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The SearchIndexTest class checks the BM25 ranking of SearchIndex: the scores it gives, that rare
+ * terms and short posts rank higher, that a flushed segment ranks the same as the buffer, and that
+ * edited and deleted posts are no longer found as they were.
+ */
+class SearchIndexTest {
+
+	static final String[] TITLES = {
+		"Java streams question",
+		"Java generics and wildcards",
+		"Hibernate lazy loading in Java",
+		"Java",
+		"Java java java threads and locks with a long explanation of every detail",
+	};
+
+	private SearchIndex index;
+
+	@BeforeEach
+	void fill() {
+		index = new SearchIndex(null);
+		for (int i = 0; i < TITLES.length; i++) {
+			index.addQuestion(i + 1, TITLES[i], "");
+		}
+	}
+
+	@AfterEach
+	void close() {
+		index.close();
+	}
+
+	@Test
+	void scoresFollowBm25() {
+		List<SearchHit> hits = index.search("java", 10);
+
+		assertEquals(TITLES.length, hits.size());
+		for (SearchHit hit : hits) {
+			float expected = bm25("java", (int) hit.getQuestionId() - 1);
+			assertEquals(expected, hit.getScore(), 1e-4, hit.toString());
+		}
+		for (int i = 1; i < hits.size(); i++) {
+			assertTrue(hits.get(i - 1).getScore() >= hits.get(i).getScore());
+		}
+	}
+
+	@Test
+	void aRareTermOutranksACommonOne() {
+		List<SearchHit> hits = index.search("java hibernate", 10);
+
+		assertEquals(3, hits.get(0).getQuestionId());
+	}
+
+	@Test
+	void aShortPostOutranksALongOneWithTheSameTerm() {
+		List<SearchHit> hits = index.search("java", 10);
+
+		// "Java" alone is the shortest post; the long one repeats the term but is much longer
+		assertEquals(4, hits.get(0).getQuestionId());
+		assertTrue(rank(hits, 4) < rank(hits, 2));
+	}
+
+	@Test
+	void aFlushedSegmentRanksLikeTheBuffer() throws Exception {
+		List<SearchHit> before = index.search("java locks wildcards", 10);
+
+		index.flush();
+		List<SearchHit> after = index.search("java locks wildcards", 10);
+
+		assertEquals(1, index.getSegmentCount());
+		assertEquals(before.size(), after.size());
+		for (int i = 0; i < before.size(); i++) {
+			assertEquals(before.get(i).getPostId(), after.get(i).getPostId());
+			assertEquals(before.get(i).getScore(), after.get(i).getScore(), 1e-6);
+		}
+	}
+
+	@Test
+	void editedAndDeletedPostsAreNoLongerFoundAsTheyWere() throws Exception {
+		index.flush();
+		index.addQuestion(3, "Lazy loading", "Proxies");
+		index.deleteQuestion(1);
+
+		assertTrue(index.search("hibernate", 10).isEmpty());
+		assertFalse(ids(index.search("streams", 10)).contains(1L));
+		assertEquals(List.of(3L), ids(index.search("proxies", 10)));
+		assertEquals(TITLES.length - 1, index.getLiveDocs());
+	}
+
+	@Test
+	void answersCountTowardsTheirQuestionOnce() {
+		index.addAnswer(100, 2, "Use a bounded wildcard with extends");
+		index.addAnswer(101, 2, "A wildcard with super works for consumers");
+
+		List<SearchHit> hits = index.searchQuestions("wildcard", 10);
+
+		assertEquals(List.of(2L), questionIds(hits));
+	}
+
+	// Computes the BM25 score of one term in one title from the definition
+	private float bm25(String term, int title) {
+		Tokenizer tokenizer = new Tokenizer();
+		String stem = tokenizer.terms(term).get(0);
+		int docs = TITLES.length;
+		long totalLength = 0;
+		int docFreq = 0;
+		for (String text : TITLES) {
+			List<String> terms = tokenizer.terms(text + "\n");
+			totalLength += terms.size();
+			if (terms.contains(stem)) {
+				docFreq++;
+			}
+		}
+		List<String> terms = tokenizer.terms(TITLES[title] + "\n");
+		int frequency = Collections.frequency(terms, stem);
+		float avgLength = (float) totalLength / docs;
+		float idf = (float) Math.log(1 + (docs - docFreq + 0.5) / (docFreq + 0.5));
+		return idf * (SearchIndex.K1 + 1) * frequency
+				/ (frequency + SearchIndex.K1 * (1 - SearchIndex.B + SearchIndex.B * terms.size() / avgLength));
+	}
+
+	private static int rank(List<SearchHit> hits, long questionId) {
+		return ids(hits).indexOf(questionId);
+	}
+
+	private static List<Long> ids(List<SearchHit> hits) {
+		List<Long> ids = new ArrayList<>();
+		for (SearchHit hit : hits) {
+			ids.add(hit.getPostId());
+		}
+		return ids;
+	}
+
+	private static List<Long> questionIds(List<SearchHit> hits) {
+		List<Long> ids = new ArrayList<>();
+		for (SearchHit hit : hits) {
+			ids.add(hit.getQuestionId());
+		}
+		return ids;
+	}
+}